@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.efaps.esjp.logback.util.LogbackReloader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logging by many threads into a FileAppender, flushing each event or
+ * buffered, and into the appenders of the module writing to a MappedLog,
+ * as text or binary. Throughput and the sampled time of the logging call
+ * are reported.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class AppenderBenchmark
+{
+
+    private static final String PATTERN = "%d %-5level [%thread] %logger - %msg%n";
+
+    /** file, bufferedFile, mapped or binary. */
+    @Param({ "file", "bufferedFile", "mapped", "binary" })
+    public String appender;
+
+    private Path dir;
+
+    private Logger logger;
+
+    /**
+     * Load a configuration defining all appenders, each for its own logger.
+     *
+     * @throws Exception on error
+     */
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        dir = Files.createTempDirectory("appender-benchmark");
+        final String config = "<configuration>"
+                        + mapped("MAPPED", "text") + mapped("BINARY", "binary")
+                        + file("FILE", true) + file("BUFFERED", false)
+                        + logger("file", "FILE") + logger("bufferedFile", "BUFFERED")
+                        + logger("mapped", null) + logger("binary", null)
+                        + "<root level=\"WARN\"/></configuration>";
+        LogbackReloader.reload(config.getBytes(StandardCharsets.UTF_8));
+        logger = LoggerFactory.getLogger("org.efaps.benchmarks.appender." + appender);
+    }
+
+    /**
+     * Remove the appenders and the files.
+     *
+     * @throws Exception on error
+     */
+    @TearDown
+    public void tearDown()
+        throws Exception
+    {
+        LogbackReloader.reload("<configuration><root level=\"WARN\"/></configuration>"
+                        .getBytes(StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (final IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            });
+        }
+    }
+
+    /**
+     * Log one event.
+     */
+    @Benchmark
+    public void log()
+    {
+        logger.info("event {} of user {}", 42, "benchmark");
+    }
+
+    private String mapped(final String _name,
+                          final String _format)
+    {
+        final String prefix = "<property scope=\"context\" name=\"efaps.mapped." + _name + ".";
+        final String loggerName = "org.efaps.benchmarks.appender." + ("text".equals(_format) ? "mapped" : "binary");
+        return prefix + "file\" value=\"" + dir.resolve(_name.toLowerCase(Locale.ENGLISH)) + "\"/>"
+                        + prefix + "loggers\" value=\"" + loggerName + "\"/>"
+                        + prefix + "pattern\" value=\"" + PATTERN + "\"/>"
+                        + prefix + "format\" value=\"" + _format + "\"/>";
+    }
+
+    private String file(final String _name,
+                        final boolean _immediateFlush)
+    {
+        return "<appender name=\"" + _name + "\" class=\"ch.qos.logback.core.FileAppender\">"
+                        + "<file>" + dir.resolve(_name.toLowerCase(Locale.ENGLISH) + ".log") + "</file>"
+                        + "<immediateFlush>" + _immediateFlush + "</immediateFlush>"
+                        + "<encoder><pattern>" + PATTERN + "</pattern></encoder></appender>";
+    }
+
+    private String logger(final String _name,
+                          final String _appender)
+    {
+        return "<logger name=\"org.efaps.benchmarks.appender." + _name + "\" level=\"INFO\" additivity=\"false\">"
+                        + (_appender == null ? "" : "<appender-ref ref=\"" + _appender + "\"/>") + "</logger>";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.util.BurstLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ch.qos.logback.classic.Level;
+
+/**
+ * The decision of the {@link BurstLimiter} for one call of a logger:
+ * without limits, with a limit the events pass and with a limit suppressing
+ * them. The calls alternate between several loggers and message patterns.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BurstLimiterBenchmark
+{
+
+    private static final String NAME = "org.efaps.benchmarks.burst";
+
+    /** none, pass or suppress. */
+    @Param({ "none", "pass", "suppress" })
+    public String limit;
+
+    private final String[] loggers = new String[16];
+
+    private final String[] formats = new String[16];
+
+    private int next;
+
+    /**
+     * Create the calls and set the limit.
+     *
+     * @throws Exception on error
+     */
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        for (int i = 0; i < loggers.length; i++) {
+            loggers[i] = NAME + ".Class" + i % 4;
+            formats[i] = "message " + i % 8 + " {}";
+        }
+        if ("pass".equals(limit)) {
+            BurstLimiter.setLimit(NAME, 1_000_000_000d, 1_000_000);
+        } else if ("suppress".equals(limit)) {
+            BurstLimiter.setLimit(NAME, 0.001d, 1);
+        }
+    }
+
+    /**
+     * Remove the limit.
+     *
+     * @throws Exception on error
+     */
+    @TearDown
+    public void tearDown()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 0, 0);
+    }
+
+    /**
+     * @return the decision
+     */
+    @Benchmark
+    public int decide()
+    {
+        final int idx = next++ & loggers.length - 1;
+        return BurstLimiter.decide(loggers[idx], Level.INFO, formats[idx]);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.rest.ConfigurationController;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * The REST resource of the logger configuration: reading one page of 100
+ * loggers below a prefix and reading all loggers, each including the
+ * streamed JSON of the response, and updating the level of the 100 loggers
+ * of one subpackage. The updates alternate between DEBUG and INFO, so every
+ * call changes the levels.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigurationControllerBenchmark
+{
+
+    private final ConfigurationController controller = new ConfigurationController();
+
+    private final List<List<LoggerDto>> updates = List.of(updates("DEBUG"), updates("INFO"));
+
+    private int calls;
+
+    /**
+     * @param _state the loggers
+     * @throws Exception on error
+     */
+    @Benchmark
+    public void getLoggersPage(final LoggerContextState _state)
+        throws Exception
+    {
+        write(controller.getLoggers(LoggerContextState.PREFIX + ".p0.s5", false, null, null, 100, null, 0));
+    }
+
+    /**
+     * @param _state the loggers
+     * @throws Exception on error
+     */
+    @Benchmark
+    public void getLoggers(final LoggerContextState _state)
+        throws Exception
+    {
+        write(controller.getLoggers(null, false, null, null, 0, null, 0));
+    }
+
+    /**
+     * @param _state the loggers
+     * @throws Exception on error
+     */
+    @Benchmark
+    public void updateLoggers(final LoggerContextState _state)
+        throws Exception
+    {
+        controller.updateLoggers(updates.get(calls++ & 1));
+    }
+
+    /**
+     * @param _response response to write into a stream discarding the bytes
+     * @throws Exception on error
+     */
+    private static void write(final Response _response)
+        throws Exception
+    {
+        ((StreamingOutput) _response.getEntity()).write(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * @param _level level to set
+     * @return updates for the loggers of the subpackage s5 of the first package
+     */
+    private static List<LoggerDto> updates(final String _level)
+    {
+        final List<LoggerDto> ret = new ArrayList<>();
+        for (int i = 500; i < 600; i++) {
+            ret.add(LoggerDto.builder().withName(LoggerContextState.name(i)).withLevel(_level).build());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.rest.EventIndex;
+import org.efaps.esjp.logback.rest.EventQuery;
+import org.efaps.esjp.logback.util.EventRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads of the {@link EventRing} and searches of the {@link EventIndex} as
+ * done by the tail of the events, on a full ring.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBenchmark
+{
+
+    private static final int EVENTS = 100_000;
+
+    private static final int[] LEVELS = { 10_000, 20_000, 30_000, 40_000 };
+
+    private EventRing ring;
+
+    private EventIndex index;
+
+    /**
+     * Fill the ring and the index.
+     */
+    @Setup
+    public void fill()
+    {
+        ring = new EventRing(16 * 1024 * 1024);
+        index = new EventIndex(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            final String logger = "org.efaps.benchmarks.event.p" + i % 5 + ".Class" + i % 50;
+            final int level = LEVELS[i % 7 == 0 ? 3 : i % 3];
+            final long position = ring.append(1_000_000L + i, level, logger,
+                            "2024-01-01 00:00:00.000 [main] INFO " + logger + " - message number " + i);
+            index.add(position, 1_000_000L + i, level, logger, Map.of("user", "u" + i % 100));
+        }
+        index.drain();
+    }
+
+    /**
+     * The last events without cursor.
+     *
+     * @param _bh blackhole
+     */
+    @Benchmark
+    public void readLast(final Blackhole _bh)
+    {
+        ring.readLast(Integer.MIN_VALUE, null, 100, _bh::consume);
+    }
+
+    /**
+     * The last events of a logger with few recent events.
+     *
+     * @param _bh blackhole
+     */
+    @Benchmark
+    public void readLastLogger(final Blackhole _bh)
+    {
+        ring.readLast(LEVELS[3], "org.efaps.benchmarks.event.p0.Class0", 100, _bh::consume);
+    }
+
+    /**
+     * The events following a cursor.
+     *
+     * @param _bh blackhole
+     * @return position after the last event
+     */
+    @Benchmark
+    public long readFrom(final Blackhole _bh)
+    {
+        return ring.read(ring.getStart(), Integer.MIN_VALUE, null, 100, _bh::consume);
+    }
+
+    /**
+     * @return the events of a logger
+     */
+    @Benchmark
+    public List<EventRing.Entry> searchLogger()
+    {
+        return index.search(ring, EventQuery.builder().withLogger("org.efaps.benchmarks.event.p1").withLimit(100)
+                        .build(), Integer.MIN_VALUE);
+    }
+
+    /**
+     * @return the events of an MDC value at a minimum level
+     */
+    @Benchmark
+    public List<EventRing.Entry> searchMdc()
+    {
+        return index.search(ring, EventQuery.builder().withMdc(List.of("user=u42")).withLimit(100).build(),
+                        LEVELS[2]);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.jersey.JerseyLogFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+
+/**
+ * The overhead of the {@link JerseyLogFilter} for one request: with logging
+ * disabled, and for a whole logged exchange of a request and its response
+ * with an entity of 1 KB or of one beyond the maximum body size. The
+ * exchange runs on stub contexts, so no connection is measured; its events
+ * are appended to an appender that drops them. The decision of the head
+ * sampling and the serialization of the entity are measured on their own.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JerseyLogFilterBenchmark
+{
+
+    private static final String NAME = "org.efaps.benchmarks.jersey";
+
+    /** Number of entries of the entity, 1 KB or beyond the maximum body size. */
+    @Param({ "32", "2048" })
+    public int entries;
+
+    private final JerseyLogFilter disabled = new JerseyLogFilter();
+
+    private final JerseyLogFilter logged = new JerseyLogFilter();
+
+    private final Filter sampling = new Filter();
+
+    private Map<String, Object> entity;
+
+    private StubRequestContext request;
+
+    private StubResponseContext response;
+
+    /**
+     * Create the entity, the request and the response.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Logger info = (Logger) LoggerFactory.getLogger(NAME + ".info");
+        info.setLevel(Level.INFO);
+        disabled.setLogger(info);
+
+        final NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+        appender.setContext(info.getLoggerContext());
+        appender.start();
+        final Logger debug = (Logger) LoggerFactory.getLogger(NAME + ".debug");
+        debug.setLevel(Level.DEBUG);
+        debug.setAdditive(false);
+        debug.addAppender(appender);
+        logged.setLogger(debug);
+
+        sampling.setLogger(debug);
+        sampling.setSamplingMode(JerseyLogFilter.SamplingMode.HEAD);
+        sampling.setSampleRate(0.5);
+        sampling.setSamplesPerSecond(1000);
+
+        entity = new LinkedHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            entity.put("key" + i, "value " + i);
+        }
+        request = new StubRequestContext("POST", URI.create("http://localhost:8080/api/resource"), entity);
+        response = new StubResponseContext(entity.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IOException on error
+     */
+    @Benchmark
+    public void disabled()
+        throws IOException
+    {
+        disabled.filter(request);
+        disabled.filter(request, response);
+    }
+
+    /**
+     * The request, the response and the read of its entity by the client.
+     *
+     * @return the bytes read from the response
+     * @throws IOException on error
+     */
+    @Benchmark
+    public long exchange()
+        throws IOException
+    {
+        response.reset();
+        logged.filter(request);
+        logged.filter(request, response);
+        try (InputStream input = response.getEntityStream()) {
+            return input.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * @return the decision
+     */
+    @Benchmark
+    public boolean sampleHead()
+    {
+        return sampling.sampleHead();
+    }
+
+    /**
+     * @return the serialized entity
+     * @throws IOException on error
+     */
+    @Benchmark
+    public byte[] serializeEntity()
+        throws IOException
+    {
+        return sampling.serializeEntity(entity);
+    }
+
+    /**
+     * Gives access to the protected parts of the filter.
+     */
+    private static final class Filter
+        extends JerseyLogFilter
+    {
+
+        @Override
+        protected boolean sampleHead()
+        {
+            return super.sampleHead();
+        }
+
+        @Override
+        protected byte[] serializeEntity(final Object _entity)
+            throws IOException
+        {
+            return super.serializeEntity(_entity);
+        }
+    }
+}
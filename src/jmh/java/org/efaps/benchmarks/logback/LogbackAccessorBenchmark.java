@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Reading name, level and effective level of all loggers, as done for one
+ * unfiltered request: by the cached MethodHandles of the
+ * {@link LogbackAccessor}, by a reflective lookup for every call as done
+ * before the accessor existed, and by direct calls as the lower bound.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogbackAccessorBenchmark
+{
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws Exception on error
+     */
+    @Benchmark
+    public void accessor(final LoggerContextState _state,
+                         final Blackhole _bh)
+        throws Exception
+    {
+        final LogbackAccessor accessor = _state.accessor;
+        for (final Object logger : _state.loggerList) {
+            _bh.consume(accessor.getName(logger));
+            _bh.consume(accessor.getLevel(logger));
+            _bh.consume(accessor.getEffectiveLevel(logger));
+        }
+    }
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws Exception on error
+     */
+    @Benchmark
+    public void reflection(final LoggerContextState _state,
+                           final Blackhole _bh)
+        throws Exception
+    {
+        for (final Object logger : _state.loggerList) {
+            _bh.consume(logger.getClass().getMethod("getName").invoke(logger));
+            _bh.consume(logger.getClass().getMethod("getLevel").invoke(logger));
+            _bh.consume(logger.getClass().getMethod("getEffectiveLevel").invoke(logger));
+        }
+    }
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     */
+    @Benchmark
+    public void direct(final LoggerContextState _state,
+                       final Blackhole _bh)
+    {
+        for (final Object obj : _state.loggerList) {
+            final Logger logger = (Logger) obj;
+            _bh.consume(logger.getName());
+            _bh.consume(logger.getLevel());
+            _bh.consume(logger.getEffectiveLevel());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.List;
+
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A LoggerContext with 1k, 10k or 100k loggers below {@link #PREFIX}, in
+ * packages of 1000 with 10 subpackages of 100 loggers each. Every subpackage
+ * s3 has the level WARN set explicitly.
+ *
+ * @author The eFaps Team
+ */
+@State(Scope.Benchmark)
+public class LoggerContextState
+{
+
+    /** Prefix of the loggers. */
+    public static final String PREFIX = "org.efaps.benchmarks.tree";
+
+    /** Number of loggers. */
+    @Param({ "1000", "10000", "100000" })
+    public int loggers;
+
+    /** Accessor to Logback. */
+    public LogbackAccessor accessor;
+
+    /** The sorted loggers. */
+    public List<?> loggerList;
+
+    /**
+     * Create the loggers.
+     *
+     * @throws Exception on error
+     */
+    @Setup(Level.Trial)
+    public void createLoggers()
+        throws Exception
+    {
+        accessor = LogbackAccessor.get();
+        for (int i = 0; i < loggers; i++) {
+            accessor.getLogger(name(i));
+        }
+        final Object warn = accessor.toLevel("WARN");
+        for (int i = 0; i < loggers; i += 1000) {
+            accessor.setLevel(accessor.getLogger(PREFIX + ".p" + i / 1000 + ".s3"), warn);
+        }
+        loggerList = accessor.getLoggerList();
+    }
+
+    /**
+     * @param _idx index of the logger
+     * @return name of the logger
+     */
+    public static String name(final int _idx)
+    {
+        return PREFIX + ".p" + _idx / 1000 + ".s" + _idx / 100 % 10 + ".Class" + _idx;
+    }
+}
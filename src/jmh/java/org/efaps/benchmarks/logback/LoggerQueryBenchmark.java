@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.rest.LoggerQuery;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Filtering of the loggers by a {@link LoggerQuery}, as done by
+ * <code>ConfigurationController.getLoggers</code> for one page, without
+ * the serialization.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerQueryBenchmark
+{
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public void prefixPage(final LoggerContextState _state,
+                           final Blackhole _bh)
+        throws EFapsException
+    {
+        page(_state, LoggerQuery.builder()
+                        .withName(LoggerContextState.PREFIX + ".p0.s5")
+                        .withLimit(100)
+                        .build(), _bh);
+    }
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public void cursorPage(final LoggerContextState _state,
+                           final Blackhole _bh)
+        throws EFapsException
+    {
+        page(_state, LoggerQuery.builder()
+                        .withName(LoggerContextState.PREFIX)
+                        .withCursor(LoggerContextState.name(_state.loggers / 2))
+                        .withLimit(100)
+                        .build(), _bh);
+    }
+
+    /**
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public void globPage(final LoggerContextState _state,
+                         final Blackhole _bh)
+        throws EFapsException
+    {
+        page(_state, LoggerQuery.builder()
+                        .withName(LoggerContextState.PREFIX + ".*.s3.Class?9")
+                        .withLimit(100)
+                        .build(), _bh);
+    }
+
+    /**
+     * All loggers with an explicit level.
+     *
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public void explicitAll(final LoggerContextState _state,
+                            final Blackhole _bh)
+        throws EFapsException
+    {
+        page(_state, LoggerQuery.builder()
+                        .withExplicitOnly(true)
+                        .build(), _bh);
+    }
+
+    /**
+     * All loggers with the effective level WARN.
+     *
+     * @param _state the loggers
+     * @param _bh blackhole
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public void levelAll(final LoggerContextState _state,
+                         final Blackhole _bh)
+        throws EFapsException
+    {
+        page(_state, LoggerQuery.builder()
+                        .withLevels(List.of("WARN"))
+                        .build(), _bh);
+    }
+
+    /**
+     * Select the loggers of a page like <code>getLoggers</code>.
+     *
+     * @param _state the loggers
+     * @param _query the query
+     * @param _bh receives the matching loggers and the cursor
+     * @throws EFapsException on error
+     */
+    private void page(final LoggerContextState _state,
+                      final LoggerQuery _query,
+                      final Blackhole _bh)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = _state.accessor;
+        final List<?> loggerList = _state.loggerList;
+        int count = 0;
+        Object last = null;
+        String next = null;
+        for (int i = _query.start(accessor, loggerList); i < loggerList.size() && next == null; i++) {
+            if (_query.matches(accessor, loggerList.get(i))) {
+                if (_query.getLimit() > 0 && count == _query.getLimit()) {
+                    next = accessor.getName(last);
+                } else {
+                    last = loggerList.get(i);
+                    _bh.consume(last);
+                    count++;
+                }
+            }
+        }
+        _bh.consume(next);
+    }
+}
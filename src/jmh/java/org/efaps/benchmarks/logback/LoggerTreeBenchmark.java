@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.util.LoggerTree;
+import org.efaps.util.EFapsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Navigation of the sorted logger list by {@link LoggerTree}, as done for
+ * every expanded node of the tree of the user interface.
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerTreeBenchmark
+{
+
+    /**
+     * The packages below the prefix, skipping their subtrees.
+     *
+     * @param _state the loggers
+     * @return the page
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public LoggerTree.Page packages(final LoggerContextState _state)
+        throws EFapsException
+    {
+        return LoggerTree.children(_state.accessor, _state.loggerList, LoggerContextState.PREFIX, null, 100);
+    }
+
+    /**
+     * The loggers of one subpackage.
+     *
+     * @param _state the loggers
+     * @return the page
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public LoggerTree.Page classes(final LoggerContextState _state)
+        throws EFapsException
+    {
+        return LoggerTree.children(_state.accessor, _state.loggerList, LoggerContextState.PREFIX + ".p0.s5", null,
+                        100);
+    }
+
+    /**
+     * @param _state the loggers
+     * @return the number of descendants of the prefix
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public int countDescendants(final LoggerContextState _state)
+        throws EFapsException
+    {
+        return LoggerTree.countDescendants(_state.accessor, _state.loggerList, LoggerContextState.PREFIX);
+    }
+
+    /**
+     * @param _state the loggers
+     * @return index of the last logger
+     * @throws EFapsException on error
+     */
+    @Benchmark
+    public int lowerBound(final LoggerContextState _state)
+        throws EFapsException
+    {
+        return LoggerTree.lowerBound(_state.accessor, _state.loggerList,
+                        LoggerContextState.name(_state.loggers - 1));
+    }
+}
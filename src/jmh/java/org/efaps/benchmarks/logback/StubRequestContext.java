@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * ClientRequestContext of a request with headers and an entity, without a
+ * client. Only the properties, the uri, the method, the headers and the
+ * entity are kept.
+ *
+ * @author The eFaps Team
+ */
+public class StubRequestContext
+    implements ClientRequestContext
+{
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    private final MultivaluedMap<String, String> stringHeaders = new MultivaluedHashMap<>();
+
+    private URI uri;
+
+    private String method;
+
+    private Object entity;
+
+    /**
+     * @param _method HTTP method
+     * @param _uri the uri
+     * @param _entity the entity, may be null
+     */
+    public StubRequestContext(final String _method,
+                              final URI _uri,
+                              final Object _entity)
+    {
+        method = _method;
+        uri = _uri;
+        entity = _entity;
+        stringHeaders.add("Accept", MediaType.APPLICATION_JSON);
+        stringHeaders.add("Content-Type", MediaType.APPLICATION_JSON);
+        stringHeaders.add("Authorization", "Bearer token");
+        for (final var entry : stringHeaders.entrySet()) {
+            headers.addAll(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    @Override
+    public Object getProperty(final String _name)
+    {
+        return properties.get(_name);
+    }
+
+    @Override
+    public Collection<String> getPropertyNames()
+    {
+        return properties.keySet();
+    }
+
+    @Override
+    public void setProperty(final String _name,
+                            final Object _object)
+    {
+        properties.put(_name, _object);
+    }
+
+    @Override
+    public void removeProperty(final String _name)
+    {
+        properties.remove(_name);
+    }
+
+    @Override
+    public URI getUri()
+    {
+        return uri;
+    }
+
+    @Override
+    public void setUri(final URI _uri)
+    {
+        uri = _uri;
+    }
+
+    @Override
+    public String getMethod()
+    {
+        return method;
+    }
+
+    @Override
+    public void setMethod(final String _method)
+    {
+        method = _method;
+    }
+
+    @Override
+    public MultivaluedMap<String, Object> getHeaders()
+    {
+        return headers;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getStringHeaders()
+    {
+        return stringHeaders;
+    }
+
+    @Override
+    public String getHeaderString(final String _name)
+    {
+        return stringHeaders.getFirst(_name);
+    }
+
+    @Override
+    public Date getDate()
+    {
+        return null;
+    }
+
+    @Override
+    public Locale getLanguage()
+    {
+        return null;
+    }
+
+    @Override
+    public MediaType getMediaType()
+    {
+        return MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    @Override
+    public List<MediaType> getAcceptableMediaTypes()
+    {
+        return Collections.singletonList(MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    @Override
+    public List<Locale> getAcceptableLanguages()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, Cookie> getCookies()
+    {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean hasEntity()
+    {
+        return entity != null;
+    }
+
+    @Override
+    public Object getEntity()
+    {
+        return entity;
+    }
+
+    @Override
+    public Class<?> getEntityClass()
+    {
+        return entity == null ? null : entity.getClass();
+    }
+
+    @Override
+    public Type getEntityType()
+    {
+        return getEntityClass();
+    }
+
+    @Override
+    public void setEntity(final Object _entity)
+    {
+        entity = _entity;
+    }
+
+    @Override
+    public void setEntity(final Object _entity,
+                          final Annotation[] _annotations,
+                          final MediaType _mediaType)
+    {
+        entity = _entity;
+    }
+
+    @Override
+    public Annotation[] getEntityAnnotations()
+    {
+        return new Annotation[0];
+    }
+
+    @Override
+    public OutputStream getEntityStream()
+    {
+        return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    public void setEntityStream(final OutputStream _outputStream)
+    {
+        // the entity is not written
+    }
+
+    @Override
+    public Client getClient()
+    {
+        return null;
+    }
+
+    @Override
+    public Configuration getConfiguration()
+    {
+        return null;
+    }
+
+    @Override
+    public void abortWith(final Response _response)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.benchmarks.logback;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Link.Builder;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.StatusType;
+
+/**
+ * ClientResponseContext of a response with status 200, headers and a body,
+ * without a connection. The body is read from the entity stream, which
+ * {@link #reset()} replaces by a new one for the next exchange.
+ *
+ * @author The eFaps Team
+ */
+public class StubResponseContext
+    implements ClientResponseContext
+{
+
+    private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+
+    private final byte[] body;
+
+    private StatusType statusInfo = Response.Status.OK;
+
+    private InputStream entityStream;
+
+    /**
+     * @param _body the body of the response
+     */
+    public StubResponseContext(final byte[] _body)
+    {
+        body = _body;
+        headers.add("Content-Type", MediaType.APPLICATION_JSON);
+        headers.add("Content-Length", String.valueOf(_body.length));
+        reset();
+    }
+
+    /**
+     * Start to read the body again.
+     */
+    public void reset()
+    {
+        entityStream = new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public int getStatus()
+    {
+        return statusInfo.getStatusCode();
+    }
+
+    @Override
+    public void setStatus(final int _code)
+    {
+        statusInfo = Response.Status.fromStatusCode(_code);
+    }
+
+    @Override
+    public StatusType getStatusInfo()
+    {
+        return statusInfo;
+    }
+
+    @Override
+    public void setStatusInfo(final StatusType _statusInfo)
+    {
+        statusInfo = _statusInfo;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getHeaders()
+    {
+        return headers;
+    }
+
+    @Override
+    public String getHeaderString(final String _name)
+    {
+        return headers.getFirst(_name);
+    }
+
+    @Override
+    public Set<String> getAllowedMethods()
+    {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Date getDate()
+    {
+        return null;
+    }
+
+    @Override
+    public Locale getLanguage()
+    {
+        return null;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return body.length;
+    }
+
+    @Override
+    public MediaType getMediaType()
+    {
+        return MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    @Override
+    public Map<String, NewCookie> getCookies()
+    {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public EntityTag getEntityTag()
+    {
+        return null;
+    }
+
+    @Override
+    public Date getLastModified()
+    {
+        return null;
+    }
+
+    @Override
+    public URI getLocation()
+    {
+        return null;
+    }
+
+    @Override
+    public Set<Link> getLinks()
+    {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public boolean hasLink(final String _relation)
+    {
+        return false;
+    }
+
+    @Override
+    public Link getLink(final String _relation)
+    {
+        return null;
+    }
+
+    @Override
+    public Builder getLinkBuilder(final String _relation)
+    {
+        return null;
+    }
+
+    @Override
+    public boolean hasEntity()
+    {
+        return body.length > 0;
+    }
+
+    @Override
+    public InputStream getEntityStream()
+    {
+        return entityStream;
+    }
+
+    @Override
+    public void setEntityStream(final InputStream _input)
+    {
+        entityStream = _input;
+    }
+}
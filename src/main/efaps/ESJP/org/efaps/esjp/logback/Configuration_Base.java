@@ -17,24 +17,29 @@ package org.efaps.esjp.logback;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.efaps.admin.dbproperty.DBProperties;
 import org.efaps.admin.event.Parameter;
+import org.efaps.admin.event.Parameter.ParameterValues;
 import org.efaps.admin.event.Return;
 import org.efaps.admin.event.Return.ReturnValues;
 import org.efaps.admin.program.esjp.EFapsApplication;
 import org.efaps.admin.program.esjp.EFapsUUID;
 import org.efaps.db.Context;
-import org.efaps.esjp.ui.html.Table;
+import org.efaps.esjp.logback.rest.ConfigurationController;
+import org.efaps.esjp.logback.rest.LoggerHierarchy;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.LoggerNodeDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackReloader;
+import org.efaps.esjp.logback.util.LoggerTree;
 import org.efaps.util.EFapsException;
-import org.slf4j.ILoggerFactory;
-import org.slf4j.LoggerFactory;
 
 /**
  * Class is used to configure the Logback logger during runtime.
@@ -49,32 +54,27 @@ public abstract class Configuration_Base
 {
 
     /**
-     * Session key to store the Map in the Session;
+     * Prefix of the names of the level dropdowns, followed by the name of
+     * the logger.
      */
-    public final String SESSION_KEY = "org.efaps.esjp.logback.Configuration";
+    protected static final String LEVEL_KEY = "logbackLevel:";
 
     /**
-     * Name of the LoggerContext class.
+     * Name of the dropdown for the minutes after which the changed levels
+     * are reverted.
      */
-    private static String LOGGERCONTEXT = "ch.qos.logback.classic.LoggerContext";
+    protected static final String TTL_KEY = "logbackTtl";
 
     /**
-     * Name of the LoggerContext Interface.
+     * Markup of the options of the level dropdown by selected level.
      */
-    private static final String CONTEXTINTERFACE = "ch.qos.logback.core.Context";
+    private static volatile Map<String, String> LEVELOPTIONS;
 
     /**
-     * Name of the JoranConfigurator class.
-     */
-    private static final String JORANCONFIG = "ch.qos.logback.classic.joran.JoranConfigurator";
-
-    /**
-     * Name of the Level class.
-     */
-    private static final String LEVEL = "ch.qos.logback.classic.Level";
-
-    /**
-     * Updates the Logback Configuration.
+     * Updates the Logback Configuration. Only the dropdowns that were
+     * changed are submitted by the form, so only these loggers are looked up.
+     * The changes are applied like the ones of the rest service, so they are
+     * recorded in the cluster state and propagated to the other nodes.
      *
      * @param _parameter Parameter as passed from the eFaps API
      * @return new empty Return
@@ -84,48 +84,110 @@ public abstract class Configuration_Base
         throws EFapsException
     {
         @SuppressWarnings("unchecked")
-        final Map<String, String> map = (Map<String, String>) Context.getThreadContext().getSessionAttribute(
-                        this.SESSION_KEY);
-        final ILoggerFactory logContext = LoggerFactory.getILoggerFactory();
-        if (logContext.getClass().getName().contains(Configuration_Base.LOGGERCONTEXT)) {
+        final Map<String, String[]> parameters = (Map<String, String[]>) _parameter.get(
+                        ParameterValues.PARAMETERS);
+        if (LogbackAccessor.isAvailable() && parameters != null) {
             try {
-                final Method getLoggerList = logContext.getClass().getMethod("getLoggerList");
-                final List<?> loggerList = (List<?>) getLoggerList.invoke(logContext);
-                for (final Object logger : loggerList) {
-                    final String value = _parameter.getParameterValue(map.get(logName(logger)));
-                    if (value != null) {
-                        if ("INHERITED".equalsIgnoreCase(value)) {
-                            if (getLevel(logger) != null && !"ROOT".equals(logName(logger))) {
-                                setLevel(logger, null);
-                            }
-                        } else {
-                            if (getLevel(logger) == null) {
-                                setLevel(logger, getLevel4Name(logger, value));
-                            } else if (!value.equalsIgnoreCase(String.valueOf(getLevel(logger)))) {
-                                setLevel(logger, getLevel4Name(logger, value));
-                            }
+                final long ttl = getTtl(parameters);
+                final List<LoggerDto> updates = new ArrayList<>();
+                for (final Entry<String, String[]> entry : parameters.entrySet()) {
+                    if (entry.getKey().startsWith(LEVEL_KEY) && entry.getValue() != null
+                                    && entry.getValue().length > 0) {
+                        final String name = entry.getKey().substring(LEVEL_KEY.length());
+                        final Object logger = LogbackAccessor.get().exists(name);
+                        final String level = logger == null ? null : getLevelUpdate(logger, entry.getValue()[0]);
+                        if (level != null) {
+                            updates.add(LoggerDto.builder()
+                                            .withName(name)
+                                            .withLevel(level)
+                                            .withTtl(TimeUnit.MINUTES.toSeconds(ttl))
+                                            .build());
                         }
                     }
                 }
-            } catch (final NoSuchMethodException e) {
-                throw new EFapsException(this.getClass(), "NoSuchMethodException", e);
-            } catch (final SecurityException e) {
-                throw new EFapsException(this.getClass(), "SecurityException", e);
-            } catch (final IllegalAccessException e) {
-                throw new EFapsException(this.getClass(), "IllegalAccessException", e);
-            } catch (final IllegalArgumentException e) {
-                throw new EFapsException(this.getClass(), "IllegalArgumentException", e);
-            } catch (final InvocationTargetException e) {
-                throw new EFapsException(this.getClass(), "InvocationTargetException", e);
+                if (!updates.isEmpty()) {
+                    new ConfigurationController().applyLoggers(updates);
+                }
+            } catch (final EFapsException e) {
+                throw e;
             } catch (final Exception e) {
                 throw new EFapsException(this.getClass(), "Exception", e);
             }
         }
-        Context.getThreadContext().removeSessionAttribute(this.SESSION_KEY);
         return new Return();
     }
 
     /**
+     * Get the minutes after which the changed levels are reverted.
+     *
+     * @param _parameters parameters of the form
+     * @return minutes, 0 for never
+     */
+    protected long getTtl(final Map<String, String[]> _parameters)
+    {
+        long ret = 0;
+        final String[] values = _parameters.get(TTL_KEY);
+        if (values != null && values.length > 0 && values[0] != null && !values[0].isEmpty()) {
+            try {
+                ret = Math.max(0, Long.parseLong(values[0]));
+            } catch (final NumberFormatException e) {
+                ret = 0;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get a Snipplet containing the dropdown to select the minutes after
+     * which the changed levels are reverted.
+     *
+     * @return StringBuilder
+     */
+    protected StringBuilder getTtlDropDown()
+    {
+        final StringBuilder ret = new StringBuilder()
+            .append("<div>").append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Ttl"))
+            .append(" <select name=\"").append(TTL_KEY).append("\" size=\"1\">");
+        for (final long minutes : new long[] { 0, 15, 60, 240, 1440 }) {
+            ret.append("<option value=\"").append(minutes).append("\">")
+                .append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Ttl." + minutes))
+                .append("</option>");
+        }
+        ret.append("</select></div>");
+        return ret;
+    }
+
+    /**
+     * Get the level a logger must be updated to for the value of the
+     * dropdown.
+     *
+     * @param _logger logger to update
+     * @param _value value of the dropdown
+     * @return name of the level, an empty String to remove the level, null
+     *         if nothing changes
+     * @throws Exception on error
+     */
+    protected String getLevelUpdate(final Object _logger,
+                                    final String _value)
+        throws Exception
+    {
+        String ret = null;
+        if ("INHERITED".equalsIgnoreCase(_value)) {
+            if (getLevel(_logger) != null && !"ROOT".equals(logName(_logger))) {
+                ret = "";
+            }
+        } else if (getLevel(_logger) == null || !_value.equalsIgnoreCase(String.valueOf(getLevel(_logger)))) {
+            ret = String.valueOf(getLevel4Name(_logger, _value));
+        }
+        return ret;
+    }
+
+    /**
+     * Renders the loggers as a collapsible package tree. Only the root logger
+     * and its direct children are rendered, the children of a package are
+     * loaded on demand by {@link #getRows(String, String)} when it is
+     * expanded.
+     *
      * @param _parameter Parameter as passed from the eFaps API
      * @return Snipllet containgn list of loggers
      * @throws EFapsException on error
@@ -135,106 +197,252 @@ public abstract class Configuration_Base
     {
         final Return ret = new Return();
         final StringBuilder html = new StringBuilder();
-        final ILoggerFactory logContext = LoggerFactory.getILoggerFactory();
-        if (logContext.getClass().getName().contains(Configuration_Base.LOGGERCONTEXT)) {
+        if (LogbackAccessor.isAvailable()) {
+            html.append(getTtlDropDown())
+                .append("<table class=\"eFapsLogbackTree\"><thead><tr>")
+                .append("<th>").append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.LoggerName"))
+                .append("</th><th>")
+                .append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.EffectiveLevel"))
+                .append("</th><th>").append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Level"))
+                .append("</th><th>").append(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Appender"))
+                .append("</th></tr></thead><tbody>")
+                .append(getRows(null, null))
+                .append("</tbody></table>")
+                .append(getTreeScript());
+        } else {
+            html.append(DBProperties.getProperty(Configuration.class.getName() + ".noLogback"));
+        }
+        ret.put(ReturnValues.SNIPLETT, html.toString());
+        return ret;
+    }
+
+    /**
+     * Render the rows for one page of the direct children of a logger. For
+     * the root (null) the root logger itself is rendered first. The children
+     * are taken from the {@link LoggerHierarchy}, so neither the list of all
+     * loggers is sorted nor are the descendants walked. The dropdowns carry
+     * the name of their logger, so the rows do not depend on the session
+     * and can be rendered by the rest service.
+     *
+     * @param _node name of the parent logger, null for the root
+     * @param _cursor name of the last child of the previous page, may be null
+     * @return html rows
+     * @throws EFapsException on error
+     */
+    public CharSequence getRows(final String _node,
+                                final String _cursor)
+        throws EFapsException
+    {
+        final StringBuilder ret = new StringBuilder();
+        if (LogbackAccessor.isAvailable()) {
             try {
-                final Method getLoggerList = logContext.getClass().getMethod("getLoggerList");
-                final List<?> loggerList = (List<?>) getLoggerList.invoke(logContext);
+                final LogbackAccessor accessor = LogbackAccessor.get();
+                final String node = _node == null || _node.isEmpty() ? LoggerTree.ROOT : _node;
+                if (_node == null && _cursor == null) {
+                    appendRow(ret, accessor.getLogger(LoggerTree.ROOT), null, 0);
+                }
+                final int pageSize = getPageSize();
+                final List<LoggerNodeDto> children = LoggerHierarchy.getChildren(node, _cursor, pageSize + 1);
+                if (children != null) {
+                    for (int i = 0; i < children.size() && i < pageSize; i++) {
+                        final Object logger = accessor.exists(children.get(i).getName());
+                        if (logger != null) {
+                            appendRow(ret, logger, node, children.get(i).getDescendants());
+                        }
+                    }
+                    if (children.size() > pageSize) {
+                        ret.append("<tr data-parent=\"").append(escape(node)).append("\" data-cursor=\"")
+                            .append(escape(children.get(pageSize - 1).getName()))
+                            .append("\"><td colspan=\"4\" style=\"padding-left:")
+                            .append(getDepth(node) + 1).append("em\">")
+                            .append("<a href=\"#\" onclick=\"return eFapsLogbackMore(this);\">...</a></td></tr>");
+                    }
+                }
+            } catch (final EFapsException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new EFapsException(this.getClass(), "Exception", e);
+            }
+        }
+        return ret;
+    }
 
-                final Map<String, String> map = new HashMap<String, String>();
-                Context.getThreadContext().setSessionAttribute(this.SESSION_KEY, map);
+    /**
+     * Append the row for one logger.
+     *
+     * @param _html StringBuilder to append to
+     * @param _logger logger to render
+     * @param _parent name of the parent node, null for the root logger
+     * @param _descendants number of descendants of the logger
+     * @throws Exception on error
+     */
+    protected void appendRow(final StringBuilder _html,
+                             final Object _logger,
+                             final String _parent,
+                             final int _descendants)
+        throws Exception
+    {
+        final String name = logName(_logger);
+        final int depth = _parent == null ? 0 : getDepth(name);
+        _html.append("<tr data-node=\"").append(escape(name)).append("\"");
+        if (_parent != null) {
+            _html.append(" data-parent=\"").append(escape(_parent)).append("\"");
+        }
+        _html.append("><td title=\"").append(escape(name)).append("\" style=\"padding-left:").append(depth)
+            .append("em\">");
+        if (_parent != null && _descendants > 0) {
+            _html.append("<a href=\"#\" onclick=\"return eFapsLogbackToggle(this);\">+</a> ");
+        }
+        final int separator = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'));
+        _html.append(escape(_parent == null ? name : name.substring(separator + 1)))
+            .append("</td><td>").append(getEffectiveLevel(_logger))
+            .append("</td><td>").append(getLevelDropDown(_logger, LEVEL_KEY + name))
+            .append("</td><td>").append(escape(getAppenderName(_logger)))
+            .append("</td></tr>");
+    }
 
-                final Table table = new Table();
-                table.addRow()
-                    .addHeaderColumn(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.LoggerName"))
-                    .addHeaderColumn(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.EffectiveLevel"))
-                    .addHeaderColumn(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Level"))
-                    .addHeaderColumn(DBProperties.getProperty("org.efaps.esjp.logback.Configuration.Appender"));
+    /**
+     * Escape a text for html content and attributes.
+     *
+     * @param _text text to escape
+     * @return escaped text
+     */
+    protected String escape(final String _text)
+    {
+        final StringBuilder ret = new StringBuilder(_text.length());
+        for (int i = 0; i < _text.length(); i++) {
+            final char c = _text.charAt(i);
+            switch (c) {
+                case '&':
+                    ret.append("&amp;");
+                    break;
+                case '<':
+                    ret.append("&lt;");
+                    break;
+                case '>':
+                    ret.append("&gt;");
+                    break;
+                case '"':
+                    ret.append("&quot;");
+                    break;
+                case '\'':
+                    ret.append("&#39;");
+                    break;
+                default:
+                    ret.append(c);
+                    break;
+            }
+        }
+        return ret.toString();
+    }
 
-                int i = 0;
-                for (final Object logger : loggerList)
-                {
-                    final String name = logName(logger);
-                    map.put(name, "log" + i);
-                    table.addRow().addColumn(name)
-                        .addColumn(String.valueOf(getEffectiveLevel(logger)))
-                        .addColumn(getLevelDropDown(logger, "log" + i))
-                        .addColumn(getAppenderName(logger));
-                    i++;
+    /**
+     * @param _name name of the logger
+     * @return depth of the logger in the tree
+     */
+    protected int getDepth(final String _name)
+    {
+        int ret = 0;
+        if (!LoggerTree.ROOT.equals(_name)) {
+            ret = 1;
+            for (int i = 0; i < _name.length(); i++) {
+                if (_name.charAt(i) == '.' || _name.charAt(i) == '$') {
+                    ret++;
                 }
-                html.append(table.toHtml());
-            } catch (final NoSuchMethodException e) {
-                throw new EFapsException(this.getClass(), "NoSuchMethodException", e);
-            } catch (final SecurityException e) {
-                throw new EFapsException(this.getClass(), "SecurityException", e);
-            } catch (final IllegalAccessException e) {
-                throw new EFapsException(this.getClass(), "IllegalAccessException", e);
-            } catch (final IllegalArgumentException e) {
-                throw new EFapsException(this.getClass(), "IllegalArgumentException", e);
-            } catch (final InvocationTargetException e) {
-                throw new EFapsException(this.getClass(), "InvocationTargetException", e);
-            } catch (final Exception e) {
-                throw new EFapsException(this.getClass(), "Exception", e);
             }
-        } else {
-            html.append(DBProperties.getProperty(Configuration.class.getName() + ".noLogback"));
         }
-        ret.put(ReturnValues.SNIPLETT, html.toString());
         return ret;
     }
 
     /**
-     * Loads a Logback Configuration file and parses it using the
-     * JoranConfigurater from Logback. Resets the Logging Context and configures
-     * a new one from the given file.
+     * @return maximum number of children rendered at once
+     */
+    protected int getPageSize()
+    {
+        return 100;
+    }
+
+    /**
+     * @return path of the rest service delivering the rows, relative to the
+     *         context path of the webapp
+     */
+    protected String getRowsPath()
+    {
+        return "/servlet/rest/logback/configuration/rows";
+    }
+
+    /**
+     * Get the script used to expand and collapse the nodes of the tree.
+     * Collapsing hides all descendants, expanding shows the direct children
+     * and loads them on the first call.
+     *
+     * @return script
+     */
+    protected CharSequence getTreeScript()
+    {
+        return new StringBuilder()
+            .append("<script type=\"text/javascript\">")
+            .append("function eFapsLogbackLoad(_row, _node, _cursor, _replace) {")
+            .append("var path = window.location.pathname;")
+            .append("var url = path.substring(0, path.indexOf('/servlet/')) + '").append(getRowsPath())
+            .append("' + '?node=' + encodeURIComponent(_node) + '&cursor=' + encodeURIComponent(_cursor);")
+            .append("fetch(url, {credentials: 'same-origin'}).then(function(r) { return r.text(); })")
+            .append(".then(function(html) {")
+            .append("if (_replace) { _row.outerHTML = html; } else { _row.insertAdjacentHTML('afterend', html); }")
+            .append("});")
+            .append("}")
+            .append("function eFapsLogbackToggle(_link) {")
+            .append("var row = _link.closest('tr'); var node = row.getAttribute('data-node');")
+            .append("var open = row.getAttribute('data-open') === 'true';")
+            .append("row.setAttribute('data-open', open ? 'false' : 'true'); _link.textContent = open ? '+' : '-';")
+            .append("if (row.getAttribute('data-loaded') !== 'true') {")
+            .append("row.setAttribute('data-loaded', 'true'); eFapsLogbackLoad(row, node, '', false);")
+            .append("} else {")
+            .append("for (var sib = row.nextElementSibling; sib; sib = sib.nextElementSibling) {")
+            .append("var parent = sib.getAttribute('data-parent');")
+            .append("if (parent !== node && (parent === null || parent.indexOf(node + '.') !== 0"
+                            + " && parent.indexOf(node + '$') !== 0)) { break; }")
+            .append("if (open) { sib.style.display = 'none'; } else if (parent === node) {")
+            .append("sib.style.display = ''; sib.setAttribute('data-open', 'false');")
+            .append("var toggle = sib.querySelector('a'); if (toggle && !sib.hasAttribute('data-cursor')) {")
+            .append("toggle.textContent = '+'; } }")
+            .append("}")
+            .append("}")
+            .append("return false;")
+            .append("}")
+            .append("function eFapsLogbackMore(_link) {")
+            .append("var row = _link.closest('tr');")
+            .append("eFapsLogbackLoad(row, row.getAttribute('data-parent'), row.getAttribute('data-cursor'), true);")
+            .append("return false;")
+            .append("}")
+            .append("</script>");
+    }
+
+    /**
+     * Loads a Logback Configuration file. The file is parsed and validated
+     * in a separate LoggerContext and only the differences are applied to
+     * the running one, so the context is not reset and no events are lost.
      *
      * @param _parameter Parameter as passed from the eFaps API
      * @return new empty Return
      * @throws EFapsException on error
+     * @see LogbackReloader
      */
     public Return load(final Parameter _parameter)
         throws EFapsException
     {
         final Context context = Context.getThreadContext();
         final Context.FileParameter fileItem = context.getFileParameters().get("upload");
-        try {
-            final ILoggerFactory logContext = LoggerFactory.getILoggerFactory();
-            if (logContext.getClass().getName().contains(Configuration_Base.LOGGERCONTEXT)) {
-                final Class<?> logContextInter = Class.forName(Configuration_Base.CONTEXTINTERFACE);
-                final Class<?> configurator = Class.forName(Configuration_Base.JORANCONFIG);
-                final Object configInstance = configurator.newInstance();
-
-                final Method method = configurator.getMethod("setContext", new Class[] { logContextInter });
-                method.invoke(configInstance, logContext);
-                // the context was probably already configured by default
-                // configuration rules
-                final Method reset = logContext.getClass().getMethod("reset");
-                reset.invoke(logContext);
-
-                final Method doConfigure = configurator.getMethod("doConfigure", new Class[] { InputStream.class });
-                doConfigure.invoke(configInstance, fileItem.getInputStream());
+        if (LogbackAccessor.isAvailable()) {
+            try (InputStream in = fileItem.getInputStream()) {
+                LogbackReloader.reload(in.readAllBytes());
+            } catch (final IOException e) {
+                throw new EFapsException(this.getClass(), "load", e);
             }
-        } catch (final IOException e) {
-            throw new EFapsException(this.getClass(), "load", e);
-        } catch (final NoSuchMethodException e) {
-            throw new EFapsException(this.getClass(), "NoSuchMethodException", e);
-        } catch (final SecurityException e) {
-            throw new EFapsException(this.getClass(), "SecurityException", e);
-        } catch (final IllegalAccessException e) {
-            throw new EFapsException(this.getClass(), "IllegalAccessException", e);
-        } catch (final IllegalArgumentException e) {
-            throw new EFapsException(this.getClass(), "IllegalArgumentException", e);
-        } catch (final InvocationTargetException e) {
-            throw new EFapsException(this.getClass(), "InvocationTargetException", e);
-        } catch (final InstantiationException e) {
-            throw new EFapsException(this.getClass(), "InstantiationException", e);
-        } catch (final ClassNotFoundException e) {
-            throw new EFapsException(this.getClass(), "ClassNotFoundException", e);
         }
         return new Return();
     }
 
-
     /**
      * Get the name of the appender using reflection.
      *
@@ -245,21 +453,16 @@ public abstract class Configuration_Base
     protected String getAppenderName(final Object _logger)
         throws Exception
     {
-        final StringBuilder ret = new StringBuilder();
-        final Method iteratorForAppenders = _logger.getClass().getMethod("iteratorForAppenders");
-        final Iterator<?> iter = (Iterator<?>) iteratorForAppenders.invoke(_logger);
-        while (iter.hasNext()) {
-            final Object appender = iter.next();
-            final Method getName = appender.getClass().getMethod("getName");
-            ret.append(getName.invoke(appender));
-        }
-        return ret.toString();
+        return LogbackAccessor.get().getAppenderNames(_logger);
     }
 
     /**
-     * Get an Snipplet containinf a dropdown.
+     * Get an Snipplet containinf a dropdown. The dropdown gets its name only
+     * when it is changed, so that unchanged dropdowns are not submitted. The
+     * options are taken from {@link #getLevelOptions()}.
      *
      * @param _loggerLogger thee dropdown is wanted for
+     * @param _key name of the dropdown
      * @return StringBuilder
      */
     protected StringBuilder getLevelDropDown(final Object _logger,
@@ -268,19 +471,40 @@ public abstract class Configuration_Base
     {
         final StringBuilder ret = new StringBuilder();
         final Object level = getLevel(_logger);
-        ret.append("<select name=\"").append(_key).append("\" size=\"1\">")
-            .append("<option ").append(level == null ? "selected=\"selected\"" : "")
-            .append(" value=\"").append("INHERITED").append("\">").append("INHERITED").append("</option>");
-
-        appendOption(ret, level, getLevel4Name(_logger, "ALL"));
-        appendOption(ret, level, getLevel4Name(_logger, "TRACE"));
-        appendOption(ret, level, getLevel4Name(_logger, "DEBUG"));
-        appendOption(ret, level, getLevel4Name(_logger, "INFO"));
-        appendOption(ret, level, getLevel4Name(_logger, "WARN"));
-        appendOption(ret, level, getLevel4Name(_logger, "ERROR"));
-        appendOption(ret, level, getLevel4Name(_logger, "OFF"));
+        ret.append("<select data-key=\"").append(escape(_key))
+            .append("\" onchange=\"this.name=this.getAttribute('data-key')\" size=\"1\">")
+            .append(getLevelOptions().get(level == null ? "INHERITED" : String.valueOf(level)))
+            .append("</select>");
+        return ret;
+    }
 
-        ret.append("</select>");
+    /**
+     * Get the markup of the options of the dropdown for each selected level.
+     * The markup does not change, so it is built only once.
+     *
+     * @return map of the selected level to the options
+     * @throws Exception on error
+     */
+    protected Map<String, String> getLevelOptions()
+        throws Exception
+    {
+        Map<String, String> ret = Configuration_Base.LEVELOPTIONS;
+        if (ret == null) {
+            ret = new HashMap<>();
+            final List<Object> levels = new ArrayList<>(LogbackAccessor.get().getLevels().values());
+            final List<Object> selections = new ArrayList<>(levels);
+            selections.add(null);
+            for (final Object selected : selections) {
+                final StringBuilder bldr = new StringBuilder()
+                    .append("<option ").append(selected == null ? "selected=\"selected\"" : "")
+                    .append(" value=\"").append("INHERITED").append("\">").append("INHERITED").append("</option>");
+                for (final Object target : levels) {
+                    appendOption(bldr, selected, target);
+                }
+                ret.put(selected == null ? "INHERITED" : String.valueOf(selected), bldr.toString());
+            }
+            Configuration_Base.LEVELOPTIONS = ret;
+        }
         return ret;
     }
 
@@ -297,7 +521,7 @@ public abstract class Configuration_Base
         throws Exception
     {
         _bldr.append("<option ")
-                .append(_current != null && getLevelInt(_current) == getLevelInt(_target)
+                .append(_current != null && getLevelInt(_current).equals(getLevelInt(_target))
                         ? "selected=\"selected\"" : "")
                 .append(" value=\"").append(_target).append("\">")
                 .append(_target).append("</option>");
@@ -313,8 +537,7 @@ public abstract class Configuration_Base
     protected Object getEffectiveLevel(final Object _logger)
         throws Exception
     {
-        final Method getEffectiveLevel = _logger.getClass().getMethod("getEffectiveLevel");
-        return getEffectiveLevel.invoke(_logger);
+        return LogbackAccessor.get().getEffectiveLevel(_logger);
     }
 
     /**
@@ -327,9 +550,7 @@ public abstract class Configuration_Base
     protected String logName(final Object _logger)
         throws Exception
     {
-        final Method getName = _logger.getClass().getMethod("getName");
-        final String ret = (String) getName.invoke(_logger);
-        return ret;
+        return LogbackAccessor.get().getName(_logger);
     }
 
     /**
@@ -342,8 +563,7 @@ public abstract class Configuration_Base
     protected Object getLevel(final Object _logger)
         throws Exception
     {
-        final Method getLevel = _logger.getClass().getMethod("getLevel");
-        return getLevel.invoke(_logger);
+        return LogbackAccessor.get().getLevel(_logger);
     }
 
     /**
@@ -357,14 +577,7 @@ public abstract class Configuration_Base
                             final Object _level)
         throws Exception
     {
-        Object temp;
-        if (_level == null) {
-            temp = getLevel(_logger);
-        } else {
-            temp = _level;
-        }
-        final Method setLevel = _logger.getClass().getMethod("setLevel", temp.getClass());
-        setLevel.invoke(_logger, _level);
+        LogbackAccessor.get().setLevel(_logger, _level);
     }
 
     /**
@@ -378,9 +591,7 @@ public abstract class Configuration_Base
                                    final String _name)
         throws Exception, SecurityException
     {
-        final Class<?> level = _logger.getClass().getClassLoader().loadClass(Configuration_Base.LEVEL);
-        final Method toLevel = level.getMethod("toLevel", String.class);
-        return toLevel.invoke(null, _name);
+        return LogbackAccessor.get().toLevel(_name);
     }
 
     /**
@@ -393,7 +604,6 @@ public abstract class Configuration_Base
     protected Integer getLevelInt(final Object _level)
         throws Exception
     {
-        final Method toInteger = _level.getClass().getMethod("toInteger");
-        return (Integer) toInteger.invoke(_level);
+        return LogbackAccessor.get().toInteger(_level);
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.jersey;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Consumer;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Input stream that records the first bytes of a message body while the
+ * application reads it. Nothing is read ahead, and the buffers are pooled.
+ * When the stream is closed the listener is informed and the buffer is
+ * returned to the pool.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("19f59707-e6be-4c80-a695-7b47924a3e95")
+@EFapsApplication("eFapsApp-Logback")
+public class BodyCaptureInputStream
+    extends FilterInputStream
+{
+
+    /** Maximum number of buffers kept in the pool. */
+    private static final int POOL_SIZE = 16;
+
+    /** Pool of buffers. */
+    private static final Queue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /** Maximum number of bytes to record. */
+    private final int maxSize;
+
+    /** Informed on close. */
+    private final Consumer<BodyCaptureInputStream> onClose;
+
+    /** The buffer, acquired on the first read. */
+    private byte[] buffer;
+
+    /** Number of recorded bytes. */
+    private int length;
+
+    /** More bytes were read than recorded. */
+    private boolean truncated;
+
+    /** Was the stream closed already. */
+    private boolean closed;
+
+    /**
+     * Instantiates a new body capture input stream.
+     *
+     * @param _in stream to read from
+     * @param _maxSize maximum number of bytes to record
+     * @param _onClose informed on close
+     */
+    public BodyCaptureInputStream(final InputStream _in,
+                                  final int _maxSize,
+                                  final Consumer<BodyCaptureInputStream> _onClose)
+    {
+        super(_in);
+        maxSize = _maxSize;
+        onClose = _onClose;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int ret = super.read();
+        if (ret > -1) {
+            if (record(1)) {
+                buffer[length++] = (byte) ret;
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public int read(final byte[] _bytes,
+                    final int _off,
+                    final int _len)
+        throws IOException
+    {
+        final int ret = super.read(_bytes, _off, _len);
+        if (ret > 0 && record(ret)) {
+            final int count = Math.min(ret, maxSize - length);
+            System.arraycopy(_bytes, _off, buffer, length, count);
+            length += count;
+        }
+        return ret;
+    }
+
+    @Override
+    public long skip(final long _n)
+        throws IOException
+    {
+        final long ret = super.skip(_n);
+        if (ret > 0) {
+            truncated = true;
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int _readlimit)
+    {
+        // not supported, bytes would be recorded twice
+    }
+
+    @Override
+    public synchronized void reset()
+        throws IOException
+    {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try {
+            super.close();
+        } finally {
+            if (!closed) {
+                closed = true;
+                try {
+                    onClose.accept(this);
+                } finally {
+                    if (buffer != null) {
+                        POOL.offer(buffer);
+                        buffer = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepare recording of bytes.
+     *
+     * @param _count number of bytes read
+     * @return true if there is space left to record
+     */
+    private boolean record(final int _count)
+    {
+        if (buffer == null) {
+            buffer = POOL.poll();
+            if (buffer == null || buffer.length != maxSize) {
+                buffer = new byte[maxSize];
+            }
+        }
+        if (length + _count > maxSize) {
+            truncated = true;
+        }
+        return length < maxSize;
+    }
+
+    /**
+     * @return number of recorded bytes
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return true if more bytes were read than recorded
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * Copy of the recorded bytes, valid after the buffer was returned to the
+     * pool.
+     *
+     * @return the recorded bytes
+     */
+    public byte[] copy()
+    {
+        return buffer == null ? new byte[0] : Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Decode the recorded bytes.
+     *
+     * @param _charset charset to decode with
+     * @return the recorded body
+     */
+    public String toString(final Charset _charset)
+    {
+        return toString(buffer == null ? new byte[0] : buffer, length, truncated, _charset);
+    }
+
+    /**
+     * @return number of buffers waiting in the pool
+     */
+    public static int getPooled()
+    {
+        return POOL.size();
+    }
+
+    /**
+     * Decode bytes of a body.
+     *
+     * @param _bytes the bytes
+     * @param _length number of valid bytes
+     * @param _truncated was the body truncated
+     * @param _charset charset to decode with
+     * @return the body
+     */
+    public static String toString(final byte[] _bytes,
+                                  final int _length,
+                                  final boolean _truncated,
+                                  final Charset _charset)
+    {
+        final String ret = new String(_bytes, 0, _length, _charset);
+        return _truncated ? ret + " [additional data truncated]" : ret;
+    }
+}
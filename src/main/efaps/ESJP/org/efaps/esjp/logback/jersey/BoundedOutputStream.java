@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.jersey;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Output stream that keeps at most a given number of bytes. Writing beyond
+ * the limit throws a {@link LimitReachedException}, so that a serializer
+ * writing into it stops as soon as the limit is reached.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("1f215f32-7db4-4014-821e-4aa689a4366e")
+@EFapsApplication("eFapsApp-Logback")
+public class BoundedOutputStream
+    extends OutputStream
+{
+
+    /** Maximum number of bytes. */
+    private final int limit;
+
+    /** The buffer. */
+    private byte[] buffer = new byte[256];
+
+    /** Number of written bytes. */
+    private int length;
+
+    /** Was the limit reached. */
+    private boolean truncated;
+
+    /**
+     * Instantiates a new bounded output stream.
+     *
+     * @param _limit maximum number of bytes
+     */
+    public BoundedOutputStream(final int _limit)
+    {
+        limit = _limit;
+    }
+
+    @Override
+    public void write(final int _byte)
+        throws IOException
+    {
+        write(new byte[] { (byte) _byte }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] _bytes,
+                      final int _off,
+                      final int _len)
+        throws IOException
+    {
+        final int count = Math.min(_len, limit - length);
+        if (count > 0) {
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(limit, Math.max(buffer.length * 2, length + count)));
+            }
+            System.arraycopy(_bytes, _off, buffer, length, count);
+            length += count;
+        }
+        if (count < _len) {
+            truncated = true;
+            throw new LimitReachedException();
+        }
+    }
+
+    /**
+     * @return true if more bytes were written than kept
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * @return the kept bytes
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Thrown if the limit is reached. Carries no stack trace.
+     */
+    public static class LimitReachedException
+        extends IOException
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Instantiates a new limit reached exception.
+         */
+        public LimitReachedException()
+        {
+            super("Limit reached");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
+        }
+    }
+}
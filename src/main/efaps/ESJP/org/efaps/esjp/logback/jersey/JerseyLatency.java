@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.jersey;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.util.LatencyHistogram;
+
+/**
+ * Latency histograms of the exchanges seen by the {@link JerseyLogFilter},
+ * keyed by host and method. Values are recorded in microseconds.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("d8270fbf-a59f-45fb-93e0-4e7b6310381c")
+@EFapsApplication("eFapsApp-Logback")
+public final class JerseyLatency
+{
+
+    /** Histograms by host and method. */
+    private static final Map<String, Map<String, LatencyHistogram>> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /**
+     * Singleton.
+     */
+    private JerseyLatency()
+    {
+    }
+
+    /**
+     * Record the duration of an exchange.
+     *
+     * @param _host host the request was sent to
+     * @param _method HTTP method
+     * @param _micros duration in microseconds
+     */
+    public static void record(final String _host,
+                              final String _method,
+                              final long _micros)
+    {
+        final String host = _host == null ? "" : _host;
+        Map<String, LatencyHistogram> methods = HISTOGRAMS.get(host);
+        if (methods == null) {
+            methods = HISTOGRAMS.computeIfAbsent(host, key -> new ConcurrentHashMap<>());
+        }
+        LatencyHistogram histogram = methods.get(_method);
+        if (histogram == null) {
+            histogram = methods.computeIfAbsent(_method, key -> new LatencyHistogram());
+        }
+        histogram.record(_micros);
+    }
+
+    /**
+     * @return the histograms by host and method
+     */
+    public static Map<String, Map<String, LatencyHistogram>> getHistograms()
+    {
+        return HISTOGRAMS;
+    }
+
+    /**
+     * Remove all histograms.
+     */
+    public static void reset()
+    {
+        HISTOGRAMS.clear();
+    }
+}
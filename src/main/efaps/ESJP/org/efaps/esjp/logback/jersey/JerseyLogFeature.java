@@ -36,13 +36,36 @@ public class JerseyLogFeature
     /** The logger. */
     private Logger logger;
 
+    /** Format and log on a background pipeline. */
+    private boolean async;
+
+    /** The pipeline used in async mode. */
+    private JerseyLogPipeline pipeline;
+
+    /** The sampling mode. */
+    private JerseyLogFilter.SamplingMode samplingMode = JerseyLogFilter.SamplingMode.ALL;
+
+    /** Fraction of the requests logged in head sampling mode. */
+    private double sampleRate = 1;
+
+    /** Maximum number of requests per second logged in head sampling mode. */
+    private int samplesPerSecond;
+
+    /** Duration in milliseconds from which an exchange is logged in tail sampling mode. */
+    private long slowThreshold = 1000;
+
     @Override
     public boolean configure(final FeatureContext _context)
     {
         final JerseyLogFilter filter = new JerseyLogFilter();
         if (getLogger() != null) {
-            filter.setLogger(filter.getLogger());
+            filter.setLogger(getLogger());
         }
+        filter.setAsync(isAsync()).setPipeline(getPipeline())
+            .setSamplingMode(getSamplingMode())
+            .setSampleRate(getSampleRate())
+            .setSamplesPerSecond(getSamplesPerSecond())
+            .setSlowThreshold(getSlowThreshold());
         _context.register(filter);
         return true;
     }
@@ -66,4 +89,128 @@ public class JerseyLogFeature
     {
         this.logger = _logger;
     }
+
+    /**
+     * Checks if formatting and logging is done on a background pipeline.
+     *
+     * @return true, if async
+     */
+    public boolean isAsync()
+    {
+        return this.async;
+    }
+
+    /**
+     * Sets if formatting and logging is done on a background pipeline.
+     *
+     * @param _async the new async
+     */
+    public void setAsync(final boolean _async)
+    {
+        this.async = _async;
+    }
+
+    /**
+     * Gets the pipeline used in async mode.
+     *
+     * @return the pipeline, null for the default one
+     */
+    public JerseyLogPipeline getPipeline()
+    {
+        return this.pipeline;
+    }
+
+    /**
+     * Sets the pipeline used in async mode.
+     *
+     * @param _pipeline the new pipeline
+     */
+    public void setPipeline(final JerseyLogPipeline _pipeline)
+    {
+        this.pipeline = _pipeline;
+    }
+
+    /**
+     * Gets the sampling mode.
+     *
+     * @return the sampling mode
+     */
+    public JerseyLogFilter.SamplingMode getSamplingMode()
+    {
+        return this.samplingMode;
+    }
+
+    /**
+     * Sets the sampling mode.
+     *
+     * @param _samplingMode the new sampling mode
+     */
+    public void setSamplingMode(final JerseyLogFilter.SamplingMode _samplingMode)
+    {
+        this.samplingMode = _samplingMode;
+    }
+
+    /**
+     * Gets the fraction of the requests logged in head sampling mode.
+     *
+     * @return the sample rate
+     */
+    public double getSampleRate()
+    {
+        return this.sampleRate;
+    }
+
+    /**
+     * Sets the fraction of the requests logged in head sampling mode.
+     *
+     * @param _sampleRate the new sample rate between 0 and 1
+     */
+    public void setSampleRate(final double _sampleRate)
+    {
+        this.sampleRate = _sampleRate;
+    }
+
+    /**
+     * Gets the maximum number of requests per second logged in head
+     * sampling mode.
+     *
+     * @return the samples per second, 0 for no limit
+     */
+    public int getSamplesPerSecond()
+    {
+        return this.samplesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of requests per second logged in head
+     * sampling mode.
+     *
+     * @param _samplesPerSecond the new samples per second, 0 for no limit
+     */
+    public void setSamplesPerSecond(final int _samplesPerSecond)
+    {
+        this.samplesPerSecond = _samplesPerSecond;
+    }
+
+    /**
+     * Gets the duration from which an exchange is logged in tail sampling
+     * mode.
+     *
+     * @return the slow threshold in milliseconds
+     */
+    public long getSlowThreshold()
+    {
+        return this.slowThreshold;
+    }
+
+    /**
+     * Sets the duration from which an exchange is logged in tail sampling
+     * mode.
+     *
+     * @param _slowThreshold the new slow threshold in milliseconds
+     */
+    public void setSlowThreshold(final long _slowThreshold)
+    {
+        this.slowThreshold = _slowThreshold;
+    }
 }
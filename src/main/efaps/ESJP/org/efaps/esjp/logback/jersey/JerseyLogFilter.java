@@ -15,15 +15,32 @@
  */
 package org.efaps.esjp.logback.jersey;
 
-import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.ClientResponseContext;
 import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.StatusType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.efaps.admin.program.esjp.EFapsApplication;
@@ -42,37 +59,173 @@ import org.slf4j.MDC;
 public class JerseyLogFilter
     implements ClientRequestFilter, ClientResponseFilter
 {
+
+    /**
+     * Decides which exchanges are logged if logging is enabled.
+     */
+    public enum SamplingMode
+    {
+        /** Log every exchange. */
+        ALL,
+        /** Decide on the request: a fraction and/or a number per second. */
+        HEAD,
+        /** Capture every exchange, but only log slow ones and those with status 4xx or 5xx. */
+        TAIL;
+    }
+
     /** The Constant LOGGER. */
     private static final Logger LOGGER = LoggerFactory.getLogger(JerseyLogFilter.class);
 
     /** Maximum size of request/response body in bytes that will be logged. */
     private static final int DEFAULT_MAX_BODY_SIZE = 20 * 1024;
 
+    /** Format of the request message. */
+    private static final String REQUEST_FORMAT = "Executing %s on %s,\nheaders: %s,\nBody: %s";
+
+    /** Format of the response message. */
+    private static final String RESPONSE_FORMAT = "Response status: %s %s, Duration: %sms, \nHeaders: %s,\nBody: %s";
+
+    /** Property of the request context holding the start time of the exchange. */
+    public static final String START_PROPERTY = JerseyLogFilter.class.getName() + ".start";
+
+    /** Property of the request context marking a request as sampled. */
+    public static final String SAMPLED_PROPERTY = JerseyLogFilter.class.getName() + ".sampled";
+
+    /** Property of the request context holding the capture for tail sampling. */
+    public static final String CAPTURE_PROPERTY = JerseyLogFilter.class.getName() + ".capture";
+
     /** The m max body size. */
     private final int mMaxBodySize = DEFAULT_MAX_BODY_SIZE;
 
     /** The logger. */
     private Logger logger;
 
-    private long requestStartTime;
+    /** Format and log on a background pipeline. */
+    private boolean async;
+
+    /** The pipeline used in async mode, null for the default one. */
+    private JerseyLogPipeline pipeline;
+
+    /** The sampling mode. */
+    private SamplingMode samplingMode = SamplingMode.ALL;
 
+    /** Fraction of the requests logged in head sampling mode. */
+    private double sampleRate = 1;
+
+    /** Maximum number of requests per second logged in head sampling mode, 0 for no limit. */
+    private int samplesPerSecond;
+
+    /** Current second and number of samples in it for head sampling. */
+    private final AtomicReference<SampleWindow> sampleWindow = new AtomicReference<>(new SampleWindow(Long.MIN_VALUE));
+
+    /** Duration in milliseconds from which an exchange is logged in tail sampling mode. */
+    private long slowThreshold = 1000;
 
 
     @Override
     public void filter(final ClientRequestContext requestContext)
         throws IOException
     {
+        requestContext.setProperty(START_PROPERTY, nanoTime());
         if (!isLoggingEnabled()) {
             return;
         }
         final String generatedString = RandomStringUtils.secure().nextAlphanumeric(20);
-        MDC.put("client-requestId", generatedString);
-        requestStartTime = System.nanoTime();
-        final var body = SerializationUtil.getObjectMapper().writeValueAsString(requestContext.getEntity());
+        switch (getSamplingMode()) {
+            case TAIL:
+                MDC.put("client-requestId", generatedString);
+                requestContext.setProperty(CAPTURE_PROPERTY, new Capture(requestContext.getMethod(),
+                                requestContext.getUri(), snapshot(requestContext.getStringHeaders()),
+                                requestContext.getEntity()));
+                break;
+            case HEAD:
+                if (!sampleHead()) {
+                    break;
+                }
+                //$FALL-THROUGH$
+            case ALL:
+            default:
+                MDC.put("client-requestId", generatedString);
+                requestContext.setProperty(SAMPLED_PROPERTY, Boolean.TRUE);
+                logRequest(requestContext.getMethod(), requestContext.getUri(), requestContext.getStringHeaders(),
+                                requestContext.getEntity());
+                break;
+        }
+    }
 
-        final String msg = String.format("Executing %s on %s,\nheaders: %s,\nBody: %s", requestContext.getMethod(),
-                        requestContext.getUri(), requestContext.getStringHeaders(), body);
-        logMessage(msg);
+    /**
+     * Log the request.
+     *
+     * @param _method HTTP method
+     * @param _uri the uri
+     * @param _headers the headers
+     * @param _entity the entity
+     * @throws IOException on error
+     */
+    protected void logRequest(final String _method,
+                              final URI _uri,
+                              final Map<String, List<String>> _headers,
+                              final Object _entity)
+        throws IOException
+    {
+        final byte[] body = serializeEntity(_entity);
+        if (isAsync()) {
+            final Map<String, List<String>> headers = snapshot(_headers);
+            emit(MDC.getCopyOfContextMap(), () -> String.format(REQUEST_FORMAT, _method, _uri, headers,
+                            new String(body, StandardCharsets.UTF_8)));
+        } else {
+            final String msg = String.format(REQUEST_FORMAT, _method, _uri, _headers,
+                            new String(body, StandardCharsets.UTF_8));
+            logMessage(msg);
+        }
+    }
+
+    /**
+     * Time source for the duration of an exchange and the window of the
+     * head sampling.
+     *
+     * @return current value of the time source in nanoseconds
+     */
+    protected long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Decide if a request is logged in head sampling mode.
+     *
+     * @return true if the request is sampled
+     */
+    protected boolean sampleHead()
+    {
+        boolean ret = sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (ret && samplesPerSecond > 0) {
+            final long second = Math.floorDiv(nanoTime(), TimeUnit.SECONDS.toNanos(1));
+            SampleWindow window = sampleWindow.get();
+            while (window.second < second) {
+                final SampleWindow next = new SampleWindow(second);
+                if (sampleWindow.compareAndSet(window, next)) {
+                    window = next;
+                } else {
+                    window = sampleWindow.get();
+                }
+            }
+            ret = window.count.get() < samplesPerSecond && window.count.incrementAndGet() <= samplesPerSecond;
+        }
+        return ret;
+    }
+
+    /**
+     * Decide if an exchange is logged in tail sampling mode.
+     *
+     * @param _durationMillis duration of the exchange
+     * @param _status status of the response
+     * @return true if the exchange is logged
+     */
+    protected boolean sampleTail(final long _durationMillis,
+                                 final int _status)
+    {
+        return _status >= 400 || _durationMillis >= slowThreshold;
     }
 
     @Override
@@ -80,22 +233,191 @@ public class JerseyLogFilter
                        final ClientResponseContext _responseContext)
         throws IOException
     {
+        final long requestFinishTime = nanoTime();
+        final long nanos;
+        if (_requestContext.getProperty(START_PROPERTY) instanceof final Long requestStartTime) {
+            nanos = requestFinishTime - requestStartTime;
+            JerseyLatency.record(_requestContext.getUri().getHost(), _requestContext.getMethod(),
+                            TimeUnit.NANOSECONDS.toMicros(nanos));
+        } else {
+            nanos = 0;
+        }
         if (!isLoggingEnabled()) {
             return;
         }
-        final StringBuilder bodyMsg = new StringBuilder();
+        final long duration = TimeUnit.NANOSECONDS.toMillis(nanos);
+        final int status = _responseContext.getStatus();
+        if (_requestContext.getProperty(CAPTURE_PROPERTY) instanceof final Capture capture) {
+            _requestContext.removeProperty(CAPTURE_PROPERTY);
+            if (!sampleTail(duration, status)) {
+                MDC.remove("client-requestId");
+                return;
+            }
+            logRequest(capture.method, capture.uri, capture.headers, capture.entity);
+        } else if (!Boolean.TRUE.equals(_requestContext.getProperty(SAMPLED_PROPERTY))) {
+            return;
+        }
+        final StatusType statusInfo = _responseContext.getStatusInfo();
         if (_responseContext.hasEntity()) {
-            _responseContext.setEntityStream(logMessageBodyInputStream(bodyMsg, _responseContext.getEntityStream()));
-        }
-        final long requestFinishTime = System.nanoTime();
-        final long duration = requestFinishTime - requestStartTime;
-        final String msg = String.format("Response status: %s %s, Duration: %sms, \nHeaders: %s,\nBody: %s",
-                       _responseContext.getStatus(), _responseContext.getStatusInfo(),
-                       TimeUnit.NANOSECONDS.toMillis(duration), _responseContext.getHeaders(), bodyMsg);
-        logMessage(msg);
+            final Map<String, List<String>> headers = snapshot(_responseContext.getHeaders());
+            final Map<String, String> mdc = MDC.getCopyOfContextMap();
+            final Charset charset = getCharset(_responseContext.getMediaType());
+            _responseContext.setEntityStream(new BodyCaptureInputStream(_responseContext.getEntityStream(),
+                            mMaxBodySize, capture -> {
+                                final Supplier<String> body;
+                                if (isAsync()) {
+                                    final byte[] bytes = capture.copy();
+                                    final boolean truncated = capture.isTruncated();
+                                    body = () -> BodyCaptureInputStream.toString(bytes, bytes.length, truncated,
+                                                    charset);
+                                } else {
+                                    final String decoded = capture.toString(charset);
+                                    body = () -> decoded;
+                                }
+                                emit(mdc, () -> String.format(RESPONSE_FORMAT, status, statusInfo, duration,
+                                                headers, body.get()));
+                            }));
+        } else if (isAsync()) {
+            final Map<String, List<String>> headers = snapshot(_responseContext.getHeaders());
+            emit(MDC.getCopyOfContextMap(),
+                            () -> String.format(RESPONSE_FORMAT, status, statusInfo, duration, headers, ""));
+        } else {
+            logMessage(String.format(RESPONSE_FORMAT, status, statusInfo, duration,
+                            _responseContext.getHeaders(), ""));
+        }
         MDC.remove("client-requestId");
     }
 
+    /**
+     * Serializes the entity of a request for logging. Serialization writes
+     * into a bounded stream and stops at the maximum body size. Streams, byte
+     * arrays and files are only described by type and length.
+     *
+     * @param _entity the entity, may be null
+     * @return the serialized entity as UTF-8
+     * @throws IOException on error
+     */
+    protected byte[] serializeEntity(final Object _entity)
+        throws IOException
+    {
+        final String description;
+        if (_entity instanceof final byte[] bytes) {
+            description = "[byte[] of " + bytes.length + " bytes]";
+        } else if (_entity instanceof final File file) {
+            description = "[File " + file.getName() + " of " + file.length() + " bytes]";
+        } else if (_entity instanceof final Path path) {
+            description = "[Path " + path.getFileName() + " of "
+                            + (Files.exists(path) ? Files.size(path) : -1) + " bytes]";
+        } else if (_entity instanceof InputStream || _entity instanceof Reader
+                        || _entity instanceof StreamingOutput) {
+            description = "[" + _entity.getClass().getName() + "]";
+        } else {
+            description = null;
+        }
+        final byte[] ret;
+        if (description == null) {
+            final BoundedOutputStream out = new BoundedOutputStream(mMaxBodySize);
+            try {
+                SerializationUtil.getObjectMapper().writeValue(out, _entity);
+            } catch (final IOException e) {
+                if (!isLimitReached(e)) {
+                    throw e;
+                }
+            }
+            if (out.isTruncated()) {
+                final byte[] bytes = out.toByteArray();
+                final byte[] marker = " [additional data truncated]".getBytes(StandardCharsets.UTF_8);
+                ret = Arrays.copyOf(bytes, bytes.length + marker.length);
+                System.arraycopy(marker, 0, ret, bytes.length, marker.length);
+            } else {
+                ret = out.toByteArray();
+            }
+        } else {
+            ret = description.getBytes(StandardCharsets.UTF_8);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _throwable throwable to check
+     * @return true if the throwable was caused by reaching the limit of a
+     *         {@link BoundedOutputStream}
+     */
+    private boolean isLimitReached(final Throwable _throwable)
+    {
+        Throwable current = _throwable;
+        while (current != null && !(current instanceof BoundedOutputStream.LimitReachedException)) {
+            current = current.getCause();
+        }
+        return current != null;
+    }
+
+    /**
+     * Log a message with the given MDC, in async mode on the pipeline.
+     *
+     * @param _mdc MDC to log with, may be null
+     * @param _message formats the message
+     */
+    protected void emit(final Map<String, String> _mdc,
+                        final Supplier<String> _message)
+    {
+        if (isAsync()) {
+            getPipeline().submit(_mdc, _message, this::logMessage);
+        } else {
+            final Map<String, String> current = MDC.getCopyOfContextMap();
+            try {
+                if (_mdc != null) {
+                    MDC.setContextMap(_mdc);
+                }
+                logMessage(_message.get());
+            } finally {
+                if (current == null) {
+                    MDC.clear();
+                } else {
+                    MDC.setContextMap(current);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the charset of a message body from the Content-Type.
+     *
+     * @param _mediaType media type, may be null
+     * @return the charset, UTF-8 if not given or not supported
+     */
+    protected Charset getCharset(final MediaType _mediaType)
+    {
+        Charset ret = StandardCharsets.UTF_8;
+        if (_mediaType != null) {
+            final String charset = _mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+            if (charset != null) {
+                try {
+                    ret = Charset.forName(charset);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.debug("Unsupported charset: {}", charset);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Copy the headers, so they can be formatted after the exchange
+     * continued.
+     *
+     * @param _headers headers to copy
+     * @return snapshot of the headers
+     */
+    protected Map<String, List<String>> snapshot(final Map<String, List<String>> _headers)
+    {
+        final Map<String, List<String>> ret = new LinkedHashMap<>();
+        for (final Map.Entry<String, List<String>> entry : _headers.entrySet()) {
+            ret.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+        return ret;
+    }
+
     /**
      * Determines if the request having the supplied request context has a body
      * or not.
@@ -112,40 +434,6 @@ public class JerseyLogFilter
         return theBodylessFlag;
     }
 
-    /**
-     * Logs the contents of the supplied input stream to the supplied string
-     * builder, as to produce
-     * a log message.
-     * If the length of the data in the input stream exceeds the maximum body
-     * size configured on the
-     * logging filter then the exceeding data is not logged.
-     *
-     * @param _inLogMessageStringBuilder the in log message string builder
-     * @param _inBodyInputStream the in body input stream
-     * @return An input stream from which the message body can be read from.
-     *         Will be the original input stream if it supports mark and reset.
-     * @throws IOException If error occurs reading from input stream.
-     */
-    protected InputStream logMessageBodyInputStream(final StringBuilder _inLogMessageStringBuilder,
-                                                    final InputStream _inBodyInputStream)
-        throws IOException
-    {
-        InputStream theResultEntityStream = _inBodyInputStream;
-
-        if (!_inBodyInputStream.markSupported()) {
-            theResultEntityStream = new BufferedInputStream(_inBodyInputStream);
-        }
-        theResultEntityStream.mark(mMaxBodySize + 1);
-        final byte[] theEntityBytes = new byte[mMaxBodySize + 1];
-        final int theEntitySize = theResultEntityStream.read(theEntityBytes);
-        _inLogMessageStringBuilder.append(new String(theEntityBytes, 0, Math.min(theEntitySize, mMaxBodySize)));
-        if (theEntitySize > mMaxBodySize) {
-            _inLogMessageStringBuilder.append(" [additional data truncated]");
-        }
-        theResultEntityStream.reset();
-        return theResultEntityStream;
-    }
-
     /**
      * Determines whether logging is enabled or not.
      * This method should be overridden by subclasses that wish to use some
@@ -198,4 +486,181 @@ public class JerseyLogFilter
         logger = _logger;
         return this;
     }
+
+    /**
+     * Checks if formatting and logging is done on a background pipeline.
+     *
+     * @return true, if async
+     */
+    public boolean isAsync()
+    {
+        return async;
+    }
+
+    /**
+     * Sets if formatting and logging is done on a background pipeline.
+     * Only the raw parts of the exchange are captured on the calling thread.
+     *
+     * @param _async the new async
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setAsync(final boolean _async)
+    {
+        async = _async;
+        return this;
+    }
+
+    /**
+     * Gets the pipeline used in async mode.
+     *
+     * @return the pipeline
+     */
+    public JerseyLogPipeline getPipeline()
+    {
+        return pipeline == null ? JerseyLogPipeline.getDefault() : pipeline;
+    }
+
+    /**
+     * Sets the pipeline used in async mode.
+     *
+     * @param _pipeline the new pipeline
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setPipeline(final JerseyLogPipeline _pipeline)
+    {
+        pipeline = _pipeline;
+        return this;
+    }
+
+    /**
+     * Gets the sampling mode.
+     *
+     * @return the sampling mode
+     */
+    public SamplingMode getSamplingMode()
+    {
+        return samplingMode;
+    }
+
+    /**
+     * Sets the sampling mode.
+     *
+     * @param _samplingMode the new sampling mode
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setSamplingMode(final SamplingMode _samplingMode)
+    {
+        samplingMode = _samplingMode == null ? SamplingMode.ALL : _samplingMode;
+        return this;
+    }
+
+    /**
+     * Gets the fraction of the requests logged in head sampling mode.
+     *
+     * @return the sample rate
+     */
+    public double getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the fraction of the requests logged in head sampling mode.
+     *
+     * @param _sampleRate the new sample rate between 0 and 1
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setSampleRate(final double _sampleRate)
+    {
+        sampleRate = _sampleRate;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of requests per second logged in head
+     * sampling mode.
+     *
+     * @return the samples per second, 0 for no limit
+     */
+    public int getSamplesPerSecond()
+    {
+        return samplesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of requests per second logged in head
+     * sampling mode.
+     *
+     * @param _samplesPerSecond the new samples per second, 0 for no limit
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setSamplesPerSecond(final int _samplesPerSecond)
+    {
+        samplesPerSecond = _samplesPerSecond;
+        return this;
+    }
+
+    /**
+     * Gets the duration from which an exchange is logged in tail sampling
+     * mode.
+     *
+     * @return the slow threshold in milliseconds
+     */
+    public long getSlowThreshold()
+    {
+        return slowThreshold;
+    }
+
+    /**
+     * Sets the duration from which an exchange is logged in tail sampling
+     * mode.
+     *
+     * @param _slowThreshold the new slow threshold in milliseconds
+     * @return the jersey log filter
+     */
+    public JerseyLogFilter setSlowThreshold(final long _slowThreshold)
+    {
+        slowThreshold = _slowThreshold;
+        return this;
+    }
+
+    /**
+     * A second of the monotonic clock and the number of requests sampled in
+     * it. The count is checked before it is incremented, so it stays close
+     * to the limit and cannot overflow.
+     */
+    private static final class SampleWindow
+    {
+
+        private final long second;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private SampleWindow(final long _second)
+        {
+            second = _second;
+        }
+    }
+
+    /**
+     * Raw parts of a request kept for tail sampling.
+     */
+    private static final class Capture
+    {
+
+        private final String method;
+        private final URI uri;
+        private final Map<String, List<String>> headers;
+        private final Object entity;
+
+        private Capture(final String _method,
+                        final URI _uri,
+                        final Map<String, List<String>> _headers,
+                        final Object _entity)
+        {
+            method = _method;
+            uri = _uri;
+            headers = _headers;
+            entity = _entity;
+        }
+    }
 }
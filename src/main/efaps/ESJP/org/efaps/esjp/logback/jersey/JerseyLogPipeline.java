@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.jersey;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Bounded pipeline that formats and logs the exchanges captured by the
+ * {@link JerseyLogFilter} on a background thread, so that the thread making
+ * the HTTP call only pays for capturing the raw parts. The worker thread
+ * ends once the queue stayed empty for the keep alive time and is started
+ * again by the next exchange, so an idle pipeline holds no thread that would
+ * keep the classes of a recompiled ESJP alive.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("89630927-7074-4f06-bde0-60b1505acb4b")
+@EFapsApplication("eFapsApp-Logback")
+public class JerseyLogPipeline
+{
+
+    /**
+     * What to do if the queue is full.
+     */
+    public enum OverflowPolicy
+    {
+        /** Drop the exchange and count it. */
+        DROP,
+        /** Block the calling thread until there is space in the queue. */
+        BLOCK;
+    }
+
+    /** Default capacity of the queue. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Default time in seconds the idle worker waits before it ends. */
+    public static final long DEFAULT_KEEPALIVE = 60;
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(JerseyLogPipeline.class);
+
+    /** Pipeline used if none is set explicitly. */
+    private static volatile JerseyLogPipeline DEFAULT;
+
+    /** The queue. */
+    private final BlockingQueue<Entry> queue;
+
+    /** The overflow policy. */
+    private final OverflowPolicy overflowPolicy;
+
+    /** Number of submitted exchanges. */
+    private final LongAdder submitted = new LongAdder();
+
+    /** Number of dropped exchanges. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Time in nanoseconds the idle worker waits before it ends. */
+    private final long keepAlive;
+
+    /** The worker thread, null if none is running. */
+    private volatile Thread worker;
+
+    /**
+     * Instantiates a new pipeline.
+     *
+     * @param capacity capacity of the queue
+     * @param overflowPolicy policy if the queue is full
+     */
+    public JerseyLogPipeline(final int capacity,
+                             final OverflowPolicy overflowPolicy)
+    {
+        this(capacity, overflowPolicy, DEFAULT_KEEPALIVE, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Instantiates a new pipeline.
+     *
+     * @param capacity capacity of the queue
+     * @param overflowPolicy policy if the queue is full
+     * @param keepAlive time the idle worker waits before it ends
+     * @param unit unit of the keep alive time
+     */
+    public JerseyLogPipeline(final int capacity,
+                             final OverflowPolicy overflowPolicy,
+                             final long keepAlive,
+                             final TimeUnit unit)
+    {
+        queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.keepAlive = unit.toNanos(keepAlive);
+    }
+
+    /**
+     * Submit an exchange.
+     *
+     * @param mdc copy of the MDC of the calling thread, may be null
+     * @param message formats the message from the captured parts
+     * @param sink logs the message
+     */
+    public void submit(final Map<String, String> mdc,
+                       final Supplier<String> message,
+                       final Consumer<String> sink)
+    {
+        if (worker == null) {
+            ensureStarted();
+        }
+        submitted.increment();
+        final Entry entry = new Entry(mdc, message, sink);
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(entry);
+            } catch (final InterruptedException e) {
+                dropped.increment();
+                Thread.currentThread().interrupt();
+            }
+        } else if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+        // the worker may have ended in between as the queue was empty
+        if (worker == null) {
+            ensureStarted();
+        }
+    }
+
+    /**
+     * Start the worker if not done yet.
+     */
+    private synchronized void ensureStarted()
+    {
+        if (worker == null) {
+            worker = new Thread(this::work, "eFaps-JerseyLogPipeline");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop the worker. Exchanges still in the queue are discarded.
+     */
+    public synchronized void shutdown()
+    {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * @return true if the worker thread is running
+     */
+    public boolean isRunning()
+    {
+        return worker != null;
+    }
+
+    /**
+     * Loop of the worker thread.
+     */
+    private void work()
+    {
+        boolean idle = false;
+        while (!idle && !Thread.currentThread().isInterrupted()) {
+            try {
+                final Entry entry = queue.poll(keepAlive, TimeUnit.NANOSECONDS);
+                if (entry == null) {
+                    idle = retire();
+                } else {
+                    try {
+                        if (entry.mdc != null) {
+                            MDC.setContextMap(entry.mdc);
+                        }
+                        entry.sink.accept(entry.message.get());
+                    } catch (final RuntimeException e) {
+                        LOG.error("Catched", e);
+                    } finally {
+                        MDC.clear();
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Called by the worker after it waited the keep alive time in vain.
+     *
+     * @return true if the worker ends, i.e. the queue is still empty or the
+     *         worker was replaced
+     */
+    private synchronized boolean retire()
+    {
+        final boolean current = worker == Thread.currentThread();
+        final boolean ret = !current || queue.isEmpty();
+        if (ret && current) {
+            worker = null;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return number of submitted exchanges
+     */
+    public long getSubmitted()
+    {
+        return submitted.sum();
+    }
+
+    /**
+     * @return number of dropped exchanges
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of exchanges waiting in the queue
+     */
+    public int getQueued()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @return the pipeline used if none is set explicitly
+     */
+    public static JerseyLogPipeline getDefault()
+    {
+        JerseyLogPipeline ret = DEFAULT;
+        if (ret == null) {
+            synchronized (JerseyLogPipeline.class) {
+                ret = DEFAULT;
+                if (ret == null) {
+                    ret = new JerseyLogPipeline(DEFAULT_CAPACITY, OverflowPolicy.DROP);
+                    DEFAULT = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * A captured exchange.
+     */
+    private static final class Entry
+    {
+
+        private final Map<String, String> mdc;
+        private final Supplier<String> message;
+        private final Consumer<String> sink;
+
+        private Entry(final Map<String, String> mdc,
+                      final Supplier<String> message,
+                      final Consumer<String> sink)
+        {
+            this.mdc = mdc;
+            this.message = message;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsListener;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.IClusterMsgListener;
+import org.efaps.cluster.StreamableWrapper;
+import org.efaps.esjp.logback.rest.dto.AppenderDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+import org.jgroups.JChannel;
+import org.jgroups.ObjectMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Status and live tuning of the appenders.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("a4a6577e-9a63-4e08-bab9-d062501fdc3e")
+@EFapsApplication("eFapsApp-Logback")
+@Path("/logback/appender")
+@EFapsListener
+public class AppenderController
+    implements IClusterMsgListener
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(AppenderController.class);
+
+    /**
+     * @return all appenders with type and status, for async appenders
+     *         including the state of the queue
+     */
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getAppenders()
+    {
+        List<AppenderDto> appenders = Collections.emptyList();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                appenders = Appenders.getAppenders();
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+        }
+        return Response.ok(appenders).build();
+    }
+
+    /**
+     * Change queueSize, discardingThreshold, neverBlock or maxFlushTime of
+     * async appenders on all members of the cluster. Only the values set in
+     * a dto are changed.
+     *
+     * @param appenders name and values to change
+     * @return the response
+     */
+    @PUT
+    @Produces({ MediaType.APPLICATION_JSON })
+    @Consumes({ MediaType.APPLICATION_JSON })
+    public Response updateAppenders(final List<AppenderDto> appenders)
+    {
+        for (final var dto : appenders) {
+            try {
+                if (Appenders.update(dto)) {
+                    inform(dto);
+                }
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+        return Response.ok().build();
+    }
+
+    protected void inform(final Serializable payload)
+        throws Exception
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        if (channel != null) {
+            final var msg = new ObjectMessage();
+            msg.setObject(new StreamableWrapper(payload));
+            channel.send(msg);
+        }
+    }
+
+    @Override
+    public int getWeight()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean onPayload(final Serializable obj)
+    {
+        boolean ret = true;
+        if (obj instanceof final AppenderDto dto) {
+            LOG.info("received appenderDto: {}", dto);
+            try {
+                Appenders.update(dto);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+            ret = false;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.AppenderStatsDto;
+import org.efaps.esjp.logback.util.AppenderProxy;
+import org.efaps.esjp.logback.util.AppenderStats;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+
+/**
+ * Opt-in instrumentation of the appenders. When enabled every appender
+ * attached to a logger, and every delegate of an async appender, is
+ * replaced by an {@link AppenderProxy} recording events, encoded bytes and
+ * the time spent in <code>doAppend</code>. The statistic is kept by name of
+ * the appender, so it survives a replaced appender.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("d6feed1d-0a7f-4850-9098-9071f3ec9ced")
+@EFapsApplication("eFapsApp-Logback")
+public final class AppenderInstrumentation
+{
+
+    /** Statistic by name of the appender. */
+    private static final Map<String, AppenderStats> STATS = new ConcurrentHashMap<>();
+
+    /** Is the instrumentation enabled. */
+    private static volatile boolean ENABLED;
+
+    /**
+     * Singleton.
+     */
+    private AppenderInstrumentation()
+    {
+    }
+
+    /**
+     * @return true if the instrumentation is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Enable or disable the instrumentation.
+     *
+     * @param enable enable or disable
+     * @throws EFapsException on error
+     */
+    public static synchronized void setEnabled(final boolean enable)
+        throws EFapsException
+    {
+        ENABLED = enable;
+        if (!enable) {
+            STATS.clear();
+        }
+        sync();
+    }
+
+    /**
+     * Wrap the appenders if the instrumentation is enabled, else unwrap them.
+     *
+     * @throws EFapsException on error
+     */
+    public static synchronized void sync()
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        for (final var entry : Appenders.collect(accessor).entrySet()) {
+            final Object attached = entry.getKey();
+            final Object appender = AppenderProxy.unwrap(attached);
+            if (accessor.isAsync(appender)) {
+                for (final Object delegate : Appenders.getDelegates(accessor, appender)) {
+                    final Object replacement = replacement(accessor, delegate);
+                    if (replacement != delegate) {
+                        Appenders.swapDelegate(accessor, appender, delegate, replacement);
+                    }
+                }
+            }
+            // delegates are not attached to a logger and replaced above
+            final Object replacement = entry.getValue().isEmpty() ? attached
+                            : replacement(accessor, attached);
+            if (replacement != attached) {
+                for (final String loggerName : entry.getValue()) {
+                    final Object logger = accessor.getLogger(loggerName);
+                    accessor.addAppender(logger, replacement);
+                    accessor.detachAppenderInstance(logger, attached);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param appender appender as attached
+     * @return the appender to attach instead, the appender itself if
+     *         nothing changes
+     * @throws EFapsException on error
+     */
+    private static Object replacement(final LogbackAccessor accessor,
+                                      final Object appender)
+        throws EFapsException
+    {
+        final AppenderProxy handler = AppenderProxy.getHandler(appender);
+        final AppenderStats stats = ENABLED ? STATS.computeIfAbsent(accessor.getAppenderName(appender),
+                        name -> new AppenderStats()) : null;
+        Object ret = appender;
+        if (ENABLED && handler == null) {
+            ret = AppenderProxy.wrap(appender, stats);
+        } else if (ENABLED && handler != null) {
+            handler.setStats(stats);
+        } else if (!ENABLED && handler != null) {
+            ret = AppenderProxy.release(appender);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the statistic of the instrumented appenders
+     */
+    public static List<AppenderStatsDto> getStats()
+    {
+        final List<AppenderStatsDto> ret = new ArrayList<>();
+        for (final var entry : STATS.entrySet()) {
+            final AppenderStats stats = entry.getValue();
+            final double seconds = stats.getSeconds();
+            final var durations = stats.getDurations();
+            ret.add(AppenderStatsDto.builder()
+                            .withName(entry.getKey())
+                            .withEvents(stats.getEvents())
+                            .withEventsPerSecond(stats.getEvents() / seconds)
+                            .withBytes(stats.isBytesCounted() ? stats.getBytes() : null)
+                            .withBytesPerSecond(stats.isBytesCounted() ? stats.getBytes() / seconds : null)
+                            .withMean(durations.getMean())
+                            .withP50(durations.getValueAtPercentile(50))
+                            .withP99(durations.getValueAtPercentile(99))
+                            .withP999(durations.getValueAtPercentile(99.9))
+                            .withMax(durations.getMax())
+                            .build());
+        }
+        return ret;
+    }
+
+    /**
+     * Reset the statistic.
+     */
+    public static void reset()
+    {
+        for (final AppenderStats stats : STATS.values()) {
+            stats.reset();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.AppenderDto;
+import org.efaps.esjp.logback.util.AppenderProxy;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+
+/**
+ * Status and tuning of the appenders of the LoggerContext. The async
+ * appenders (<code>AsyncAppenderBase</code>) are accessed by the
+ * {@link LogbackAccessor}.
+ * The discarding threshold, neverBlock and the max flush time are changed
+ * on the running appender. The queue of a running appender can not be
+ * resized, so a change of the queue size replaces the appender by a new
+ * one with the same settings and delegates: the new appender is attached
+ * to the loggers first, then the old one is detached and stopped. Stopping
+ * drains its queue into the delegates; as the delegates are shared with
+ * the new appender, the old one hands them over behind a wrapper that
+ * ignores <code>stop</code>.
+ * Appenders wrapped by the {@link AppenderInstrumentation} are reported
+ * and changed as the appender they wrap.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("591e9e3e-1e02-41b0-91b9-eefcc9a7337a")
+@EFapsApplication("eFapsApp-Logback")
+public final class Appenders
+{
+
+    /**
+     * Singleton.
+     */
+    private Appenders()
+    {
+    }
+
+    /**
+     * @return the status of all appenders, including the delegates of async
+     *         appenders
+     * @throws EFapsException on error
+     */
+    public static List<AppenderDto> getAppenders()
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final Map<Object, List<String>> appenders = collect(accessor);
+        final List<AppenderDto> ret = new ArrayList<>();
+        for (final var entry : appenders.entrySet()) {
+            ret.add(toDto(accessor, entry.getKey(), entry.getValue()));
+        }
+        return ret;
+    }
+
+    /**
+     * Apply the values set in the dto to the appender with the same name.
+     *
+     * @param update name and values to change
+     * @return true if the appender was found
+     * @throws EFapsException on error
+     */
+    public static synchronized boolean update(final AppenderDto update)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final Map<Object, List<String>> appenders = collect(accessor);
+        Object appender = null;
+        List<String> loggers = null;
+        for (final var entry : appenders.entrySet()) {
+            if (accessor.getAppenderName(entry.getKey()).equals(update.getName())) {
+                appender = entry.getKey();
+                loggers = entry.getValue();
+                break;
+            }
+        }
+        if (appender != null && accessor.isAsync(AppenderProxy.unwrap(appender))) {
+            try {
+                Object target = AppenderProxy.unwrap(appender);
+                if (update.getQueueSize() != null && update.getQueueSize() > 0
+                                && update.getQueueSize() != accessor.getQueueSize(target)) {
+                    target = replace(accessor, appender, loggers, update.getQueueSize());
+                }
+                if (update.getDiscardingThreshold() != null) {
+                    accessor.setDiscardingThreshold(target, update.getDiscardingThreshold());
+                }
+                if (update.isNeverBlock() != null) {
+                    accessor.setNeverBlock(target, update.isNeverBlock());
+                }
+                if (update.getMaxFlushTime() != null) {
+                    accessor.setMaxFlushTime(target, update.getMaxFlushTime());
+                }
+            } catch (final ReflectiveOperationException e) {
+                throw new EFapsException(Appenders.class, "update", e);
+            }
+        }
+        return appender != null;
+    }
+
+    /**
+     * Replace an async appender by one with another queue size. The
+     * settings, filters and delegates of the old appender are kept.
+     *
+     * @param accessor accessor to Logback
+     * @param attached appender to replace as attached to the loggers
+     * @param loggers names of the loggers the appender is attached to
+     * @param queueSize new queue size
+     * @return the new appender
+     * @throws ReflectiveOperationException on error
+     * @throws EFapsException on error
+     */
+    private static Object replace(final LogbackAccessor accessor,
+                                  final Object attached,
+                                  final List<String> loggers,
+                                  final int queueSize)
+        throws ReflectiveOperationException, EFapsException
+    {
+        final Object old = AppenderProxy.unwrap(attached);
+        final int oldQueueSize = accessor.getQueueSize(old);
+        final int threshold = accessor.getDiscardingThreshold(old);
+        final Object ret = old.getClass().getConstructor().newInstance();
+        accessor.setAppenderName(ret, accessor.getAppenderName(old));
+        accessor.setContext(ret);
+        accessor.setQueueSize(ret, queueSize);
+        // a threshold left at its default is recomputed for the new size
+        if (threshold != oldQueueSize / 5) {
+            accessor.setDiscardingThreshold(ret, threshold);
+        }
+        accessor.setNeverBlock(ret, accessor.isNeverBlock(old));
+        accessor.setMaxFlushTime(ret, accessor.getMaxFlushTime(old));
+        accessor.copyIncludeCallerData(old, ret);
+        for (final Object filter : accessor.getFilters(old)) {
+            accessor.addFilter(ret, filter);
+        }
+        final List<Object> delegates = getDelegates(accessor, old);
+        for (final Object delegate : delegates) {
+            accessor.addAppender(ret, delegate);
+        }
+        accessor.start(ret);
+        final AppenderProxy handler = AppenderProxy.getHandler(attached);
+        final Object attach = handler == null ? ret
+                        : AppenderProxy.wrap(ret, handler.getStats());
+        for (final String loggerName : loggers) {
+            final Object logger = accessor.getLogger(loggerName);
+            accessor.addAppender(logger, attach);
+            accessor.detachAppenderInstance(logger, attached);
+        }
+        // stopping the old appender drains its queue and then stops its
+        // delegates, so they are swapped for wrappers ignoring stop first
+        for (final Object delegate : delegates) {
+            swapDelegate(accessor, old, delegate, keepRunning(delegate));
+        }
+        accessor.stop(old);
+        return ret;
+    }
+
+    /**
+     * Replace a delegate of an async appender. AsyncAppenderBase accepts
+     * only one appender and ignores <code>addAppender</code> once it has
+     * one, so the swap is done on its AppenderAttachableImpl. The
+     * replacement is added before the delegate is detached, so the worker
+     * of the async appender always finds one of both.
+     *
+     * @param accessor accessor to Logback
+     * @param async async appender
+     * @param delegate delegate to replace
+     * @param replacement appender to attach instead
+     * @throws EFapsException on error
+     */
+    static void swapDelegate(final LogbackAccessor accessor,
+                             final Object async,
+                             final Object delegate,
+                             final Object replacement)
+        throws EFapsException
+    {
+        final Object aai = accessor.getAppenderAttachable(async);
+        accessor.addAppender(aai, replacement);
+        accessor.detachAppenderInstance(aai, delegate);
+    }
+
+    /**
+     * @param delegate appender
+     * @return a wrapper passing everything but <code>stop</code>,
+     *         <code>equals</code> and <code>hashCode</code> to the appender
+     * @throws ReflectiveOperationException on error
+     */
+    private static Object keepRunning(final Object delegate)
+        throws ReflectiveOperationException
+    {
+        final ClassLoader loader = delegate.getClass().getClassLoader();
+        return Proxy.newProxyInstance(loader,
+                        new Class<?>[] { Class.forName(LogbackAccessor.APPENDER, false, loader) },
+                        (proxy, method, args) -> {
+                            Object ret = null;
+                            // identity, else it is taken as already attached
+                            if ("equals".equals(method.getName())) {
+                                ret = proxy == args[0];
+                            } else if ("hashCode".equals(method.getName())) {
+                                ret = System.identityHashCode(proxy);
+                            } else if (!"stop".equals(method.getName())) {
+                                try {
+                                    ret = method.invoke(delegate, args);
+                                } catch (final InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            }
+                            return ret;
+                        });
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @return the appenders as attached, i.e. maybe wrapped, with the names
+     *         of the loggers they are attached to, in the order of the
+     *         loggers
+     * @throws EFapsException on error
+     */
+    static Map<Object, List<String>> collect(final LogbackAccessor accessor)
+        throws EFapsException
+    {
+        final Map<Object, List<String>> identity = new IdentityHashMap<>();
+        final List<Object> order = new ArrayList<>();
+        for (final Object logger : accessor.getLoggerList()) {
+            final Iterator<?> iter = accessor.iteratorForAppenders(logger);
+            while (iter.hasNext()) {
+                final Object appender = iter.next();
+                if (!identity.containsKey(appender)) {
+                    order.add(appender);
+                    identity.put(appender, new ArrayList<>());
+                }
+                identity.get(appender).add(accessor.getName(logger));
+            }
+        }
+        // delegates of async appenders
+        for (int i = 0; i < order.size(); i++) {
+            final Object appender = AppenderProxy.unwrap(order.get(i));
+            if (accessor.isAsync(appender)) {
+                for (final Object delegate : getDelegates(accessor, appender)) {
+                    if (!identity.containsKey(delegate)) {
+                        order.add(delegate);
+                        identity.put(delegate, new ArrayList<>());
+                    }
+                }
+            }
+        }
+        final Map<Object, List<String>> ret = new LinkedHashMap<>();
+        for (final Object appender : order) {
+            ret.put(appender, identity.get(appender));
+        }
+        return ret;
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param attached appender as attached
+     * @param loggers names of the loggers the appender is attached to
+     * @return dto
+     * @throws EFapsException on error
+     */
+    private static AppenderDto toDto(final LogbackAccessor accessor,
+                                     final Object attached,
+                                     final List<String> loggers)
+        throws EFapsException
+    {
+        final Object appender = AppenderProxy.unwrap(attached);
+        final var builder = AppenderDto.builder()
+                        .withName(accessor.getAppenderName(appender))
+                        .withType(appender.getClass().getName())
+                        .withStarted(accessor.isStarted(appender))
+                        .withLoggers(loggers);
+        if (accessor.isAsync(appender)) {
+            final List<String> delegates = new ArrayList<>();
+            for (final Object delegate : getDelegates(accessor, appender)) {
+                delegates.add(accessor.getAppenderName(delegate));
+            }
+            builder.withAppenders(delegates)
+                            .withQueueSize(accessor.getQueueSize(appender))
+                            .withRemainingCapacity(accessor.getRemainingCapacity(appender))
+                            .withQueued(accessor.getNumberOfElementsInQueue(appender))
+                            .withDiscardingThreshold(accessor.getDiscardingThreshold(appender))
+                            .withNeverBlock(accessor.isNeverBlock(appender))
+                            .withMaxFlushTime(accessor.getMaxFlushTime(appender));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param async async appender
+     * @return the appenders the async appender delegates to
+     * @throws EFapsException on error
+     */
+    static List<Object> getDelegates(final LogbackAccessor accessor,
+                                     final Object async)
+        throws EFapsException
+    {
+        final List<Object> ret = new ArrayList<>();
+        accessor.iteratorForAppenders(async).forEachRemaining(ret::add);
+        return ret;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.ClusterLoggerDto;
+import org.efaps.esjp.logback.rest.dto.ClusterLoggersDto;
+import org.efaps.esjp.logback.rest.dto.ClusterNodeDto;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.NodeLoggersDto;
+import org.efaps.esjp.logback.util.LoggerTree;
+
+/**
+ * Collects the answers of the nodes to a cluster query for the loggers and
+ * merges them into one view. The request waits at most for the timeout;
+ * nodes that did not answer until then are reported instead.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("f52a9186-f818-4d42-bac0-9292f2e5b695")
+@EFapsApplication("eFapsApp-Logback")
+public final class ClusterQueries
+{
+
+    /** Timeout in milliseconds if none is given. */
+    public static final long DEFAULTTIMEOUT = 2000;
+
+    /** Maximum timeout in milliseconds. */
+    public static final long MAXTIMEOUT = 10000;
+
+    /** Sequence for the ids of the requests. */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /** Requests waiting for answers. */
+    private static final Map<String, Pending> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * Singleton.
+     */
+    private ClusterQueries()
+    {
+    }
+
+    /**
+     * Register a request that is about to be sent.
+     *
+     * @param origin address of this node
+     * @param members members expected to answer, including this node
+     * @return id of the request
+     */
+    public static String register(final String origin,
+                                  final Set<String> members)
+    {
+        final String ret = origin + "-" + SEQUENCE.incrementAndGet();
+        PENDING.put(ret, new Pending(members));
+        return ret;
+    }
+
+    /**
+     * Register the answer of a node. Answers to unknown or timed out
+     * requests and from unexpected nodes are ignored.
+     *
+     * @param reply answer of a node
+     */
+    public static void reply(final NodeLoggersDto reply)
+    {
+        final Pending pending = PENDING.get(reply.getRequestId());
+        if (pending != null && pending.members.contains(reply.getOrigin())) {
+            pending.millis.putIfAbsent(reply.getOrigin(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pending.start));
+            if (pending.replies.putIfAbsent(reply.getOrigin(), reply) == null
+                            && pending.replies.size() == pending.members.size()) {
+                pending.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Wait for the answers of all nodes, at most for the timeout, and merge
+     * them.
+     *
+     * @param requestId id of the request
+     * @param timeout timeout in milliseconds
+     * @param limit maximum number of loggers, 0 for all
+     * @return the merged view
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static ClusterLoggersDto await(final String requestId,
+                                          final long timeout,
+                                          final int limit)
+        throws InterruptedException
+    {
+        final Pending pending = PENDING.get(requestId);
+        try {
+            pending.done.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException | ExecutionException e) {
+            // the missing nodes are reported
+        } finally {
+            PENDING.remove(requestId);
+        }
+        return merge(pending, limit);
+    }
+
+    /**
+     * Merge the answers. Each node returns at most limit loggers in the
+     * order of {@link LoggerTree#compare(String, String)}, so only the names
+     * up to the smallest next cursor of the nodes are complete.
+     *
+     * @param pending request with its answers
+     * @param limit maximum number of loggers, 0 for all
+     * @return the merged view
+     */
+    private static ClusterLoggersDto merge(final Pending pending,
+                                           final int limit)
+    {
+        final List<ClusterNodeDto> nodes = new ArrayList<>();
+        final Map<String, Map<String, String>> levels = new TreeMap<>(LoggerTree::compare);
+        final Map<String, Map<String, String>> effectiveLevels = new HashMap<>();
+        String cutoff = null;
+        for (final String member : new TreeSet<>(pending.members)) {
+            final NodeLoggersDto reply = pending.replies.get(member);
+            nodes.add(ClusterNodeDto.builder()
+                            .withAddress(member)
+                            .withResponded(reply != null)
+                            .withMillis(reply == null ? -1 : pending.millis.get(member))
+                            .withLoggers(reply == null ? 0 : reply.getLoggers().size())
+                            .build());
+            if (reply != null) {
+                for (final LoggerDto dto : reply.getLoggers()) {
+                    levels.computeIfAbsent(dto.getName(), name -> new TreeMap<>()).put(member, dto.getLevel());
+                    effectiveLevels.computeIfAbsent(dto.getName(), name -> new TreeMap<>())
+                                    .put(member, dto.getEffectiveLevel());
+                }
+                if (reply.getNext() != null && (cutoff == null || LoggerTree.compare(reply.getNext(), cutoff) < 0)) {
+                    cutoff = reply.getNext();
+                }
+            }
+        }
+        final List<ClusterLoggerDto> loggers = new ArrayList<>();
+        boolean more = cutoff != null;
+        for (final var entry : levels.entrySet()) {
+            if (cutoff != null && LoggerTree.compare(entry.getKey(), cutoff) > 0) {
+                break;
+            }
+            if (limit > 0 && loggers.size() == limit) {
+                more = true;
+                break;
+            }
+            final Map<String, String> effective = effectiveLevels.get(entry.getKey());
+            loggers.add(ClusterLoggerDto.builder()
+                            .withName(entry.getKey())
+                            .withDivergent(new HashSet<>(effective.values()).size() > 1)
+                            .withLevels(entry.getValue())
+                            .withEffectiveLevels(effective)
+                            .build());
+        }
+        final String next = more && !loggers.isEmpty() ? loggers.get(loggers.size() - 1).getName() : null;
+        return ClusterLoggersDto.builder()
+                        .withComplete(pending.replies.size() == pending.members.size())
+                        .withNodes(nodes)
+                        .withLoggers(loggers)
+                        .withNext(next)
+                        .build();
+    }
+
+    /**
+     * A request waiting for answers.
+     */
+    private static final class Pending
+    {
+
+        /** Start of the request. */
+        private final long start = System.nanoTime();
+
+        /** Members expected to answer. */
+        private final Set<String> members;
+
+        /** Answers by member. */
+        private final Map<String, NodeLoggersDto> replies = new ConcurrentHashMap<>();
+
+        /** Milliseconds until the answer by member. */
+        private final Map<String, Long> millis = new ConcurrentHashMap<>();
+
+        /** Completed when all members answered. */
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(final Set<String> members)
+        {
+            this.members = members;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.DebugRuleDto;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.StateDigestDto;
+import org.efaps.esjp.logback.rest.dto.StateEntryDto;
+import org.efaps.esjp.logback.rest.dto.StateSnapshotDto;
+
+/**
+ * The runtime changes of levels, limits and debug rules of the cluster, so
+ * a node that joins or missed messages can fetch them at once instead of
+ * replaying every message. Each entry keeps the time of its change; if two
+ * nodes disagree the newer entry wins on both, so the nodes converge after
+ * exchanging their snapshots. The nodes compare a digest of their entries
+ * periodically to detect drift.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("b8ae1b7b-d468-478b-b0eb-9abac72f5d82")
+@EFapsApplication("eFapsApp-Logback")
+public final class ClusterState
+{
+
+    /** Interval of the digest comparison. */
+    public static final long INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    /** Entries by kind and name, guarded by the class. */
+    private static final Map<String, StateEntryDto> ENTRIES = new TreeMap<>();
+
+    /** Time of the last snapshot request per node, guarded by the class. */
+    private static final Map<String, Long> REQUESTED = new HashMap<>();
+
+    /** Digest of the entries, guarded by the class. */
+    private static long DIGEST;
+
+    /** Time of the newest entry, guarded by the class. */
+    private static long VERSION;
+
+    /** Digest and version must be calculated again, guarded by the class. */
+    private static boolean DIRTY;
+
+    /**
+     * Singleton.
+     */
+    private ClusterState()
+    {
+    }
+
+    /**
+     * Record an applied logger update. The level and the limit are recorded
+     * as separate entries, as they are changed independently.
+     *
+     * @param dto applied dto
+     * @param changedAt time of the change, the same on all nodes
+     */
+    public static synchronized void record(final LoggerDto dto,
+                                           final long changedAt)
+    {
+        prune(System.currentTimeMillis());
+        if (dto.getLimitRate() != null) {
+            put(StateEntryDto.builder()
+                            .withChangedAt(changedAt)
+                            .withLogger(LoggerDto.builder()
+                                            .withName(dto.getName())
+                                            .withLimitRate(dto.getLimitRate())
+                                            .withLimitBurst(dto.getLimitBurst())
+                                            .build())
+                            .build());
+        }
+        if (dto.getLevel() != null || dto.getLimitRate() == null) {
+            StateEntryDto base = null;
+            if (dto.getExpiresAt() != null) {
+                final StateEntryDto existing = ENTRIES.get(key4Level(dto.getName()));
+                if (existing != null) {
+                    base = existing.getBase() == null && existing.getLogger().getExpiresAt() == null
+                                    ? existing : existing.getBase();
+                }
+            }
+            put(StateEntryDto.builder()
+                            .withChangedAt(changedAt)
+                            .withLogger(LoggerDto.builder()
+                                            .withName(dto.getName())
+                                            .withLevel(dto.getLevel())
+                                            .withTtl(dto.getTtl())
+                                            .withExpiresAt(dto.getExpiresAt())
+                                            .build())
+                            .withBase(base)
+                            .build());
+        }
+    }
+
+    /**
+     * Record an applied debug rule. The rule is created with its expiry, so
+     * the time of the change is the same on all nodes.
+     *
+     * @param rule applied rule, expired if it was removed
+     */
+    public static synchronized void record(final DebugRuleDto rule)
+    {
+        prune(System.currentTimeMillis());
+        put(StateEntryDto.builder()
+                        .withChangedAt(rule.getExpiresAt() - TimeUnit.SECONDS.toMillis(rule.getTtl()))
+                        .withRule(rule)
+                        .build());
+    }
+
+    /**
+     * @param origin address of this node
+     * @param target address of the node the snapshot is sent to
+     * @return snapshot of all entries
+     */
+    public static synchronized StateSnapshotDto getSnapshot(final String origin,
+                                                            final String target)
+    {
+        calculate();
+        return StateSnapshotDto.builder()
+                        .withOrigin(origin)
+                        .withTarget(target)
+                        .withVersion(VERSION)
+                        .withDigest(DIGEST)
+                        .withEntries(new ArrayList<>(ENTRIES.values()))
+                        .build();
+    }
+
+    /**
+     * @param origin address of this node
+     * @return digest of the entries
+     */
+    public static synchronized StateDigestDto getDigest(final String origin)
+    {
+        calculate();
+        return StateDigestDto.builder()
+                        .withOrigin(origin)
+                        .withVersion(VERSION)
+                        .withDigest(DIGEST)
+                        .withSize(ENTRIES.size())
+                        .build();
+    }
+
+    /**
+     * @param name name of the logger
+     * @return true if a level of the logger was set at runtime and is
+     *         recorded
+     */
+    public static synchronized boolean hasLevel(final String name)
+    {
+        prune(System.currentTimeMillis());
+        final StateEntryDto entry = ENTRIES.get(key4Level(name));
+        return entry != null && entry.getLogger().getLevel() != null && !entry.getLogger().getLevel().isEmpty();
+    }
+
+    /**
+     * @return true if no entry exists
+     */
+    public static synchronized boolean isEmpty()
+    {
+        prune(System.currentTimeMillis());
+        return ENTRIES.isEmpty();
+    }
+
+    /**
+     * Check if the snapshot of a node must be requested, at most once per
+     * interval for each node.
+     *
+     * @param digest digest received from the node
+     * @return true if the digest differs and the snapshot was not requested
+     *         recently
+     */
+    public static synchronized boolean request(final StateDigestDto digest)
+    {
+        calculate();
+        boolean ret = digest.getDigest() != DIGEST;
+        if (ret) {
+            final long now = System.currentTimeMillis();
+            REQUESTED.values().removeIf(time -> now - time >= INTERVAL);
+            ret = REQUESTED.putIfAbsent(digest.getOrigin(), now) == null;
+        }
+        return ret;
+    }
+
+    /**
+     * Merge the entries of a snapshot received from another node.
+     *
+     * @param snapshot snapshot to merge
+     * @return the entries that are newer than the ones of this node and must
+     *         be applied
+     */
+    public static synchronized List<StateEntryDto> merge(final StateSnapshotDto snapshot)
+    {
+        final long now = System.currentTimeMillis();
+        prune(now);
+        final List<StateEntryDto> ret = new ArrayList<>();
+        for (final StateEntryDto received : snapshot.getEntries()) {
+            final StateEntryDto entry = current(received, now);
+            if (entry != null) {
+                final StateEntryDto existing = ENTRIES.get(key(entry));
+                if (existing == null || compare(entry, existing) > 0) {
+                    put(entry);
+                    ret.add(entry);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param entry entry
+     * @param now current time
+     * @return the entry, its base if the entry expired, or null if nothing
+     *         is left
+     */
+    private static StateEntryDto current(final StateEntryDto entry,
+                                         final long now)
+    {
+        StateEntryDto ret = entry;
+        if (entry.getRule() != null) {
+            final DebugRuleDto rule = entry.getRule();
+            if (rule.getExpiresAt() <= now && (rule.getTtl() > 0
+                            || entry.getChangedAt() + TimeUnit.SECONDS.toMillis(DebugRules.MAXTTL) <= now)) {
+                ret = null;
+            }
+        } else if (entry.getLogger().getExpiresAt() != null && entry.getLogger().getExpiresAt() <= now) {
+            ret = entry.getBase();
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the expired entries. A temporary level is replaced by its base,
+     * a removed debug rule is kept as long as a rule may live, so a node
+     * still having the rule learns about the removal.
+     *
+     * @param now current time
+     */
+    private static void prune(final long now)
+    {
+        final Iterator<Map.Entry<String, StateEntryDto>> iter = ENTRIES.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<String, StateEntryDto> mapEntry = iter.next();
+            final StateEntryDto entry = current(mapEntry.getValue(), now);
+            if (entry == null) {
+                iter.remove();
+                DIRTY = true;
+            } else if (entry != mapEntry.getValue()) {
+                mapEntry.setValue(entry);
+                DIRTY = true;
+            }
+        }
+    }
+
+    /**
+     * @param entry entry to put
+     */
+    private static void put(final StateEntryDto entry)
+    {
+        ENTRIES.put(key(entry), entry);
+        DIRTY = true;
+    }
+
+    /**
+     * Calculate the digest and the version if an entry changed.
+     */
+    private static void calculate()
+    {
+        prune(System.currentTimeMillis());
+        if (DIRTY) {
+            long digest = 0xcbf29ce484222325L;
+            long version = 0;
+            for (final StateEntryDto entry : ENTRIES.values()) {
+                for (final byte b : describe(entry).getBytes(StandardCharsets.UTF_8)) {
+                    digest ^= b;
+                    digest *= 0x100000001b3L;
+                }
+                version = Math.max(version, entry.getChangedAt());
+            }
+            DIGEST = digest;
+            VERSION = version;
+            DIRTY = false;
+        }
+    }
+
+    /**
+     * Order two entries with the same key: the newer one wins, the
+     * description decides if both changed at the same time.
+     *
+     * @param entry1 first entry
+     * @param entry2 second entry
+     * @return comparison result
+     */
+    private static int compare(final StateEntryDto entry1,
+                               final StateEntryDto entry2)
+    {
+        int ret = Long.compare(entry1.getChangedAt(), entry2.getChangedAt());
+        if (ret == 0) {
+            ret = describe(entry1).compareTo(describe(entry2));
+        }
+        return ret;
+    }
+
+    /**
+     * @param entry entry
+     * @return description containing all values of the entry
+     */
+    private static String describe(final StateEntryDto entry)
+    {
+        final StringBuilder ret = new StringBuilder().append(key(entry)).append('|').append(entry.getChangedAt());
+        if (entry.getRule() != null) {
+            ret.append('|').append(entry.getRule().getLevel())
+                .append('|').append(entry.getRule().getTtl())
+                .append('|').append(entry.getRule().getExpiresAt());
+        } else {
+            ret.append('|').append(entry.getLogger().getLevel())
+                .append('|').append(entry.getLogger().getExpiresAt())
+                .append('|').append(entry.getLogger().getLimitRate())
+                .append('|').append(entry.getLogger().getLimitBurst());
+        }
+        if (entry.getBase() != null) {
+            ret.append("|(").append(describe(entry.getBase())).append(')');
+        }
+        return ret.append('\n').toString();
+    }
+
+    /**
+     * @param entry entry
+     * @return key of the entry
+     */
+    private static String key(final StateEntryDto entry)
+    {
+        final String ret;
+        if (entry.getRule() != null) {
+            ret = "D" + entry.getRule().getKey() + '\u0000' + entry.getRule().getValue();
+        } else if (entry.getLogger().getLimitRate() != null) {
+            ret = "R" + entry.getLogger().getName();
+        } else {
+            ret = key4Level(entry.getLogger().getName());
+        }
+        return ret;
+    }
+
+    /**
+     * @param name name of the logger
+     * @return key of the level entry of the logger
+     */
+    private static String key4Level(final String name)
+    {
+        return "L" + name;
+    }
+}
@@ -15,11 +15,16 @@
  */
 package org.efaps.esjp.logback.rest;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.efaps.admin.program.esjp.EFapsApplication;
 import org.efaps.admin.program.esjp.EFapsListener;
@@ -27,22 +32,43 @@ import org.efaps.admin.program.esjp.EFapsUUID;
 import org.efaps.cluster.ClusterCommunication;
 import org.efaps.cluster.IClusterMsgListener;
 import org.efaps.cluster.StreamableWrapper;
+import org.efaps.esjp.common.serialization.SerializationUtil;
+import org.efaps.esjp.logback.Configuration;
+import org.efaps.esjp.logback.rest.dto.ClusterQueryDto;
+import org.efaps.esjp.logback.rest.dto.DebugRuleDto;
+import org.efaps.esjp.logback.rest.dto.LoggerBatchAckDto;
+import org.efaps.esjp.logback.rest.dto.LoggerBatchDto;
 import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.LoggerNodeDto;
+import org.efaps.esjp.logback.rest.dto.NodeLoggersDto;
+import org.efaps.esjp.logback.rest.dto.StateDigestDto;
+import org.efaps.esjp.logback.rest.dto.StateEntryDto;
+import org.efaps.esjp.logback.rest.dto.StateRequestDto;
+import org.efaps.esjp.logback.rest.dto.StateSnapshotDto;
+import org.efaps.esjp.logback.util.BurstLimiter;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackScheduler;
 import org.efaps.util.EFapsException;
+import org.jgroups.Address;
 import org.jgroups.JChannel;
 import org.jgroups.ObjectMessage;
-import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @EFapsUUID("b288b652-30e7-4eaa-b51e-3ffbbf93281f")
 @EFapsApplication("eFapsApp-Logback")
@@ -52,146 +78,806 @@ public class ConfigurationController
     implements IClusterMsgListener
 {
 
+    /** Header containing the cursor for the next page. */
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
     private static final Logger LOG = LoggerFactory.getLogger(ConfigurationController.class);
-    private static String LOGGERCONTEXT = "ch.qos.logback.classic.LoggerContext";
-    private static final String LEVEL = "ch.qos.logback.classic.Level";
 
+    /** The synchronization of the cluster state was started. */
+    private static final AtomicBoolean SYNCING = new AtomicBoolean();
+
+    /** Guards the assignment of a batch version together with its sending. */
+    private static final Object BATCHLOCK = new Object();
+
+    /**
+     * Get the loggers. The response is streamed, so no list of dtos is built
+     * on the heap. If a limit is given and more loggers match, the name of
+     * the last returned logger is set in the {@link #NEXT_CURSOR} header and
+     * can be passed as cursor to get the next page. With the scope "cluster"
+     * all nodes are queried and a merged view is returned, see
+     * {@link #getClusterLoggers}.
+     *
+     * @param name prefix or glob ('*' and '?') the logger name must match
+     * @param explicit only loggers with an explicitly set level
+     * @param levels effective levels to include
+     * @param cursor name of the last logger of the previous page
+     * @param limit maximum number of loggers, 0 for all
+     * @param scope "cluster" to query all nodes, this node if not given
+     * @param timeout milliseconds to wait for the nodes of the cluster
+     * @return the response
+     * @throws EFapsException on error
+     */
     @GET
     @Produces({ MediaType.APPLICATION_JSON })
-    public Response getLoggers()
+    public Response getLoggers(@QueryParam("name") final String name,
+                               @QueryParam("explicit") final boolean explicit,
+                               @QueryParam("level") final List<String> levels,
+                               @QueryParam("cursor") final String cursor,
+                               @QueryParam("limit") final int limit,
+                               @QueryParam("scope") final String scope,
+                               @QueryParam("timeout") final long timeout)
         throws EFapsException
     {
-        final ILoggerFactory logContext = LoggerFactory.getILoggerFactory();
+        final var query = LoggerQuery.builder()
+                        .withName(name)
+                        .withExplicitOnly(explicit)
+                        .withLevels(levels)
+                        .withCursor(cursor)
+                        .withLimit(limit)
+                        .build();
+        if ("cluster".equalsIgnoreCase(scope)) {
+            return getClusterLoggers(query, timeout > 0 ? Math.min(timeout, ClusterQueries.MAXTIMEOUT)
+                            : ClusterQueries.DEFAULTTIMEOUT);
+        }
+        List<?> loggerList = Collections.emptyList();
+        int start = 0;
+        int end = 0;
+        String next = null;
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                final var accessor = LogbackAccessor.get();
+                loggerList = accessor.getLoggerList();
+                start = query.start(accessor, loggerList);
+                end = loggerList.size();
+                if (query.getLimit() > 0) {
+                    int count = 0;
+                    for (int i = start; i < loggerList.size(); i++) {
+                        if (query.matches(accessor, loggerList.get(i)) && ++count == query.getLimit()) {
+                            end = i + 1;
+                            break;
+                        }
+                    }
+                    for (int i = end; i < loggerList.size() && next == null; i++) {
+                        if (query.matches(accessor, loggerList.get(i))) {
+                            next = accessor.getName(loggerList.get(end - 1));
+                        }
+                    }
+                }
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+        final var builder = Response.ok(stream(query, loggerList, start, end));
+        if (next != null) {
+            builder.header(NEXT_CURSOR, next);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Send the query to all nodes of the cluster in one message and merge
+     * their answers. The response does not wait longer than the timeout;
+     * nodes that did not answer are reported as not responded. Loggers
+     * whose effective level differs between the nodes are marked as
+     * divergent.
+     *
+     * @param query query the loggers must match
+     * @param timeout milliseconds to wait for the nodes
+     * @return the response
+     */
+    protected Response getClusterLoggers(final LoggerQuery query,
+                                         final long timeout)
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        final String self = channel == null ? "local" : channel.getAddressAsString();
+        final Set<String> members = new HashSet<>();
+        members.add(self);
+        if (channel != null && channel.getView() != null) {
+            for (final var member : channel.getView().getMembers()) {
+                members.add(member.toString());
+            }
+        }
+        final String requestId = ClusterQueries.register(self, members);
+        if (members.size() > 1) {
+            try {
+                inform(ClusterQueryDto.builder()
+                                .withRequestId(requestId)
+                                .withOrigin(self)
+                                .withQuery(query)
+                                .build());
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+        ClusterQueries.reply(collect(query, requestId, self, self));
+        Response ret;
+        try {
+            final var merged = ClusterQueries.await(requestId, timeout, query.getLimit());
+            final var builder = Response.ok(merged);
+            if (merged.getNext() != null) {
+                builder.header(NEXT_CURSOR, merged.getNext());
+            }
+            ret = builder.build();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ret = Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return ret;
+    }
+
+    /**
+     * Get the loggers of this node for a cluster query.
+     *
+     * @param query query the loggers must match
+     * @param requestId id of the request
+     * @param origin address of this node
+     * @param target address of the node that sent the query
+     * @return the loggers of this node
+     */
+    protected NodeLoggersDto collect(final LoggerQuery query,
+                                     final String requestId,
+                                     final String origin,
+                                     final String target)
+    {
         final List<LoggerDto> loggers = new ArrayList<>();
-        if (logContext.getClass().getName().contains(LOGGERCONTEXT)) {
+        String next = null;
+        if (LogbackAccessor.isAvailable()) {
             try {
-                final Method getLoggerList = logContext.getClass().getMethod("getLoggerList");
-                final List<?> loggerList = (List<?>) getLoggerList.invoke(logContext);
-                for (final Object logger : loggerList) {
-                    final var name = logName(logger);
-                    final var effectivelevel = String.valueOf(getEffectiveLevel(logger));
-                    final var level = getLevel(logger);
-                    final var appender = getAppenderName(logger);
-                    loggers.add(LoggerDto.builder()
-                                    .withName(name)
-                                    .withLevel(level == null ? null : String.valueOf(level))
-                                    .withEffectiveLevel(effectivelevel)
-                                    .withAppender(appender)
-                                    .build());
+                final var accessor = LogbackAccessor.get();
+                final List<?> loggerList = accessor.getLoggerList();
+                for (int i = query.start(accessor, loggerList); i < loggerList.size() && next == null; i++) {
+                    if (query.matches(accessor, loggerList.get(i))) {
+                        if (query.getLimit() > 0 && loggers.size() == query.getLimit()) {
+                            next = loggers.get(loggers.size() - 1).getName();
+                        } else {
+                            loggers.add(toDto(loggerList.get(i)));
+                        }
+                    }
                 }
             } catch (final Exception e) {
                 LOG.error("Catched", e);
             }
         }
-        return Response.ok(loggers).build();
+        return NodeLoggersDto.builder()
+                        .withRequestId(requestId)
+                        .withOrigin(origin)
+                        .withTarget(target)
+                        .withLoggers(loggers)
+                        .withNext(next)
+                        .build();
+    }
+
+    /**
+     * @param query query the loggers must match
+     * @param loggerList loggers
+     * @param start index to start with
+     * @param end index to stop before
+     * @return output writing the loggers as JSON array
+     */
+    protected StreamingOutput stream(final LoggerQuery query,
+                                     final List<?> loggerList,
+                                     final int start,
+                                     final int end)
+    {
+        return output -> {
+            try (var generator = SerializationUtil.getObjectMapper().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                if (start < end) {
+                    final var accessor = LogbackAccessor.get();
+                    for (int i = start; i < end; i++) {
+                        final Object logger = loggerList.get(i);
+                        if (query.matches(accessor, logger)) {
+                            generator.writeObject(toDto(logger));
+                        }
+                    }
+                }
+                generator.writeEndArray();
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new IOException(e);
+            }
+        };
     }
 
+    /**
+     * Build the dto using the protected helpers, so subclasses overriding
+     * them are honored.
+     *
+     * @param logger logger
+     * @return dto for the logger
+     * @throws Exception on error
+     */
+    protected LoggerDto toDto(final Object logger)
+        throws Exception
+    {
+        final String name = logName(logger);
+        final Object level = getLevel(logger);
+        return LoggerDto.builder()
+                        .withName(name)
+                        .withLevel(level == null ? null : String.valueOf(level))
+                        .withEffectiveLevel(String.valueOf(getEffectiveLevel(logger)))
+                        .withAppender(getAppenderName(logger))
+                        .withLimitRate(BurstLimiter.getRate(name))
+                        .withLimitBurst(BurstLimiter.getBurst(name))
+                        .build();
+    }
+
+    /**
+     * Update the levels of loggers and propagate them to the cluster. A
+     * logger with a ttl in seconds is reverted to its previous level on all
+     * nodes when the ttl expired; an expiresAt sent without ttl is ignored.
+     * A logger with a limitRate suppresses bursts of similar events
+     * exceeding the rate; if it has no level, only the limit is changed.
+     *
+     * @param loggers loggers to update
+     * @return the response
+     * @throws EFapsException on error
+     */
     @PUT
     @Produces({ MediaType.APPLICATION_JSON })
     @Consumes({ MediaType.APPLICATION_JSON })
     public Response updateLoggers(final List<LoggerDto> loggers)
         throws EFapsException
     {
-        for (final var dto : loggers) {
+        applyLoggers(loggers);
+        return Response.ok().build();
+    }
+
+    /**
+     * Apply updates of loggers, record them in the {@link ClusterState} and
+     * propagate them to the cluster. Used by {@link #updateLoggers(List)}
+     * and by the form of the user interface.
+     *
+     * @param loggers loggers to update
+     * @return the applied updates
+     */
+    public List<LoggerDto> applyLoggers(final List<LoggerDto> loggers)
+    {
+        final List<LoggerDto> applied = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        for (final var update : loggers) {
             try {
-                final var logger = getLogger(dto.getName());
-                if (logger != null) {
-                    if (StringUtils.isEmpty(dto.getLevel())) {
-                        setLevel(logger, null);
-                    } else {
-                        setLevel(logger, getLevel4Name(logger, dto.getLevel()));
-                    }
-                    inform(dto);
+                final boolean temporary = update.getTtl() != null && update.getTtl() > 0;
+                final var dto = LoggerDto.builder()
+                                .withName(update.getName())
+                                .withLevel(update.getLevel())
+                                .withTtl(temporary ? update.getTtl() : null)
+                                .withExpiresAt(temporary ? now + TimeUnit.SECONDS.toMillis(update.getTtl()) : null)
+                                .withLimitRate(update.getLimitRate())
+                                .withLimitBurst(update.getLimitBurst())
+                                .build();
+                if (apply(dto)) {
+                    ClusterState.record(dto, now);
+                    applied.add(dto);
                 }
             } catch (final Exception e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                LOG.error("Catched", e);
+            }
+        }
+        if (!applied.isEmpty()) {
+            try {
+                informBatch(applied, now);
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
             }
+        }
+        return applied;
+    }
+
+    /**
+     * Get the direct children of a node of the logger hierarchy, each with
+     * the number of its descendants and a flag if a level is set explicitly
+     * below it. If a limit is given and more children exist, the name of the
+     * last returned child is set in the {@link #NEXT_CURSOR} header.
+     *
+     * @param node name of the parent logger, the root logger if not given
+     * @param cursor name of the last child of the previous page
+     * @param limit maximum number of children, 0 for all
+     * @return the response
+     */
+    @GET
+    @Path("/tree")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getTree(@QueryParam("node") final String node,
+                            @QueryParam("cursor") final String cursor,
+                            @QueryParam("limit") final int limit)
+    {
+        List<LoggerNodeDto> children = Collections.emptyList();
+        String next = null;
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                final int max = Math.max(0, limit);
+                children = LoggerHierarchy.getChildren(StringUtils.isEmpty(node) ? null : node,
+                                StringUtils.isEmpty(cursor) ? null : cursor, max == 0 ? 0 : max + 1);
+                if (children == null) {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+                if (max > 0 && children.size() > max) {
+                    children = children.subList(0, max);
+                    next = children.get(max - 1).getName();
+                }
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+        }
+        final var builder = Response.ok(children);
+        if (next != null) {
+            builder.header(NEXT_CURSOR, next);
+        }
+        return builder.build();
+    }
 
+    /**
+     * Get the html rows of one page of the children of a node of the tree
+     * rendered by {@link Configuration#loggersFieldValue}.
+     *
+     * @param node name of the parent logger
+     * @param cursor name of the last child of the previous page
+     * @return the response
+     */
+    @GET
+    @Path("/rows")
+    @Produces({ MediaType.TEXT_HTML })
+    public Response getRows(@QueryParam("node") final String node,
+                            @QueryParam("cursor") final String cursor)
+    {
+        Response ret;
+        try {
+            ret = Response.ok(new Configuration().getRows(StringUtils.isEmpty(node) ? null : node,
+                            StringUtils.isEmpty(cursor) ? null : cursor).toString()).build();
+        } catch (final EFapsException e) {
+            LOG.error("Catched", e);
+            ret = Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
+        return ret;
+    }
+
+    /**
+     * @return the runtime changes known to this node, with the digest that
+     *         is compared with the other nodes
+     */
+    @GET
+    @Path("/state")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getState()
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        return Response.ok(ClusterState.getSnapshot(channel == null ? null : channel.getAddressAsString(), null))
+                        .build();
+    }
+
+    @GET
+    @Path("/propagation")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getPropagation()
+    {
+        return Response.ok(LoggerPropagation.getMetrics()).build();
+    }
+
+    /**
+     * @return the statistic of the appenders, empty if the instrumentation
+     *         is not enabled
+     */
+    @GET
+    @Path("/appenders")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getAppenderStats()
+    {
+        return Response.ok(AppenderInstrumentation.getStats()).build();
+    }
+
+    /**
+     * Enable or disable the instrumentation of the appenders of this node.
+     *
+     * @param enabled enable or disable
+     * @return the response
+     */
+    @PUT
+    @Path("/appenders")
+    public Response setAppenderInstrumentation(@QueryParam("enabled") final boolean enabled)
+    {
+        Response ret = Response.ok().build();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                AppenderInstrumentation.setEnabled(enabled);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+                ret = Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        return ret;
+    }
+
+    @DELETE
+    @Path("/appenders")
+    public Response resetAppenderStats()
+    {
+        AppenderInstrumentation.reset();
         return Response.ok().build();
     }
 
+    /**
+     * Get the loggers emitting the most events.
+     *
+     * @param limit maximum number of entries, 10 if not given
+     * @param window window in minutes the entries are ordered by: 1, 5 or 15
+     * @return the response
+     */
+    @GET
+    @Path("/rates")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getEventRates(@QueryParam("limit") final int limit,
+                                  @QueryParam("window") final int window)
+    {
+        return Response.ok(EventRates.getTop(limit > 0 ? limit : 10, window)).build();
+    }
+
+    /**
+     * Enable or disable counting the events per logger on this node.
+     *
+     * @param enabled enable or disable
+     * @return the response
+     */
+    @PUT
+    @Path("/rates")
+    public Response setEventRates(@QueryParam("enabled") final boolean enabled)
+    {
+        Response ret = Response.ok().build();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                EventRates.setEnabled(enabled);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+                ret = Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the level overrides that will be reverted, with their remaining
+     *         time
+     */
+    @GET
+    @Path("/overrides")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getOverrides()
+    {
+        return Response.ok(LevelOverrides.getOverrides()).build();
+    }
+
+    /**
+     * @return the active debug rules
+     */
+    @GET
+    @Path("/debug")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getDebugRules()
+    {
+        return Response.ok(DebugRules.getRules()).build();
+    }
+
+    /**
+     * Register a rule enabling a level, DEBUG if not given, for the events
+     * whose MDC contains the value for the key, e.g. the user or the
+     * client-requestId. The rule expires after its ttl in seconds and is
+     * propagated to the cluster.
+     *
+     * @param rule rule to register
+     * @return the response containing the registered rule
+     */
+    @POST
+    @Path("/debug")
+    @Produces({ MediaType.APPLICATION_JSON })
+    @Consumes({ MediaType.APPLICATION_JSON })
+    public Response addDebugRule(final DebugRuleDto rule)
+    {
+        final Response ret;
+        if (rule == null || StringUtils.isEmpty(rule.getKey()) || StringUtils.isEmpty(rule.getValue())
+                        || !LogbackAccessor.isAvailable()) {
+            ret = Response.status(Response.Status.BAD_REQUEST).build();
+        } else {
+            final long ttl = rule.getTtl() > 0 ? Math.min(rule.getTtl(), DebugRules.MAXTTL) : DebugRules.DEFAULTTTL;
+            final var registered = DebugRuleDto.builder()
+                            .withKey(rule.getKey())
+                            .withValue(rule.getValue())
+                            .withLevel(StringUtils.isEmpty(rule.getLevel()) ? "DEBUG"
+                                            : rule.getLevel().trim().toUpperCase(Locale.ENGLISH))
+                            .withTtl(ttl)
+                            .withExpiresAt(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl))
+                            .build();
+            ret = applyDebugRule(registered) ? Response.ok(registered).build()
+                            : Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return ret;
+    }
+
+    /**
+     * Remove a debug rule on all nodes of the cluster.
+     *
+     * @param key MDC key
+     * @param value MDC value
+     * @return the response
+     */
+    @DELETE
+    @Path("/debug")
+    public Response removeDebugRule(@QueryParam("key") final String key,
+                                    @QueryParam("value") final String value)
+    {
+        final Response ret;
+        if (StringUtils.isEmpty(key) || StringUtils.isEmpty(value) || !LogbackAccessor.isAvailable()) {
+            ret = Response.status(Response.Status.BAD_REQUEST).build();
+        } else {
+            ret = applyDebugRule(DebugRuleDto.builder()
+                            .withKey(key)
+                            .withValue(value)
+                            .withExpiresAt(System.currentTimeMillis())
+                            .build())
+                            ? Response.noContent().build()
+                            : Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return ret;
+    }
+
+    /**
+     * Apply a debug rule locally and inform the cluster.
+     *
+     * @param rule rule to apply
+     * @return true if the rule was applied locally
+     */
+    protected boolean applyDebugRule(final DebugRuleDto rule)
+    {
+        boolean ret = false;
+        try {
+            DebugRules.apply(rule);
+            ClusterState.record(rule);
+            ret = true;
+            startSync();
+            inform(rule);
+        } catch (final Exception e) {
+            LOG.error("Catched", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Apply the level and the limit of a dto to the logger. A dto with an
+     * expiry registers an override that is reverted, a dto whose expiry
+     * already passed is ignored and a dto without expiry discards an
+     * existing override. A dto with a limit but without level changes only
+     * the limit.
+     *
+     * @param dto dto to apply
+     * @return true if the logger exists
+     * @throws Exception on error
+     */
+    protected boolean apply(final LoggerDto dto)
+        throws Exception
+    {
+        final var logger = getLogger(dto.getName());
+        final boolean expired = dto.getExpiresAt() != null && dto.getExpiresAt() <= System.currentTimeMillis();
+        if (logger != null && !expired && dto.getLimitRate() != null) {
+            BurstLimiter.setLimit(dto.getName(), dto.getLimitRate(),
+                            dto.getLimitBurst() == null ? 1 : dto.getLimitBurst());
+        }
+        if (logger != null && !expired && (dto.getLevel() != null || dto.getLimitRate() == null)) {
+            final Object previous = getLevel(logger);
+            if (StringUtils.isEmpty(dto.getLevel())) {
+                setLevel(logger, null);
+            } else {
+                setLevel(logger, getLevel4Name(logger, dto.getLevel()));
+            }
+            if (dto.getExpiresAt() != null) {
+                LevelOverrides.register(dto.getName(), previous == null ? null : String.valueOf(previous),
+                                dto.getLevel(), dto.getExpiresAt());
+            } else {
+                LevelOverrides.discard(dto.getName());
+            }
+        }
+        return logger != null && !expired;
+    }
+
     protected Object getLogger(final String name)
         throws Exception
     {
-        final ILoggerFactory logContext = LoggerFactory.getILoggerFactory();
-        final Method exists = logContext.getClass().getMethod("exists", String.class);
-        return exists.invoke(logContext, name);
+        return LogbackAccessor.get().exists(name);
     }
 
     protected String getAppenderName(final Object _logger)
         throws Exception
     {
-        final StringBuilder ret = new StringBuilder();
-        final Method iteratorForAppenders = _logger.getClass().getMethod("iteratorForAppenders");
-        final Iterator<?> iter = (Iterator<?>) iteratorForAppenders.invoke(_logger);
-        while (iter.hasNext()) {
-            final Object appender = iter.next();
-            final Method getName = appender.getClass().getMethod("getName");
-            ret.append(getName.invoke(appender));
-        }
-        return ret.toString();
+        return LogbackAccessor.get().getAppenderNames(_logger);
     }
 
     protected Object getLevel(final Object logger)
         throws Exception
     {
-        final Method getLevel = logger.getClass().getMethod("getLevel");
-        return getLevel.invoke(logger);
+        return LogbackAccessor.get().getLevel(logger);
     }
 
     protected Object getEffectiveLevel(final Object logger)
         throws Exception
     {
-        final Method getEffectiveLevel = logger.getClass().getMethod("getEffectiveLevel");
-        return getEffectiveLevel.invoke(logger);
+        return LogbackAccessor.get().getEffectiveLevel(logger);
     }
 
     protected String logName(final Object logger)
         throws Exception
     {
-        final Method getName = logger.getClass().getMethod("getName");
-        final String ret = (String) getName.invoke(logger);
-        return ret;
+        return LogbackAccessor.get().getName(logger);
     }
 
     protected Object getLevel4Name(final Object _logger,
                                    final String _name)
         throws Exception, SecurityException
     {
-        final Class<?> level = _logger.getClass().getClassLoader().loadClass(LEVEL);
-        final Method toLevel = level.getMethod("toLevel", String.class);
-        return toLevel.invoke(null, _name);
+        return LogbackAccessor.get().toLevel(_name);
     }
 
     protected void setLevel(final Object logger,
                             final Object level)
         throws Exception
     {
-        Object temp;
-        if (level == null) {
-            temp = getLevel(logger);
-        } else {
-            temp = level;
+        LogbackAccessor.get().setLevel(logger, level);
+    }
+
+    /**
+     * Send the updates of one request as one versioned message to the
+     * cluster. The version is assigned and the message sent under one lock,
+     * as the channel delivers the messages of a node in the order they were
+     * sent and a receiver drops a batch older than the last one it applied.
+     *
+     * @param dtos applied updates
+     * @param sentAt time of the updates
+     * @throws Exception on error
+     */
+    protected void informBatch(final List<LoggerDto> dtos,
+                               final long sentAt)
+        throws Exception
+    {
+        startSync();
+        final JChannel channel = ClusterCommunication.getChannel();
+        if (channel != null) {
+            final Set<String> members = new HashSet<>();
+            if (channel.getView() != null) {
+                for (final var member : channel.getView().getMembers()) {
+                    members.add(member.toString());
+                }
+            }
+            members.remove(channel.getAddressAsString());
+            synchronized (BATCHLOCK) {
+                final var batch = LoggerBatchDto.builder()
+                                .withOrigin(channel.getAddressAsString())
+                                .withVersion(LoggerPropagation.nextVersion())
+                                .withSentAt(sentAt)
+                                .withLoggers(dtos)
+                                .build();
+                LoggerPropagation.sent(batch, members);
+                inform(batch);
+            }
         }
-        final Method setLevel = logger.getClass().getMethod("setLevel", temp.getClass());
-        setLevel.invoke(logger, level);
     }
 
-    protected void inform(final LoggerDto dto)
+    protected void inform(final Serializable payload)
         throws Exception
     {
         final JChannel channel = ClusterCommunication.getChannel();
         if (channel != null) {
             final var msg = new ObjectMessage();
 
-            final var object = new StreamableWrapper(dto);
+            final var object = new StreamableWrapper(payload);
             msg.setObject(object);
             channel.send(msg);
         }
     }
 
+    /**
+     * Send a payload to one node of the cluster.
+     *
+     * @param target address of the node
+     * @param payload payload to send
+     * @throws Exception on error
+     */
+    protected void inform(final String target,
+                          final Serializable payload)
+        throws Exception
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        if (channel != null && channel.getView() != null) {
+            for (final Address member : channel.getView().getMembers()) {
+                if (member.toString().equals(target)) {
+                    channel.send(new ObjectMessage(member, new StreamableWrapper(payload)));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the periodic digest comparison with the other nodes and fetch the
+     * snapshot of the coordinator once, so a node that joined the cluster
+     * gets the changes made before.
+     */
+    protected void startSync()
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        if (channel != null && SYNCING.compareAndSet(false, true)) {
+            LogbackScheduler.scheduleAtFixedRate(() -> new ConfigurationController().informDigest(),
+                            ClusterState.INTERVAL, TimeUnit.MILLISECONDS);
+            if (channel.getView() != null && channel.getView().getCoord() != null) {
+                final String coordinator = channel.getView().getCoord().toString();
+                if (!coordinator.equals(channel.getAddressAsString())) {
+                    try {
+                        inform(coordinator, StateRequestDto.builder()
+                                        .withOrigin(channel.getAddressAsString())
+                                        .withTarget(coordinator)
+                                        .build());
+                    } catch (final Exception e) {
+                        LOG.error("Catched", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the digest of the cluster state of this node, if it has any
+     * changes.
+     */
+    protected void informDigest()
+    {
+        final JChannel channel = ClusterCommunication.getChannel();
+        if (channel != null && !ClusterState.isEmpty()) {
+            try {
+                inform(ClusterState.getDigest(channel.getAddressAsString()));
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+    }
+
+    /**
+     * Apply the entries of a snapshot that are newer than the ones of this
+     * node. The permanent level a temporary level overrides is applied
+     * first, so it is restored after the expiry.
+     *
+     * @param snapshot snapshot received from another node
+     */
+    protected void applySnapshot(final StateSnapshotDto snapshot)
+    {
+        final List<StateEntryDto> entries = ClusterState.merge(snapshot);
+        if (!entries.isEmpty()) {
+            LOG.info("Applying {} entries of the state of {}", entries.size(), snapshot.getOrigin());
+        }
+        LOG.debug("Applying {} of {}", entries, snapshot);
+        for (final StateEntryDto entry : entries) {
+            try {
+                if (entry.getRule() != null) {
+                    DebugRules.apply(entry.getRule());
+                } else {
+                    if (entry.getBase() != null) {
+                        apply(entry.getBase().getLogger());
+                    }
+                    apply(entry.getLogger());
+                }
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+    }
+
     @Override
     public int getWeight()
     {
@@ -201,23 +887,110 @@ public class ConfigurationController
     @Override
     public boolean onPayload(final Serializable obj)
     {
-        LOG.info("payload: {}", obj);
-        if (obj instanceof final LoggerDto dto) {
+        LOG.debug("payload: {}", obj);
+        startSync();
+        boolean ret = true;
+        if (obj instanceof final LoggerBatchDto batch) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            final String self = channel == null ? null : channel.getAddressAsString();
+            if (!batch.getOrigin().equals(self) && LoggerPropagation.accept(batch)) {
+                LOG.info("received loggerBatchDto: {}", batch);
+                for (final var dto : batch.getLoggers()) {
+                    try {
+                        if (apply(dto)) {
+                            ClusterState.record(dto, batch.getSentAt());
+                        }
+                    } catch (final Exception e) {
+                        LOG.error("Catched", e);
+                    }
+                }
+                try {
+                    inform(batch.getOrigin(), LoggerBatchAckDto.builder()
+                                    .withOrigin(batch.getOrigin())
+                                    .withVersion(batch.getVersion())
+                                    .withReceiver(self)
+                                    .build());
+                } catch (final Exception e) {
+                    LOG.error("Catched", e);
+                }
+            }
+            ret = false;
+        } else if (obj instanceof final LoggerBatchAckDto ack) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            if (channel != null && ack.getOrigin().equals(channel.getAddressAsString())) {
+                LoggerPropagation.acknowledged(ack);
+            }
+            ret = false;
+        } else if (obj instanceof final DebugRuleDto rule) {
+            LOG.info("received debugRuleDto: {}", rule);
+            try {
+                DebugRules.apply(rule);
+                ClusterState.record(rule);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+            ret = false;
+        } else if (obj instanceof final LoggerDto dto) {
             LOG.info("received loggerDto: {}", dto);
             try {
-                final var logger = getLogger(dto.getName());
-                if (logger != null) {
-                    if (StringUtils.isEmpty(dto.getLevel())) {
-                        setLevel(logger, null);
-                    } else {
-                        setLevel(logger, getLevel4Name(logger, dto.getLevel()));
-                    }
+                if (apply(dto)) {
+                    ClusterState.record(dto, dto.getExpiresAt() != null
+                                    ? dto.getExpiresAt() - TimeUnit.SECONDS.toMillis(dto.getTtl())
+                                    : System.currentTimeMillis());
                 }
             } catch (final Exception e) {
                 LOG.error("Catched", e);
             }
-            return false;
+            ret = false;
+        } else if (obj instanceof final ClusterQueryDto query) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            if (channel != null && !query.getOrigin().equals(channel.getAddressAsString())) {
+                try {
+                    inform(query.getOrigin(), collect(query.getQuery(), query.getRequestId(),
+                                    channel.getAddressAsString(), query.getOrigin()));
+                } catch (final Exception e) {
+                    LOG.error("Catched", e);
+                }
+            }
+            ret = false;
+        } else if (obj instanceof final NodeLoggersDto reply) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            if (channel != null && reply.getTarget().equals(channel.getAddressAsString())) {
+                ClusterQueries.reply(reply);
+            }
+            ret = false;
+        } else if (obj instanceof final StateDigestDto digest) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            final String self = channel == null ? null : channel.getAddressAsString();
+            if (!digest.getOrigin().equals(self) && ClusterState.request(digest)) {
+                LOG.debug("requesting state after digest: {}", digest);
+                try {
+                    inform(digest.getOrigin(), StateRequestDto.builder()
+                                    .withOrigin(self)
+                                    .withTarget(digest.getOrigin())
+                                    .build());
+                } catch (final Exception e) {
+                    LOG.error("Catched", e);
+                }
+            }
+            ret = false;
+        } else if (obj instanceof final StateRequestDto request) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            if (channel != null && request.getTarget().equals(channel.getAddressAsString())) {
+                try {
+                    inform(request.getOrigin(), ClusterState.getSnapshot(request.getTarget(), request.getOrigin()));
+                } catch (final Exception e) {
+                    LOG.error("Catched", e);
+                }
+            }
+            ret = false;
+        } else if (obj instanceof final StateSnapshotDto snapshot) {
+            final JChannel channel = ClusterCommunication.getChannel();
+            if (channel != null && snapshot.getTarget().equals(channel.getAddressAsString())) {
+                applySnapshot(snapshot);
+            }
+            ret = false;
         }
-        return true;
+        return ret;
     }
 }
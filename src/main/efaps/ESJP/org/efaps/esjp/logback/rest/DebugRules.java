@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.DebugRuleDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackScheduler;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Temporary rules enabling a level for the events whose MDC contains a
+ * value, e.g. DEBUG for one user or one request. The rules of one MDC key
+ * are enforced by one <code>DynamicThresholdFilter</code> of Logback that
+ * accepts the events of the configured values at or above their level and
+ * is neutral for all others. A filter is never changed once it was added to
+ * the context: on a change a new one replaces it, so the filter chain read
+ * by the logging threads stays lock free. Without rules no filter is
+ * installed and Logback skips the turbo filters entirely.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("6fad3760-916b-40d6-bdab-a5bb6f53bbc8")
+@EFapsApplication("eFapsApp-Logback")
+public final class DebugRules
+{
+
+    /** Maximum time to live of a rule. */
+    public static final long MAXTTL = TimeUnit.DAYS.toSeconds(1);
+
+    /** Default time to live of a rule. */
+    public static final long DEFAULTTTL = TimeUnit.MINUTES.toSeconds(15);
+
+    private static final Logger LOG = LoggerFactory.getLogger(DebugRules.class);
+
+    /** Rules by MDC key and value, guarded by the class. */
+    private static final Map<String, Map<String, DebugRuleDto>> RULES = new HashMap<>();
+
+    /** Installed filters by MDC key, guarded by the class. */
+    private static final Map<String, Object> FILTERS = new HashMap<>();
+
+    /** Scheduled expiry, guarded by the class. */
+    private static ScheduledFuture<?> EXPIRY;
+
+    /**
+     * Singleton.
+     */
+    private DebugRules()
+    {
+    }
+
+    /**
+     * Add or replace a rule, or remove it if it is expired.
+     *
+     * @param rule rule to apply
+     * @throws EFapsException on error
+     */
+    public static synchronized void apply(final DebugRuleDto rule)
+        throws EFapsException
+    {
+        if (rule.getExpiresAt() > System.currentTimeMillis()) {
+            RULES.computeIfAbsent(rule.getKey(), key -> new HashMap<>()).put(rule.getValue(), rule);
+        } else {
+            final Map<String, DebugRuleDto> values = RULES.get(rule.getKey());
+            if (values != null) {
+                values.remove(rule.getValue());
+                if (values.isEmpty()) {
+                    RULES.remove(rule.getKey());
+                }
+            }
+        }
+        install(rule.getKey());
+        schedule();
+    }
+
+    /**
+     * @return the active rules
+     */
+    public static synchronized List<DebugRuleDto> getRules()
+    {
+        final List<DebugRuleDto> ret = new ArrayList<>();
+        for (final Map<String, DebugRuleDto> values : RULES.values()) {
+            ret.addAll(values.values());
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the expired rules.
+     */
+    private static synchronized void expire()
+    {
+        EXPIRY = null;
+        final long now = System.currentTimeMillis();
+        for (final String key : new ArrayList<>(RULES.keySet())) {
+            final Map<String, DebugRuleDto> values = RULES.get(key);
+            if (values.values().removeIf(rule -> rule.getExpiresAt() <= now)) {
+                if (values.isEmpty()) {
+                    RULES.remove(key);
+                }
+                try {
+                    install(key);
+                } catch (final EFapsException e) {
+                    LOG.error("Catched", e);
+                }
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Schedule the expiry of the next rule.
+     */
+    private static void schedule()
+    {
+        long next = Long.MAX_VALUE;
+        for (final Map<String, DebugRuleDto> values : RULES.values()) {
+            for (final DebugRuleDto rule : values.values()) {
+                next = Math.min(next, rule.getExpiresAt());
+            }
+        }
+        if (EXPIRY != null) {
+            EXPIRY.cancel(false);
+            EXPIRY = null;
+        }
+        if (next < Long.MAX_VALUE) {
+            EXPIRY = LogbackScheduler.schedule(DebugRules::expire,
+                            Math.max(0, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replace the filter for a MDC key by one for the current rules.
+     *
+     * @param key MDC key
+     * @throws EFapsException on error
+     */
+    private static void install(final String key)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        Object filter = null;
+        final Map<String, DebugRuleDto> values = RULES.getOrDefault(key, Collections.emptyMap());
+        if (!values.isEmpty()) {
+            final Map<String, Object> levels = new LinkedHashMap<>();
+            for (final DebugRuleDto rule : values.values()) {
+                levels.put(rule.getValue(), accessor.toLevel(rule.getLevel()));
+            }
+            filter = accessor.newThresholdFilter(DebugRules.class.getName() + "." + key, key, levels);
+            accessor.addTurboFilter(filter);
+        }
+        final Object previous = filter == null ? FILTERS.remove(key) : FILTERS.put(key, filter);
+        if (previous != null) {
+            accessor.removeTurboFilter(previous);
+            accessor.stop(previous);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.util.EventRing;
+
+/**
+ * Inverted index over the events of an {@link EventRing}. Every event gets
+ * a sequence number and is added to the postings of its level, its logger
+ * and each of its MDC values. Postings are delta encoded as variable length
+ * integers, so an entry mostly costs one or two bytes. A query marks the
+ * postings of each criterion in a bit set, intersects them and only reads
+ * the remaining events from the ring, newest first.
+ * <p>
+ * The logging threads only queue the events, they neither lock nor update
+ * the postings. The queue is bounded, events that do not fit are counted
+ * and not indexed. The queued events are indexed by {@link #drain()}, which
+ * runs periodically and at the start of each search, so a search blocks
+ * only the indexing and never a logging thread.
+ * </p>
+ * <p>
+ * The number of events is capped, the oldest event is evicted first, as are
+ * the events overwritten in the ring. Postings of evicted events are removed
+ * by {@link #compact(long)}, or while draining if there are too many.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("98756fa8-a020-40fd-bc5b-186f04f73a46")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventIndex
+{
+
+    /** Tolerance in milliseconds for events that arrive out of order. */
+    private static final long SLACK = 1000;
+
+    /** Number of positions read per lock of a search. */
+    private static final int CHUNK = 256;
+
+    /** Separator of key and value of MDC postings. */
+    private static final char SEPARATOR = '\u0000';
+
+    /** Maximum number of queued events. */
+    private static final int BACKLOG = 65_536;
+
+    /** Maximum number of events. */
+    private final int capacity;
+
+    /** Position in the ring by sequence modulo capacity. */
+    private final long[] positions;
+
+    /** Highest time so far by sequence modulo capacity, so it is sorted. */
+    private final long[] times;
+
+    /** Postings by integer value of the level. */
+    private final Map<Integer, Postings> levels = new HashMap<>();
+
+    /** Postings by name of the logger. */
+    private final NavigableMap<String, Postings> loggers = new TreeMap<>();
+
+    /** Postings by key and value of the MDC. */
+    private final Map<String, Postings> mdc = new HashMap<>();
+
+    /** Guards the index. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Events added by the logging threads, not yet indexed. */
+    private final Queue<Added> queue = new ConcurrentLinkedQueue<>();
+
+    /** Number of queued events. */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** Events not indexed as the queue was full. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Sequence of the next event. */
+    private long next;
+
+    /** Sequence of the oldest event. */
+    private long oldest;
+
+    /** Highest time so far. */
+    private long maxTime = Long.MIN_VALUE;
+
+    /**
+     * @param capacity maximum number of events
+     */
+    public EventIndex(final int capacity)
+    {
+        this.capacity = capacity;
+        positions = new long[capacity];
+        times = new long[capacity];
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return number of events in the index
+     */
+    public int getSize()
+    {
+        lock.readLock().lock();
+        try {
+            return (int) (next - oldest);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of events not indexed as the queue was full
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Queue an event to be indexed. Called by the logging threads.
+     *
+     * @param position position of the event in the ring
+     * @param timestamp time of the event
+     * @param level integer value of the level
+     * @param logger name of the logger
+     * @param values MDC of the event
+     */
+    public void add(final long position,
+                    final long timestamp,
+                    final int level,
+                    final String logger,
+                    final Map<String, String> values)
+    {
+        if (queued.incrementAndGet() > BACKLOG) {
+            queued.decrementAndGet();
+            dropped.increment();
+        } else {
+            queue.add(new Added(position, timestamp, level, logger, values));
+        }
+    }
+
+    /**
+     * Index the queued events.
+     */
+    public void drain()
+    {
+        if (!queue.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                index();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Index the queued events. Must be called holding the write lock.
+     */
+    private void index()
+    {
+        Added added;
+        while ((added = queue.poll()) != null) {
+            queued.decrementAndGet();
+            if (next - oldest == capacity) {
+                oldest++;
+            }
+            final int slot = (int) (next % capacity);
+            positions[slot] = added.position;
+            maxTime = Math.max(maxTime, added.timestamp);
+            times[slot] = maxTime;
+            levels.computeIfAbsent(added.level, key -> new Postings()).add(next);
+            loggers.computeIfAbsent(added.logger, key -> new Postings()).add(next);
+            for (final var entry : added.values.entrySet()) {
+                mdc.computeIfAbsent(entry.getKey() + SEPARATOR + entry.getValue(), key -> new Postings()).add(next);
+            }
+            next++;
+        }
+        if (mdc.size() + loggers.size() > 2 * capacity) {
+            trim();
+        }
+    }
+
+    /**
+     * Index the queued events, evict the events that were overwritten in
+     * the ring and remove the postings of evicted events.
+     *
+     * @param start position of the oldest event in the ring
+     */
+    public void compact(final long start)
+    {
+        lock.writeLock().lock();
+        try {
+            index();
+            while (oldest < next && positions[(int) (oldest % capacity)] < start) {
+                oldest++;
+            }
+            trim();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the postings of evicted events. Must be called holding the
+     * write lock.
+     */
+    private void trim()
+    {
+        for (final Map<?, Postings> map : List.of(levels, loggers, mdc)) {
+            final Iterator<Postings> iter = map.values().iterator();
+            while (iter.hasNext()) {
+                final Postings postings = iter.next();
+                postings.trim(oldest);
+                if (postings.count == 0) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Search the events. The queued events are indexed first. The postings
+     * are marked holding the read lock, which only delays the indexing.
+     *
+     * @param ring ring the events are kept in
+     * @param query the criteria
+     * @param minLevel integer value of the minimum level
+     * @return the most recent matching events in the order they were logged
+     */
+    public List<EventRing.Entry> search(final EventRing ring,
+                                        final EventQuery query,
+                                        final int minLevel)
+    {
+        drain();
+        final long low;
+        final long high;
+        BitSet matches = null;
+        lock.readLock().lock();
+        try {
+            low = lowerBound(oldest, next, query.getFrom());
+            high = query.getTo() >= Long.MAX_VALUE - SLACK ? next : lowerBound(low, next, query.getTo() + SLACK + 1);
+            if (minLevel > Integer.MIN_VALUE) {
+                final BitSet bits = new BitSet();
+                for (final var entry : levels.entrySet()) {
+                    if (entry.getKey() >= minLevel) {
+                        entry.getValue().mark(bits, low, high);
+                    }
+                }
+                matches = bits;
+            }
+            if (query.getLogger() != null) {
+                final BitSet bits = new BitSet();
+                for (final Postings postings : loggers.subMap(query.getLogger(), true,
+                                query.getLogger() + Character.MAX_VALUE, true).values()) {
+                    postings.mark(bits, low, high);
+                }
+                matches = and(matches, bits);
+            }
+            for (final var entry : query.getMdc().entrySet()) {
+                final BitSet bits = new BitSet();
+                final Postings postings = mdc.get(entry.getKey() + SEPARATOR + entry.getValue());
+                if (postings != null) {
+                    postings.mark(bits, low, high);
+                }
+                matches = and(matches, bits);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // the events are read from the ring in chunks, the lock is only held
+        // to get the positions of a chunk
+        final Deque<EventRing.Entry> ret = new ArrayDeque<>();
+        final long[] chunk = new long[CHUNK];
+        int idx = previous(matches, (int) (high - low) - 1);
+        while (idx >= 0 && ret.size() < query.getLimit()) {
+            int size = 0;
+            lock.readLock().lock();
+            try {
+                while (idx >= 0 && size < CHUNK) {
+                    if (low + idx < oldest) {
+                        idx = -1;
+                    } else {
+                        chunk[size++] = positions[(int) ((low + idx) % capacity)];
+                        idx = previous(matches, idx - 1);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < size && ret.size() < query.getLimit(); i++) {
+                final EventRing.Entry entry = ring.get(chunk[i]);
+                if (entry != null && entry.getTimestamp() >= query.getFrom()
+                                && entry.getTimestamp() <= query.getTo()
+                                && (query.getText() == null || entry.getText().contains(query.getText()))) {
+                    ret.addFirst(entry);
+                }
+            }
+        }
+        return new ArrayList<>(ret);
+    }
+
+    /**
+     * @param matches matches, null for all
+     * @param idx index to start at
+     * @return the index of the previous match, -1 if none
+     */
+    private static int previous(final BitSet matches,
+                                final int idx)
+    {
+        return matches == null || idx < 0 ? idx : matches.previousSetBit(idx);
+    }
+
+    /**
+     * @param from first sequence
+     * @param to sequence after the last
+     * @param time time to search
+     * @return first sequence with a time not before the given time
+     */
+    private long lowerBound(final long from,
+                            final long to,
+                            final long time)
+    {
+        long lo = from;
+        long hi = to;
+        while (lo < hi) {
+            final long mid = lo + hi >>> 1;
+            if (times[(int) (mid % capacity)] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param matches current matches, null for all
+     * @param bits matches of a criterion
+     * @return the intersection
+     */
+    private static BitSet and(final BitSet matches,
+                              final BitSet bits)
+    {
+        if (matches != null) {
+            bits.and(matches);
+        }
+        return bits;
+    }
+
+    /**
+     * An event waiting to be indexed.
+     */
+    private static final class Added
+    {
+
+        private final long position;
+        private final long timestamp;
+        private final int level;
+        private final String logger;
+        private final Map<String, String> values;
+
+        private Added(final long position,
+                      final long timestamp,
+                      final int level,
+                      final String logger,
+                      final Map<String, String> values)
+        {
+            this.position = position;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Ascending sequences, delta encoded as variable length integers.
+     */
+    private static final class Postings
+    {
+
+        /** The encoded deltas. */
+        private byte[] data = new byte[8];
+
+        /** Number of bytes used. */
+        private int length;
+
+        /** Number of sequences. */
+        private int count;
+
+        /** First sequence. */
+        private long first;
+
+        /** Last sequence. */
+        private long last;
+
+        /**
+         * @param seq sequence to add, higher than the last one
+         */
+        private void add(final long seq)
+        {
+            if (count == 0) {
+                first = seq;
+            } else {
+                write(seq - last);
+            }
+            last = seq;
+            count++;
+        }
+
+        /**
+         * Set the bits of the sequences in a range, relative to its start.
+         *
+         * @param bits bits to set
+         * @param from first sequence
+         * @param to sequence after the last
+         */
+        private void mark(final BitSet bits,
+                          final long from,
+                          final long to)
+        {
+            if (count > 0 && last >= from && first < to) {
+                long seq = first;
+                int pos = 0;
+                for (int i = 0; i < count && seq < to; i++) {
+                    if (i > 0) {
+                        long delta = 0;
+                        int shift = 0;
+                        byte b;
+                        do {
+                            b = data[pos++];
+                            delta |= (long) (b & 0x7F) << shift;
+                            shift += 7;
+                        } while (b < 0);
+                        seq += delta;
+                    }
+                    if (seq >= from && seq < to) {
+                        bits.set((int) (seq - from));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Remove the sequences before the oldest one.
+         *
+         * @param oldest oldest sequence to keep
+         */
+        private void trim(final long oldest)
+        {
+            if (count > 0 && last < oldest) {
+                count = 0;
+                length = 0;
+                data = new byte[8];
+            } else if (count > 0 && first < oldest) {
+                final byte[] old = data;
+                final int oldCount = count;
+                long seq = first;
+                int pos = 0;
+                data = new byte[Math.max(8, length)];
+                length = 0;
+                count = 0;
+                for (int i = 0; i < oldCount; i++) {
+                    if (i > 0) {
+                        long delta = 0;
+                        int shift = 0;
+                        byte b;
+                        do {
+                            b = old[pos++];
+                            delta |= (long) (b & 0x7F) << shift;
+                            shift += 7;
+                        } while (b < 0);
+                        seq += delta;
+                    }
+                    if (seq >= oldest) {
+                        add(seq);
+                    }
+                }
+                if (data.length > 2 * length + 8) {
+                    data = Arrays.copyOf(data, length + 8);
+                }
+            }
+        }
+
+        /**
+         * @param value value to append as variable length integer
+         */
+        private void write(final long value)
+        {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            long rest = value;
+            while (rest >= 0x80) {
+                data[length++] = (byte) (rest & 0x7F | 0x80);
+                rest >>>= 7;
+            }
+            data[length++] = (byte) rest;
+        }
+    }
+}
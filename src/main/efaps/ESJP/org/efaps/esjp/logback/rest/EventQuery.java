@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Criteria for the search over the events kept by {@link EventTail}. All
+ * given criteria must match.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("f6c35541-1e0f-4569-9b3d-3765cdcc2a11")
+@EFapsApplication("eFapsApp-Logback")
+public class EventQuery
+{
+
+    /** Minimum level, null for all. */
+    private final String level;
+
+    /** Prefix of the name of the logger, null for all. */
+    private final String logger;
+
+    /** Earliest time in milliseconds. */
+    private final long from;
+
+    /** Latest time in milliseconds. */
+    private final long to;
+
+    /** Values the MDC must contain. */
+    private final Map<String, String> mdc;
+
+    /** Substring of the formatted event, null for all. */
+    private final String text;
+
+    /** Maximum number of events. */
+    private final int limit;
+
+    private EventQuery(final Builder builder)
+    {
+        level = builder.level;
+        logger = builder.logger;
+        from = builder.from;
+        to = builder.to;
+        mdc = Collections.unmodifiableMap(builder.mdc);
+        text = builder.text;
+        limit = builder.limit;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    public String getLogger()
+    {
+        return logger;
+    }
+
+    public long getFrom()
+    {
+        return from;
+    }
+
+    public long getTo()
+    {
+        return to;
+    }
+
+    public Map<String, String> getMdc()
+    {
+        return mdc;
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String level;
+        private String logger;
+        private long from = Long.MIN_VALUE;
+        private long to = Long.MAX_VALUE;
+        private final Map<String, String> mdc = new LinkedHashMap<>();
+        private String text;
+        private int limit = 100;
+
+        private Builder()
+        {
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level == null || level.isBlank() ? null : level;
+            return this;
+        }
+
+        public Builder withLogger(final String logger)
+        {
+            this.logger = logger == null || logger.isBlank() ? null : logger;
+            return this;
+        }
+
+        public Builder withFrom(final Long from)
+        {
+            this.from = from == null ? Long.MIN_VALUE : from;
+            return this;
+        }
+
+        public Builder withTo(final Long to)
+        {
+            this.to = to == null ? Long.MAX_VALUE : to;
+            return this;
+        }
+
+        /**
+         * @param mdc criteria in the form key=value
+         * @return this
+         */
+        public Builder withMdc(final Collection<String> mdc)
+        {
+            if (mdc != null) {
+                for (final String entry : mdc) {
+                    final int idx = entry == null ? -1 : entry.indexOf('=');
+                    if (idx > 0) {
+                        this.mdc.put(entry.substring(0, idx), entry.substring(idx + 1));
+                    }
+                }
+            }
+            return this;
+        }
+
+        public Builder withText(final String text)
+        {
+            this.text = text == null || text.isEmpty() ? null : text;
+            return this;
+        }
+
+        public Builder withLimit(final int limit)
+        {
+            if (limit > 0) {
+                this.limit = limit;
+            }
+            return this;
+        }
+
+        public EventQuery build()
+        {
+            return new EventQuery(this);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.EventRateDto;
+import org.efaps.esjp.logback.util.EventFilter;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackScheduler;
+import org.efaps.util.EFapsException;
+
+/**
+ * Counts the events emitted per logger and level to find the noisiest
+ * loggers. The counting is a decider of the {@link EventFilter}, so every
+ * call of a logger at or above its effective level is counted once, before
+ * the event is created and whatever appenders it reaches, and before the
+ * BurstLimiter may suppress it. The counters are striped, and once a counter
+ * exists a call costs one map lookup and one increment, without allocation.
+ * The counters are kept by the name of the logger, as Logback has no numeric
+ * id of a logger that a primitive keyed map could use. Every minute the
+ * totals are written to a ring of 17 slots, from which the rates over the
+ * last 1, 5 and 15 minutes are derived.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("a8e416a8-a849-42a8-93ac-b1f5d5e0a02f")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventRates
+{
+
+    /** Order of the counting among the deciders of the {@link EventFilter}. */
+    private static final int ORDER = 0;
+
+    /** Windows in minutes. */
+    private static final int[] WINDOWS = { 1, 5, 15 };
+
+    /** Number of minutes kept, the base of the widest window must not be overwritten by the next snapshot. */
+    private static final int SLOTS = 17;
+
+    /** Counters by name of the logger, then by index of the level. */
+    private static final Map<String, Counter[]> COUNTERS = new ConcurrentHashMap<>();
+
+    /** Are the events counted. Guarded by the class. */
+    private static boolean ENABLED;
+
+    /** The task writing the minute snapshots. */
+    private static ScheduledFuture<?> SNAPSHOT;
+
+    /** Current minute since the counting was enabled. */
+    private static volatile int MINUTE;
+
+    /**
+     * Singleton.
+     */
+    private EventRates()
+    {
+    }
+
+    /**
+     * @return true if the events are counted
+     */
+    public static synchronized boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Enable or disable the counting.
+     *
+     * @param enable enable or disable
+     * @throws EFapsException on error
+     */
+    public static synchronized void setEnabled(final boolean enable)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        if (enable && !ENABLED) {
+            final Object[] levels = accessor.getLevels().values().toArray();
+            MINUTE = 0;
+            COUNTERS.clear();
+            EventFilter.register(accessor, EventRates.class.getName(), ORDER,
+                            (loggerName, level, format) -> count(levels, loggerName, level));
+            SNAPSHOT = LogbackScheduler.scheduleAtFixedRate(EventRates::snapshot, 1, TimeUnit.MINUTES);
+            ENABLED = true;
+        } else if (!enable && ENABLED) {
+            SNAPSHOT.cancel(false);
+            EventFilter.unregister(accessor, EventRates.class.getName());
+            ENABLED = false;
+            COUNTERS.clear();
+        }
+    }
+
+    /**
+     * Get the loggers with the highest rates.
+     *
+     * @param limit maximum number of entries
+     * @param window window in minutes used for the order, 1, 5 or 15
+     * @return the loggers and levels ordered by rate
+     */
+    public static List<EventRateDto> getTop(final int limit,
+                                            final int window)
+    {
+        final int minute = MINUTE;
+        final List<String> levelNames = LogbackAccessor.LEVELNAMES;
+        final List<EventRateDto> ret = new ArrayList<>();
+        for (final var entry : COUNTERS.entrySet()) {
+            final Counter[] counters = entry.getValue();
+            for (int i = 0; i < counters.length; i++) {
+                final Counter counter = counters[i];
+                if (counter != null) {
+                    final long count = counter.count.sum();
+                    ret.add(EventRateDto.builder()
+                                    .withName(entry.getKey())
+                                    .withLevel(levelNames.get(i))
+                                    .withCount(count)
+                                    .withRate1(counter.rate(count, minute, WINDOWS[0]))
+                                    .withRate5(counter.rate(count, minute, WINDOWS[1]))
+                                    .withRate15(counter.rate(count, minute, WINDOWS[2]))
+                                    .build());
+                }
+            }
+        }
+        final Comparator<EventRateDto> comparator;
+        if (window >= WINDOWS[2]) {
+            comparator = Comparator.comparingDouble(EventRateDto::getRate15);
+        } else if (window >= WINDOWS[1]) {
+            comparator = Comparator.comparingDouble(EventRateDto::getRate5);
+        } else {
+            comparator = Comparator.comparingDouble(EventRateDto::getRate1);
+        }
+        ret.sort(comparator.reversed());
+        return limit > 0 && ret.size() > limit ? new ArrayList<>(ret.subList(0, limit)) : ret;
+    }
+
+    /**
+     * Write the totals of the current minute.
+     */
+    private static void snapshot()
+    {
+        final int minute = MINUTE + 1;
+        for (final Counter[] counters : COUNTERS.values()) {
+            for (final Counter counter : counters) {
+                if (counter != null) {
+                    counter.history.set(minute % SLOTS, counter.count.sum());
+                }
+            }
+        }
+        MINUTE = minute;
+    }
+
+    /**
+     * @param levels the levels in the order of {@link LogbackAccessor#LEVELNAMES}
+     * @param loggerName name of the logger
+     * @param level level of the call
+     * @return {@link EventFilter#NEUTRAL}, the counting does not decide
+     */
+    private static int count(final Object[] levels,
+                             final String loggerName,
+                             final Object level)
+    {
+        int idx = 0;
+        while (idx < levels.length - 1 && levels[idx] != level) {
+            idx++;
+        }
+        Counter[] counters = COUNTERS.get(loggerName);
+        if (counters == null) {
+            counters = COUNTERS.computeIfAbsent(loggerName, name -> new Counter[levels.length]);
+        }
+        Counter counter = counters[idx];
+        if (counter == null) {
+            synchronized (counters) {
+                counter = counters[idx];
+                if (counter == null) {
+                    counter = new Counter(MINUTE);
+                    counters[idx] = counter;
+                }
+            }
+        }
+        counter.count.increment();
+        return EventFilter.NEUTRAL;
+    }
+
+    /**
+     * Counter of one logger and level.
+     */
+    private static final class Counter
+    {
+
+        /** Number of events. */
+        private final LongAdder count = new LongAdder();
+
+        /** Totals at the end of the last minutes, written by the snapshot task. */
+        private final AtomicLongArray history = new AtomicLongArray(SLOTS);
+
+        /** Minute the counter was created. */
+        private final int created;
+
+        /**
+         * @param created minute the counter was created
+         */
+        private Counter(final int created)
+        {
+            this.created = created;
+        }
+
+        /**
+         * @param count current total
+         * @param minute current minute
+         * @param window window in minutes
+         * @return events per second in the window
+         */
+        private double rate(final long count,
+                            final int minute,
+                            final int window)
+        {
+            final int from = minute - window;
+            final long base = from <= this.created ? 0 : this.history.get(from % SLOTS);
+            final int minutes = Math.max(1, Math.min(window, minute - this.created));
+            return (count - base) / (minutes * 60d);
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.common.serialization.SerializationUtil;
+import org.efaps.esjp.logback.rest.dto.TailEventDto;
+import org.efaps.esjp.logback.util.EventAppender;
+import org.efaps.esjp.logback.util.EventRing;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackScheduler;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Keeps the most recent events of this node in an {@link EventRing}, so that
+ * they can be inspected without access to the log files. An appender is
+ * attached to the root logger and to every logger that is not additive and
+ * formats the events with a <code>PatternLayout</code>.
+ * <p>
+ * Subscribers of the stream are served by one task that polls the ring for
+ * all of them. A subscriber that has too many events pending is skipped until
+ * it caught up, and if its position was overwritten meanwhile it gets a
+ * <code>dropped</code> event, so a slow consumer never delays the logging.
+ * </p>
+ * <p>
+ * Optionally the events are indexed by an {@link EventIndex} to search them
+ * by level, logger, time, MDC and text.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("5a5b6b71-000c-47aa-954f-1dc63bebec28")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventTail
+{
+
+    /** Name of the appender. */
+    public static final String APPENDER = "eFapsEventTail";
+
+    /** Default size of the ring in MB. */
+    public static final int DEFAULTSIZE = 8;
+
+    /** Maximum size of the ring in MB. */
+    public static final int MAXSIZE = 512;
+
+    /** Default number of indexed events. */
+    public static final int DEFAULTEVENTS = 200_000;
+
+    /** Maximum number of indexed events. */
+    public static final int MAXEVENTS = 5_000_000;
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventTail.class);
+
+    /** Period of the polling for the subscribers in milliseconds. */
+    private static final long PERIOD = 250;
+
+    /** Period of the indexing of the queued events in milliseconds. */
+    private static final long INDEXINTERVAL = 200;
+
+    /** Maximum number of events sent to a subscriber per poll. */
+    private static final int BATCH = 500;
+
+    /** Maximum number of events not yet written to a subscriber. */
+    private static final int MAXPENDING = 2 * BATCH;
+
+    /** The subscribers of the stream. */
+    private static final List<Subscriber> SUBSCRIBERS = new CopyOnWriteArrayList<>();
+
+    /** The ring, null if disabled. */
+    private static volatile EventRing RING;
+
+    /** The index of the ring, null if not indexed. */
+    private static volatile EventIndex INDEX;
+
+    /** Pattern of the layout, guarded by the class. */
+    private static String PATTERN;
+
+    /** The appender, guarded by the class. */
+    private static Object APPENDERPROXY;
+
+    /** The task polling for the subscribers, guarded by the class. */
+    private static ScheduledFuture<?> POLLER;
+
+    /** The task compacting the index, guarded by the class. */
+    private static ScheduledFuture<?> COMPACTOR;
+
+    /** The task indexing the queued events, guarded by the class. */
+    private static ScheduledFuture<?> INDEXER;
+
+    /**
+     * Singleton.
+     */
+    private EventTail()
+    {
+    }
+
+    /**
+     * @return size of the ring in bytes, 0 if disabled
+     */
+    public static int getSize()
+    {
+        final EventRing ring = RING;
+        return ring == null ? 0 : ring.getCapacity();
+    }
+
+    /**
+     * @return position after the newest event, 0 if disabled
+     */
+    public static long getEnd()
+    {
+        final EventRing ring = RING;
+        return ring == null ? 0 : ring.getEnd();
+    }
+
+    /**
+     * Enable or disable the ring. Enabling with another size or pattern
+     * replaces the ring and discards the events kept so far, an index is
+     * replaced by an empty one.
+     *
+     * @param enable enable or disable
+     * @param size size of the ring in MB, the default if not positive
+     * @param pattern pattern of the layout, the default if null
+     * @throws EFapsException on error
+     */
+    public static synchronized void setEnabled(final boolean enable,
+                                               final int size,
+                                               final String pattern)
+        throws EFapsException
+    {
+        final int bytes = (size > 0 ? Math.min(size, MAXSIZE) : DEFAULTSIZE) * 1024 * 1024;
+        final String layoutPattern = pattern == null || pattern.isBlank() ? LogbackAccessor.DEFAULTPATTERN : pattern;
+        final EventRing current = RING;
+        final EventIndex index = INDEX;
+        if (current != null && (!enable || current.getCapacity() != bytes || !layoutPattern.equals(PATTERN))) {
+            disable();
+        }
+        if (enable && RING == null) {
+            enable(bytes, layoutPattern);
+            if (index != null) {
+                setIndexed(true, index.getCapacity());
+            }
+        }
+    }
+
+    /**
+     * Enable or disable the index used for the search. Only events logged
+     * while the index is enabled are found. Enabling the index enables the
+     * ring with the defaults if necessary.
+     *
+     * @param enable enable or disable
+     * @param events maximum number of indexed events, the default if not
+     *            positive
+     * @throws EFapsException on error
+     */
+    public static synchronized void setIndexed(final boolean enable,
+                                               final int events)
+        throws EFapsException
+    {
+        if (enable) {
+            if (RING == null) {
+                setEnabled(true, 0, null);
+            }
+            final int capacity = events > 0 ? Math.min(events, MAXEVENTS) : DEFAULTEVENTS;
+            if (INDEX == null || INDEX.getCapacity() != capacity) {
+                INDEX = new EventIndex(capacity);
+            }
+            if (COMPACTOR == null) {
+                COMPACTOR = LogbackScheduler.scheduleAtFixedRate(EventTail::compact, 1, TimeUnit.MINUTES);
+                INDEXER = LogbackScheduler.scheduleAtFixedRate(() -> {
+                    final EventIndex current = INDEX;
+                    if (current != null) {
+                        current.drain();
+                    }
+                }, INDEXINTERVAL, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            INDEX = null;
+            if (COMPACTOR != null) {
+                COMPACTOR.cancel(false);
+                COMPACTOR = null;
+                INDEXER.cancel(false);
+                INDEXER = null;
+            }
+        }
+    }
+
+    /**
+     * @return number of indexed events, -1 if not indexed
+     */
+    public static int getIndexSize()
+    {
+        final EventIndex index = INDEX;
+        return index == null ? -1 : index.getSize();
+    }
+
+    /**
+     * Remove the events overwritten in the ring from the index.
+     */
+    private static void compact()
+    {
+        final EventRing ring = RING;
+        final EventIndex index = INDEX;
+        if (ring != null && index != null) {
+            index.compact(ring.getStart());
+        }
+    }
+
+    /**
+     * @param bytes size of the ring in bytes
+     * @param pattern pattern of the layout
+     * @throws EFapsException on error
+     */
+    private static void enable(final int bytes,
+                               final String pattern)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final MethodHandle doLayout = accessor.newLayout(pattern);
+        final EventRing ring = new EventRing(bytes);
+        APPENDERPROXY = EventAppender.create(accessor, APPENDER, event -> append(accessor, ring, doLayout, event));
+        PATTERN = pattern;
+        RING = ring;
+        EventAppender.attachToTop(accessor, APPENDERPROXY);
+    }
+
+    /**
+     * Detach the appender and release the ring. The appender is detached by
+     * name, as the instrumentation may have wrapped it.
+     *
+     * @throws EFapsException on error
+     */
+    private static void disable()
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        try {
+            EventAppender.detachFromTop(accessor, APPENDER);
+        } finally {
+            APPENDERPROXY = null;
+            RING = null;
+            setIndexed(false, 0);
+            for (final Subscriber subscriber : SUBSCRIBERS) {
+                subscriber.sink.close();
+            }
+            SUBSCRIBERS.clear();
+            stopPoller();
+        }
+    }
+
+    /**
+     * Get the events of the ring. Without cursor the most recent events are
+     * returned, with cursor the events following it.
+     *
+     * @param limit maximum number of events
+     * @param level minimum level, null for all
+     * @param logger prefix of the name of the logger, null for all
+     * @param after cursor, i.e. the id of an event, null for the most recent
+     *            events
+     * @return the events in the order they were logged
+     * @throws EFapsException on error
+     */
+    public static List<TailEventDto> getEvents(final int limit,
+                                               final String level,
+                                               final String logger,
+                                               final Long after)
+        throws EFapsException
+    {
+        final EventRing ring = RING;
+        final List<TailEventDto> ret = new ArrayList<>();
+        if (ring != null) {
+            final LogbackAccessor accessor = LogbackAccessor.get();
+            final int minLevel = toMinLevel(accessor, level);
+            final String prefix = logger == null || logger.isBlank() ? null : logger;
+            if (after == null) {
+                final List<EventRing.Entry> last = new ArrayList<>();
+                ring.readLast(minLevel, prefix, limit, last::add);
+                for (final EventRing.Entry entry : last) {
+                    ret.add(toDto(accessor, entry));
+                }
+            } else {
+                final List<EventRing.Entry> entries = new ArrayList<>();
+                ring.read(after, minLevel, prefix, limit, entries::add);
+                for (final EventRing.Entry entry : entries) {
+                    ret.add(toDto(accessor, entry));
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Search the indexed events.
+     *
+     * @param query the criteria
+     * @return the most recent matching events in the order they were
+     *         logged, empty if not indexed
+     * @throws EFapsException on error
+     */
+    public static List<TailEventDto> search(final EventQuery query)
+        throws EFapsException
+    {
+        final EventRing ring = RING;
+        final EventIndex index = INDEX;
+        final List<TailEventDto> ret = new ArrayList<>();
+        if (ring != null && index != null) {
+            final LogbackAccessor accessor = LogbackAccessor.get();
+            for (final EventRing.Entry entry : index.search(ring, query, toMinLevel(accessor, query.getLevel()))) {
+                ret.add(toDto(accessor, entry));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Register a subscriber for the stream of events.
+     *
+     * @param sink sink of the subscriber
+     * @param sse factory for the events
+     * @param level minimum level, null for all
+     * @param logger prefix of the name of the logger, null for all
+     * @param after cursor to resume from, null to start with new events
+     * @throws EFapsException on error
+     */
+    public static synchronized void subscribe(final SseEventSink sink,
+                                              final Sse sse,
+                                              final String level,
+                                              final String logger,
+                                              final Long after)
+        throws EFapsException
+    {
+        final EventRing ring = RING;
+        if (ring == null) {
+            sink.close();
+        } else {
+            final Subscriber subscriber = new Subscriber(sink, sse, toMinLevel(LogbackAccessor.get(), level),
+                            logger == null || logger.isBlank() ? null : logger,
+                            after == null ? ring.getEnd() : after);
+            SUBSCRIBERS.add(subscriber);
+            if (POLLER == null) {
+                POLLER = LogbackScheduler.scheduleAtFixedRate(EventTail::poll, PERIOD, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Send the new events to the subscribers.
+     */
+    private static void poll()
+    {
+        final EventRing ring = RING;
+        for (final Subscriber subscriber : SUBSCRIBERS) {
+            if (ring == null || subscriber.sink.isClosed()) {
+                SUBSCRIBERS.remove(subscriber);
+            } else if (subscriber.pending.get() < MAXPENDING) {
+                try {
+                    subscriber.poll(ring);
+                } catch (final EFapsException | RuntimeException e) {
+                    LOG.error("Catched", e);
+                    subscriber.sink.close();
+                    SUBSCRIBERS.remove(subscriber);
+                }
+            }
+        }
+        if (SUBSCRIBERS.isEmpty()) {
+            synchronized (EventTail.class) {
+                if (SUBSCRIBERS.isEmpty()) {
+                    stopPoller();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the polling. Must be called holding the lock of the class.
+     */
+    private static void stopPoller()
+    {
+        if (POLLER != null) {
+            POLLER.cancel(false);
+            POLLER = null;
+        }
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param level name of the level, null for all
+     * @return integer value of the level
+     * @throws EFapsException on error
+     */
+    private static int toMinLevel(final LogbackAccessor accessor,
+                                  final String level)
+        throws EFapsException
+    {
+        return level == null || level.isBlank() ? Integer.MIN_VALUE : accessor.toInteger(accessor.toLevel(level));
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param entry entry of the ring
+     * @return the dto
+     * @throws EFapsException on error
+     */
+    private static TailEventDto toDto(final LogbackAccessor accessor,
+                                      final EventRing.Entry entry)
+        throws EFapsException
+    {
+        String level = null;
+        for (final var levelEntry : accessor.getLevels().entrySet()) {
+            if (accessor.toInteger(levelEntry.getValue()) == entry.getLevel()) {
+                level = levelEntry.getKey();
+            }
+        }
+        return TailEventDto.builder()
+                        .withId(entry.getNext())
+                        .withTimestamp(entry.getTimestamp())
+                        .withLevel(level)
+                        .withLogger(entry.getLogger())
+                        .withMessage(entry.getText())
+                        .build();
+    }
+
+    /**
+     * Append an event to the ring and the index.
+     *
+     * @param accessor accessor to Logback
+     * @param ring the ring
+     * @param doLayout bound PatternLayout.doLayout
+     * @param event the event
+     * @throws Throwable on error
+     */
+    private static void append(final LogbackAccessor accessor,
+                               final EventRing ring,
+                               final MethodHandle doLayout,
+                               final Object event)
+        throws Throwable
+    {
+        final long timestamp = accessor.getEventTimeStamp(event);
+        final int level = accessor.toInteger(accessor.getEventLevel(event));
+        final String loggerName = accessor.getEventLoggerName(event);
+        final long position = ring.append(timestamp, level, loggerName, (String) doLayout.invokeExact(event));
+        final EventIndex index = INDEX;
+        if (index != null) {
+            index.add(position, timestamp, level, loggerName, accessor.getEventMdc(event));
+        }
+    }
+
+    /**
+     * Subscriber of the stream.
+     */
+    private static final class Subscriber
+    {
+
+        /** Sink of the subscriber. */
+        private final SseEventSink sink;
+
+        /** Factory for the events. */
+        private final Sse sse;
+
+        /** Minimum integer value of the level. */
+        private final int minLevel;
+
+        /** Prefix of the name of the logger, null for all. */
+        private final String logger;
+
+        /** Events sent but not yet written. */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /** Position in the ring. Only used by the polling task. */
+        private long position;
+
+        private Subscriber(final SseEventSink sink,
+                           final Sse sse,
+                           final int minLevel,
+                           final String logger,
+                           final long position)
+        {
+            this.sink = sink;
+            this.sse = sse;
+            this.minLevel = minLevel;
+            this.logger = logger;
+            this.position = position;
+        }
+
+        /**
+         * Send the events after the position.
+         *
+         * @param ring the ring
+         * @throws EFapsException on error
+         */
+        private void poll(final EventRing ring)
+            throws EFapsException
+        {
+            final LogbackAccessor accessor = LogbackAccessor.get();
+            final long start = ring.getStart();
+            if (position < start) {
+                send(sse.newEventBuilder()
+                                .id(String.valueOf(start))
+                                .name("dropped")
+                                .data(String.valueOf(start - position))
+                                .build());
+            }
+            final List<EventRing.Entry> entries = new ArrayList<>();
+            position = ring.read(position, minLevel, logger, BATCH, entries::add);
+            for (final EventRing.Entry entry : entries) {
+                try {
+                    send(sse.newEventBuilder()
+                                    .id(String.valueOf(entry.getNext()))
+                                    .name("event")
+                                    .data(SerializationUtil.getObjectMapper()
+                                                    .writeValueAsString(toDto(accessor, entry)))
+                                    .build());
+                } catch (final JsonProcessingException e) {
+                    throw new EFapsException(EventTail.class, "poll", e);
+                }
+            }
+        }
+
+        /**
+         * @param event event to send
+         */
+        private void send(final OutboundSseEvent event)
+        {
+            pending.incrementAndGet();
+            sink.send(event).whenComplete((result, error) -> {
+                pending.decrementAndGet();
+                if (error != null) {
+                    sink.close();
+                }
+            });
+        }
+    }
+}
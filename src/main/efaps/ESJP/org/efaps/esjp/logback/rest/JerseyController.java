@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.jersey.JerseyLatency;
+import org.efaps.esjp.logback.rest.dto.LatencyDto;
+
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Statistics of the outbound calls logged by the JerseyLogFilter.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("a284660e-6770-4586-870f-55f2af280cf7")
+@EFapsApplication("eFapsApp-Logback")
+@Path("/logback/jersey")
+public class JerseyController
+{
+
+    @GET
+    @Path("/latency")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getLatency()
+    {
+        final List<LatencyDto> latencies = new ArrayList<>();
+        for (final var hostEntry : JerseyLatency.getHistograms().entrySet()) {
+            for (final var methodEntry : hostEntry.getValue().entrySet()) {
+                final var histogram = methodEntry.getValue();
+                latencies.add(LatencyDto.builder()
+                                .withHost(hostEntry.getKey())
+                                .withMethod(methodEntry.getKey())
+                                .withCount(histogram.getCount())
+                                .withMean(histogram.getMean())
+                                .withP50(histogram.getValueAtPercentile(50))
+                                .withP99(histogram.getValueAtPercentile(99))
+                                .withP999(histogram.getValueAtPercentile(99.9))
+                                .withMax(histogram.getMax())
+                                .build());
+            }
+        }
+        return Response.ok(latencies).build();
+    }
+
+    @DELETE
+    @Path("/latency")
+    public Response resetLatency()
+    {
+        JerseyLatency.reset();
+        return Response.ok().build();
+    }
+}
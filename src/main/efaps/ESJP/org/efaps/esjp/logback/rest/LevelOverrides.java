@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.LevelOverrideDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LogbackScheduler;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Level changes that are reverted after some time. The expiry is absolute
+ * and set by the node that received the change, so all nodes of the
+ * cluster revert at the same time. Each node restores the level it had
+ * before the first override of the logger; overriding an override keeps
+ * that level, a change without expiry discards the override. A logger whose
+ * level was changed otherwise in the meantime, e.g. for a descendant or by
+ * the cluster state, is not reverted.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("18037eb6-4ac2-4acf-b752-d04a672907df")
+@EFapsApplication("eFapsApp-Logback")
+public final class LevelOverrides
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LevelOverrides.class);
+
+    /** Overrides by name of the logger, guarded by the class. */
+    private static final Map<String, Revert> OVERRIDES = new HashMap<>();
+
+    /** Scheduled expiry, guarded by the class. */
+    private static ScheduledFuture<?> EXPIRY;
+
+    /**
+     * Singleton.
+     */
+    private LevelOverrides()
+    {
+    }
+
+    /**
+     * Register an override.
+     *
+     * @param name name of the logger
+     * @param previous level before the change, null for inherited
+     * @param level level set
+     * @param expiresAt milliseconds since the epoch when the level is
+     *            reverted
+     */
+    public static synchronized void register(final String name,
+                                             final String previous,
+                                             final String level,
+                                             final long expiresAt)
+    {
+        final Revert existing = OVERRIDES.get(name);
+        OVERRIDES.put(name, new Revert(existing == null ? previous : existing.previous, level, expiresAt));
+        schedule();
+    }
+
+    /**
+     * Discard the override of a logger, e.g. because its level was changed
+     * permanently.
+     *
+     * @param name name of the logger
+     */
+    public static synchronized void discard(final String name)
+    {
+        if (OVERRIDES.remove(name) != null) {
+            schedule();
+        }
+    }
+
+    /**
+     * @param name name of the logger
+     * @return true if the level of the logger is overridden temporarily
+     */
+    public static synchronized boolean isOverridden(final String name)
+    {
+        return OVERRIDES.containsKey(name);
+    }
+
+    /**
+     * @return the active overrides
+     */
+    public static synchronized List<LevelOverrideDto> getOverrides()
+    {
+        final long now = System.currentTimeMillis();
+        final List<LevelOverrideDto> ret = new ArrayList<>();
+        for (final var entry : OVERRIDES.entrySet()) {
+            ret.add(LevelOverrideDto.builder()
+                            .withName(entry.getKey())
+                            .withLevel(entry.getValue().level)
+                            .withPreviousLevel(entry.getValue().previous)
+                            .withExpiresAt(entry.getValue().expiresAt)
+                            .withRemaining(Math.max(0, TimeUnit.MILLISECONDS.toSeconds(entry.getValue().expiresAt
+                                            - now)))
+                            .build());
+        }
+        return ret;
+    }
+
+    /**
+     * Revert the expired overrides.
+     */
+    private static synchronized void expire()
+    {
+        EXPIRY = null;
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<String, Revert>> iter = OVERRIDES.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<String, Revert> entry = iter.next();
+            if (entry.getValue().expiresAt <= now) {
+                iter.remove();
+                try {
+                    final LogbackAccessor accessor = LogbackAccessor.get();
+                    final Object logger = accessor.exists(entry.getKey());
+                    final String level = entry.getValue().level;
+                    final Object expected = level == null || level.isEmpty() ? null : accessor.toLevel(level);
+                    if (logger != null && Objects.equals(expected, accessor.getLevel(logger))) {
+                        final String previous = entry.getValue().previous;
+                        accessor.setLevel(logger, previous == null ? null : accessor.toLevel(previous));
+                        LOG.info("Reverted level of {} to {}", entry.getKey(), previous);
+                    } else if (logger != null) {
+                        LOG.info("Not reverted level of {} as it changed since", entry.getKey());
+                    }
+                } catch (final EFapsException e) {
+                    LOG.error("Catched", e);
+                }
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Schedule the expiry of the next override.
+     */
+    private static void schedule()
+    {
+        long next = Long.MAX_VALUE;
+        for (final Revert override : OVERRIDES.values()) {
+            next = Math.min(next, override.expiresAt);
+        }
+        if (EXPIRY != null) {
+            EXPIRY.cancel(false);
+            EXPIRY = null;
+        }
+        if (next < Long.MAX_VALUE) {
+            EXPIRY = LogbackScheduler.schedule(LevelOverrides::expire,
+                            Math.max(0, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A level to revert.
+     */
+    private static final class Revert
+    {
+
+        private final String previous;
+        private final String level;
+        private final long expiresAt;
+
+        private Revert(final String previous,
+                         final String level,
+                         final long expiresAt)
+        {
+            this.previous = previous;
+            this.level = level;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.LoggerNodeDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LoggerTree;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the logger hierarchy keeping for every node the number of
+ * descendants and the number of descendants with an explicitly set level.
+ * The index is built once and then maintained incrementally: level changes
+ * are received by a LoggerContextListener and update the counters of the
+ * ancestors, loggers created since the last request are detected by the
+ * size of the logger cache of the LoggerContext and inserted. If the cache
+ * is not accessible, new loggers are searched in the logger list at most
+ * once per {@link #RESCAN} interval, so they show up with a delay. A reset
+ * of the context discards the index.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("62ea5623-4bbe-4285-bd72-9eeeda6a796f")
+@EFapsApplication("eFapsApp-Logback")
+public final class LoggerHierarchy
+{
+
+    /** Minimum interval between two scans of the logger list if the cache is not accessible. */
+    public static final long RESCAN = TimeUnit.SECONDS.toNanos(10);
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoggerHierarchy.class);
+
+    /** Guards the index. */
+    private static final ReadWriteLock LOCK = new ReentrantReadWriteLock();
+
+    /** Nodes by name, empty if the index must be built. */
+    private static final Map<String, Node> NODES = new HashMap<>();
+
+    /** The context the listener was added to. */
+    private static Object CONTEXT;
+
+    /** The listener added to the context. */
+    private static Object LISTENER;
+
+    /** Time of the last scan of the logger list, guarded by the lock. */
+    private static long SCANNED;
+
+    /**
+     * Singleton.
+     */
+    private LoggerHierarchy()
+    {
+    }
+
+    /**
+     * Get the direct children of a node.
+     *
+     * @param node name of the parent, null for the root logger
+     * @param cursor name of the last child of the previous page, may be null
+     * @param limit maximum number of children, 0 for all
+     * @return the children, null if the node does not exist
+     * @throws EFapsException on error
+     */
+    public static List<LoggerNodeDto> getChildren(final String node,
+                                                  final String cursor,
+                                                  final int limit)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        refresh(accessor);
+        List<LoggerNodeDto> ret = null;
+        LOCK.readLock().lock();
+        try {
+            final Node parent = NODES.get(node == null ? LoggerTree.ROOT : node);
+            if (parent != null) {
+                ret = new ArrayList<>();
+                final Map<String, Node> children = cursor == null ? parent.children
+                                : parent.children.tailMap(cursor, false);
+                for (final Node child : children.values()) {
+                    if (limit > 0 && ret.size() == limit) {
+                        break;
+                    }
+                    final Object level = accessor.getLevel(child.logger);
+                    ret.add(LoggerNodeDto.builder()
+                                    .withName(child.name)
+                                    .withLevel(level == null ? null : String.valueOf(level))
+                                    .withEffectiveLevel(String.valueOf(accessor.getEffectiveLevel(child.logger)))
+                                    .withDescendants(child.descendants)
+                                    .withExplicitBelow(child.explicitBelow > 0)
+                                    .build());
+                }
+            }
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return ret;
+    }
+
+    /**
+     * Register the listener and bring the index up to date with the logger
+     * cache of the context.
+     *
+     * @param accessor accessor to Logback
+     * @throws EFapsException on error
+     */
+    private static void refresh(final LogbackAccessor accessor)
+        throws EFapsException
+    {
+        final boolean live = accessor.hasLoggerCache();
+        final Map<String, ?> cache = live ? accessor.getLoggerCache() : null;
+        LOCK.readLock().lock();
+        try {
+            if (CONTEXT == accessor.getContext() && !NODES.isEmpty()
+                            && (live ? NODES.size() == cache.size() : System.nanoTime() - SCANNED < RESCAN)) {
+                return;
+            }
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        LOCK.writeLock().lock();
+        try {
+            if (CONTEXT != accessor.getContext()) {
+                if (LISTENER != null) {
+                    try {
+                        accessor.removeListener(LISTENER);
+                    } catch (final EFapsException e) {
+                        LOG.warn("Could not remove listener from previous context", e);
+                    }
+                }
+                NODES.clear();
+                LISTENER = accessor.newListener(LoggerHierarchy::invoke);
+                accessor.addListener(LISTENER);
+                CONTEXT = accessor.getContext();
+            }
+            if (live) {
+                if (NODES.size() != cache.size()) {
+                    for (final var entry : cache.entrySet()) {
+                        if (!NODES.containsKey(entry.getKey())) {
+                            insert(accessor, entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            } else if (NODES.isEmpty() || System.nanoTime() - SCANNED >= RESCAN) {
+                for (final Object logger : accessor.getLoggerList()) {
+                    final String name = accessor.getName(logger);
+                    if (!NODES.containsKey(name)) {
+                        insert(accessor, name, logger);
+                    }
+                }
+                SCANNED = System.nanoTime();
+            }
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert a node and its missing ancestors. Must be called with the write
+     * lock held.
+     *
+     * @param accessor accessor to Logback
+     * @param name name of the logger
+     * @param logger the logger
+     * @return the node
+     * @throws EFapsException on error
+     */
+    private static Node insert(final LogbackAccessor accessor,
+                               final String name,
+                               final Object logger)
+        throws EFapsException
+    {
+        Node ret = NODES.get(name);
+        if (ret == null) {
+            Node parent = null;
+            if (!LoggerTree.ROOT.equals(name)) {
+                final String parentName = LoggerTree.getParent(name);
+                parent = insert(accessor, parentName, accessor.getLogger(parentName));
+            }
+            ret = new Node(name, logger, parent);
+            NODES.put(name, ret);
+            if (parent != null) {
+                parent.children.put(name, ret);
+            }
+            for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.descendants++;
+            }
+            setExplicit(ret, accessor.getLevel(logger) != null);
+        }
+        return ret;
+    }
+
+    /**
+     * Must be called with the write lock held.
+     *
+     * @param node node to update
+     * @param explicit has the node an explicitly set level
+     */
+    private static void setExplicit(final Node node,
+                                    final boolean explicit)
+    {
+        if (node.explicit != explicit) {
+            node.explicit = explicit;
+            final int delta = explicit ? 1 : -1;
+            for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.explicitBelow += delta;
+            }
+        }
+    }
+
+    /**
+     * Implementation of the LoggerContextListener. It is called from
+     * <code>Logger.setLevel</code>, so it must not throw.
+     *
+     * @param proxy the listener
+     * @param method method called
+     * @param args arguments
+     * @return result
+     */
+    private static Object invoke(final Object proxy,
+                                 final Method method,
+                                 final Object[] args)
+    {
+        Object ret = null;
+        switch (method.getName()) {
+            case "isResetResistant":
+                ret = true;
+                break;
+            case "onLevelChange":
+                try {
+                    // Logback passes the inherited effective level if the level is cleared
+                    final LogbackAccessor accessor = LogbackAccessor.get();
+                    final String name = accessor.getName(args[0]);
+                    final boolean explicit = accessor.getLevel(args[0]) != null;
+                    LOCK.writeLock().lock();
+                    try {
+                        final Node node = NODES.get(name);
+                        if (node != null) {
+                            setExplicit(node, explicit);
+                        }
+                    } finally {
+                        LOCK.writeLock().unlock();
+                    }
+                } catch (final EFapsException e) {
+                    LOG.warn("Could not update the level in the hierarchy", e);
+                }
+                break;
+            case "onReset":
+            case "onStop":
+                LOCK.writeLock().lock();
+                try {
+                    NODES.clear();
+                } finally {
+                    LOCK.writeLock().unlock();
+                }
+                break;
+            case "equals":
+                ret = proxy == args[0];
+                break;
+            case "hashCode":
+                ret = System.identityHashCode(proxy);
+                break;
+            case "toString":
+                ret = LoggerHierarchy.class.getName();
+                break;
+            default:
+                break;
+        }
+        return ret;
+    }
+
+    /**
+     * Node of the index.
+     */
+    private static final class Node
+    {
+
+        private final String name;
+        private final Object logger;
+        private final Node parent;
+        private final TreeMap<String, Node> children = new TreeMap<>(LoggerTree::compare);
+        private int descendants;
+        private int explicitBelow;
+        private boolean explicit;
+
+        private Node(final String name,
+                     final Object logger,
+                     final Node parent)
+        {
+            this.name = name;
+            this.logger = logger;
+            this.parent = parent;
+        }
+    }
+}
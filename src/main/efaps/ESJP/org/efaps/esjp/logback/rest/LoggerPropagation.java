@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.LoggerBatchAckDto;
+import org.efaps.esjp.logback.rest.dto.LoggerBatchDto;
+import org.efaps.esjp.logback.rest.dto.PropagationDto;
+
+/**
+ * Keeps the versions of the logger batches exchanged in the cluster and
+ * the metrics on how long a batch takes to reach all members.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("a772555a-617d-4cec-8cdf-aa9af0d0f502")
+@EFapsApplication("eFapsApp-Logback")
+public final class LoggerPropagation
+{
+
+    /** Batches not acknowledged by all members after this time are given up. */
+    private static final long TIMEOUT = TimeUnit.MINUTES.toNanos(1);
+
+    /** Version of the batches sent by this node, starting at the current time to survive restarts. */
+    private static final AtomicLong VERSION = new AtomicLong(System.currentTimeMillis());
+
+    /** Last applied version per origin. */
+    private static final Map<String, AtomicLong> APPLIED = new ConcurrentHashMap<>();
+
+    /** Batches sent by this node that are not acknowledged by all members yet. */
+    private static final Map<Long, Pending> PENDING = new ConcurrentHashMap<>();
+
+    private static final LongAdder SENT = new LongAdder();
+    private static final LongAdder RECEIVED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder INCOMPLETE = new LongAdder();
+    private static final LongAdder TOTALMILLIS = new LongAdder();
+    private static final AtomicLong LASTMILLIS = new AtomicLong();
+    private static final AtomicLong MAXMILLIS = new AtomicLong();
+
+    /**
+     * Singleton.
+     */
+    private LoggerPropagation()
+    {
+    }
+
+    /**
+     * @return the next version for a batch sent by this node
+     */
+    public static long nextVersion()
+    {
+        return VERSION.incrementAndGet();
+    }
+
+    /**
+     * Register a batch that is about to be sent.
+     *
+     * @param batch batch to be sent
+     * @param members members expected to acknowledge the batch
+     */
+    public static void sent(final LoggerBatchDto batch,
+                            final Set<String> members)
+    {
+        SENT.increment();
+        expire();
+        if (!members.isEmpty()) {
+            PENDING.put(batch.getVersion(), new Pending(members));
+        }
+    }
+
+    /**
+     * Check if a received batch must be applied. Stale and duplicate batches
+     * are rejected.
+     *
+     * @param batch received batch
+     * @return true if the batch is newer than the last one of its origin
+     */
+    public static boolean accept(final LoggerBatchDto batch)
+    {
+        final AtomicLong applied = APPLIED.computeIfAbsent(batch.getOrigin(), origin -> new AtomicLong());
+        long current = applied.get();
+        boolean ret = false;
+        while (batch.getVersion() > current && !ret) {
+            ret = applied.compareAndSet(current, batch.getVersion());
+            current = applied.get();
+        }
+        if (ret) {
+            RECEIVED.increment();
+        } else {
+            DROPPED.increment();
+        }
+        return ret;
+    }
+
+    /**
+     * Register an acknowledge for a batch sent by this node.
+     *
+     * @param ack acknowledge
+     */
+    public static void acknowledged(final LoggerBatchAckDto ack)
+    {
+        final Pending pending = PENDING.get(ack.getVersion());
+        if (pending != null && pending.members.remove(ack.getReceiver()) && pending.members.isEmpty()
+                        && PENDING.remove(ack.getVersion(), pending)) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pending.start);
+            COMPLETED.increment();
+            TOTALMILLIS.add(millis);
+            LASTMILLIS.set(millis);
+            MAXMILLIS.accumulateAndGet(millis, Math::max);
+        }
+    }
+
+    /**
+     * Remove the batches that were not acknowledged in time.
+     */
+    private static void expire()
+    {
+        final long now = System.nanoTime();
+        final Iterator<Pending> iter = PENDING.values().iterator();
+        while (iter.hasNext()) {
+            if (now - iter.next().start > TIMEOUT) {
+                iter.remove();
+                INCOMPLETE.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the current metrics
+     */
+    public static PropagationDto getMetrics()
+    {
+        expire();
+        final long completed = COMPLETED.sum();
+        return PropagationDto.builder()
+                        .withSent(SENT.sum())
+                        .withReceived(RECEIVED.sum())
+                        .withDropped(DROPPED.sum())
+                        .withCompleted(completed)
+                        .withIncomplete(INCOMPLETE.sum())
+                        .withPending(PENDING.size())
+                        .withLastMillis(LASTMILLIS.get())
+                        .withAvgMillis(completed == 0 ? 0 : TOTALMILLIS.sum() / completed)
+                        .withMaxMillis(MAXMILLIS.get())
+                        .build();
+    }
+
+    /**
+     * A batch waiting for acknowledges.
+     */
+    private static final class Pending
+    {
+
+        /** Start of the propagation. */
+        private final long start = System.nanoTime();
+
+        /** Members that did not acknowledge yet. */
+        private final Set<String> members;
+
+        private Pending(final Set<String> members)
+        {
+            this.members = ConcurrentHashMap.newKeySet();
+            this.members.addAll(members);
+        }
+    }
+}
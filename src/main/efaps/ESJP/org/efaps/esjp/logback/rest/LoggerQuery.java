@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LoggerTree;
+import org.efaps.util.EFapsException;
+
+/**
+ * Filter and cursor for the list of loggers. The list returned by the
+ * LoggerContext is sorted by name with the root logger first, so the cursor
+ * is simply the name of the last logger that was returned.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("577dfb48-0a79-4f26-957b-5e3bcf2881e5")
+@EFapsApplication("eFapsApp-Logback")
+public class LoggerQuery
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    /** Prefix or glob the name must match. */
+    private final String name;
+
+    /** Only loggers with an explicitly set level. */
+    private final boolean explicitOnly;
+
+    /** Accepted effective levels, empty for all. */
+    private final Set<String> levels;
+
+    /** Name of the last logger of the previous page. */
+    private final String cursor;
+
+    /** Maximum number of loggers, 0 for no limit. */
+    private final int limit;
+
+    /** Compiled glob, null if the name is used as prefix. */
+    private transient Pattern pattern;
+
+    private LoggerQuery(final Builder builder)
+    {
+        name = builder.name;
+        explicitOnly = builder.explicitOnly;
+        levels = builder.levels;
+        cursor = builder.cursor;
+        limit = builder.limit;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isExplicitOnly()
+    {
+        return explicitOnly;
+    }
+
+    public Set<String> getLevels()
+    {
+        return levels;
+    }
+
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * @param accessor accessor to Logback
+     * @param logger logger to check
+     * @return true if the logger matches all criteria
+     * @throws EFapsException on error
+     */
+    public boolean matches(final LogbackAccessor accessor,
+                           final Object logger)
+        throws EFapsException
+    {
+        boolean ret = true;
+        if (name != null) {
+            ret = matchesName(accessor.getName(logger));
+        }
+        if (ret && explicitOnly) {
+            ret = accessor.getLevel(logger) != null;
+        }
+        if (ret && !levels.isEmpty()) {
+            ret = levels.contains(String.valueOf(accessor.getEffectiveLevel(logger)));
+        }
+        return ret;
+    }
+
+    /**
+     * @param loggerName name of the logger
+     * @return true if the name matches the prefix or glob
+     */
+    protected boolean matchesName(final String loggerName)
+    {
+        final boolean ret;
+        if (isGlob()) {
+            if (pattern == null) {
+                pattern = toPattern(name);
+            }
+            ret = pattern.matcher(loggerName).matches();
+        } else {
+            ret = loggerName.startsWith(name);
+        }
+        return ret;
+    }
+
+    /**
+     * @return true if the name is a glob
+     */
+    protected boolean isGlob()
+    {
+        return name.indexOf('*') > -1 || name.indexOf('?') > -1;
+    }
+
+    /**
+     * Get the index of the first logger after the cursor.
+     *
+     * @param accessor accessor to Logback
+     * @param loggerList sorted list of loggers
+     * @return index to start with
+     * @throws EFapsException on error
+     */
+    public int start(final LogbackAccessor accessor,
+                     final List<?> loggerList)
+        throws EFapsException
+    {
+        return cursor == null ? 0 : LoggerTree.upperBound(accessor, loggerList, cursor);
+    }
+
+    /**
+     * @param glob glob using '*' and '?'
+     * @return pattern
+     */
+    protected static Pattern toPattern(final String glob)
+    {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (final char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private boolean explicitOnly;
+        private final Set<String> levels = new HashSet<>();
+        private String cursor;
+        private int limit;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name == null || name.isBlank() ? null : name;
+            return this;
+        }
+
+        public Builder withExplicitOnly(final boolean explicitOnly)
+        {
+            this.explicitOnly = explicitOnly;
+            return this;
+        }
+
+        public Builder withLevels(final Collection<String> levels)
+        {
+            if (levels != null) {
+                for (final String level : levels) {
+                    if (level != null && !level.isBlank()) {
+                        this.levels.add(level.trim().toUpperCase(Locale.ENGLISH));
+                    }
+                }
+            }
+            return this;
+        }
+
+        public Builder withCursor(final String cursor)
+        {
+            this.cursor = cursor == null || cursor.isEmpty() ? null : cursor;
+            return this;
+        }
+
+        public Builder withLimit(final int limit)
+        {
+            this.limit = Math.max(0, limit);
+            return this;
+        }
+
+        public LoggerQuery build()
+        {
+            return new LoggerQuery(this);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.dto.TailEventDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * The most recent events of this node, kept in memory by {@link EventTail}.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("5b503909-11b7-461e-a03c-639ba0d63e33")
+@EFapsApplication("eFapsApp-Logback")
+@Path("/logback/tail")
+public class TailController
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(TailController.class);
+
+    /**
+     * Get the most recent events, or with a cursor the events following it.
+     * The header X-Next-Cursor contains the cursor to get the next events.
+     *
+     * @param limit maximum number of events, 100 if not given
+     * @param level minimum level
+     * @param logger prefix of the name of the logger
+     * @param after id of the last event already received
+     * @return the response
+     */
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response getEvents(@QueryParam("limit") final int limit,
+                              @QueryParam("level") final String level,
+                              @QueryParam("logger") final String logger,
+                              @QueryParam("after") final Long after)
+    {
+        List<TailEventDto> events = Collections.emptyList();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                events = EventTail.getEvents(limit > 0 ? limit : 100, level, logger, after);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+        }
+        final long next = events.isEmpty() ? after == null ? EventTail.getEnd() : after
+                        : events.get(events.size() - 1).getId();
+        return Response.ok(events).header("X-Next-Cursor", next).build();
+    }
+
+    /**
+     * Search the indexed events of this node.
+     *
+     * @param limit maximum number of events, 100 if not given
+     * @param level minimum level
+     * @param logger prefix of the name of the logger
+     * @param from earliest time in milliseconds
+     * @param to latest time in milliseconds
+     * @param mdc MDC values in the form key=value, e.g.
+     *            client-requestId=abc
+     * @param text substring of the formatted event
+     * @return the most recent matching events
+     */
+    @GET
+    @Path("/search")
+    @Produces({ MediaType.APPLICATION_JSON })
+    public Response search(@QueryParam("limit") final int limit,
+                           @QueryParam("level") final String level,
+                           @QueryParam("logger") final String logger,
+                           @QueryParam("from") final Long from,
+                           @QueryParam("to") final Long to,
+                           @QueryParam("mdc") final List<String> mdc,
+                           @QueryParam("text") final String text)
+    {
+        List<TailEventDto> events = Collections.emptyList();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                events = EventTail.search(EventQuery.builder()
+                                .withLimit(limit)
+                                .withLevel(level)
+                                .withLogger(logger)
+                                .withFrom(from)
+                                .withTo(to)
+                                .withMdc(mdc)
+                                .withText(text)
+                                .build());
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+            }
+        }
+        return Response.ok(events).header("X-Indexed-Events", EventTail.getIndexSize()).build();
+    }
+
+    /**
+     * Enable or disable the index for the search on this node.
+     *
+     * @param enabled enable or disable
+     * @param events maximum number of indexed events
+     * @return the response
+     */
+    @PUT
+    @Path("/search")
+    public Response setIndexed(@QueryParam("enabled") final boolean enabled,
+                               @QueryParam("events") final int events)
+    {
+        Response ret = Response.ok().build();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                EventTail.setIndexed(enabled, events);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+                ret = Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Stream the new events as Server-Sent Events. A client reconnecting
+     * with the header Last-Event-ID resumes after that event.
+     *
+     * @param sink sink of the client
+     * @param sse factory for the events
+     * @param level minimum level
+     * @param logger prefix of the name of the logger
+     * @param lastEventId id of the last event received
+     */
+    @GET
+    @Path("/stream")
+    @Produces({ MediaType.SERVER_SENT_EVENTS })
+    public void stream(@Context final SseEventSink sink,
+                       @Context final Sse sse,
+                       @QueryParam("level") final String level,
+                       @QueryParam("logger") final String logger,
+                       @HeaderParam("Last-Event-ID") final Long lastEventId)
+    {
+        try {
+            EventTail.subscribe(sink, sse, level, logger, lastEventId);
+        } catch (final EFapsException e) {
+            LOG.error("Catched", e);
+            sink.close();
+        }
+    }
+
+    /**
+     * Enable or disable keeping the events on this node.
+     *
+     * @param enabled enable or disable
+     * @param size size of the buffer in MB
+     * @param pattern pattern used to format the events
+     * @return the response
+     */
+    @PUT
+    public Response setEnabled(@QueryParam("enabled") final boolean enabled,
+                               @QueryParam("size") final int size,
+                               @QueryParam("pattern") final String pattern)
+    {
+        Response ret = Response.ok().build();
+        if (LogbackAccessor.isAvailable()) {
+            try {
+                EventTail.setEnabled(enabled, size, pattern);
+            } catch (final EFapsException e) {
+                LOG.error("Catched", e);
+                ret = Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * An appender with its status. The queue related values are only set for
+ * async appenders. Used for updates only the name and the values to change
+ * are set.
+ */
+@JsonDeserialize(builder = AppenderDto.Builder.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@EFapsUUID("7e29f743-23b2-43bc-bf18-c249254b3733")
+@EFapsApplication("eFapsApp-Logback")
+public class AppenderDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String type;
+    private final Boolean started;
+    private final List<String> loggers;
+    private final List<String> appenders;
+    private final Integer queueSize;
+    private final Integer remainingCapacity;
+    private final Integer queued;
+    private final Integer discardingThreshold;
+    private final Boolean neverBlock;
+    private final Integer maxFlushTime;
+
+    private AppenderDto(final Builder builder)
+    {
+        name = builder.name;
+        type = builder.type;
+        started = builder.started;
+        loggers = builder.loggers;
+        appenders = builder.appenders;
+        queueSize = builder.queueSize;
+        remainingCapacity = builder.remainingCapacity;
+        queued = builder.queued;
+        discardingThreshold = builder.discardingThreshold;
+        neverBlock = builder.neverBlock;
+        maxFlushTime = builder.maxFlushTime;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return class of the appender
+     */
+    public String getType()
+    {
+        return type;
+    }
+
+    public Boolean isStarted()
+    {
+        return started;
+    }
+
+    /**
+     * @return names of the loggers the appender is attached to
+     */
+    public List<String> getLoggers()
+    {
+        return loggers;
+    }
+
+    /**
+     * @return names of the appenders an async appender delegates to
+     */
+    public List<String> getAppenders()
+    {
+        return appenders;
+    }
+
+    public Integer getQueueSize()
+    {
+        return queueSize;
+    }
+
+    public Integer getRemainingCapacity()
+    {
+        return remainingCapacity;
+    }
+
+    /**
+     * @return number of events in the queue
+     */
+    public Integer getQueued()
+    {
+        return queued;
+    }
+
+    public Integer getDiscardingThreshold()
+    {
+        return discardingThreshold;
+    }
+
+    public Boolean isNeverBlock()
+    {
+        return neverBlock;
+    }
+
+    public Integer getMaxFlushTime()
+    {
+        return maxFlushTime;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private String type;
+        private Boolean started;
+        private List<String> loggers;
+        private List<String> appenders;
+        private Integer queueSize;
+        private Integer remainingCapacity;
+        private Integer queued;
+        private Integer discardingThreshold;
+        private Boolean neverBlock;
+        private Integer maxFlushTime;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withType(final String type)
+        {
+            this.type = type;
+            return this;
+        }
+
+        public Builder withStarted(final Boolean started)
+        {
+            this.started = started;
+            return this;
+        }
+
+        public Builder withLoggers(final List<String> loggers)
+        {
+            this.loggers = loggers;
+            return this;
+        }
+
+        public Builder withAppenders(final List<String> appenders)
+        {
+            this.appenders = appenders;
+            return this;
+        }
+
+        public Builder withQueueSize(final Integer queueSize)
+        {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public Builder withRemainingCapacity(final Integer remainingCapacity)
+        {
+            this.remainingCapacity = remainingCapacity;
+            return this;
+        }
+
+        public Builder withQueued(final Integer queued)
+        {
+            this.queued = queued;
+            return this;
+        }
+
+        public Builder withDiscardingThreshold(final Integer discardingThreshold)
+        {
+            this.discardingThreshold = discardingThreshold;
+            return this;
+        }
+
+        public Builder withNeverBlock(final Boolean neverBlock)
+        {
+            this.neverBlock = neverBlock;
+            return this;
+        }
+
+        public Builder withMaxFlushTime(final Integer maxFlushTime)
+        {
+            this.maxFlushTime = maxFlushTime;
+            return this;
+        }
+
+        public AppenderDto build()
+        {
+            return new AppenderDto(this);
+        }
+    }
+}
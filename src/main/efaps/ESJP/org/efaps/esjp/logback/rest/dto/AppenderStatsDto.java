@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Statistic of an instrumented appender. The rates are per second since the
+ * instrumentation was enabled or reset, the times are in nanoseconds.
+ */
+@JsonDeserialize(builder = AppenderStatsDto.Builder.class)
+@EFapsUUID("dd09c023-4f14-4ad6-855e-9a4319d08e19")
+@EFapsApplication("eFapsApp-Logback")
+public class AppenderStatsDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final long events;
+    private final double eventsPerSecond;
+    private final Long bytes;
+    private final Double bytesPerSecond;
+    private final long mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    private AppenderStatsDto(final Builder builder)
+    {
+        name = builder.name;
+        events = builder.events;
+        eventsPerSecond = builder.eventsPerSecond;
+        bytes = builder.bytes;
+        bytesPerSecond = builder.bytesPerSecond;
+        mean = builder.mean;
+        p50 = builder.p50;
+        p99 = builder.p99;
+        p999 = builder.p999;
+        max = builder.max;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getEvents()
+    {
+        return events;
+    }
+
+    public double getEventsPerSecond()
+    {
+        return eventsPerSecond;
+    }
+
+    /**
+     * @return encoded bytes, null if the appender has no encoder
+     */
+    public Long getBytes()
+    {
+        return bytes;
+    }
+
+    public Double getBytesPerSecond()
+    {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return mean time of doAppend in nanoseconds
+     */
+    public long getMean()
+    {
+        return mean;
+    }
+
+    public long getP50()
+    {
+        return p50;
+    }
+
+    public long getP99()
+    {
+        return p99;
+    }
+
+    public long getP999()
+    {
+        return p999;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private long events;
+        private double eventsPerSecond;
+        private Long bytes;
+        private Double bytesPerSecond;
+        private long mean;
+        private long p50;
+        private long p99;
+        private long p999;
+        private long max;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withEvents(final long events)
+        {
+            this.events = events;
+            return this;
+        }
+
+        public Builder withEventsPerSecond(final double eventsPerSecond)
+        {
+            this.eventsPerSecond = eventsPerSecond;
+            return this;
+        }
+
+        public Builder withBytes(final Long bytes)
+        {
+            this.bytes = bytes;
+            return this;
+        }
+
+        public Builder withBytesPerSecond(final Double bytesPerSecond)
+        {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        public Builder withMean(final long mean)
+        {
+            this.mean = mean;
+            return this;
+        }
+
+        public Builder withP50(final long p50)
+        {
+            this.p50 = p50;
+            return this;
+        }
+
+        public Builder withP99(final long p99)
+        {
+            this.p99 = p99;
+            return this;
+        }
+
+        public Builder withP999(final long p999)
+        {
+            this.p999 = p999;
+            return this;
+        }
+
+        public Builder withMax(final long max)
+        {
+            this.max = max;
+            return this;
+        }
+
+        public AppenderStatsDto build()
+        {
+            return new AppenderStatsDto(this);
+        }
+    }
+}
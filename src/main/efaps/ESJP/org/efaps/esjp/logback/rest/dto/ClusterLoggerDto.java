@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * A logger of the merged cluster view, with its explicit and effective
+ * level per node. It is divergent if the effective level differs between
+ * the nodes knowing the logger.
+ */
+@EFapsUUID("8a65f0df-d8ab-4bd1-a776-def513b911b4")
+@EFapsApplication("eFapsApp-Logback")
+public class ClusterLoggerDto
+{
+
+    private final String name;
+    private final boolean divergent;
+    private final Map<String, String> levels;
+    private final Map<String, String> effectiveLevels;
+
+    private ClusterLoggerDto(Builder builder)
+    {
+        this.name = builder.name;
+        this.divergent = builder.divergent;
+        this.levels = builder.levels;
+        this.effectiveLevels = builder.effectiveLevels;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isDivergent()
+    {
+        return divergent;
+    }
+
+    public Map<String, String> getLevels()
+    {
+        return levels;
+    }
+
+    public Map<String, String> getEffectiveLevels()
+    {
+        return effectiveLevels;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private boolean divergent;
+        private Map<String, String> levels = new TreeMap<>();
+        private Map<String, String> effectiveLevels = new TreeMap<>();
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withDivergent(boolean divergent)
+        {
+            this.divergent = divergent;
+            return this;
+        }
+
+        public Builder withLevels(Map<String, String> levels)
+        {
+            this.levels = levels;
+            return this;
+        }
+
+        public Builder withEffectiveLevels(Map<String, String> effectiveLevels)
+        {
+            this.effectiveLevels = effectiveLevels;
+            return this;
+        }
+
+        public ClusterLoggerDto build()
+        {
+            return new ClusterLoggerDto(this);
+        }
+    }
+}
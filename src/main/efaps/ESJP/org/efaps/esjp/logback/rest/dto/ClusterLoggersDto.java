@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Merged view of the loggers of all nodes of the cluster. Complete is
+ * false if a node did not answer in time.
+ */
+@EFapsUUID("f25aaa58-594c-4aeb-b60e-09cb237c3043")
+@EFapsApplication("eFapsApp-Logback")
+public class ClusterLoggersDto
+{
+
+    private final boolean complete;
+    private final List<ClusterNodeDto> nodes;
+    private final List<ClusterLoggerDto> loggers;
+    private final String next;
+
+    private ClusterLoggersDto(Builder builder)
+    {
+        this.complete = builder.complete;
+        this.nodes = builder.nodes;
+        this.loggers = builder.loggers;
+        this.next = builder.next;
+    }
+
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    public List<ClusterNodeDto> getNodes()
+    {
+        return nodes;
+    }
+
+    public List<ClusterLoggerDto> getLoggers()
+    {
+        return loggers;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private boolean complete;
+        private List<ClusterNodeDto> nodes = new ArrayList<>();
+        private List<ClusterLoggerDto> loggers = new ArrayList<>();
+        private String next;
+
+        private Builder()
+        {
+        }
+
+        public Builder withComplete(boolean complete)
+        {
+            this.complete = complete;
+            return this;
+        }
+
+        public Builder withNodes(List<ClusterNodeDto> nodes)
+        {
+            this.nodes = nodes;
+            return this;
+        }
+
+        public Builder withLoggers(List<ClusterLoggerDto> loggers)
+        {
+            this.loggers = loggers;
+            return this;
+        }
+
+        public Builder withNext(String next)
+        {
+            this.next = next;
+            return this;
+        }
+
+        public ClusterLoggersDto build()
+        {
+            return new ClusterLoggersDto(this);
+        }
+    }
+}
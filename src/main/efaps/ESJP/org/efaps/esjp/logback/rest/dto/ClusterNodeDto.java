@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * A node asked by a cluster query, with the time it took to answer. A node
+ * that did not answer before the timeout is reported as not responded.
+ */
+@EFapsUUID("1ebc8128-cd46-4ae5-aee3-894e71c569c0")
+@EFapsApplication("eFapsApp-Logback")
+public class ClusterNodeDto
+{
+
+    private final String address;
+    private final boolean responded;
+    private final long millis;
+    private final int loggers;
+
+    private ClusterNodeDto(Builder builder)
+    {
+        this.address = builder.address;
+        this.responded = builder.responded;
+        this.millis = builder.millis;
+        this.loggers = builder.loggers;
+    }
+
+    public String getAddress()
+    {
+        return address;
+    }
+
+    public boolean isResponded()
+    {
+        return responded;
+    }
+
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    public int getLoggers()
+    {
+        return loggers;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String address;
+        private boolean responded;
+        private long millis;
+        private int loggers;
+
+        private Builder()
+        {
+        }
+
+        public Builder withAddress(String address)
+        {
+            this.address = address;
+            return this;
+        }
+
+        public Builder withResponded(boolean responded)
+        {
+            this.responded = responded;
+            return this;
+        }
+
+        public Builder withMillis(long millis)
+        {
+            this.millis = millis;
+            return this;
+        }
+
+        public Builder withLoggers(int loggers)
+        {
+            this.loggers = loggers;
+            return this;
+        }
+
+        public ClusterNodeDto build()
+        {
+            return new ClusterNodeDto(this);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.LoggerQuery;
+
+/**
+ * Request sent to all nodes of the cluster for their loggers matching a
+ * query. Each node answers the origin with a {@link NodeLoggersDto}.
+ */
+@EFapsUUID("1fd1c1a7-7206-43bf-8cdb-865814622276")
+@EFapsApplication("eFapsApp-Logback")
+public class ClusterQueryDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String requestId;
+    private final String origin;
+    private final LoggerQuery query;
+
+    private ClusterQueryDto(Builder builder)
+    {
+        this.requestId = builder.requestId;
+        this.origin = builder.origin;
+        this.query = builder.query;
+    }
+
+    public String getRequestId()
+    {
+        return requestId;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public LoggerQuery getQuery()
+    {
+        return query;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ClusterQueryDto[requestId=" + requestId + ", origin=" + origin + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String requestId;
+        private String origin;
+        private LoggerQuery query;
+
+        private Builder()
+        {
+        }
+
+        public Builder withRequestId(String requestId)
+        {
+            this.requestId = requestId;
+            return this;
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withQuery(LoggerQuery query)
+        {
+            this.query = query;
+            return this;
+        }
+
+        public ClusterQueryDto build()
+        {
+            return new ClusterQueryDto(this);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Rule enabling a level for the events whose MDC contains a value. A rule
+ * with an <code>expiresAt</code> in the past removes the rule when it is
+ * propagated in the cluster.
+ */
+@JsonDeserialize(builder = DebugRuleDto.Builder.class)
+@EFapsUUID("203ae34a-af05-45d7-a670-4ec8466367e3")
+@EFapsApplication("eFapsApp-Logback")
+public class DebugRuleDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String key;
+    private final String value;
+    private final String level;
+    private final long ttl;
+    private final long expiresAt;
+
+    private DebugRuleDto(final Builder builder)
+    {
+        key = builder.key;
+        value = builder.value;
+        level = builder.level;
+        ttl = builder.ttl;
+        expiresAt = builder.expiresAt;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @return time to live in seconds as requested
+     */
+    public long getTtl()
+    {
+        return ttl;
+    }
+
+    /**
+     * @return expiry in milliseconds since the epoch
+     */
+    public long getExpiresAt()
+    {
+        return expiresAt;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String key;
+        private String value;
+        private String level;
+        private long ttl;
+        private long expiresAt;
+
+        private Builder()
+        {
+        }
+
+        public Builder withKey(final String key)
+        {
+            this.key = key;
+            return this;
+        }
+
+        public Builder withValue(final String value)
+        {
+            this.value = value;
+            return this;
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level;
+            return this;
+        }
+
+        public Builder withTtl(final long ttl)
+        {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder withExpiresAt(final long expiresAt)
+        {
+            this.expiresAt = expiresAt;
+            return this;
+        }
+
+        public DebugRuleDto build()
+        {
+            return new DebugRuleDto(this);
+        }
+    }
+}
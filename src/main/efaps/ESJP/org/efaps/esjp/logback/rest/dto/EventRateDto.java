@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+@JsonDeserialize(builder = EventRateDto.Builder.class)
+@EFapsUUID("2b03cfc3-8339-41c5-8351-508d3f64a723")
+@EFapsApplication("eFapsApp-Logback")
+public class EventRateDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String level;
+    private final long count;
+    private final double rate1;
+    private final double rate5;
+    private final double rate15;
+
+    private EventRateDto(final Builder builder)
+    {
+        name = builder.name;
+        level = builder.level;
+        count = builder.count;
+        rate1 = builder.rate1;
+        rate5 = builder.rate5;
+        rate15 = builder.rate15;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @return events since the counting was enabled
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return events per second in the last minute
+     */
+    public double getRate1()
+    {
+        return rate1;
+    }
+
+    /**
+     * @return events per second in the last 5 minutes
+     */
+    public double getRate5()
+    {
+        return rate5;
+    }
+
+    /**
+     * @return events per second in the last 15 minutes
+     */
+    public double getRate15()
+    {
+        return rate15;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private String level;
+        private long count;
+        private double rate1;
+        private double rate5;
+        private double rate15;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level;
+            return this;
+        }
+
+        public Builder withCount(final long count)
+        {
+            this.count = count;
+            return this;
+        }
+
+        public Builder withRate1(final double rate1)
+        {
+            this.rate1 = rate1;
+            return this;
+        }
+
+        public Builder withRate5(final double rate5)
+        {
+            this.rate5 = rate5;
+            return this;
+        }
+
+        public Builder withRate15(final double rate15)
+        {
+            this.rate15 = rate15;
+            return this;
+        }
+
+        public EventRateDto build()
+        {
+            return new EventRateDto(this);
+        }
+    }
+}
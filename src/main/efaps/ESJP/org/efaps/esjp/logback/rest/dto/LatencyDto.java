@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Latency of the exchanges with a host for one method, in microseconds.
+ */
+@EFapsUUID("17804005-5d74-41a1-810c-517c756b0350")
+@EFapsApplication("eFapsApp-Logback")
+public class LatencyDto
+{
+
+    private final String host;
+    private final String method;
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    private LatencyDto(Builder builder)
+    {
+        this.host = builder.host;
+        this.method = builder.method;
+        this.count = builder.count;
+        this.mean = builder.mean;
+        this.p50 = builder.p50;
+        this.p99 = builder.p99;
+        this.p999 = builder.p999;
+        this.max = builder.max;
+    }
+
+    public String getHost()
+    {
+        return host;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMean()
+    {
+        return mean;
+    }
+
+    public long getP50()
+    {
+        return p50;
+    }
+
+    public long getP99()
+    {
+        return p99;
+    }
+
+    public long getP999()
+    {
+        return p999;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String host;
+        private String method;
+        private long count;
+        private long mean;
+        private long p50;
+        private long p99;
+        private long p999;
+        private long max;
+
+        private Builder()
+        {
+        }
+
+        public Builder withHost(String host)
+        {
+            this.host = host;
+            return this;
+        }
+
+        public Builder withMethod(String method)
+        {
+            this.method = method;
+            return this;
+        }
+
+        public Builder withCount(long count)
+        {
+            this.count = count;
+            return this;
+        }
+
+        public Builder withMean(long mean)
+        {
+            this.mean = mean;
+            return this;
+        }
+
+        public Builder withP50(long p50)
+        {
+            this.p50 = p50;
+            return this;
+        }
+
+        public Builder withP99(long p99)
+        {
+            this.p99 = p99;
+            return this;
+        }
+
+        public Builder withP999(long p999)
+        {
+            this.p999 = p999;
+            return this;
+        }
+
+        public Builder withMax(long max)
+        {
+            this.max = max;
+            return this;
+        }
+
+        public LatencyDto build()
+        {
+            return new LatencyDto(this);
+        }
+    }
+}
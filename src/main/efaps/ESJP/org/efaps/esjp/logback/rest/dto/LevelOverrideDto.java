@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+@JsonDeserialize(builder = LevelOverrideDto.Builder.class)
+@EFapsUUID("6167cd70-e9eb-4598-ac2e-7c5dad0fc87b")
+@EFapsApplication("eFapsApp-Logback")
+public class LevelOverrideDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String level;
+    private final String previousLevel;
+    private final long expiresAt;
+    private final long remaining;
+
+    private LevelOverrideDto(final Builder builder)
+    {
+        name = builder.name;
+        level = builder.level;
+        previousLevel = builder.previousLevel;
+        expiresAt = builder.expiresAt;
+        remaining = builder.remaining;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @return level restored on expiry, null for inherited
+     */
+    public String getPreviousLevel()
+    {
+        return previousLevel;
+    }
+
+    public long getExpiresAt()
+    {
+        return expiresAt;
+    }
+
+    /**
+     * @return remaining seconds
+     */
+    public long getRemaining()
+    {
+        return remaining;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private String level;
+        private String previousLevel;
+        private long expiresAt;
+        private long remaining;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level;
+            return this;
+        }
+
+        public Builder withPreviousLevel(final String previousLevel)
+        {
+            this.previousLevel = previousLevel;
+            return this;
+        }
+
+        public Builder withExpiresAt(final long expiresAt)
+        {
+            this.expiresAt = expiresAt;
+            return this;
+        }
+
+        public Builder withRemaining(final long remaining)
+        {
+            this.remaining = remaining;
+            return this;
+        }
+
+        public LevelOverrideDto build()
+        {
+            return new LevelOverrideDto(this);
+        }
+    }
+}
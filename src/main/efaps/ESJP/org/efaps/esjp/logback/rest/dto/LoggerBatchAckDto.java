@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Acknowledge that a node applied a {@link LoggerBatchDto}.
+ */
+@EFapsUUID("455d41ad-526e-4963-89f7-38dbc60af57d")
+@EFapsApplication("eFapsApp-Logback")
+public class LoggerBatchAckDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String origin;
+    private final long version;
+    private final String receiver;
+
+    private LoggerBatchAckDto(Builder builder)
+    {
+        this.origin = builder.origin;
+        this.version = builder.version;
+        this.receiver = builder.receiver;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public String getReceiver()
+    {
+        return receiver;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LoggerBatchAckDto[origin=" + origin + ", version=" + version + ", receiver=" + receiver + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String origin;
+        private long version;
+        private String receiver;
+
+        private Builder()
+        {
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withVersion(long version)
+        {
+            this.version = version;
+            return this;
+        }
+
+        public Builder withReceiver(String receiver)
+        {
+            this.receiver = receiver;
+            return this;
+        }
+
+        public LoggerBatchAckDto build()
+        {
+            return new LoggerBatchAckDto(this);
+        }
+    }
+}
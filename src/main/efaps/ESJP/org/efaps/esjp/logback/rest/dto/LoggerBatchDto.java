@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Logger updates of one request, sent as one message to the cluster.
+ * The version is increasing per origin, so receivers can drop stale and
+ * duplicate batches.
+ */
+@EFapsUUID("dab04760-a1d5-4cfa-b4a1-f46d6a26ac3f")
+@EFapsApplication("eFapsApp-Logback")
+public class LoggerBatchDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String origin;
+    private final long version;
+    private final long sentAt;
+    private final List<LoggerDto> loggers;
+
+    private LoggerBatchDto(Builder builder)
+    {
+        this.origin = builder.origin;
+        this.version = builder.version;
+        this.sentAt = builder.sentAt;
+        this.loggers = builder.loggers;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public long getSentAt()
+    {
+        return sentAt;
+    }
+
+    public List<LoggerDto> getLoggers()
+    {
+        return loggers;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LoggerBatchDto[origin=" + origin + ", version=" + version + ", loggers=" + loggers.size() + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String origin;
+        private long version;
+        private long sentAt;
+        private List<LoggerDto> loggers = new ArrayList<>();
+
+        private Builder()
+        {
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withVersion(long version)
+        {
+            this.version = version;
+            return this;
+        }
+
+        public Builder withSentAt(long sentAt)
+        {
+            this.sentAt = sentAt;
+            return this;
+        }
+
+        public Builder withLoggers(List<LoggerDto> loggers)
+        {
+            this.loggers = loggers;
+            return this;
+        }
+
+        public LoggerBatchDto build()
+        {
+            return new LoggerBatchDto(this);
+        }
+    }
+}
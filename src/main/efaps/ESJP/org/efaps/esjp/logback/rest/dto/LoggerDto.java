@@ -20,9 +20,11 @@ import java.io.Serializable;
 import org.efaps.admin.program.esjp.EFapsApplication;
 import org.efaps.admin.program.esjp.EFapsUUID;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 @JsonDeserialize(builder = LoggerDto.Builder.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @EFapsUUID("db87e680-c863-48df-a61e-32bdc3cbcf9e")
 @EFapsApplication("eFapsApp-Logback")
 public class LoggerDto implements Serializable
@@ -33,6 +35,10 @@ public class LoggerDto implements Serializable
     private final String appender;
     private final String level;
     private final String effectiveLevel;
+    private final Long ttl;
+    private final Long expiresAt;
+    private final Double limitRate;
+    private final Integer limitBurst;
 
     private LoggerDto(Builder builder)
     {
@@ -40,6 +46,10 @@ public class LoggerDto implements Serializable
         this.appender = builder.appender;
         this.level = builder.level;
         this.effectiveLevel = builder.effectiveLevel;
+        this.ttl = builder.ttl;
+        this.expiresAt = builder.expiresAt;
+        this.limitRate = builder.limitRate;
+        this.limitBurst = builder.limitBurst;
     }
 
     public String getName()
@@ -62,6 +72,40 @@ public class LoggerDto implements Serializable
         return appender;
     }
 
+    /**
+     * @return seconds after which the level is reverted, null for never
+     */
+    public Long getTtl()
+    {
+        return ttl;
+    }
+
+    /**
+     * @return milliseconds since the epoch when the level is reverted, null
+     *         for never
+     */
+    public Long getExpiresAt()
+    {
+        return expiresAt;
+    }
+
+    /**
+     * @return events per second allowed for similar events, 0 to remove the
+     *         limit, null for unchanged
+     */
+    public Double getLimitRate()
+    {
+        return limitRate;
+    }
+
+    /**
+     * @return similar events allowed in a burst
+     */
+    public Integer getLimitBurst()
+    {
+        return limitBurst;
+    }
+
     public static Builder builder()
     {
         return new Builder();
@@ -74,6 +118,10 @@ public class LoggerDto implements Serializable
         private String appender;
         private String level;
         private String effectiveLevel;
+        private Long ttl;
+        private Long expiresAt;
+        private Double limitRate;
+        private Integer limitBurst;
 
         private Builder()
         {
@@ -103,6 +151,30 @@ public class LoggerDto implements Serializable
             return this;
         }
 
+        public Builder withTtl(Long ttl)
+        {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder withExpiresAt(Long expiresAt)
+        {
+            this.expiresAt = expiresAt;
+            return this;
+        }
+
+        public Builder withLimitRate(Double limitRate)
+        {
+            this.limitRate = limitRate;
+            return this;
+        }
+
+        public Builder withLimitBurst(Integer limitBurst)
+        {
+            this.limitBurst = limitBurst;
+            return this;
+        }
+
         public LoggerDto build()
         {
             return new LoggerDto(this);
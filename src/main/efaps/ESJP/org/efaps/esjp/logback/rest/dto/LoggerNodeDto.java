@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+@JsonDeserialize(builder = LoggerNodeDto.Builder.class)
+@EFapsUUID("8e9ee5ac-3a11-4c2f-a0dd-9a23db435b7a")
+@EFapsApplication("eFapsApp-Logback")
+public class LoggerNodeDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String level;
+    private final String effectiveLevel;
+    private final int descendants;
+    private final boolean explicitBelow;
+
+    private LoggerNodeDto(final Builder builder)
+    {
+        name = builder.name;
+        level = builder.level;
+        effectiveLevel = builder.effectiveLevel;
+        descendants = builder.descendants;
+        explicitBelow = builder.explicitBelow;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    public String getEffectiveLevel()
+    {
+        return effectiveLevel;
+    }
+
+    public int getDescendants()
+    {
+        return descendants;
+    }
+
+    public boolean isExplicitBelow()
+    {
+        return explicitBelow;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String name;
+        private String level;
+        private String effectiveLevel;
+        private int descendants;
+        private boolean explicitBelow;
+
+        private Builder()
+        {
+        }
+
+        public Builder withName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level;
+            return this;
+        }
+
+        public Builder withEffectiveLevel(final String effectiveLevel)
+        {
+            this.effectiveLevel = effectiveLevel;
+            return this;
+        }
+
+        public Builder withDescendants(final int descendants)
+        {
+            this.descendants = descendants;
+            return this;
+        }
+
+        public Builder withExplicitBelow(final boolean explicitBelow)
+        {
+            this.explicitBelow = explicitBelow;
+            return this;
+        }
+
+        public LoggerNodeDto build()
+        {
+            return new LoggerNodeDto(this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Loggers of one node answering a {@link ClusterQueryDto}. Next is the
+ * name of the last logger if more loggers match.
+ */
+@EFapsUUID("9f40aec6-bc22-4cc4-9fcd-e32aa5f78cd3")
+@EFapsApplication("eFapsApp-Logback")
+public class NodeLoggersDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String requestId;
+    private final String origin;
+    private final String target;
+    private final List<LoggerDto> loggers;
+    private final String next;
+
+    private NodeLoggersDto(Builder builder)
+    {
+        this.requestId = builder.requestId;
+        this.origin = builder.origin;
+        this.target = builder.target;
+        this.loggers = builder.loggers;
+        this.next = builder.next;
+    }
+
+    public String getRequestId()
+    {
+        return requestId;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public String getTarget()
+    {
+        return target;
+    }
+
+    public List<LoggerDto> getLoggers()
+    {
+        return loggers;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NodeLoggersDto[requestId=" + requestId + ", origin=" + origin + ", loggers=" + loggers.size() + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String requestId;
+        private String origin;
+        private String target;
+        private List<LoggerDto> loggers = new ArrayList<>();
+        private String next;
+
+        private Builder()
+        {
+        }
+
+        public Builder withRequestId(String requestId)
+        {
+            this.requestId = requestId;
+            return this;
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withTarget(String target)
+        {
+            this.target = target;
+            return this;
+        }
+
+        public Builder withLoggers(List<LoggerDto> loggers)
+        {
+            this.loggers = loggers;
+            return this;
+        }
+
+        public Builder withNext(String next)
+        {
+            this.next = next;
+            return this;
+        }
+
+        public NodeLoggersDto build()
+        {
+            return new NodeLoggersDto(this);
+        }
+    }
+}
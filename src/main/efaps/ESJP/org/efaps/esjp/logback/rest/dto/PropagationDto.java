@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Metrics on the propagation of logger updates through the cluster.
+ * Durations are measured on the sending node, from sending a batch until
+ * the last member acknowledged it.
+ */
+@EFapsUUID("a505ed63-6514-4e1e-b1f9-9717f6f36476")
+@EFapsApplication("eFapsApp-Logback")
+public class PropagationDto
+{
+
+    private final long sent;
+    private final long received;
+    private final long dropped;
+    private final long completed;
+    private final long incomplete;
+    private final long pending;
+    private final long lastMillis;
+    private final long avgMillis;
+    private final long maxMillis;
+
+    private PropagationDto(Builder builder)
+    {
+        this.sent = builder.sent;
+        this.received = builder.received;
+        this.dropped = builder.dropped;
+        this.completed = builder.completed;
+        this.incomplete = builder.incomplete;
+        this.pending = builder.pending;
+        this.lastMillis = builder.lastMillis;
+        this.avgMillis = builder.avgMillis;
+        this.maxMillis = builder.maxMillis;
+    }
+
+    public long getSent()
+    {
+        return sent;
+    }
+
+    public long getReceived()
+    {
+        return received;
+    }
+
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    public long getCompleted()
+    {
+        return completed;
+    }
+
+    public long getIncomplete()
+    {
+        return incomplete;
+    }
+
+    public long getPending()
+    {
+        return pending;
+    }
+
+    public long getLastMillis()
+    {
+        return lastMillis;
+    }
+
+    public long getAvgMillis()
+    {
+        return avgMillis;
+    }
+
+    public long getMaxMillis()
+    {
+        return maxMillis;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private long sent;
+        private long received;
+        private long dropped;
+        private long completed;
+        private long incomplete;
+        private long pending;
+        private long lastMillis;
+        private long avgMillis;
+        private long maxMillis;
+
+        private Builder()
+        {
+        }
+
+        public Builder withSent(long sent)
+        {
+            this.sent = sent;
+            return this;
+        }
+
+        public Builder withReceived(long received)
+        {
+            this.received = received;
+            return this;
+        }
+
+        public Builder withDropped(long dropped)
+        {
+            this.dropped = dropped;
+            return this;
+        }
+
+        public Builder withCompleted(long completed)
+        {
+            this.completed = completed;
+            return this;
+        }
+
+        public Builder withIncomplete(long incomplete)
+        {
+            this.incomplete = incomplete;
+            return this;
+        }
+
+        public Builder withPending(long pending)
+        {
+            this.pending = pending;
+            return this;
+        }
+
+        public Builder withLastMillis(long lastMillis)
+        {
+            this.lastMillis = lastMillis;
+            return this;
+        }
+
+        public Builder withAvgMillis(long avgMillis)
+        {
+            this.avgMillis = avgMillis;
+            return this;
+        }
+
+        public Builder withMaxMillis(long maxMillis)
+        {
+            this.maxMillis = maxMillis;
+            return this;
+        }
+
+        public PropagationDto build()
+        {
+            return new PropagationDto(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Digest of the cluster state of a node, sent periodically. A node whose
+ * own digest differs requests the snapshot of the origin.
+ */
+@EFapsUUID("dd4cf09f-b2f6-49b1-a37e-a047573c17d0")
+@EFapsApplication("eFapsApp-Logback")
+public class StateDigestDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String origin;
+    private final long version;
+    private final long digest;
+    private final int size;
+
+    private StateDigestDto(Builder builder)
+    {
+        this.origin = builder.origin;
+        this.version = builder.version;
+        this.digest = builder.digest;
+        this.size = builder.size;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public long getDigest()
+    {
+        return digest;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StateDigestDto[origin=" + origin + ", version=" + version + ", digest=" + Long.toHexString(digest)
+                        + ", size=" + size + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String origin;
+        private long version;
+        private long digest;
+        private int size;
+
+        private Builder()
+        {
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withVersion(long version)
+        {
+            this.version = version;
+            return this;
+        }
+
+        public Builder withDigest(long digest)
+        {
+            this.digest = digest;
+            return this;
+        }
+
+        public Builder withSize(int size)
+        {
+            this.size = size;
+            return this;
+        }
+
+        public StateDigestDto build()
+        {
+            return new StateDigestDto(this);
+        }
+    }
+}
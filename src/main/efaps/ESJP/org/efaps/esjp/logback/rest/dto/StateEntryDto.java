@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * One runtime change of the cluster state: the level or the limit of a
+ * logger, or a debug rule. The time of the change decides which entry
+ * wins if two nodes disagree. A temporary level keeps the permanent level
+ * it overrides as base, so it can be restored after the expiry.
+ */
+@EFapsUUID("0d882fa6-c2ec-4c5c-b444-dd53fcea2cd3")
+@EFapsApplication("eFapsApp-Logback")
+public class StateEntryDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final long changedAt;
+    private final LoggerDto logger;
+    private final DebugRuleDto rule;
+    private final StateEntryDto base;
+
+    private StateEntryDto(Builder builder)
+    {
+        this.changedAt = builder.changedAt;
+        this.logger = builder.logger;
+        this.rule = builder.rule;
+        this.base = builder.base;
+    }
+
+    public long getChangedAt()
+    {
+        return changedAt;
+    }
+
+    public LoggerDto getLogger()
+    {
+        return logger;
+    }
+
+    public DebugRuleDto getRule()
+    {
+        return rule;
+    }
+
+    public StateEntryDto getBase()
+    {
+        return base;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StateEntryDto[changedAt=" + changedAt + ", logger=" + (logger == null ? null : logger.getName())
+                        + ", rule=" + (rule == null ? null : rule.getKey() + "=" + rule.getValue()) + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private long changedAt;
+        private LoggerDto logger;
+        private DebugRuleDto rule;
+        private StateEntryDto base;
+
+        private Builder()
+        {
+        }
+
+        public Builder withChangedAt(long changedAt)
+        {
+            this.changedAt = changedAt;
+            return this;
+        }
+
+        public Builder withLogger(LoggerDto logger)
+        {
+            this.logger = logger;
+            return this;
+        }
+
+        public Builder withRule(DebugRuleDto rule)
+        {
+            this.rule = rule;
+            return this;
+        }
+
+        public Builder withBase(StateEntryDto base)
+        {
+            this.base = base;
+            return this;
+        }
+
+        public StateEntryDto build()
+        {
+            return new StateEntryDto(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Request for the snapshot of the cluster state of the target node.
+ */
+@EFapsUUID("7581f22d-47d5-4ca6-98b2-da080621d3aa")
+@EFapsApplication("eFapsApp-Logback")
+public class StateRequestDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String origin;
+    private final String target;
+
+    private StateRequestDto(Builder builder)
+    {
+        this.origin = builder.origin;
+        this.target = builder.target;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public String getTarget()
+    {
+        return target;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StateRequestDto[origin=" + origin + ", target=" + target + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String origin;
+        private String target;
+
+        private Builder()
+        {
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withTarget(String target)
+        {
+            this.target = target;
+            return this;
+        }
+
+        public StateRequestDto build()
+        {
+            return new StateRequestDto(this);
+        }
+    }
+}
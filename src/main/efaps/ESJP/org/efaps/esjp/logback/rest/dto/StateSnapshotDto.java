@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * All runtime changes known to a node, sent to a node that joined or
+ * whose digest differed. The version is the time of the newest change.
+ */
+@EFapsUUID("7256d164-d373-4591-9515-133e115b8ebf")
+@EFapsApplication("eFapsApp-Logback")
+public class StateSnapshotDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final String origin;
+    private final String target;
+    private final long version;
+    private final long digest;
+    private final List<StateEntryDto> entries;
+
+    private StateSnapshotDto(Builder builder)
+    {
+        this.origin = builder.origin;
+        this.target = builder.target;
+        this.version = builder.version;
+        this.digest = builder.digest;
+        this.entries = builder.entries;
+    }
+
+    public String getOrigin()
+    {
+        return origin;
+    }
+
+    public String getTarget()
+    {
+        return target;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public long getDigest()
+    {
+        return digest;
+    }
+
+    public List<StateEntryDto> getEntries()
+    {
+        return entries;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StateSnapshotDto[origin=" + origin + ", target=" + target + ", version=" + version + ", digest="
+                        + Long.toHexString(digest) + ", entries=" + entries.size() + "]";
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private String origin;
+        private String target;
+        private long version;
+        private long digest;
+        private List<StateEntryDto> entries = new ArrayList<>();
+
+        private Builder()
+        {
+        }
+
+        public Builder withOrigin(String origin)
+        {
+            this.origin = origin;
+            return this;
+        }
+
+        public Builder withTarget(String target)
+        {
+            this.target = target;
+            return this;
+        }
+
+        public Builder withVersion(long version)
+        {
+            this.version = version;
+            return this;
+        }
+
+        public Builder withDigest(long digest)
+        {
+            this.digest = digest;
+            return this;
+        }
+
+        public Builder withEntries(List<StateEntryDto> entries)
+        {
+            this.entries = entries;
+            return this;
+        }
+
+        public StateSnapshotDto build()
+        {
+            return new StateSnapshotDto(this);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.rest.dto;
+
+import java.io.Serializable;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+@JsonDeserialize(builder = TailEventDto.Builder.class)
+@EFapsUUID("a9ace927-0f8a-469a-b2b3-aac9f115e672")
+@EFapsApplication("eFapsApp-Logback")
+public class TailEventDto
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+    private final long id;
+    private final long timestamp;
+    private final String level;
+    private final String logger;
+    private final String message;
+
+    private TailEventDto(final Builder builder)
+    {
+        id = builder.id;
+        timestamp = builder.timestamp;
+        level = builder.level;
+        logger = builder.logger;
+        message = builder.message;
+    }
+
+    /**
+     * @return position after the event in the buffer, used as cursor
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public String getLevel()
+    {
+        return level;
+    }
+
+    public String getLogger()
+    {
+        return logger;
+    }
+
+    /**
+     * @return the event formatted with the pattern of the buffer
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+
+        private long id;
+        private long timestamp;
+        private String level;
+        private String logger;
+        private String message;
+
+        private Builder()
+        {
+        }
+
+        public Builder withId(final long id)
+        {
+            this.id = id;
+            return this;
+        }
+
+        public Builder withTimestamp(final long timestamp)
+        {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+        public Builder withLevel(final String level)
+        {
+            this.level = level;
+            return this;
+        }
+
+        public Builder withLogger(final String logger)
+        {
+            this.logger = logger;
+            return this;
+        }
+
+        public Builder withMessage(final String message)
+        {
+            this.message = message;
+            return this;
+        }
+
+        public TailEventDto build()
+        {
+            return new TailEventDto(this);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+
+/**
+ * Wraps an appender to record its statistic. The wrapper implements the
+ * Appender interface of Logback by a dynamic proxy, so Logback is still
+ * accessed only by reflection. The proxy allocates the argument array of
+ * every call and forwards it by {@link Method#invoke}. While a statistic is
+ * recorded and the appender has an encoder, the encoder is wrapped too, to
+ * count the encoded bytes.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("888e09bc-21ff-42a0-9d79-9a36aaf5b99e")
+@EFapsApplication("eFapsApp-Logback")
+public final class AppenderProxy
+    implements InvocationHandler
+{
+
+    /** The wrapped appender. */
+    private final Object delegate;
+
+    /** The statistic, null if none is recorded. */
+    private volatile AppenderStats stats;
+
+    /** The original encoder, null if the encoder was not wrapped. */
+    private Object encoder;
+
+    /**
+     * @param _delegate appender to wrap
+     */
+    private AppenderProxy(final Object _delegate)
+    {
+        this.delegate = _delegate;
+    }
+
+    /**
+     * @return the wrapped appender
+     */
+    public Object getDelegate()
+    {
+        return this.delegate;
+    }
+
+    /**
+     * @return the statistic, null if none is recorded
+     */
+    public AppenderStats getStats()
+    {
+        return this.stats;
+    }
+
+    /**
+     * @param _stats statistic to record, null to stop recording
+     * @throws EFapsException on error
+     */
+    public synchronized void setStats(final AppenderStats _stats)
+        throws EFapsException
+    {
+        try {
+            if (_stats == null) {
+                restoreEncoder();
+            } else if (this.encoder == null) {
+                wrapEncoder(_stats);
+            }
+        } catch (final ReflectiveOperationException e) {
+            throw new EFapsException(AppenderProxy.class, "setStats", e);
+        }
+        this.stats = _stats;
+    }
+
+    @Override
+    public Object invoke(final Object _proxy,
+                         final Method _method,
+                         final Object[] _args)
+        throws Throwable
+    {
+        final Object ret;
+        switch (_method.getName()) {
+            case "doAppend":
+                final AppenderStats current = this.stats;
+                final long start = current == null ? 0 : System.nanoTime();
+                try {
+                    ret = _method.invoke(this.delegate, _args);
+                } catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    if (current != null) {
+                        current.recordEvent(System.nanoTime() - start);
+                    }
+                }
+                break;
+            case "equals":
+                ret = _proxy == _args[0];
+                break;
+            case "hashCode":
+                ret = System.identityHashCode(_proxy);
+                break;
+            case "toString":
+                ret = "AppenderProxy[" + this.delegate + "]";
+                break;
+            default:
+                try {
+                    ret = _method.invoke(this.delegate, _args);
+                } catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                break;
+        }
+        return ret;
+    }
+
+    /**
+     * Wrap the encoder of the appender to count the bytes.
+     *
+     * @param _stats statistic to record the bytes in
+     * @throws ReflectiveOperationException on error
+     * @throws EFapsException on error
+     */
+    private void wrapEncoder(final AppenderStats _stats)
+        throws ReflectiveOperationException, EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final Object original = accessor.getEncoder(this.delegate);
+        if (original != null) {
+            final ClassLoader loader = this.delegate.getClass().getClassLoader();
+            final Object wrapped = Proxy.newProxyInstance(loader,
+                            new Class<?>[] { Class.forName(LogbackAccessor.ENCODER, false, loader) },
+                            (proxy, method, args) -> {
+                                final Object ret;
+                                if ("equals".equals(method.getName())) {
+                                    ret = proxy == args[0];
+                                } else if ("hashCode".equals(method.getName())) {
+                                    ret = System.identityHashCode(proxy);
+                                } else {
+                                    try {
+                                        ret = method.invoke(original, args);
+                                    } catch (final InvocationTargetException e) {
+                                        throw e.getCause();
+                                    }
+                                    final AppenderStats current = this.stats;
+                                    if (current != null && ret instanceof final byte[] bytes) {
+                                        current.recordBytes(bytes.length);
+                                    }
+                                }
+                                return ret;
+                            });
+            accessor.setEncoder(this.delegate, wrapped);
+            this.encoder = original;
+            _stats.setBytesCounted(true);
+        }
+    }
+
+    /**
+     * Restore the original encoder.
+     *
+     * @throws EFapsException on error
+     */
+    private void restoreEncoder()
+        throws EFapsException
+    {
+        if (this.encoder != null) {
+            LogbackAccessor.get().setEncoder(this.delegate, this.encoder);
+            this.encoder = null;
+        }
+    }
+
+    /**
+     * @param _appender appender to wrap
+     * @param _stats statistic to record, null for none
+     * @return the wrapper
+     * @throws EFapsException on error
+     */
+    public static Object wrap(final Object _appender,
+                              final AppenderStats _stats)
+        throws EFapsException
+    {
+        final ClassLoader loader = _appender.getClass().getClassLoader();
+        try {
+            final AppenderProxy handler = new AppenderProxy(_appender);
+            handler.setStats(_stats);
+            return Proxy.newProxyInstance(loader,
+                            new Class<?>[] { Class.forName(LogbackAccessor.APPENDER, false, loader) }, handler);
+        } catch (final ReflectiveOperationException e) {
+            throw new EFapsException(AppenderProxy.class, "wrap", e);
+        }
+    }
+
+    /**
+     * Release a wrapper, i.e. restore the original encoder.
+     *
+     * @param _appender wrapper
+     * @return the wrapped appender
+     * @throws EFapsException on error
+     */
+    public static Object release(final Object _appender)
+        throws EFapsException
+    {
+        final AppenderProxy handler = getHandler(_appender);
+        Object ret = _appender;
+        if (handler != null) {
+            handler.setStats(null);
+            ret = handler.delegate;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _appender appender, maybe a wrapper
+     * @return the wrapped appender or the appender itself
+     */
+    public static Object unwrap(final Object _appender)
+    {
+        final AppenderProxy handler = getHandler(_appender);
+        return handler == null ? _appender : handler.delegate;
+    }
+
+    /**
+     * @param _appender appender, maybe a wrapper
+     * @return the handler if the appender is a wrapper, else null
+     */
+    public static AppenderProxy getHandler(final Object _appender)
+    {
+        AppenderProxy ret = null;
+        if (_appender != null && Proxy.isProxyClass(_appender.getClass())
+                        && Proxy.getInvocationHandler(_appender) instanceof final AppenderProxy handler) {
+            ret = handler;
+        }
+        return ret;
+    }
+}
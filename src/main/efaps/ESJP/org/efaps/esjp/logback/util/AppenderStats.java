@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Statistic of one appender: events, encoded bytes and the time spent in
+ * <code>doAppend</code>. The counters are striped, so the logging threads
+ * do not contend on them.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("8cbace01-f9a8-45e8-9563-3189fb3f0cca")
+@EFapsApplication("eFapsApp-Logback")
+public class AppenderStats
+{
+
+    /** Number of events. */
+    private final LongAdder events = new LongAdder();
+
+    /** Number of encoded bytes. */
+    private final LongAdder bytes = new LongAdder();
+
+    /** Time spent in doAppend in nanoseconds. */
+    private final LatencyHistogram durations = new LatencyHistogram();
+
+    /** Are the bytes counted, i.e. the appender has an encoder. */
+    private volatile boolean bytesCounted;
+
+    /** Start of the recording. */
+    private volatile long start = System.nanoTime();
+
+    /**
+     * @param _nanos time spent in doAppend
+     */
+    public void recordEvent(final long _nanos)
+    {
+        events.increment();
+        durations.record(_nanos);
+    }
+
+    /**
+     * @param _bytes encoded bytes
+     */
+    public void recordBytes(final int _bytes)
+    {
+        bytes.add(_bytes);
+    }
+
+    public long getEvents()
+    {
+        return events.sum();
+    }
+
+    public long getBytes()
+    {
+        return bytes.sum();
+    }
+
+    public LatencyHistogram getDurations()
+    {
+        return durations;
+    }
+
+    public boolean isBytesCounted()
+    {
+        return bytesCounted;
+    }
+
+    public void setBytesCounted(final boolean _bytesCounted)
+    {
+        bytesCounted = _bytesCounted;
+    }
+
+    /**
+     * @return seconds since the start or the last reset
+     */
+    public double getSeconds()
+    {
+        return Math.max(1, System.nanoTime() - start) / 1_000_000_000d;
+    }
+
+    /**
+     * Reset the statistic.
+     */
+    public void reset()
+    {
+        events.reset();
+        bytes.reset();
+        durations.reset();
+        start = System.nanoTime();
+    }
+}
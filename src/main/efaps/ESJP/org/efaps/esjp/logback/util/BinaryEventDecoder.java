@@ -0,0 +1,406 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Turns segments written with the {@link BinaryEventEncoder} back into text.
+ * Usable from the command line:
+ *
+ * <pre>
+ * java -cp ... org.efaps.esjp.logback.util.BinaryEventDecoder efaps.00001.log efaps.00002.log
+ * </pre>
+ *
+ * The events are written to stdout as
+ * <code>date [thread] LEVEL logger {mdc} - message</code>, followed by the
+ * throwable if any.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("3d68ff51-c4f4-4ff3-84b8-94d38c9f1263")
+@EFapsApplication("eFapsApp-Logback")
+public final class BinaryEventDecoder
+{
+
+    /** Format of the time. */
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+                    .withZone(ZoneId.systemDefault());
+
+    /**
+     * Singleton.
+     */
+    private BinaryEventDecoder()
+    {
+    }
+
+    /**
+     * @param _args the segment files in the order to decode
+     * @throws IOException on error
+     */
+    public static void main(final String... _args)
+        throws IOException
+    {
+        final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        for (final String file : _args) {
+            try (InputStream in = Files.newInputStream(Paths.get(file))) {
+                decode(in, out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Decode one segment. Decoding stops at the end of the written records,
+     * e.g. at the unused rest of a segment that was not closed. A range of
+     * zeros followed by records, left by a writer that reserved the range but
+     * did not write it, is skipped and reported in the text, as is a record
+     * that can not be read.
+     *
+     * @param _in the segment
+     * @param _out the text
+     * @return number of events
+     * @throws IOException on error
+     */
+    public static long decode(final InputStream _in,
+                              final Appendable _out)
+        throws IOException
+    {
+        final Input in = new Input(_in);
+        final Map<Long, String> dictionary = new HashMap<>();
+        long ret = 0;
+        byte[] record = new byte[256];
+        boolean more = true;
+        while (more) {
+            final long offset = in.position;
+            int first = in.read();
+            if (first == 0) {
+                first = in.skipZeros();
+                if (first > 0) {
+                    report(_out, "hole of " + (in.position - 1 - offset) + " bytes", offset);
+                }
+            }
+            final long start = in.position - 1;
+            final long length = first < 0 ? -1 : readLength(in, first);
+            if (length <= 0) {
+                more = false;
+            } else if (length > Integer.MAX_VALUE - 8) {
+                report(_out, "invalid length " + length, start);
+                more = false;
+            } else {
+                if (length > record.length) {
+                    record = new byte[(int) Math.max(length, record.length * 2L)];
+                }
+                if (in.readNBytes(record, (int) length) < length) {
+                    report(_out, "truncated record", start);
+                    more = false;
+                } else {
+                    final int type = read(new Reader(record, (int) length), dictionary, _out);
+                    if (type == BinaryEventEncoder.EVENT) {
+                        ret++;
+                    } else if (type == 0) {
+                        report(_out, "unreadable record of " + length + " bytes", start);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _reader the record
+     * @param _dictionary the definitions
+     * @param _out the text
+     * @return the type of the record, 0 if the record is not valid
+     * @throws IOException on error
+     */
+    private static int read(final Reader _reader,
+                            final Map<Long, String> _dictionary,
+                            final Appendable _out)
+        throws IOException
+    {
+        int ret;
+        try {
+            ret = _reader.readByte();
+            if (ret == BinaryEventEncoder.DEFINITION) {
+                _reader.readByte();
+                final long id = _reader.readVarLong();
+                _dictionary.put(id, _reader.readString());
+            } else if (ret == BinaryEventEncoder.EVENT) {
+                // an incomplete event must not leave a partial line
+                final StringBuilder event = new StringBuilder();
+                appendEvent(_reader, _dictionary, event);
+                _out.append(event);
+            } else {
+                ret = 0;
+            }
+        } catch (final EOFException e) {
+            ret = 0;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _reader reader positioned after the type
+     * @param _dictionary the definitions
+     * @param _out the text
+     * @throws IOException on error
+     */
+    private static void appendEvent(final Reader _reader,
+                                    final Map<Long, String> _dictionary,
+                                    final Appendable _out)
+        throws IOException
+    {
+        final long timestamp = _reader.readVarLong();
+        final String level = _reader.readReference(_dictionary);
+        final String logger = _reader.readReference(_dictionary);
+        final String thread = _reader.readReference(_dictionary);
+        final String template = _reader.readReference(_dictionary);
+        final String[] arguments = new String[(int) _reader.readVarLong()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = _reader.readString();
+        }
+        _out.append(FORMATTER.format(Instant.ofEpochMilli(timestamp)))
+            .append(" [").append(thread).append("] ")
+            .append(String.format("%-5s", level)).append(' ')
+            .append(logger);
+        final long mdcSize = _reader.readVarLong();
+        for (long i = 0; i < mdcSize; i++) {
+            _out.append(i == 0 ? " {" : ", ")
+                .append(_reader.readReference(_dictionary))
+                .append('=')
+                .append(_reader.readString());
+            if (i == mdcSize - 1) {
+                _out.append('}');
+            }
+        }
+        _out.append(" - ").append(format(template, arguments)).append('\n');
+        if (_reader.readByte() == 1) {
+            _out.append(_reader.readString());
+        }
+    }
+
+    /**
+     * Replace the placeholders of a template like SLF4J does. A placeholder
+     * preceded by a backslash is kept, a double backslash is a backslash.
+     *
+     * @param _template the template
+     * @param _arguments the arguments
+     * @return the message
+     */
+    static String format(final String _template,
+                                   final String[] _arguments)
+    {
+        final StringBuilder ret = new StringBuilder(_template.length() + 16 * _arguments.length);
+        int pos = 0;
+        int arg = 0;
+        while (pos < _template.length()) {
+            final int idx = arg < _arguments.length ? _template.indexOf("{}", pos) : -1;
+            if (idx < 0) {
+                ret.append(_template, pos, _template.length());
+                pos = _template.length();
+            } else if (idx > 0 && _template.charAt(idx - 1) == '\\'
+                            && !(idx > 1 && _template.charAt(idx - 2) == '\\')) {
+                ret.append(_template, pos, idx - 1).append("{}");
+                pos = idx + 2;
+            } else if (idx > 0 && _template.charAt(idx - 1) == '\\') {
+                ret.append(_template, pos, idx - 1).append(_arguments[arg++]);
+                pos = idx + 2;
+            } else {
+                ret.append(_template, pos, idx).append(_arguments[arg++]);
+                pos = idx + 2;
+            }
+        }
+        return ret.toString();
+    }
+
+    /**
+     * @param _out the text
+     * @param _problem description of the problem
+     * @param _offset offset in the segment
+     * @throws IOException on error
+     */
+    private static void report(final Appendable _out,
+                               final String _problem,
+                               final long _offset)
+        throws IOException
+    {
+        _out.append("### ").append(_problem).append(" at offset ").append(String.valueOf(_offset)).append('\n');
+    }
+
+    /**
+     * @param _in the stream
+     * @param _first first byte of the length
+     * @return the length of the next record, -1 at the end
+     * @throws IOException on error
+     */
+    private static long readLength(final Input _in,
+                                   final int _first)
+        throws IOException
+    {
+        long ret = _first & 0x7F;
+        int shift = 7;
+        int value = _first;
+        while ((value & 0x80) != 0 && shift < 64) {
+            value = _in.read();
+            if (value < 0) {
+                return -1;
+            }
+            ret |= (long) (value & 0x7F) << shift;
+            shift += 7;
+        }
+        return ret;
+    }
+
+    /**
+     * The segment, counting the bytes read.
+     */
+    private static final class Input
+    {
+
+        /** The buffered segment. */
+        private final InputStream in;
+
+        /** Number of bytes read. */
+        private long position;
+
+        private Input(final InputStream _in)
+        {
+            this.in = new BufferedInputStream(_in, 64 * 1024);
+        }
+
+        private int read()
+            throws IOException
+        {
+            final int ret = this.in.read();
+            if (ret >= 0) {
+                this.position++;
+            }
+            return ret;
+        }
+
+        private int readNBytes(final byte[] _bytes,
+                               final int _length)
+            throws IOException
+        {
+            final int ret = this.in.readNBytes(_bytes, 0, _length);
+            this.position += ret;
+            return ret;
+        }
+
+        /**
+         * @return the first byte that is not zero, -1 at the end
+         * @throws IOException on error
+         */
+        private int skipZeros()
+            throws IOException
+        {
+            int ret;
+            do {
+                ret = read();
+            } while (ret == 0);
+            return ret;
+        }
+    }
+
+    /**
+     * Reader of one record.
+     */
+    private static final class Reader
+    {
+
+        /** The record. */
+        private final byte[] data;
+
+        /** Length of the record. */
+        private final int length;
+
+        /** Current position. */
+        private int pos;
+
+        private Reader(final byte[] _data,
+                       final int _length)
+        {
+            this.data = _data;
+            this.length = _length;
+        }
+
+        private int readByte()
+            throws EOFException
+        {
+            if (this.pos >= this.length) {
+                throw new EOFException();
+            }
+            return this.data[this.pos++];
+        }
+
+        private long readVarLong()
+            throws EOFException
+        {
+            long ret = 0;
+            int shift = 0;
+            int value;
+            do {
+                value = readByte();
+                ret |= (long) (value & 0x7F) << shift;
+                shift += 7;
+            } while ((value & 0x80) != 0);
+            return ret;
+        }
+
+        private String readString()
+            throws EOFException
+        {
+            final int size = (int) readVarLong();
+            if (size < 0 || this.pos + size > this.length) {
+                throw new EOFException();
+            }
+            final String ret = new String(this.data, this.pos, size, StandardCharsets.UTF_8);
+            this.pos += size;
+            return ret;
+        }
+
+        private String readReference(final Map<Long, String> _dictionary)
+            throws EOFException
+        {
+            final long id = readVarLong();
+            final String ret;
+            if (id == BinaryEventEncoder.INLINE) {
+                ret = readString();
+            } else {
+                ret = _dictionary.getOrDefault(id, "#" + id);
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+
+/**
+ * Compact binary encoding of events for a {@link MappedLog}. Message
+ * templates, logger names, thread names, levels and MDC keys are written
+ * once per segment as a definition record and referenced by a numeric id
+ * after that. The arguments of the message are written separately, so the
+ * message is never formatted when logging.
+ * <p>
+ * Every record is prefixed with its length as variable length integer. A
+ * definition is published to other threads only after the record defining
+ * it was written, so a reference is always preceded by its definition in the
+ * same segment and every segment can be decoded on its own by
+ * {@link BinaryEventDecoder}. The dictionary is reset with each segment.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("6f6c00c8-6367-4032-a04b-071ee04ffa46")
+@EFapsApplication("eFapsApp-Logback")
+public final class BinaryEventEncoder
+{
+
+    /** Type of a definition record. */
+    public static final byte DEFINITION = 'D';
+
+    /** Type of an event record. */
+    public static final byte EVENT = 'E';
+
+    /** Kind of definition: message template. */
+    public static final int TEMPLATE = 0;
+
+    /** Kind of definition: name of a logger. */
+    public static final int LOGGER = 1;
+
+    /** Kind of definition: name of a thread. */
+    public static final int THREAD = 2;
+
+    /** Kind of definition: name of a level. */
+    public static final int LEVEL = 3;
+
+    /** Kind of definition: key of the MDC. */
+    public static final int MDCKEY = 4;
+
+    /** Id marking a value written inline instead of a reference. */
+    public static final int INLINE = 0;
+
+    /** Maximum number of definitions per kind and segment. */
+    private static final int MAXDEFINITIONS = 100_000;
+
+    /** Dictionary of the current segment. */
+    private final AtomicReference<Dictionary> dictionary = new AtomicReference<>(new Dictionary(-1));
+
+    /** Buffers of the encoding thread. */
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Encode an event and write it to the log.
+     *
+     * @param _log log to write to
+     * @param _accessor accessor to Logback
+     * @param _event the logging event
+     * @throws EFapsException on error
+     */
+    public void write(final MappedLog _log,
+                      final LogbackAccessor _accessor,
+                      final Object _event)
+        throws EFapsException
+    {
+        write(_log, _accessor.getEventTimeStamp(_event), String.valueOf(_accessor.getEventLevel(_event)),
+                        _accessor.getEventLoggerName(_event), _accessor.getEventThreadName(_event),
+                        _accessor.getEventMessage(_event), _accessor.getEventArguments(_event),
+                        _accessor.getEventMdc(_event), _accessor.getEventThrowable(_event));
+    }
+
+    /**
+     * Encode an event and write it to the log.
+     *
+     * @param _log log to write to
+     * @param _timestamp time of the event
+     * @param _level name of the level
+     * @param _logger name of the logger
+     * @param _thread name of the thread
+     * @param _template message template
+     * @param _arguments arguments of the message, maybe null
+     * @param _mdc MDC of the event
+     * @param _throwable formatted throwable, maybe null
+     */
+    public void write(final MappedLog _log,
+                      final long _timestamp,
+                      final String _level,
+                      final String _logger,
+                      final String _thread,
+                      final String _template,
+                      final Object[] _arguments,
+                      final Map<String, String> _mdc,
+                      final String _throwable)
+    {
+        final Scratch buffers = this.scratch.get();
+        boolean written = false;
+        while (!written) {
+            final int generation = _log.getGeneration();
+            Dictionary dict = this.dictionary.get();
+            // only a newer segment replaces the dictionary, a writer that read
+            // an outdated generation uses the dictionary of the newer one
+            while (dict.generation < generation) {
+                final Dictionary fresh = new Dictionary(generation);
+                dict = this.dictionary.compareAndSet(dict, fresh) ? fresh : this.dictionary.get();
+            }
+            buffers.reset();
+            final Buffer event = buffers.event;
+            event.writeByte(EVENT);
+            event.writeVarLong(_timestamp);
+            reference(buffers, dict, LEVEL, _level);
+            reference(buffers, dict, LOGGER, _logger);
+            reference(buffers, dict, THREAD, _thread);
+            reference(buffers, dict, TEMPLATE, _template == null ? "null" : _template);
+            final int count = _arguments == null ? 0 : _arguments.length;
+            event.writeVarLong(count);
+            for (int i = 0; i < count; i++) {
+                event.writeString(render(_arguments[i]));
+            }
+            event.writeVarLong(_mdc.size());
+            for (final var entry : _mdc.entrySet()) {
+                reference(buffers, dict, MDCKEY, entry.getKey());
+                event.writeString(entry.getValue());
+            }
+            event.writeByte(_throwable == null ? 0 : 1);
+            if (_throwable != null) {
+                event.writeString(_throwable);
+            }
+            buffers.out.writeRecord(event);
+            // the segment is fixed, definitions must precede their use in it
+            written = _log.write(buffers.out.data, buffers.out.length, dict.generation);
+            if (written) {
+                dict.publish(buffers);
+            }
+        }
+    }
+
+    /**
+     * Write the reference to a value into the event. A value not defined yet
+     * gets a new id and its definition is written before the event. If the
+     * dictionary is full, the value is written inline.
+     *
+     * @param _buffers buffers of the thread
+     * @param _dict dictionary of the segment
+     * @param _kind kind of the value
+     * @param _value the value
+     */
+    private void reference(final Scratch _buffers,
+                           final Dictionary _dict,
+                           final int _kind,
+                           final String _value)
+    {
+        Integer ret = _dict.ids.get(_kind).get(_value);
+        if (ret == null) {
+            ret = _buffers.pending(_kind, _value);
+        }
+        if (ret == null && _dict.ids.get(_kind).size() < MAXDEFINITIONS) {
+            ret = _dict.next.getAndIncrement();
+            final Buffer definition = _buffers.definition;
+            definition.length = 0;
+            definition.writeByte(DEFINITION);
+            definition.writeByte(_kind);
+            definition.writeVarLong(ret);
+            definition.writeString(_value);
+            _buffers.out.writeRecord(definition);
+            _buffers.kinds.add(_kind);
+            _buffers.values.add(_value);
+            _buffers.ids.add(ret);
+        }
+        if (ret == null) {
+            _buffers.event.writeVarLong(INLINE);
+            _buffers.event.writeString(_value);
+        } else {
+            _buffers.event.writeVarLong(ret);
+        }
+    }
+
+    /**
+     * @param _argument argument of a message
+     * @return the argument as String, as rendered by Logback
+     */
+    private static String render(final Object _argument)
+    {
+        String ret;
+        try {
+            if (_argument == null) {
+                ret = "null";
+            } else if (_argument.getClass().isArray()) {
+                ret = Arrays.deepToString(new Object[] { _argument });
+                ret = ret.substring(1, ret.length() - 1);
+            } else {
+                ret = _argument.toString();
+            }
+        } catch (final RuntimeException e) {
+            ret = "[FAILED toString()]";
+        }
+        return ret;
+    }
+
+    /**
+     * Dictionary of one segment.
+     */
+    private static final class Dictionary
+    {
+
+        /** Index of the segment. */
+        private final int generation;
+
+        /** Ids by value, one map per kind. */
+        private final List<Map<String, Integer>> ids = new ArrayList<>();
+
+        /** Next id. */
+        private final AtomicInteger next = new AtomicInteger(INLINE + 1);
+
+        private Dictionary(final int _generation)
+        {
+            this.generation = _generation;
+            for (int i = TEMPLATE; i <= MDCKEY; i++) {
+                this.ids.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        /**
+         * Publish the definitions written by a thread.
+         *
+         * @param _buffers buffers of the thread
+         */
+        private void publish(final Scratch _buffers)
+        {
+            for (int i = 0; i < _buffers.ids.size(); i++) {
+                this.ids.get(_buffers.kinds.get(i)).putIfAbsent(_buffers.values.get(i), _buffers.ids.get(i));
+            }
+        }
+    }
+
+    /**
+     * Buffers of one thread.
+     */
+    private static final class Scratch
+    {
+
+        /** The records to write. */
+        private final Buffer out = new Buffer();
+
+        /** The event record. */
+        private final Buffer event = new Buffer();
+
+        /** A definition record. */
+        private final Buffer definition = new Buffer();
+
+        /** Kinds of the definitions written for the event. */
+        private final List<Integer> kinds = new ArrayList<>();
+
+        /** Values of the definitions written for the event. */
+        private final List<String> values = new ArrayList<>();
+
+        /** Ids of the definitions written for the event. */
+        private final List<Integer> ids = new ArrayList<>();
+
+        private void reset()
+        {
+            this.out.length = 0;
+            this.event.length = 0;
+            this.kinds.clear();
+            this.values.clear();
+            this.ids.clear();
+        }
+
+        /**
+         * @param _kind kind of the value
+         * @param _value the value
+         * @return id of a definition already written for the event, else null
+         */
+        private Integer pending(final int _kind,
+                                final String _value)
+        {
+            Integer ret = null;
+            for (int i = 0; ret == null && i < this.ids.size(); i++) {
+                if (this.kinds.get(i) == _kind && this.values.get(i).equals(_value)) {
+                    ret = this.ids.get(i);
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Growing byte array.
+     */
+    private static final class Buffer
+    {
+
+        /** The bytes. */
+        private byte[] data = new byte[256];
+
+        /** Number of bytes used. */
+        private int length;
+
+        private void ensure(final int _more)
+        {
+            if (this.length + _more > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(this.length + _more, this.data.length * 2));
+            }
+        }
+
+        private void writeByte(final int _value)
+        {
+            ensure(1);
+            this.data[this.length++] = (byte) _value;
+        }
+
+        private void writeVarLong(final long _value)
+        {
+            ensure(10);
+            long rest = _value;
+            while ((rest & ~0x7FL) != 0) {
+                this.data[this.length++] = (byte) (rest & 0x7F | 0x80);
+                rest >>>= 7;
+            }
+            this.data[this.length++] = (byte) rest;
+        }
+
+        private void writeString(final String _value)
+        {
+            final byte[] bytes = _value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, this.data, this.length, bytes.length);
+            this.length += bytes.length;
+        }
+
+        private void writeRecord(final Buffer _record)
+        {
+            writeVarLong(_record.length);
+            ensure(_record.length);
+            System.arraycopy(_record.data, 0, this.data, this.length, _record.length);
+            this.length += _record.length;
+        }
+    }
+}
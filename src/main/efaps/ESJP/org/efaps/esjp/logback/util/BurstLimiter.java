@@ -0,0 +1,320 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Suppresses bursts of similar events. A limit set for a logger applies to
+ * the logger and its descendants. The events of a logger are grouped by
+ * their message pattern, and every group has a token bucket, implemented
+ * as generic cell rate algorithm on one <code>AtomicLong</code>, allowing
+ * the configured rate with the configured burst. Events exceeding it are
+ * denied by the {@link EventFilter}, before Logback creates them. Once a
+ * group is below its limit again, one summary line with the number of
+ * suppressed events is logged.
+ * <p>
+ * The buckets are bounded: groups beyond {@link #MAXBUCKETS} are not
+ * limited, idle buckets are evicted. Once its bucket exists the decision
+ * for an event does not allocate, and the filter asking for it does not
+ * either. As the filter is asked once per call of a logger, every event
+ * takes one token, whatever number of appenders it reaches.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("6fdf9cbc-9b37-4576-a2e9-900bc13fc91b")
+@EFapsApplication("eFapsApp-Logback")
+public final class BurstLimiter
+{
+
+    /** Maximum number of buckets. */
+    public static final int MAXBUCKETS = 10_000;
+
+    /** Buckets idle for this time are evicted. */
+    private static final long IDLE = TimeUnit.MINUTES.toNanos(1);
+
+    /** Order of the limiter among the deciders of the {@link EventFilter}. */
+    private static final int ORDER = 100;
+
+    /** Resolved to loggers without limit. */
+    private static final Limit NONE = new Limit(0, 0);
+
+    /** Configured limits by name of the logger. */
+    private static final Map<String, Limit> LIMITS = new ConcurrentHashMap<>();
+
+    /** Limits resolved for the loggers of the events. */
+    private static final Map<String, Limit> RESOLVED = new ConcurrentHashMap<>();
+
+    /** Buckets by name of the logger, then by message pattern. */
+    private static final Map<String, Map<String, Bucket>> BUCKETS = new ConcurrentHashMap<>();
+
+    /** Number of buckets. */
+    private static final AtomicInteger SIZE = new AtomicInteger();
+
+    /** Message of the summary, which is not limited. */
+    private static final String SUMMARY = "suppressed {} similar events: {}";
+
+    /** Are limits set. */
+    private static volatile boolean ACTIVE;
+
+    /** Task logging the summaries and evicting the buckets. */
+    private static ScheduledFuture<?> SWEEP;
+
+    /**
+     * Singleton.
+     */
+    private BurstLimiter()
+    {
+    }
+
+    /**
+     * @return true if limits are set
+     */
+    public static boolean isActive()
+    {
+        return ACTIVE;
+    }
+
+    /**
+     * Set the limit for a logger and its descendants.
+     *
+     * @param _name name of the logger
+     * @param _rate events per second, 0 or less to remove the limit
+     * @param _burst events allowed in a burst
+     * @throws EFapsException on error
+     */
+    public static synchronized void setLimit(final String _name,
+                                             final double _rate,
+                                             final int _burst)
+        throws EFapsException
+    {
+        if (_rate > 0) {
+            LIMITS.put(_name, new Limit(_rate, Math.max(1, _burst)));
+        } else {
+            LIMITS.remove(_name);
+        }
+        RESOLVED.clear();
+        ACTIVE = !LIMITS.isEmpty();
+        if (ACTIVE && SWEEP == null) {
+            EventFilter.register(LogbackAccessor.get(), BurstLimiter.class.getName(), ORDER, BurstLimiter::decide);
+            SWEEP = LogbackScheduler.scheduleAtFixedRate(BurstLimiter::sweep, 1, TimeUnit.SECONDS);
+        } else if (!ACTIVE && SWEEP != null) {
+            EventFilter.unregister(LogbackAccessor.get(), BurstLimiter.class.getName());
+            SWEEP.cancel(false);
+            SWEEP = null;
+            sweep();
+            BUCKETS.clear();
+            SIZE.set(0);
+        }
+    }
+
+    /**
+     * @param _name name of the logger
+     * @return the rate set for the logger, null if none
+     */
+    public static Double getRate(final String _name)
+    {
+        final Limit limit = LIMITS.get(_name);
+        return limit == null ? null : limit.rate;
+    }
+
+    /**
+     * @param _name name of the logger
+     * @return the burst set for the logger, null if none
+     */
+    public static Integer getBurst(final String _name)
+    {
+        final Limit limit = LIMITS.get(_name);
+        return limit == null ? null : limit.burst;
+    }
+
+    /**
+     * Decide on a call of a logger, the {@link EventFilter.Decider} of the
+     * limiter.
+     *
+     * @param _loggerName name of the logger
+     * @param _level level of the call
+     * @param _format message pattern
+     * @return {@link EventFilter#DENY} if the event is suppressed, else
+     *         {@link EventFilter#NEUTRAL}
+     */
+    public static int decide(final String _loggerName,
+                             final Object _level,
+                             final String _format)
+    {
+        int ret = EventFilter.NEUTRAL;
+        final Limit limit = ACTIVE ? resolve(_loggerName) : NONE;
+        if (limit != NONE && !SUMMARY.equals(_format)) {
+            Map<String, Bucket> buckets = BUCKETS.get(_loggerName);
+            if (buckets == null) {
+                buckets = BUCKETS.computeIfAbsent(_loggerName, name -> new ConcurrentHashMap<>());
+            }
+            Bucket bucket = buckets.get(_format);
+            if (bucket == null && SIZE.get() < MAXBUCKETS) {
+                bucket = buckets.computeIfAbsent(_format, key -> {
+                    SIZE.incrementAndGet();
+                    return new Bucket();
+                });
+            }
+            if (bucket != null && !bucket.acquire(limit, System.nanoTime())) {
+                ret = EventFilter.DENY;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _loggerName name of the logger
+     * @return the limit of the logger or its nearest ancestor, NONE if there
+     *         is none
+     */
+    private static Limit resolve(final String _loggerName)
+    {
+        Limit ret = RESOLVED.get(_loggerName);
+        if (ret == null) {
+            String name = _loggerName;
+            while (ret == null && name != null) {
+                ret = LIMITS.get(name);
+                name = LoggerTree.getParent(name);
+            }
+            if (ret == null) {
+                ret = NONE;
+            }
+            RESOLVED.put(_loggerName, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Log the summaries for the groups that are below their limit again and
+     * evict the idle buckets.
+     */
+    private static void sweep()
+    {
+        final long now = System.nanoTime();
+        for (final var loggerEntry : BUCKETS.entrySet()) {
+            final Iterator<Map.Entry<String, Bucket>> iter = loggerEntry.getValue().entrySet().iterator();
+            while (iter.hasNext()) {
+                final Map.Entry<String, Bucket> entry = iter.next();
+                final Bucket bucket = entry.getValue();
+                final long suppressed = bucket.suppressed.sum();
+                if (suppressed > 0 && (!ACTIVE || bucket.tat.get() <= now)) {
+                    bucket.suppressed.add(-suppressed);
+                    summary(loggerEntry.getKey(), entry.getKey(), suppressed);
+                } else if (suppressed == 0 && now - bucket.tat.get() > IDLE) {
+                    iter.remove();
+                    SIZE.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Log the summary, bypassing the limits.
+     *
+     * @param _loggerName name of the logger
+     * @param _pattern message pattern
+     * @param _suppressed number of suppressed events
+     */
+    private static void summary(final String _loggerName,
+                                final String _pattern,
+                                final long _suppressed)
+    {
+        LoggerFactory.getLogger(_loggerName).warn(SUMMARY, _suppressed, _pattern);
+    }
+
+    /**
+     * A limit.
+     */
+    private static final class Limit
+    {
+
+        /** Allowed events per second. */
+        private final double rate;
+
+        /** Events allowed at once above the rate. */
+        private final int burst;
+
+        /** Nanoseconds per event. */
+        private final long interval;
+
+        /** Tolerance of the cell rate algorithm. */
+        private final long tolerance;
+
+        /**
+         * @param rate allowed events per second
+         * @param burst events allowed at once above the rate
+         */
+        private Limit(final double rate,
+                      final int burst)
+        {
+            this.rate = rate;
+            this.burst = burst;
+            this.interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+            this.tolerance = this.interval * burst;
+        }
+    }
+
+    /**
+     * Token bucket of one group.
+     */
+    private static final class Bucket
+    {
+
+        /** Theoretical arrival time of the next event. */
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+        /** Events suppressed since the last summary. */
+        private final LongAdder suppressed = new LongAdder();
+
+        /**
+         * @param limit limit to apply
+         * @param now current time
+         * @return true if the event is allowed
+         */
+        private boolean acquire(final Limit limit,
+                                final long now)
+        {
+            boolean ret = false;
+            boolean done = false;
+            while (!done) {
+                final long current = this.tat.get();
+                final long next = Math.max(current - now, 0) + now + limit.interval;
+                if (next - now > limit.tolerance) {
+                    this.suppressed.increment();
+                    done = true;
+                } else if (this.tat.compareAndSet(current, next)) {
+                    ret = true;
+                    done = true;
+                }
+            }
+            return ret;
+        }
+    }
+}
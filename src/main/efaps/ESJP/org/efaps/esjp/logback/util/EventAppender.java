@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appender implemented by this module. As Logback is only accessed by
+ * reflection, the appender is a proxy of the Appender interface that passes
+ * the events to a {@link Handler}. The appenders of the module are not part
+ * of the configuration and are kept by {@link LogbackReloader}.
+ * <p>
+ * An appender that must see every event that reaches an appender exactly
+ * once is attached by {@link #attachToTop} to the root logger and to every
+ * logger that is not additive. As the additivity changes with a reload, or
+ * by code, the attachments are synchronized after each reload and every
+ * minute.
+ * </p>
+ * <p>
+ * A failure of the handler never reaches the logging code, like in
+ * Logback's own appenders. Only the first failure of an appender is
+ * reported, as the report is an event passing the appender again.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("ff21206d-aa69-48ef-a366-c1e472c45677")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventAppender
+    implements InvocationHandler
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventAppender.class);
+
+    /** Interval of the synchronization of the top appenders in minutes. */
+    private static final long TOPSYNC = 1;
+
+    /** Top appenders by name, guarded by the class. */
+    private static final Map<String, Top> TOP = new HashMap<>();
+
+    /** The task synchronizing the top appenders, guarded by the class. */
+    private static ScheduledFuture<?> SYNCER;
+
+    /** Name of the appender. */
+    private final String name;
+
+    /** Handler of the events. */
+    private final Handler handler;
+
+    /** Set with the first failure of the handler. */
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    /**
+     * @param _name name of the appender
+     * @param _handler handler of the events
+     */
+    private EventAppender(final String _name,
+                          final Handler _handler)
+    {
+        this.name = _name;
+        this.handler = _handler;
+    }
+
+    @Override
+    public Object invoke(final Object _proxy,
+                         final Method _method,
+                         final Object[] _args)
+        throws Throwable
+    {
+        Object ret = null;
+        switch (_method.getName()) {
+            case "doAppend":
+                try {
+                    this.handler.append(_args[0]);
+                } catch (final Throwable e) {
+                    if (this.failed.compareAndSet(false, true)) {
+                        LOG.error("Appender '{}' failed, further failures are not reported", this.name, e);
+                    }
+                }
+                break;
+            case "stop":
+                this.handler.stop();
+                break;
+            case "getName":
+                ret = this.name;
+                break;
+            case "isStarted":
+                ret = true;
+                break;
+            case "equals":
+                ret = _proxy == _args[0];
+                break;
+            case "hashCode":
+                ret = System.identityHashCode(_proxy);
+                break;
+            case "toString":
+                ret = this.name;
+                break;
+            default:
+                if (_method.getReturnType() == boolean.class) {
+                    ret = false;
+                } else if (_method.getReturnType() == int.class) {
+                    ret = 0;
+                }
+                break;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _name name of the appender
+     * @param _handler handler of the events
+     * @return the appender
+     * @throws EFapsException on error
+     */
+    public static Object create(final LogbackAccessor _accessor,
+                                final String _name,
+                                final Handler _handler)
+        throws EFapsException
+    {
+        final ClassLoader loader = _accessor.getContext().getClass().getClassLoader();
+        try {
+            return Proxy.newProxyInstance(loader,
+                            new Class<?>[] { Class.forName(LogbackAccessor.APPENDER, false, loader) },
+                            new EventAppender(_name, _handler));
+        } catch (final ClassNotFoundException e) {
+            throw new EFapsException(EventAppender.class, "create", e);
+        }
+    }
+
+    /**
+     * Attach an appender to the root logger and to every logger that is not
+     * additive, and keep it attached so while the additivity changes.
+     *
+     * @param _accessor accessor to Logback
+     * @param _appender appender to attach
+     * @throws EFapsException on error
+     */
+    public static synchronized void attachToTop(final LogbackAccessor _accessor,
+                                                final Object _appender)
+        throws EFapsException
+    {
+        final Top top = new Top(_accessor.getAppenderName(_appender), _appender);
+        TOP.put(top.name, top);
+        sync(_accessor, top);
+        if (SYNCER == null) {
+            SYNCER = LogbackScheduler.scheduleAtFixedRate(() -> {
+                try {
+                    syncTop(LogbackAccessor.get());
+                } catch (final EFapsException e) {
+                    LOG.error("Catched", e);
+                }
+            }, TOPSYNC, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Detach an appender attached by {@link #attachToTop}. The appender is
+     * detached by name, as the instrumentation may have wrapped it.
+     *
+     * @param _accessor accessor to Logback
+     * @param _name name of the appender
+     * @throws EFapsException on error
+     */
+    public static synchronized void detachFromTop(final LogbackAccessor _accessor,
+                                                  final String _name)
+        throws EFapsException
+    {
+        final Top top = TOP.remove(_name);
+        if (TOP.isEmpty() && SYNCER != null) {
+            SYNCER.cancel(false);
+            SYNCER = null;
+        }
+        if (top != null) {
+            for (final Object logger : top.loggers) {
+                _accessor.detachAppender(logger, _name);
+            }
+        }
+    }
+
+    /**
+     * Attach the top appenders to the loggers that became non additive and
+     * detach them from the loggers that became additive.
+     *
+     * @param _accessor accessor to Logback
+     * @throws EFapsException on error
+     */
+    public static synchronized void syncTop(final LogbackAccessor _accessor)
+        throws EFapsException
+    {
+        for (final Top top : TOP.values()) {
+            sync(_accessor, top);
+        }
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _top appender to synchronize
+     * @throws EFapsException on error
+     */
+    private static void sync(final LogbackAccessor _accessor,
+                             final Top _top)
+        throws EFapsException
+    {
+        for (final Object logger : _accessor.getLoggerList()) {
+            final boolean top = LoggerTree.ROOT.equals(_accessor.getName(logger)) || !_accessor.isAdditive(logger);
+            if (top && _top.loggers.add(logger)) {
+                _accessor.addAppender(logger, _top.appender);
+            } else if (!top && _top.loggers.remove(logger)) {
+                _accessor.detachAppender(logger, _top.name);
+            }
+        }
+    }
+
+    /**
+     * @param _appender appender, maybe wrapped by an {@link AppenderProxy}
+     * @return true if the appender is implemented by this module
+     */
+    public static boolean isEventAppender(final Object _appender)
+    {
+        final Object appender = AppenderProxy.unwrap(_appender);
+        return appender != null && Proxy.isProxyClass(appender.getClass())
+                        && Proxy.getInvocationHandler(appender) instanceof EventAppender;
+    }
+
+    /**
+     * An appender attached to the top loggers.
+     */
+    private static final class Top
+    {
+
+        /** Name of the appender. */
+        private final String name;
+
+        /** The appender. */
+        private final Object appender;
+
+        /** Loggers the appender is attached to. */
+        private final Set<Object> loggers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Top(final String _name,
+                    final Object _appender)
+        {
+            this.name = _name;
+            this.appender = _appender;
+        }
+    }
+
+    /**
+     * Handler of the events of an appender.
+     */
+    @FunctionalInterface
+    public interface Handler
+    {
+
+        /**
+         * @param _event the logging event
+         * @throws Throwable on error
+         */
+        void append(Object _event)
+            throws Throwable;
+
+        /**
+         * Called if Logback stops the appender, e.g. on shutdown.
+         *
+         * @throws Throwable on error
+         */
+        default void stop()
+            throws Throwable
+        {
+        }
+    }
+}
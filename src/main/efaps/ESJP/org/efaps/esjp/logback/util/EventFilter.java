@@ -0,0 +1,441 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+
+/**
+ * TurboFilter implemented by this module. Logback asks the turbo filters
+ * before it creates an event, so a decision taken here costs neither the
+ * event nor a call of the appenders. As TurboFilter is an abstract class of
+ * Logback, a dynamic proxy can not implement it. Instead a minimal subclass
+ * is defined as hidden class in the package of Logback, whose
+ * <code>decide</code> passes its arguments by <code>invokeExact</code> to a
+ * {@link MethodHandle} of this class. The handle only drops and casts
+ * arguments, so a call allocates nothing.
+ * <p>
+ * The module installs one filter, first in the list of the turbo filters,
+ * that asks the registered {@link Decider}s in their order. The deciders see
+ * only the calls with a message at or above the effective level of the
+ * logger, i.e. the events Logback would create. Calls enabled only by a
+ * later turbo filter, e.g. a debug rule, are not seen.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("40339d79-7ed9-4fd4-90b5-fa90ad3a7e19")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventFilter
+{
+
+    /** Deny the event. */
+    public static final int DENY = 0;
+
+    /** Leave the decision to the next filter. */
+    public static final int NEUTRAL = 1;
+
+    /** Accept the event. */
+    public static final int ACCEPT = 2;
+
+    /** Name of the installed filter. */
+    public static final String NAME = "eFapsEventFilter";
+
+    /** Name of the TurboFilter class. */
+    private static final String TURBOFILTER = "ch.qos.logback.classic.turbo.TurboFilter";
+
+    /** Name of the FilterReply enum. */
+    private static final String REPLY = "ch.qos.logback.core.spi.FilterReply";
+
+    /** Name of the Marker interface. */
+    private static final String MARKER = "org.slf4j.Marker";
+
+    /** Internal name of the defined subclass, in the package of TurboFilter. */
+    private static final String SUBCLASS = "ch/qos/logback/classic/turbo/EFapsEventFilter";
+
+    /** Registered deciders, guarded by the class. */
+    private static final List<Registration> REGISTRATIONS = new ArrayList<>();
+
+    /** The deciders in their order, read for every call. */
+    private static volatile Decider[] CHAIN = new Decider[0];
+
+    /** Accessor of the context the filter is installed in. */
+    private static volatile LogbackAccessor ACCESSOR;
+
+    /** The installed filter, null if none, guarded by the class. */
+    private static Object FILTER;
+
+    /**
+     * Singleton.
+     */
+    private EventFilter()
+    {
+    }
+
+    /**
+     * Register a decider and install the filter if it is the first one. A
+     * decider registered under the same name is replaced.
+     *
+     * @param _accessor accessor to Logback
+     * @param _name name of the decider
+     * @param _order deciders with a lower order are asked first
+     * @param _decider the decider
+     * @throws EFapsException on error
+     */
+    public static synchronized void register(final LogbackAccessor _accessor,
+                                             final String _name,
+                                             final int _order,
+                                             final Decider _decider)
+        throws EFapsException
+    {
+        REGISTRATIONS.removeIf(registration -> registration.name.equals(_name));
+        REGISTRATIONS.add(new Registration(_name, _order, _decider));
+        REGISTRATIONS.sort(Comparator.comparingInt(registration -> registration.order));
+        update();
+        sync(_accessor);
+    }
+
+    /**
+     * Unregister a decider and remove the filter if it was the last one.
+     *
+     * @param _accessor accessor to Logback
+     * @param _name name of the decider
+     * @throws EFapsException on error
+     */
+    public static synchronized void unregister(final LogbackAccessor _accessor,
+                                               final String _name)
+        throws EFapsException
+    {
+        REGISTRATIONS.removeIf(registration -> registration.name.equals(_name));
+        update();
+        sync(_accessor);
+    }
+
+    /**
+     * Install the filter if deciders are registered and it is missing, e.g.
+     * as the context was reset since, and remove it if none are registered.
+     *
+     * @param _accessor accessor to Logback
+     * @throws EFapsException on error
+     */
+    private static void sync(final LogbackAccessor _accessor)
+        throws EFapsException
+    {
+        final Object context = _accessor.getContext();
+        try {
+            @SuppressWarnings("unchecked")
+            final List<Object> filters = (List<Object>) context.getClass().getMethod("getTurboFilterList")
+                            .invoke(context);
+            if (REGISTRATIONS.isEmpty() && FILTER != null) {
+                filters.remove(FILTER);
+                FILTER.getClass().getMethod("stop").invoke(FILTER);
+                FILTER = null;
+                ACCESSOR = null;
+            } else if (!REGISTRATIONS.isEmpty() && (FILTER == null || !filters.contains(FILTER))) {
+                ACCESSOR = _accessor;
+                FILTER = create(context);
+                filters.add(0, FILTER);
+            }
+        } catch (final ReflectiveOperationException e) {
+            throw new EFapsException(EventFilter.class, "sync", e);
+        }
+    }
+
+    /**
+     * Publish the deciders in their order.
+     */
+    private static void update()
+    {
+        final Decider[] chain = new Decider[REGISTRATIONS.size()];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = REGISTRATIONS.get(i).decider;
+        }
+        CHAIN = chain;
+    }
+
+    /**
+     * Called by the filter for every call of a logger.
+     *
+     * @param _logger the logger
+     * @param _level the level of the call
+     * @param _format the message pattern, null if the logger was only asked
+     *            if the level is enabled
+     * @return {@link #DENY}, {@link #NEUTRAL} or {@link #ACCEPT}
+     */
+    private static int decide(final Object _logger,
+                              final Object _level,
+                              final String _format)
+    {
+        int ret = NEUTRAL;
+        final LogbackAccessor accessor = ACCESSOR;
+        if (_format != null && accessor != null) {
+            try {
+                if (accessor.toInteger(_level) >= accessor.toInteger(accessor.getEffectiveLevel(_logger))) {
+                    final String loggerName = accessor.getName(_logger);
+                    final Decider[] chain = CHAIN;
+                    for (int i = 0; ret == NEUTRAL && i < chain.length; i++) {
+                        ret = chain[i].decide(loggerName, _level, _format);
+                    }
+                }
+            } catch (final EFapsException e) {
+                ret = NEUTRAL;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Create and start the filter.
+     *
+     * @param _context the LoggerContext
+     * @return the filter
+     * @throws ReflectiveOperationException on error
+     */
+    private static Object create(final Object _context)
+        throws ReflectiveOperationException
+    {
+        final ClassLoader loader = _context.getClass().getClassLoader();
+        final Class<?> turboClass = Class.forName(TURBOFILTER, false, loader);
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final Class<Enum> replyClass = (Class<Enum>) Class.forName(REPLY, false, loader);
+        final Class<?> markerClass = Class.forName(MARKER, false, loader);
+        final MethodType type = MethodType.methodType(replyClass, markerClass,
+                        Class.forName(LogbackAccessor.LOGGER, false, loader),
+                        Class.forName(LogbackAccessor.LEVEL, false, loader), String.class, Object[].class,
+                        Throwable.class);
+
+        final Object replies = Array.newInstance(replyClass, 3);
+        Array.set(replies, DENY, Enum.valueOf(replyClass, "DENY"));
+        Array.set(replies, NEUTRAL, Enum.valueOf(replyClass, "NEUTRAL"));
+        Array.set(replies, ACCEPT, Enum.valueOf(replyClass, "ACCEPT"));
+        MethodHandle target = MethodHandles.lookup().findStatic(EventFilter.class, "decide",
+                        MethodType.methodType(int.class, Object.class, Object.class, String.class));
+        target = MethodHandles.filterReturnValue(target,
+                        MethodHandles.arrayElementGetter(replies.getClass()).bindTo(replies));
+        target = MethodHandles.dropArguments(target, 0, markerClass);
+        target = MethodHandles.dropArguments(target, 4, Object[].class, Throwable.class);
+        target = target.asType(type);
+
+        final MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(turboClass, MethodHandles.lookup())
+                            .defineHiddenClass(subclass(type.toMethodDescriptorString()), true);
+        } catch (final IOException e) {
+            throw new ReflectiveOperationException(e);
+        }
+        final Object ret;
+        try {
+            lookup.findStaticSetter(lookup.lookupClass(), "handle", MethodHandle.class).invoke(target);
+            ret = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (final ReflectiveOperationException e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new ReflectiveOperationException(e);
+        }
+        turboClass.getMethod("setName", String.class).invoke(ret, NAME);
+        turboClass.getMethod("setContext", Class.forName("ch.qos.logback.core.Context", false, loader))
+                        .invoke(ret, _context);
+        turboClass.getMethod("start").invoke(ret);
+        return ret;
+    }
+
+    /**
+     * The class file of the subclass of TurboFilter. It has a public static
+     * field <code>handle</code> and a <code>decide</code> that returns
+     * <code>handle.invokeExact(marker, logger, level, format, params, t)</code>.
+     * The code has no branches, so the class file needs no stack map frames.
+     *
+     * @param _descriptor descriptor of <code>decide</code>
+     * @return the class file
+     * @throws IOException on error
+     */
+    private static byte[] subclass(final String _descriptor)
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        // Java 8, the oldest version without stack map frames for straight code
+        out.writeShort(0);
+        out.writeShort(52);
+        out.writeShort(21);
+        // #1 #2 this class
+        utf8(out, SUBCLASS);
+        out.writeByte(7);
+        out.writeShort(1);
+        // #3 #4 super class
+        utf8(out, TURBOFILTER.replace('.', '/'));
+        out.writeByte(7);
+        out.writeShort(3);
+        // #5 #6 MethodHandle
+        utf8(out, "java/lang/invoke/MethodHandle");
+        out.writeByte(7);
+        out.writeShort(5);
+        // #7 #8 #9 #10 field handle
+        utf8(out, "handle");
+        utf8(out, "Ljava/lang/invoke/MethodHandle;");
+        out.writeByte(12);
+        out.writeShort(7);
+        out.writeShort(8);
+        out.writeByte(9);
+        out.writeShort(2);
+        out.writeShort(9);
+        // #11 #12 #13 #14 constructor of the super class
+        utf8(out, "<init>");
+        utf8(out, "()V");
+        out.writeByte(12);
+        out.writeShort(11);
+        out.writeShort(12);
+        out.writeByte(10);
+        out.writeShort(4);
+        out.writeShort(13);
+        // #15 #16 decide
+        utf8(out, "decide");
+        utf8(out, _descriptor);
+        // #17 #18 #19 MethodHandle.invokeExact with the signature of decide
+        utf8(out, "invokeExact");
+        out.writeByte(12);
+        out.writeShort(17);
+        out.writeShort(16);
+        out.writeByte(10);
+        out.writeShort(6);
+        out.writeShort(18);
+        // #20
+        utf8(out, "Code");
+
+        // public final super, this, super, no interfaces
+        out.writeShort(0x0031);
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(0);
+
+        // public static MethodHandle handle
+        out.writeShort(1);
+        out.writeShort(0x0009);
+        out.writeShort(7);
+        out.writeShort(8);
+        out.writeShort(0);
+
+        out.writeShort(2);
+        // public constructor: aload_0, invokespecial #14, return
+        method(out, 11, 12, 1, 1, new byte[] { 0x2A, (byte) 0xB7, 0, 14, (byte) 0xB1 });
+        // public decide: getstatic #10, aload 1 to 6, invokevirtual #19, areturn
+        method(out, 15, 16, 7, 7, new byte[] { (byte) 0xB2, 0, 10, 0x2B, 0x2C, 0x2D, 0x19, 4, 0x19, 5, 0x19, 6,
+                        (byte) 0xB6, 0, 19, (byte) 0xB0 });
+
+        // no attributes
+        out.writeShort(0);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param _out output
+     * @param _value value of an Utf8 constant
+     * @throws IOException on error
+     */
+    private static void utf8(final DataOutputStream _out,
+                             final String _value)
+        throws IOException
+    {
+        _out.writeByte(1);
+        _out.writeUTF(_value);
+    }
+
+    /**
+     * @param _out output
+     * @param _name index of the name
+     * @param _descriptor index of the descriptor
+     * @param _stack maximum stack size
+     * @param _locals number of local variables
+     * @param _code byte code
+     * @throws IOException on error
+     */
+    private static void method(final DataOutputStream _out,
+                               final int _name,
+                               final int _descriptor,
+                               final int _stack,
+                               final int _locals,
+                               final byte[] _code)
+        throws IOException
+    {
+        _out.writeShort(0x0001);
+        _out.writeShort(_name);
+        _out.writeShort(_descriptor);
+        _out.writeShort(1);
+        _out.writeShort(20);
+        _out.writeInt(12 + _code.length);
+        _out.writeShort(_stack);
+        _out.writeShort(_locals);
+        _out.writeInt(_code.length);
+        _out.write(_code);
+        // no exception table, no attributes
+        _out.writeShort(0);
+        _out.writeShort(0);
+    }
+
+    /**
+     * A registered decider.
+     */
+    private static final class Registration
+    {
+
+        private final String name;
+        private final int order;
+        private final Decider decider;
+
+        private Registration(final String name,
+                             final int order,
+                             final Decider decider)
+        {
+            this.name = name;
+            this.order = order;
+            this.decider = decider;
+        }
+    }
+
+    /**
+     * Decides on the calls of the loggers. It must neither block nor
+     * throw, and should not allocate for the calls it leaves neutral.
+     */
+    @FunctionalInterface
+    public interface Decider
+    {
+
+        /**
+         * @param _loggerName name of the logger
+         * @param _level level of the call
+         * @param _format message pattern
+         * @return {@link EventFilter#DENY}, {@link EventFilter#NEUTRAL} or
+         *         {@link EventFilter#ACCEPT}
+         */
+        int decide(String _loggerName,
+                   Object _level,
+                   String _format);
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Ring of encoded events in a direct buffer of fixed size. New events
+ * overwrite the oldest ones, so the memory used never grows and the events
+ * are not visible to the garbage collector. Positions are absolute byte
+ * offsets that only grow; the position after an event is used as cursor.
+ * <p>
+ * Writers are serialized by a lock and encode into a reused array, so an
+ * appended event does not allocate. Readers do not lock: a record is copied
+ * and then discarded if a writer has overwritten it in the meantime, so a
+ * slow reader can lose events but never blocks a writer. The positions of
+ * the most recent events are kept separately, so the last events can be
+ * read without decoding the ring from its start.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("45387423-58f0-4a46-9a6b-1370ca874ee1")
+@EFapsApplication("eFapsApp-Logback")
+public final class EventRing
+{
+
+    /** Length of the header: length, time, level and length of the logger. */
+    private static final int HEADER = 4 + 8 + 4 + 2;
+
+    /** Maximum number of characters of the name of the logger. */
+    private static final int MAXLOGGER = 1024;
+
+    /** Number of positions of recent events kept. */
+    private static final int RECENT = 4096;
+
+    /** The buffer. */
+    private final ByteBuffer buffer;
+
+    /** Size of the buffer in bytes. */
+    private final int capacity;
+
+    /** Serializes the writers. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Record under construction. Guarded by the lock. */
+    private byte[] scratch = new byte[1024];
+
+    /** Positions of the recent events by number of the event modulo RECENT. */
+    private final AtomicLongArray recent = new AtomicLongArray(RECENT);
+
+    /** Number of events appended. */
+    private volatile long appended;
+
+    /** Position of the oldest record. */
+    private volatile long start;
+
+    /** Position after the newest record. */
+    private volatile long end;
+
+    /**
+     * @param _capacity size of the buffer in bytes, at least 64 KB
+     */
+    public EventRing(final int _capacity)
+    {
+        this.capacity = Math.max(_capacity, 64 * 1024);
+        this.buffer = ByteBuffer.allocateDirect(this.capacity);
+    }
+
+    /**
+     * @return size of the buffer in bytes
+     */
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @return position of the oldest event
+     */
+    public long getStart()
+    {
+        return this.start;
+    }
+
+    /**
+     * @return position after the newest event
+     */
+    public long getEnd()
+    {
+        return this.end;
+    }
+
+    /**
+     * Append an event, overwriting the oldest events if necessary. A text
+     * longer than a quarter of the buffer is truncated.
+     *
+     * @param _timestamp time of the event
+     * @param _level integer value of the level
+     * @param _logger name of the logger
+     * @param _text the formatted event
+     * @return position of the event
+     */
+    public long append(final long _timestamp,
+                       final int _level,
+                       final String _logger,
+                       final String _text)
+    {
+        this.lock.lock();
+        try {
+            final int loggerChars = Math.min(_logger.length(), MAXLOGGER);
+            final int textChars = Math.min(_text.length(), this.capacity / 12);
+            final int max = HEADER + 3 * (loggerChars + textChars);
+            if (this.scratch.length < max) {
+                this.scratch = new byte[Math.max(max, this.scratch.length * 2)];
+            }
+            final int loggerEnd = encode(_logger, loggerChars, HEADER);
+            final int length = encode(_text, textChars, loggerEnd);
+            putInt(0, length);
+            putLong(4, _timestamp);
+            putInt(12, _level);
+            this.scratch[16] = (byte) (loggerEnd - HEADER >> 8);
+            this.scratch[17] = (byte) (loggerEnd - HEADER);
+
+            while (this.end + length - this.start > this.capacity) {
+                this.start = this.start + getInt(this.start);
+            }
+            // readers must see the new start before the bytes are overwritten
+            VarHandle.storeStoreFence();
+            final int idx = (int) (this.end % this.capacity);
+            final int first = Math.min(length, this.capacity - idx);
+            this.buffer.put(idx, this.scratch, 0, first);
+            if (first < length) {
+                this.buffer.put(0, this.scratch, first, length - first);
+            }
+            final long ret = this.end;
+            this.end = ret + length;
+            this.recent.set((int) (this.appended % RECENT), ret);
+            this.appended = this.appended + 1;
+            return ret;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Read the events after a position. A position that was already
+     * overwritten continues with the oldest event.
+     *
+     * @param _from position to start at
+     * @param _minLevel minimum integer value of the level
+     * @param _logger prefix of the name of the logger, null for all
+     * @param _max maximum number of events passed to the consumer
+     * @param _consumer consumer of the matching events
+     * @return position after the last event read
+     */
+    public long read(final long _from,
+                     final int _minLevel,
+                     final String _logger,
+                     final int _max,
+                     final Consumer<Entry> _consumer)
+    {
+        return read(_from, Long.MAX_VALUE, _minLevel, _logger, _max, _consumer);
+    }
+
+    /**
+     * Read the last matching events. The positions of the recent events are
+     * read newest first; only if they do not contain enough matches the
+     * older events are read from the start of the ring.
+     *
+     * @param _minLevel minimum integer value of the level
+     * @param _logger prefix of the name of the logger, null for all
+     * @param _max maximum number of events passed to the consumer
+     * @param _consumer consumer of the matching events, in the order they
+     *            were logged
+     */
+    public void readLast(final int _minLevel,
+                         final String _logger,
+                         final int _max,
+                         final Consumer<Entry> _consumer)
+    {
+        final Deque<Entry> last = new ArrayDeque<>();
+        final long total = this.appended;
+        long boundary = this.end;
+        for (long i = total - 1; i >= Math.max(0, total - RECENT) && last.size() < _max; i--) {
+            final long pos = this.recent.get((int) (i % RECENT));
+            final Entry entry = pos < boundary ? get(pos) : null;
+            if (entry == null) {
+                // overwritten, in the ring or in the recent positions
+                boundary = this.start;
+                break;
+            }
+            boundary = pos;
+            if (matches(entry, _minLevel, _logger)) {
+                last.addFirst(entry);
+            }
+        }
+        if (last.size() < _max && boundary > this.start) {
+            final Deque<Entry> older = new ArrayDeque<>();
+            final int missing = _max - last.size();
+            read(this.start, boundary, _minLevel, _logger, Integer.MAX_VALUE, entry -> {
+                if (older.size() == missing) {
+                    older.removeFirst();
+                }
+                older.addLast(entry);
+            });
+            older.forEach(_consumer);
+        }
+        last.forEach(_consumer);
+    }
+
+    /**
+     * @param _from position to start at
+     * @param _to position to stop at
+     * @param _minLevel minimum integer value of the level
+     * @param _logger prefix of the name of the logger, null for all
+     * @param _max maximum number of events passed to the consumer
+     * @param _consumer consumer of the matching events
+     * @return position after the last event read
+     */
+    private long read(final long _from,
+                      final long _to,
+                      final int _minLevel,
+                      final String _logger,
+                      final int _max,
+                      final Consumer<Entry> _consumer)
+    {
+        long pos = Math.min(Math.max(_from, this.start), this.end);
+        int count = 0;
+        while (count < _max && pos < this.end && pos < _to) {
+            final int length = getInt(pos);
+            final byte[] record = length < HEADER || length > this.capacity ? null : copy(pos, length);
+            // the copy is only valid if the record was not overwritten meanwhile
+            VarHandle.acquireFence();
+            final long oldest = this.start;
+            if (oldest > pos) {
+                pos = oldest;
+            } else if (record == null) {
+                break;
+            } else {
+                final Entry entry = toEntry(pos, record);
+                pos = entry.getNext();
+                if (matches(entry, _minLevel, _logger)) {
+                    _consumer.accept(entry);
+                    count++;
+                }
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * @param _entry entry to check
+     * @param _minLevel minimum integer value of the level
+     * @param _logger prefix of the name of the logger, null for all
+     * @return true if the entry matches
+     */
+    private static boolean matches(final Entry _entry,
+                                   final int _minLevel,
+                                   final String _logger)
+    {
+        return _entry.getLevel() >= _minLevel && (_logger == null || _entry.getLogger().startsWith(_logger));
+    }
+
+    /**
+     * @param _pos position of an event
+     * @return the event, null if it was overwritten
+     */
+    public Entry get(final long _pos)
+    {
+        Entry ret = null;
+        if (_pos >= this.start && _pos < this.end) {
+            final int length = getInt(_pos);
+            final byte[] record = length < HEADER || length > this.capacity ? null : copy(_pos, length);
+            VarHandle.acquireFence();
+            if (record != null && this.start <= _pos) {
+                ret = toEntry(_pos, record);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _pos position of the record
+     * @param _record the record
+     * @return the entry
+     */
+    private Entry toEntry(final long _pos,
+                          final byte[] _record)
+    {
+        final ByteBuffer view = ByteBuffer.wrap(_record);
+        final int length = _record.length;
+        final int loggerLength = Math.min(view.getShort(16) & 0xFFFF, length - HEADER);
+        return new Entry(_pos + length, view.getLong(4), view.getInt(12),
+                        new String(_record, HEADER, loggerLength, StandardCharsets.UTF_8),
+                        new String(_record, HEADER + loggerLength, length - HEADER - loggerLength,
+                                        StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param _pos absolute position
+     * @param _length number of bytes
+     * @return copy of the bytes
+     */
+    private byte[] copy(final long _pos,
+                        final int _length)
+    {
+        final byte[] ret = new byte[_length];
+        final int idx = (int) (_pos % this.capacity);
+        final int first = Math.min(_length, this.capacity - idx);
+        this.buffer.get(idx, ret, 0, first);
+        if (first < _length) {
+            this.buffer.get(0, ret, first, _length - first);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _pos absolute position
+     * @return the integer at the position, which may wrap around the end
+     */
+    private int getInt(final long _pos)
+    {
+        int ret = 0;
+        for (int i = 0; i < 4; i++) {
+            ret = ret << 8 | this.buffer.get((int) ((_pos + i) % this.capacity)) & 0xFF;
+        }
+        return ret;
+    }
+
+    /**
+     * Encode characters of a string as UTF-8 into the scratch array.
+     *
+     * @param _value string to encode
+     * @param _chars number of characters to encode
+     * @param _offset offset in the scratch array
+     * @return offset after the encoded bytes
+     */
+    private int encode(final String _value,
+                       final int _chars,
+                       final int _offset)
+    {
+        final byte[] dest = this.scratch;
+        int pos = _offset;
+        for (int i = 0; i < _chars; i++) {
+            final char c = _value.charAt(i);
+            if (c < 0x80) {
+                dest[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[pos++] = (byte) (0xC0 | c >> 6);
+                dest[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < _chars
+                            && Character.isLowSurrogate(_value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, _value.charAt(++i));
+                dest[pos++] = (byte) (0xF0 | cp >> 18);
+                dest[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                dest[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                dest[pos++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                dest[pos++] = (byte) '?';
+            } else {
+                dest[pos++] = (byte) (0xE0 | c >> 12);
+                dest[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                dest[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * @param _offset offset in the scratch array
+     * @param _value value to write
+     */
+    private void putInt(final int _offset,
+                        final int _value)
+    {
+        for (int i = 0; i < 4; i++) {
+            this.scratch[_offset + i] = (byte) (_value >>> 24 - 8 * i);
+        }
+    }
+
+    /**
+     * @param _offset offset in the scratch array
+     * @param _value value to write
+     */
+    private void putLong(final int _offset,
+                         final long _value)
+    {
+        putInt(_offset, (int) (_value >>> 32));
+        putInt(_offset + 4, (int) _value);
+    }
+
+    /**
+     * An event read from the ring.
+     */
+    public static final class Entry
+    {
+
+        /** Position after the event. */
+        private final long next;
+
+        /** Time of the event. */
+        private final long timestamp;
+
+        /** Integer value of the level. */
+        private final int level;
+
+        /** Name of the logger. */
+        private final String logger;
+
+        /** The formatted event. */
+        private final String text;
+
+        private Entry(final long _next,
+                      final long _timestamp,
+                      final int _level,
+                      final String _logger,
+                      final String _text)
+        {
+            this.next = _next;
+            this.timestamp = _timestamp;
+            this.level = _level;
+            this.logger = _logger;
+            this.text = _text;
+        }
+
+        public long getNext()
+        {
+            return this.next;
+        }
+
+        public long getTimestamp()
+        {
+            return this.timestamp;
+        }
+
+        public int getLevel()
+        {
+            return this.level;
+        }
+
+        public String getLogger()
+        {
+            return this.logger;
+        }
+
+        public String getText()
+        {
+            return this.text;
+        }
+    }
+}
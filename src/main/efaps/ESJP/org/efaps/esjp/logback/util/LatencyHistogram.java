@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+
+/**
+ * Histogram with log-linear buckets in the style of an HdrHistogram. Every
+ * power of two is split into 16 sub buckets, so a value is reported with
+ * a relative error below 7%. Values above 2^40 share the last bucket,
+ * which reports the highest recorded value. Recording is lock-free and does
+ * not allocate.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("a3d19bce-5241-4ccf-bca8-3494b6295592")
+@EFapsApplication("eFapsApp-Logback")
+public class LatencyHistogram
+{
+
+    /** Number of bits for the sub buckets. */
+    private static final int SUB_BITS = 4;
+
+    /** Number of sub buckets per power of two. */
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /** Highest power of two that is tracked. */
+    private static final int MAX_EXPONENT = 40;
+
+    /** Number of buckets. */
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    /** The counts per bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** Number of recorded values. */
+    private final LongAdder count = new LongAdder();
+
+    /** Sum of the recorded values. */
+    private final LongAdder sum = new LongAdder();
+
+    /** Highest recorded value. */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param _value value to record, negative values are recorded as 0
+     */
+    public void record(final long _value)
+    {
+        final long value = Math.max(0, _value);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * @return highest recorded value
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the recorded values
+     */
+    public long getMean()
+    {
+        final long total = count.sum();
+        return total == 0 ? 0 : sum.sum() / total;
+    }
+
+    /**
+     * Get the value at a percentile.
+     *
+     * @param _percentile percentile between 0 and 100
+     * @return the highest value of the bucket that contains the percentile
+     */
+    public long getValueAtPercentile(final double _percentile)
+    {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long ret = 0;
+        if (total > 0) {
+            final long target = Math.max(1, (long) Math.ceil(_percentile / 100 * total));
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += snapshot[i];
+                if (cumulative >= target) {
+                    // the last bucket collects all values above the tracked range
+                    ret = i == BUCKETS - 1 ? getMax() : Math.min(upperBound(i), getMax());
+                    break;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Remove all recorded values.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * @param _value value
+     * @return index of the bucket for the value
+     */
+    protected static int index(final long _value)
+    {
+        final int ret;
+        final int exponent = 63 - Long.numberOfLeadingZeros(_value);
+        if (_value < SUB_COUNT) {
+            ret = (int) _value;
+        } else if (exponent > MAX_EXPONENT) {
+            ret = BUCKETS - 1;
+        } else {
+            final int sub = (int) (_value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            ret = (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _index index of a bucket
+     * @return highest value of the bucket
+     */
+    protected static long upperBound(final int _index)
+    {
+        final long ret;
+        if (_index < SUB_COUNT) {
+            ret = _index;
+        } else {
+            final int exponent = _index / SUB_COUNT + SUB_BITS - 1;
+            final long sub = _index % SUB_COUNT;
+            ret = ((SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+        return ret;
+    }
+}
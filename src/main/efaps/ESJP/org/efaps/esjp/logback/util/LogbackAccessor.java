@@ -0,0 +1,1652 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared access to the Logback classes. To prevent class loading issues
+ * Logback is only accessed by reflection. The members are resolved once per
+ * LoggerContext class and cached as <code>MethodHandle</code>s, so that the
+ * per logger cost is a plain invocation instead of a method lookup. Only the
+ * members needed to list and change loggers are required; the others are
+ * resolved one by one, so a missing member only disables the feature using
+ * it.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("4f0c8ab6-5b7e-4bb1-9c07-0f1f3c2a6d51")
+@EFapsApplication("eFapsApp-Logback")
+public final class LogbackAccessor
+{
+
+    /**
+     * Name of the LoggerContext class.
+     */
+    public static final String LOGGERCONTEXT = "ch.qos.logback.classic.LoggerContext";
+
+    /**
+     * Name of the Logger class.
+     */
+    public static final String LOGGER = "ch.qos.logback.classic.Logger";
+
+    /**
+     * Name of the Level class.
+     */
+    public static final String LEVEL = "ch.qos.logback.classic.Level";
+
+    /**
+     * Name of the Appender interface.
+     */
+    public static final String APPENDER = "ch.qos.logback.core.Appender";
+
+    /**
+     * Name of the Context interface.
+     */
+    public static final String CONTEXT = "ch.qos.logback.core.Context";
+
+    /**
+     * Name of the PatternLayout class.
+     */
+    public static final String LAYOUT = "ch.qos.logback.classic.PatternLayout";
+
+    /**
+     * Name of the ILoggingEvent interface.
+     */
+    public static final String EVENT = "ch.qos.logback.classic.spi.ILoggingEvent";
+
+    /**
+     * Name of the IThrowableProxy interface.
+     */
+    public static final String THROWABLEPROXY = "ch.qos.logback.classic.spi.IThrowableProxy";
+
+    /**
+     * Name of the ThrowableProxyUtil class.
+     */
+    public static final String THROWABLEPROXYUTIL = "ch.qos.logback.classic.spi.ThrowableProxyUtil";
+
+    /**
+     * Name of the LoggerContextListener interface.
+     */
+    public static final String LISTENER = "ch.qos.logback.classic.spi.LoggerContextListener";
+
+    /**
+     * Name of the AppenderAttachable interface.
+     */
+    public static final String ATTACHABLE = "ch.qos.logback.core.spi.AppenderAttachable";
+
+    /**
+     * Name of the LifeCycle interface.
+     */
+    public static final String LIFECYCLE = "ch.qos.logback.core.spi.LifeCycle";
+
+    /**
+     * Name of the base class of the async appenders.
+     */
+    public static final String ASYNCBASE = "ch.qos.logback.core.AsyncAppenderBase";
+
+    /**
+     * Name of the AsyncAppender class of logback-classic.
+     */
+    public static final String ASYNC = "ch.qos.logback.classic.AsyncAppender";
+
+    /**
+     * Name of the OutputStreamAppender class.
+     */
+    public static final String OUTPUTSTREAMAPPENDER = "ch.qos.logback.core.OutputStreamAppender";
+
+    /**
+     * Name of the Encoder interface.
+     */
+    public static final String ENCODER = "ch.qos.logback.core.encoder.Encoder";
+
+    /**
+     * Name of the TurboFilter class.
+     */
+    public static final String TURBOFILTER = "ch.qos.logback.classic.turbo.TurboFilter";
+
+    /**
+     * Name of the DynamicThresholdFilter class.
+     */
+    public static final String THRESHOLDFILTER = "ch.qos.logback.classic.turbo.DynamicThresholdFilter";
+
+    /**
+     * Name of the MDCValueLevelPair class.
+     */
+    public static final String VALUELEVELPAIR = "ch.qos.logback.classic.turbo.MDCValueLevelPair";
+
+    /**
+     * Name of the FilterReply enum.
+     */
+    public static final String FILTERREPLY = "ch.qos.logback.core.spi.FilterReply";
+
+    /**
+     * Default pattern for the layouts of the appenders of the module.
+     */
+    public static final String DEFAULTPATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger - %msg%n%ex";
+
+    /**
+     * Names of the levels in ascending order.
+     */
+    public static final List<String> LEVELNAMES = List.of("ALL", "TRACE", "DEBUG", "INFO", "WARN", "ERROR", "OFF");
+
+    /**
+     * Cached instance, reset if the LoggerContext class changes.
+     */
+    private static volatile LogbackAccessor INSTANCE;
+
+    /** The LoggerContext class the handles were resolved for. */
+    private final Class<?> contextClass;
+
+    /** LoggerContext.getLoggerList(). */
+    private final MethodHandle getLoggerList;
+
+    /** LoggerContext.exists(String). */
+    private final MethodHandle exists;
+
+    /** LoggerContext.getLogger(String). */
+    private final MethodHandle getLogger;
+
+    /** Logger.getName(). */
+    private final MethodHandle getName;
+
+    /** Logger.getLevel(). */
+    private final MethodHandle getLevel;
+
+    /** Logger.getEffectiveLevel(). */
+    private final MethodHandle getEffectiveLevel;
+
+    /** Logger.setLevel(Level). */
+    private final MethodHandle setLevel;
+
+    /** AppenderAttachable.iteratorForAppenders(), e.g. of a Logger. */
+    private final MethodHandle iteratorForAppenders;
+
+    /** Appender.getName(). */
+    private final MethodHandle getAppenderName;
+
+    /** Level.toInt(). */
+    private final MethodHandle toInteger;
+
+    /** ILoggingEvent.getLoggerName(). */
+    private final MethodHandle getEventLoggerName;
+
+    /** ILoggingEvent.getMessage(). */
+    private final MethodHandle getEventMessage;
+
+    /** ILoggingEvent.getLevel(). */
+    private final MethodHandle getEventLevel;
+
+    /** ILoggingEvent.getTimeStamp(). */
+    private final MethodHandle getEventTimeStamp;
+
+    /** ILoggingEvent.getMDCPropertyMap(). */
+    private final MethodHandle getEventMdc;
+
+    /** ILoggingEvent.getThreadName(). */
+    private final MethodHandle getEventThreadName;
+
+    /** ILoggingEvent.getArgumentArray(). */
+    private final MethodHandle getEventArguments;
+
+    /** ILoggingEvent.getThrowableProxy(). */
+    private final MethodHandle getEventThrowable;
+
+    /** ThrowableProxyUtil.asString(IThrowableProxy). */
+    private final MethodHandle throwableAsString;
+
+    /** LoggerContext.addListener(LoggerContextListener). */
+    private final MethodHandle addListener;
+
+    /** LoggerContext.removeListener(LoggerContextListener). */
+    private final MethodHandle removeListener;
+
+    /** AppenderAttachable.addAppender(Appender), e.g. of a Logger. */
+    private final MethodHandle addAppender;
+
+    /** AppenderAttachable.detachAppender(String), e.g. of a Logger. */
+    private final MethodHandle detachAppender;
+
+    /** AppenderAttachable.detachAppender(Appender), e.g. of a Logger. */
+    private final MethodHandle detachAppenderInstance;
+
+    /** Appender.setName(String). */
+    private final MethodHandle setAppenderName;
+
+    /** ContextAware.setContext(Context), e.g. of an Appender. */
+    private final MethodHandle setContext;
+
+    /** FilterAttachable.getCopyOfAttachedFiltersList(), e.g. of an Appender. */
+    private final MethodHandle getFilters;
+
+    /** FilterAttachable.addFilter(Filter), e.g. of an Appender. */
+    private final MethodHandle addFilter;
+
+    /** LifeCycle.start(). */
+    private final MethodHandle start;
+
+    /** LifeCycle.stop(). */
+    private final MethodHandle stop;
+
+    /** LifeCycle.isStarted(). */
+    private final MethodHandle isStarted;
+
+    /** AsyncAppenderBase.getQueueSize(). */
+    private final MethodHandle getQueueSize;
+
+    /** AsyncAppenderBase.setQueueSize(int). */
+    private final MethodHandle setQueueSize;
+
+    /** AsyncAppenderBase.getDiscardingThreshold(). */
+    private final MethodHandle getDiscardingThreshold;
+
+    /** AsyncAppenderBase.setDiscardingThreshold(int). */
+    private final MethodHandle setDiscardingThreshold;
+
+    /** AsyncAppenderBase.isNeverBlock(). */
+    private final MethodHandle isNeverBlock;
+
+    /** AsyncAppenderBase.setNeverBlock(boolean). */
+    private final MethodHandle setNeverBlock;
+
+    /** AsyncAppenderBase.getMaxFlushTime(). */
+    private final MethodHandle getMaxFlushTime;
+
+    /** AsyncAppenderBase.setMaxFlushTime(int). */
+    private final MethodHandle setMaxFlushTime;
+
+    /** AsyncAppenderBase.getRemainingCapacity(). */
+    private final MethodHandle getRemainingCapacity;
+
+    /** AsyncAppenderBase.getNumberOfElementsInQueue(). */
+    private final MethodHandle getNumberOfElementsInQueue;
+
+    /** AsyncAppenderBase.aai, null if not accessible. */
+    private final MethodHandle getAppenderAttachable;
+
+    /** AsyncAppender.isIncludeCallerData(). */
+    private final MethodHandle isIncludeCallerData;
+
+    /** AsyncAppender.setIncludeCallerData(boolean). */
+    private final MethodHandle setIncludeCallerData;
+
+    /** OutputStreamAppender.getEncoder(). */
+    private final MethodHandle getEncoder;
+
+    /** OutputStreamAppender.setEncoder(Encoder). */
+    private final MethodHandle setEncoder;
+
+    /** Context.getScheduledExecutorService(). */
+    private final MethodHandle getScheduledExecutorService;
+
+    /** LoggerContext.addTurboFilter(TurboFilter). */
+    private final MethodHandle addTurboFilter;
+
+    /** LoggerContext.getTurboFilterList(). */
+    private final MethodHandle getTurboFilterList;
+
+    /** TurboFilter.setName(String). */
+    private final MethodHandle setTurboFilterName;
+
+    /** TurboFilter.setContext(Context). */
+    private final MethodHandle setTurboFilterContext;
+
+    /** DynamicThresholdFilter(). */
+    private final MethodHandle newThresholdFilter;
+
+    /** DynamicThresholdFilter.setKey(String). */
+    private final MethodHandle setThresholdKey;
+
+    /** DynamicThresholdFilter.setDefaultThreshold(Level). */
+    private final MethodHandle setDefaultThreshold;
+
+    /** DynamicThresholdFilter.setOnHigherOrEqual(FilterReply). */
+    private final MethodHandle setOnHigherOrEqual;
+
+    /** DynamicThresholdFilter.setOnLower(FilterReply). */
+    private final MethodHandle setOnLower;
+
+    /** DynamicThresholdFilter.addMDCValueLevelPair(MDCValueLevelPair). */
+    private final MethodHandle addValueLevelPair;
+
+    /** MDCValueLevelPair(). */
+    private final MethodHandle newValueLevelPair;
+
+    /** MDCValueLevelPair.setValue(String). */
+    private final MethodHandle setPairValue;
+
+    /** MDCValueLevelPair.setLevel(Level). */
+    private final MethodHandle setPairLevel;
+
+    /** FilterReply.ACCEPT, null if not resolved. */
+    private final Object accept;
+
+    /** FilterReply.NEUTRAL, null if not resolved. */
+    private final Object neutral;
+
+    /** Logger.isAdditive(). */
+    private final MethodHandle isAdditive;
+
+    /** LoggerContext.loggerCache, null if not accessible. */
+    private final MethodHandle loggerCache;
+
+    /** Level instances by name. */
+    private final Map<String, Object> levels;
+
+    /**
+     * @param _contextClass LoggerContext class
+     * @throws ReflectiveOperationException on error
+     */
+    private LogbackAccessor(final Class<?> _contextClass)
+        throws ReflectiveOperationException
+    {
+        this.contextClass = _contextClass;
+        final ClassLoader loader = _contextClass.getClassLoader();
+        final Class<?> loggerClass = Class.forName(LOGGER, false, loader);
+        final Class<?> levelClass = Class.forName(LEVEL, false, loader);
+        final Class<?> appenderClass = Class.forName(APPENDER, false, loader);
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+        this.getLoggerList = lookup.findVirtual(_contextClass, "getLoggerList", MethodType.methodType(List.class))
+                        .asType(MethodType.methodType(List.class, Object.class));
+        this.exists = lookup.findVirtual(_contextClass, "exists", MethodType.methodType(loggerClass, String.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, String.class));
+        this.getLogger = lookup.findVirtual(_contextClass, "getLogger",
+                        MethodType.methodType(loggerClass, String.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, String.class));
+        this.getName = lookup.findVirtual(loggerClass, "getName", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class));
+        this.getLevel = lookup.findVirtual(loggerClass, "getLevel", MethodType.methodType(levelClass))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+        this.getEffectiveLevel = lookup.findVirtual(loggerClass, "getEffectiveLevel",
+                        MethodType.methodType(levelClass))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+        this.setLevel = lookup.findVirtual(loggerClass, "setLevel", MethodType.methodType(void.class, levelClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        final Class<?> attachableClass = Class.forName(ATTACHABLE, false, loader);
+        this.iteratorForAppenders = lookup.findVirtual(attachableClass, "iteratorForAppenders",
+                        MethodType.methodType(Iterator.class))
+                        .asType(MethodType.methodType(Iterator.class, Object.class));
+        this.getAppenderName = lookup.findVirtual(appenderClass, "getName", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class));
+        this.toInteger = lookup.findVirtual(levelClass, "toInt", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class));
+
+        this.addAppender = optional(() -> lookup.findVirtual(attachableClass, "addAppender",
+                        MethodType.methodType(void.class, appenderClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.detachAppender = optional(() -> lookup.findVirtual(attachableClass, "detachAppender",
+                        MethodType.methodType(boolean.class, String.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class, String.class)));
+        this.detachAppenderInstance = optional(() -> lookup.findVirtual(attachableClass, "detachAppender",
+                        MethodType.methodType(boolean.class, appenderClass))
+                        .asType(MethodType.methodType(boolean.class, Object.class, Object.class)));
+        this.isAdditive = optional(() -> lookup.findVirtual(loggerClass, "isAdditive",
+                        MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class)));
+
+        this.getEventLoggerName = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getLoggerName", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class)));
+        this.getEventMessage = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getMessage", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class)));
+        this.getEventLevel = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getLevel", MethodType.methodType(levelClass))
+                        .asType(MethodType.methodType(Object.class, Object.class)));
+        this.getEventTimeStamp = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getTimeStamp", MethodType.methodType(long.class))
+                        .asType(MethodType.methodType(long.class, Object.class)));
+        this.getEventMdc = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getMDCPropertyMap", MethodType.methodType(Map.class))
+                        .asType(MethodType.methodType(Map.class, Object.class)));
+        this.getEventThreadName = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getThreadName", MethodType.methodType(String.class))
+                        .asType(MethodType.methodType(String.class, Object.class)));
+        this.getEventArguments = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getArgumentArray", MethodType.methodType(Object[].class))
+                        .asType(MethodType.methodType(Object[].class, Object.class)));
+        this.getEventThrowable = optional(() -> lookup.findVirtual(Class.forName(EVENT, false, loader),
+                        "getThrowableProxy", MethodType.methodType(Class.forName(THROWABLEPROXY, false, loader)))
+                        .asType(MethodType.methodType(Object.class, Object.class)));
+        this.throwableAsString = optional(() -> lookup.findStatic(Class.forName(THROWABLEPROXYUTIL, false, loader),
+                        "asString", MethodType.methodType(String.class, Class.forName(THROWABLEPROXY, false, loader)))
+                        .asType(MethodType.methodType(String.class, Object.class)));
+        this.addListener = optional(() -> lookup.findVirtual(_contextClass, "addListener",
+                        MethodType.methodType(void.class, Class.forName(LISTENER, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.removeListener = optional(() -> lookup.findVirtual(_contextClass, "removeListener",
+                        MethodType.methodType(void.class, Class.forName(LISTENER, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.setAppenderName = optional(() -> lookup.findVirtual(appenderClass, "setName",
+                        MethodType.methodType(void.class, String.class))
+                        .asType(MethodType.methodType(void.class, Object.class, String.class)));
+        this.setContext = optional(() -> lookup.findVirtual(Class.forName("ch.qos.logback.core.spi.ContextAware",
+                        false, loader), "setContext", MethodType.methodType(void.class,
+                                        Class.forName(CONTEXT, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.getFilters = optional(() -> lookup.findVirtual(Class.forName(
+                        "ch.qos.logback.core.spi.FilterAttachable", false, loader), "getCopyOfAttachedFiltersList",
+                        MethodType.methodType(List.class))
+                        .asType(MethodType.methodType(List.class, Object.class)));
+        this.addFilter = optional(() -> lookup.findVirtual(Class.forName("ch.qos.logback.core.spi.FilterAttachable",
+                        false, loader), "addFilter", MethodType.methodType(void.class,
+                                        Class.forName("ch.qos.logback.core.filter.Filter", false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.start = optional(() -> lookup.findVirtual(Class.forName(LIFECYCLE, false, loader), "start",
+                        MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(void.class, Object.class)));
+        this.stop = optional(() -> lookup.findVirtual(Class.forName(LIFECYCLE, false, loader), "stop",
+                        MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(void.class, Object.class)));
+        this.isStarted = optional(() -> lookup.findVirtual(Class.forName(LIFECYCLE, false, loader), "isStarted",
+                        MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class)));
+
+        this.getQueueSize = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "getQueueSize", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class)));
+        this.setQueueSize = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "setQueueSize", MethodType.methodType(void.class, int.class))
+                        .asType(MethodType.methodType(void.class, Object.class, int.class)));
+        this.getDiscardingThreshold = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "getDiscardingThreshold", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class)));
+        this.setDiscardingThreshold = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "setDiscardingThreshold", MethodType.methodType(void.class, int.class))
+                        .asType(MethodType.methodType(void.class, Object.class, int.class)));
+        this.isNeverBlock = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "isNeverBlock", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class)));
+        this.setNeverBlock = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "setNeverBlock", MethodType.methodType(void.class, boolean.class))
+                        .asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+        this.getMaxFlushTime = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "getMaxFlushTime", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class)));
+        this.setMaxFlushTime = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "setMaxFlushTime", MethodType.methodType(void.class, int.class))
+                        .asType(MethodType.methodType(void.class, Object.class, int.class)));
+        this.getRemainingCapacity = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false, loader),
+                        "getRemainingCapacity", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class)));
+        this.getNumberOfElementsInQueue = optional(() -> lookup.findVirtual(Class.forName(ASYNCBASE, false,
+                        loader), "getNumberOfElementsInQueue", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class)));
+        this.getAppenderAttachable = optional(() -> {
+            final Field field = Class.forName(ASYNCBASE, false, loader).getDeclaredField("aai");
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                            .asType(MethodType.methodType(Object.class, Object.class));
+        });
+        this.isIncludeCallerData = optional(() -> lookup.findVirtual(Class.forName(ASYNC, false, loader),
+                        "isIncludeCallerData", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class)));
+        this.setIncludeCallerData = optional(() -> lookup.findVirtual(Class.forName(ASYNC, false, loader),
+                        "setIncludeCallerData", MethodType.methodType(void.class, boolean.class))
+                        .asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+        this.getEncoder = optional(() -> lookup.findVirtual(Class.forName(OUTPUTSTREAMAPPENDER, false, loader),
+                        "getEncoder", MethodType.methodType(Class.forName(ENCODER, false, loader)))
+                        .asType(MethodType.methodType(Object.class, Object.class)));
+        this.setEncoder = optional(() -> lookup.findVirtual(Class.forName(OUTPUTSTREAMAPPENDER, false, loader),
+                        "setEncoder", MethodType.methodType(void.class, Class.forName(ENCODER, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+
+        this.getScheduledExecutorService = optional(() -> lookup.findVirtual(Class.forName(CONTEXT, false, loader),
+                        "getScheduledExecutorService", MethodType.methodType(ScheduledExecutorService.class))
+                        .asType(MethodType.methodType(ScheduledExecutorService.class, Object.class)));
+        this.addTurboFilter = optional(() -> lookup.findVirtual(_contextClass, "addTurboFilter",
+                        MethodType.methodType(void.class, Class.forName(TURBOFILTER, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.getTurboFilterList = optional(() -> lookup.findVirtual(_contextClass, "getTurboFilterList",
+                        MethodType.methodType(Class.forName("ch.qos.logback.classic.spi.TurboFilterList", false,
+                                        loader)))
+                        .asType(MethodType.methodType(List.class, Object.class)));
+        this.setTurboFilterName = optional(() -> lookup.findVirtual(Class.forName(TURBOFILTER, false, loader),
+                        "setName", MethodType.methodType(void.class, String.class))
+                        .asType(MethodType.methodType(void.class, Object.class, String.class)));
+        this.setTurboFilterContext = optional(() -> lookup.findVirtual(Class.forName(TURBOFILTER, false, loader),
+                        "setContext", MethodType.methodType(void.class, Class.forName(CONTEXT, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.newThresholdFilter = optional(() -> lookup.findConstructor(Class.forName(THRESHOLDFILTER, false,
+                        loader), MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class)));
+        this.setThresholdKey = optional(() -> lookup.findVirtual(Class.forName(THRESHOLDFILTER, false, loader),
+                        "setKey", MethodType.methodType(void.class, String.class))
+                        .asType(MethodType.methodType(void.class, Object.class, String.class)));
+        this.setDefaultThreshold = optional(() -> lookup.findVirtual(Class.forName(THRESHOLDFILTER, false, loader),
+                        "setDefaultThreshold", MethodType.methodType(void.class, levelClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.setOnHigherOrEqual = optional(() -> lookup.findVirtual(Class.forName(THRESHOLDFILTER, false, loader),
+                        "setOnHigherOrEqual", MethodType.methodType(void.class,
+                                        Class.forName(FILTERREPLY, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.setOnLower = optional(() -> lookup.findVirtual(Class.forName(THRESHOLDFILTER, false, loader),
+                        "setOnLower", MethodType.methodType(void.class, Class.forName(FILTERREPLY, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.addValueLevelPair = optional(() -> lookup.findVirtual(Class.forName(THRESHOLDFILTER, false, loader),
+                        "addMDCValueLevelPair", MethodType.methodType(void.class,
+                                        Class.forName(VALUELEVELPAIR, false, loader)))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.newValueLevelPair = optional(() -> lookup.findConstructor(Class.forName(VALUELEVELPAIR, false,
+                        loader), MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class)));
+        this.setPairValue = optional(() -> lookup.findVirtual(Class.forName(VALUELEVELPAIR, false, loader),
+                        "setValue", MethodType.methodType(void.class, String.class))
+                        .asType(MethodType.methodType(void.class, Object.class, String.class)));
+        this.setPairLevel = optional(() -> lookup.findVirtual(Class.forName(VALUELEVELPAIR, false, loader),
+                        "setLevel", MethodType.methodType(void.class, levelClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        this.accept = reply(loader, "ACCEPT");
+        this.neutral = reply(loader, "NEUTRAL");
+
+        this.loggerCache = optional(() -> {
+            final Field field = _contextClass.getDeclaredField("loggerCache");
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(Map.class, Object.class));
+        });
+
+        final MethodHandle toLevel = lookup.findStatic(levelClass, "toLevel",
+                        MethodType.methodType(levelClass, String.class));
+        final Map<String, Object> levelMap = new LinkedHashMap<>();
+        for (final String levelName : LEVELNAMES) {
+            try {
+                levelMap.put(levelName, toLevel.invoke(levelName));
+            } catch (final Throwable e) {
+                throw new ReflectiveOperationException(e);
+            }
+        }
+        this.levels = Collections.unmodifiableMap(levelMap);
+    }
+
+    /**
+     * @param _resolver resolver for the handle
+     * @return the handle, null if the member does not exist or is not
+     *         accessible
+     */
+    private static MethodHandle optional(final Resolver _resolver)
+    {
+        MethodHandle ret;
+        try {
+            ret = _resolver.resolve();
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            ret = null;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _loader class loader of Logback
+     * @param _name name of the constant
+     * @return the constant of FilterReply, null if not resolved
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object reply(final ClassLoader _loader,
+                                final String _name)
+    {
+        Object ret;
+        try {
+            ret = Enum.valueOf((Class<Enum>) Class.forName(FILTERREPLY, false, _loader), _name);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            ret = null;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _handle optional handle
+     * @param _member name of the member for the error
+     * @return the handle
+     * @throws EFapsException if the handle could not be resolved
+     */
+    private static MethodHandle require(final MethodHandle _handle,
+                                        final String _member)
+        throws EFapsException
+    {
+        if (_handle == null) {
+            throw new EFapsException(LogbackAccessor.class, "unsupported", _member);
+        }
+        return _handle;
+    }
+
+    /**
+     * @return true if the current ILoggerFactory is a Logback LoggerContext
+     */
+    public static boolean isAvailable()
+    {
+        return LoggerFactory.getILoggerFactory().getClass().getName().contains(LOGGERCONTEXT);
+    }
+
+    /**
+     * Get the accessor for the current LoggerContext.
+     *
+     * @return the accessor
+     * @throws EFapsException if Logback is not available or could not be
+     *             accessed
+     */
+    public static LogbackAccessor get()
+        throws EFapsException
+    {
+        final Class<?> clazz = LoggerFactory.getILoggerFactory().getClass();
+        LogbackAccessor ret = INSTANCE;
+        if (ret == null || ret.contextClass != clazz) {
+            if (!clazz.getName().contains(LOGGERCONTEXT)) {
+                throw new EFapsException(LogbackAccessor.class, "noLogback", clazz.getName());
+            }
+            try {
+                ret = new LogbackAccessor(clazz);
+            } catch (final ReflectiveOperationException e) {
+                throw new EFapsException(LogbackAccessor.class, "ReflectiveOperationException", e);
+            }
+            INSTANCE = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the LoggerContext
+     */
+    public Object getContext()
+    {
+        return LoggerFactory.getILoggerFactory();
+    }
+
+    /**
+     * @return list of loggers, sorted by name
+     * @throws EFapsException on error
+     */
+    public List<?> getLoggerList()
+        throws EFapsException
+    {
+        return getLoggerList(LoggerFactory.getILoggerFactory());
+    }
+
+    /**
+     * @param _context LoggerContext
+     * @return list of loggers of the given context, sorted by name
+     * @throws EFapsException on error
+     */
+    public List<?> getLoggerList(final Object _context)
+        throws EFapsException
+    {
+        try {
+            return (List<?>) this.getLoggerList.invokeExact(_context);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getLoggerList", e);
+        }
+    }
+
+    /**
+     * Get the loggers by name without sorting them like
+     * <code>getLoggerList</code> does. The map is the live cache of the
+     * LoggerContext if it is accessible and must not be modified.
+     *
+     * @return map of name to logger
+     * @throws EFapsException on error
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, ?> getLoggerCache()
+        throws EFapsException
+    {
+        final Map<String, ?> ret;
+        if (this.loggerCache == null) {
+            final Map<String, Object> map = new HashMap<>();
+            for (final Object logger : getLoggerList()) {
+                map.put(getName(logger), logger);
+            }
+            ret = map;
+        } else {
+            try {
+                ret = (Map<String, ?>) this.loggerCache.invokeExact((Object) LoggerFactory.getILoggerFactory());
+            } catch (final Throwable e) {
+                throw new EFapsException(LogbackAccessor.class, "getLoggerCache", e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return true if <code>getLoggerCache</code> returns the live cache of
+     *         the LoggerContext instead of building a new map
+     */
+    public boolean hasLoggerCache()
+    {
+        return this.loggerCache != null;
+    }
+
+    /**
+     * Create a LoggerContextListener that delegates to the given handler.
+     *
+     * @param _handler handler receiving the calls of the listener
+     * @return the listener
+     * @throws EFapsException on error
+     */
+    public Object newListener(final InvocationHandler _handler)
+        throws EFapsException
+    {
+        try {
+            final ClassLoader loader = this.contextClass.getClassLoader();
+            return Proxy.newProxyInstance(loader, new Class<?>[] { Class.forName(LISTENER, false, loader) },
+                            _handler);
+        } catch (final ClassNotFoundException e) {
+            throw new EFapsException(LogbackAccessor.class, "newListener", e);
+        }
+    }
+
+    /**
+     * @param _listener LoggerContextListener to add to the context
+     * @throws EFapsException on error
+     */
+    public void addListener(final Object _listener)
+        throws EFapsException
+    {
+        try {
+            require(this.addListener, "addListener").invokeExact((Object) LoggerFactory.getILoggerFactory(),
+                            _listener);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "addListener", e);
+        }
+    }
+
+    /**
+     * @param _listener LoggerContextListener to remove from the context
+     * @throws EFapsException on error
+     */
+    public void removeListener(final Object _listener)
+        throws EFapsException
+    {
+        try {
+            require(this.removeListener, "removeListener").invokeExact((Object) LoggerFactory.getILoggerFactory(),
+                            _listener);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "removeListener", e);
+        }
+    }
+
+    /**
+     * @param _name name of the logger
+     * @return the logger or null if it does not exist
+     * @throws EFapsException on error
+     */
+    public Object exists(final String _name)
+        throws EFapsException
+    {
+        final ILoggerFactory context = LoggerFactory.getILoggerFactory();
+        try {
+            return this.exists.invokeExact((Object) context, _name);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "exists", e);
+        }
+    }
+
+    /**
+     * @param _name name of the logger
+     * @return the logger, created if it does not exist yet
+     * @throws EFapsException on error
+     */
+    public Object getLogger(final String _name)
+        throws EFapsException
+    {
+        final ILoggerFactory context = LoggerFactory.getILoggerFactory();
+        try {
+            return this.getLogger.invokeExact((Object) context, _name);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getLogger", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return name of the logger
+     * @throws EFapsException on error
+     */
+    public String getName(final Object _logger)
+        throws EFapsException
+    {
+        try {
+            return (String) this.getName.invokeExact(_logger);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getName", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return the explicitly set level, null if inherited
+     * @throws EFapsException on error
+     */
+    public Object getLevel(final Object _logger)
+        throws EFapsException
+    {
+        try {
+            return this.getLevel.invokeExact(_logger);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getLevel", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return the effective level
+     * @throws EFapsException on error
+     */
+    public Object getEffectiveLevel(final Object _logger)
+        throws EFapsException
+    {
+        try {
+            return this.getEffectiveLevel.invokeExact(_logger);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEffectiveLevel", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @param _level level to set, null to inherit
+     * @throws EFapsException on error
+     */
+    public void setLevel(final Object _logger,
+                         final Object _level)
+        throws EFapsException
+    {
+        try {
+            this.setLevel.invokeExact(_logger, _level);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setLevel", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return iterator over the appenders attached to the logger
+     * @throws EFapsException on error
+     */
+    public Iterator<?> iteratorForAppenders(final Object _logger)
+        throws EFapsException
+    {
+        try {
+            return (Iterator<?>) this.iteratorForAppenders.invokeExact(_logger);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "iteratorForAppenders", e);
+        }
+    }
+
+    /**
+     * @param _appender appender
+     * @return name of the appender
+     * @throws EFapsException on error
+     */
+    public String getAppenderName(final Object _appender)
+        throws EFapsException
+    {
+        try {
+            return (String) this.getAppenderName.invokeExact(_appender);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getAppenderName", e);
+        }
+    }
+
+    /**
+     * @param _appender appender
+     * @param _name name to set
+     * @throws EFapsException on error
+     */
+    public void setAppenderName(final Object _appender,
+                                final String _name)
+        throws EFapsException
+    {
+        try {
+            require(this.setAppenderName, "setAppenderName").invokeExact(_appender, _name);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setAppenderName", e);
+        }
+    }
+
+    /**
+     * Set the LoggerContext on an appender, filter or other ContextAware.
+     *
+     * @param _contextAware object to set the context on
+     * @throws EFapsException on error
+     */
+    public void setContext(final Object _contextAware)
+        throws EFapsException
+    {
+        try {
+            require(this.setContext, "setContext").invokeExact(_contextAware, getContext());
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setContext", e);
+        }
+    }
+
+    /**
+     * @param _appender appender or other FilterAttachable
+     * @return copy of the list of filters
+     * @throws EFapsException on error
+     */
+    public List<?> getFilters(final Object _appender)
+        throws EFapsException
+    {
+        try {
+            return (List<?>) require(this.getFilters, "getFilters").invokeExact(_appender);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getFilters", e);
+        }
+    }
+
+    /**
+     * @param _appender appender or other FilterAttachable
+     * @param _filter filter to add
+     * @throws EFapsException on error
+     */
+    public void addFilter(final Object _appender,
+                          final Object _filter)
+        throws EFapsException
+    {
+        try {
+            require(this.addFilter, "addFilter").invokeExact(_appender, _filter);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "addFilter", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @param _appender appender to attach
+     * @throws EFapsException on error
+     */
+    public void addAppender(final Object _logger,
+                            final Object _appender)
+        throws EFapsException
+    {
+        try {
+            require(this.addAppender, "addAppender").invokeExact(_logger, _appender);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "addAppender", e);
+        }
+    }
+
+    /**
+     * Detach an appender by name, so that also a wrapped appender is found.
+     *
+     * @param _logger logger
+     * @param _name name of the appender
+     * @return true if an appender was detached
+     * @throws EFapsException on error
+     */
+    public boolean detachAppender(final Object _logger,
+                                  final String _name)
+        throws EFapsException
+    {
+        try {
+            return (boolean) require(this.detachAppender, "detachAppender").invokeExact(_logger, _name);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "detachAppender", e);
+        }
+    }
+
+    /**
+     * Detach the given instance of an appender.
+     *
+     * @param _attachable logger or other AppenderAttachable
+     * @param _appender appender to detach
+     * @return true if the appender was detached
+     * @throws EFapsException on error
+     */
+    public boolean detachAppenderInstance(final Object _attachable,
+                                          final Object _appender)
+        throws EFapsException
+    {
+        try {
+            return (boolean) require(this.detachAppenderInstance, "detachAppenderInstance").invokeExact(
+                            _attachable, _appender);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "detachAppenderInstance", e);
+        }
+    }
+
+    /**
+     * @param _lifeCycle appender, filter or other LifeCycle
+     * @throws EFapsException on error
+     */
+    public void start(final Object _lifeCycle)
+        throws EFapsException
+    {
+        try {
+            require(this.start, "start").invokeExact(_lifeCycle);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "start", e);
+        }
+    }
+
+    /**
+     * @param _lifeCycle appender, filter or other LifeCycle
+     * @throws EFapsException on error
+     */
+    public void stop(final Object _lifeCycle)
+        throws EFapsException
+    {
+        try {
+            require(this.stop, "stop").invokeExact(_lifeCycle);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "stop", e);
+        }
+    }
+
+    /**
+     * @param _lifeCycle appender, filter or other LifeCycle
+     * @return true if started
+     * @throws EFapsException on error
+     */
+    public boolean isStarted(final Object _lifeCycle)
+        throws EFapsException
+    {
+        try {
+            return (boolean) require(this.isStarted, "isStarted").invokeExact(_lifeCycle);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "isStarted", e);
+        }
+    }
+
+    /**
+     * @param _appender appender
+     * @return true if the appender is an AsyncAppenderBase
+     */
+    public boolean isAsync(final Object _appender)
+    {
+        boolean ret = false;
+        for (Class<?> clazz = _appender.getClass(); clazz != null && !ret; clazz = clazz.getSuperclass()) {
+            ret = ASYNCBASE.equals(clazz.getName());
+        }
+        return ret;
+    }
+
+    /**
+     * @param _async async appender
+     * @return size of the queue
+     * @throws EFapsException on error
+     */
+    public int getQueueSize(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (int) require(this.getQueueSize, "getQueueSize").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getQueueSize", e);
+        }
+    }
+
+    /**
+     * @param _async async appender, not started yet
+     * @param _queueSize size of the queue
+     * @throws EFapsException on error
+     */
+    public void setQueueSize(final Object _async,
+                             final int _queueSize)
+        throws EFapsException
+    {
+        try {
+            require(this.setQueueSize, "setQueueSize").invokeExact(_async, _queueSize);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setQueueSize", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @return remaining capacity below which events below WARN are discarded
+     * @throws EFapsException on error
+     */
+    public int getDiscardingThreshold(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (int) require(this.getDiscardingThreshold, "getDiscardingThreshold").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getDiscardingThreshold", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @param _threshold remaining capacity below which events below WARN are
+     *            discarded
+     * @throws EFapsException on error
+     */
+    public void setDiscardingThreshold(final Object _async,
+                                       final int _threshold)
+        throws EFapsException
+    {
+        try {
+            require(this.setDiscardingThreshold, "setDiscardingThreshold").invokeExact(_async, _threshold);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setDiscardingThreshold", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @return true if events are dropped instead of blocking on a full queue
+     * @throws EFapsException on error
+     */
+    public boolean isNeverBlock(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (boolean) require(this.isNeverBlock, "isNeverBlock").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "isNeverBlock", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @param _neverBlock drop events instead of blocking on a full queue
+     * @throws EFapsException on error
+     */
+    public void setNeverBlock(final Object _async,
+                              final boolean _neverBlock)
+        throws EFapsException
+    {
+        try {
+            require(this.setNeverBlock, "setNeverBlock").invokeExact(_async, _neverBlock);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setNeverBlock", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @return milliseconds the queue is flushed on stop
+     * @throws EFapsException on error
+     */
+    public int getMaxFlushTime(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (int) require(this.getMaxFlushTime, "getMaxFlushTime").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getMaxFlushTime", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @param _maxFlushTime milliseconds the queue is flushed on stop
+     * @throws EFapsException on error
+     */
+    public void setMaxFlushTime(final Object _async,
+                                final int _maxFlushTime)
+        throws EFapsException
+    {
+        try {
+            require(this.setMaxFlushTime, "setMaxFlushTime").invokeExact(_async, _maxFlushTime);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setMaxFlushTime", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @return remaining capacity of the queue
+     * @throws EFapsException on error
+     */
+    public int getRemainingCapacity(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (int) require(this.getRemainingCapacity, "getRemainingCapacity").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getRemainingCapacity", e);
+        }
+    }
+
+    /**
+     * @param _async async appender
+     * @return number of queued events
+     * @throws EFapsException on error
+     */
+    public int getNumberOfElementsInQueue(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return (int) require(this.getNumberOfElementsInQueue, "getNumberOfElementsInQueue").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getNumberOfElementsInQueue", e);
+        }
+    }
+
+    /**
+     * Get the AppenderAttachableImpl of an async appender. AsyncAppenderBase
+     * accepts only one appender by <code>addAppender</code>, its delegates
+     * are swapped on this object.
+     *
+     * @param _async async appender
+     * @return the AppenderAttachable holding the delegates
+     * @throws EFapsException on error
+     */
+    public Object getAppenderAttachable(final Object _async)
+        throws EFapsException
+    {
+        try {
+            return require(this.getAppenderAttachable, "getAppenderAttachable").invokeExact(_async);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getAppenderAttachable", e);
+        }
+    }
+
+    /**
+     * Copy the includeCallerData setting of an AsyncAppender of
+     * logback-classic. Other async appenders do not have it.
+     *
+     * @param _from async appender to copy from
+     * @param _to async appender to copy to
+     * @throws EFapsException on error
+     */
+    public void copyIncludeCallerData(final Object _from,
+                                      final Object _to)
+        throws EFapsException
+    {
+        final ClassLoader loader = this.contextClass.getClassLoader();
+        try {
+            if (this.isIncludeCallerData != null && this.setIncludeCallerData != null
+                            && Class.forName(ASYNC, false, loader).isInstance(_from)) {
+                this.setIncludeCallerData.invokeExact(_to, (boolean) this.isIncludeCallerData.invokeExact(_from));
+            }
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "copyIncludeCallerData", e);
+        }
+    }
+
+    /**
+     * @param _appender appender
+     * @return the encoder, null if the appender is no OutputStreamAppender or
+     *         has no encoder
+     * @throws EFapsException on error
+     */
+    public Object getEncoder(final Object _appender)
+        throws EFapsException
+    {
+        try {
+            Object ret = null;
+            if (this.getEncoder != null && this.setEncoder != null && Class.forName(OUTPUTSTREAMAPPENDER, false,
+                            this.contextClass.getClassLoader()).isInstance(_appender)) {
+                ret = this.getEncoder.invokeExact(_appender);
+            }
+            return ret;
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEncoder", e);
+        }
+    }
+
+    /**
+     * @param _appender OutputStreamAppender
+     * @param _encoder encoder to set
+     * @throws EFapsException on error
+     */
+    public void setEncoder(final Object _appender,
+                           final Object _encoder)
+        throws EFapsException
+    {
+        try {
+            require(this.setEncoder, "setEncoder").invokeExact(_appender, _encoder);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "setEncoder", e);
+        }
+    }
+
+    /**
+     * The executor of the context is shut down when the context is stopped.
+     *
+     * @return the scheduled executor of the LoggerContext
+     * @throws EFapsException on error
+     */
+    public ScheduledExecutorService getScheduledExecutorService()
+        throws EFapsException
+    {
+        try {
+            return (ScheduledExecutorService) require(this.getScheduledExecutorService,
+                            "getScheduledExecutorService").invokeExact(getContext());
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getScheduledExecutorService", e);
+        }
+    }
+
+    /**
+     * @param _filter started TurboFilter to add to the context
+     * @throws EFapsException on error
+     */
+    public void addTurboFilter(final Object _filter)
+        throws EFapsException
+    {
+        try {
+            require(this.addTurboFilter, "addTurboFilter").invokeExact(getContext(), _filter);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "addTurboFilter", e);
+        }
+    }
+
+    /**
+     * @param _filter TurboFilter to remove from the context, it is not
+     *            stopped
+     * @return true if the filter was removed
+     * @throws EFapsException on error
+     */
+    public boolean removeTurboFilter(final Object _filter)
+        throws EFapsException
+    {
+        try {
+            return ((List<?>) require(this.getTurboFilterList, "getTurboFilterList")
+                            .invokeExact(getContext())).remove(_filter);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "removeTurboFilter", e);
+        }
+    }
+
+    /**
+     * Create and start a <code>DynamicThresholdFilter</code> that accepts the
+     * events whose MDC value for the key is one of the given values at or
+     * above the level of the value, and is neutral for all other events.
+     *
+     * @param _name name of the filter
+     * @param _key MDC key
+     * @param _levels level by MDC value
+     * @return the started filter, not yet added to the context
+     * @throws EFapsException on error
+     */
+    public Object newThresholdFilter(final String _name,
+                                     final String _key,
+                                     final Map<String, Object> _levels)
+        throws EFapsException
+    {
+        try {
+            final Object ret = require(this.newThresholdFilter, "newThresholdFilter").invokeExact();
+            require(this.setTurboFilterName, "setTurboFilterName").invokeExact(ret, _name);
+            require(this.setTurboFilterContext, "setTurboFilterContext").invokeExact(ret,
+                            getContext());
+            require(this.setThresholdKey, "setThresholdKey").invokeExact(ret, _key);
+            require(this.setDefaultThreshold, "setDefaultThreshold").invokeExact(ret, toLevel("OFF"));
+            require(this.setOnHigherOrEqual, "setOnHigherOrEqual").invokeExact(ret,
+                            Objects.requireNonNull(this.accept, "ACCEPT"));
+            require(this.setOnLower, "setOnLower").invokeExact(ret, Objects.requireNonNull(this.neutral, "NEUTRAL"));
+            for (final var entry : _levels.entrySet()) {
+                final Object pair = require(this.newValueLevelPair, "newValueLevelPair").invokeExact();
+                require(this.setPairValue, "setPairValue").invokeExact(pair, entry.getKey());
+                require(this.setPairLevel, "setPairLevel").invokeExact(pair, entry.getValue());
+                require(this.addValueLevelPair, "addValueLevelPair").invokeExact(ret, pair);
+            }
+            start(ret);
+            return ret;
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "newThresholdFilter", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return true if the logger passes its events to the appenders of its
+     *         parent
+     * @throws EFapsException on error
+     */
+    public boolean isAdditive(final Object _logger)
+        throws EFapsException
+    {
+        try {
+            return (boolean) require(this.isAdditive, "isAdditive").invokeExact(_logger);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "isAdditive", e);
+        }
+    }
+
+    /**
+     * Create and start a <code>PatternLayout</code>.
+     *
+     * @param _pattern the pattern
+     * @return <code>PatternLayout.doLayout</code> bound to the layout,
+     *         taking the event and returning the formatted String
+     * @throws EFapsException on error
+     */
+    public MethodHandle newLayout(final String _pattern)
+        throws EFapsException
+    {
+        try {
+            final ClassLoader loader = this.contextClass.getClassLoader();
+            final Class<?> layoutClass = Class.forName(LAYOUT, false, loader);
+            final Object layout = layoutClass.getConstructor().newInstance();
+            layoutClass.getMethod("setContext", Class.forName(CONTEXT, false, loader)).invoke(layout, getContext());
+            layoutClass.getMethod("setPattern", String.class).invoke(layout, _pattern);
+            layoutClass.getMethod("start").invoke(layout);
+            return MethodHandles.publicLookup()
+                            .findVirtual(layoutClass, "doLayout", MethodType.methodType(String.class,
+                                            Class.forName(EVENT, false, loader)))
+                            .bindTo(layout)
+                            .asType(MethodType.methodType(String.class, Object.class));
+        } catch (final ReflectiveOperationException e) {
+            throw new EFapsException(LogbackAccessor.class, "newLayout", e);
+        }
+    }
+
+    /**
+     * @param _logger logger
+     * @return concatenated names of the appenders attached to the logger
+     * @throws EFapsException on error
+     */
+    public String getAppenderNames(final Object _logger)
+        throws EFapsException
+    {
+        final StringBuilder ret = new StringBuilder();
+        final Iterator<?> iter = iteratorForAppenders(_logger);
+        while (iter.hasNext()) {
+            ret.append(getAppenderName(iter.next()));
+        }
+        return ret.toString();
+    }
+
+    /**
+     * @param _event logging event
+     * @return name of the logger of the event
+     * @throws EFapsException on error
+     */
+    public String getEventLoggerName(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return (String) require(this.getEventLoggerName, "getEventLoggerName").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventLoggerName", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return message pattern of the event, i.e. without the arguments
+     * @throws EFapsException on error
+     */
+    public String getEventMessage(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return (String) require(this.getEventMessage, "getEventMessage").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventMessage", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return level of the event
+     * @throws EFapsException on error
+     */
+    public Object getEventLevel(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return require(this.getEventLevel, "getEventLevel").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventLevel", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return time of the event in milliseconds
+     * @throws EFapsException on error
+     */
+    public long getEventTimeStamp(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return (long) require(this.getEventTimeStamp, "getEventTimeStamp").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventTimeStamp", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return name of the thread that logged the event
+     * @throws EFapsException on error
+     */
+    public String getEventThreadName(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return (String) require(this.getEventThreadName, "getEventThreadName").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventThreadName", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return arguments of the message, maybe null
+     * @throws EFapsException on error
+     */
+    public Object[] getEventArguments(final Object _event)
+        throws EFapsException
+    {
+        try {
+            return (Object[]) require(this.getEventArguments, "getEventArguments").invokeExact(_event);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventArguments", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return the formatted throwable of the event, null if none
+     * @throws EFapsException on error
+     */
+    public String getEventThrowable(final Object _event)
+        throws EFapsException
+    {
+        try {
+            final Object proxy = require(this.getEventThrowable, "getEventThrowable").invokeExact(_event);
+            return proxy == null ? null
+                            : (String) require(this.throwableAsString, "throwableAsString").invokeExact(proxy);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventThrowable", e);
+        }
+    }
+
+    /**
+     * @param _event logging event
+     * @return the MDC of the event, never null
+     * @throws EFapsException on error
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getEventMdc(final Object _event)
+        throws EFapsException
+    {
+        try {
+            final Map<String, String> ret = (Map<String, String>) require(this.getEventMdc, "getEventMdc")
+                            .invokeExact(_event);
+            return ret == null ? Collections.emptyMap() : ret;
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "getEventMdc", e);
+        }
+    }
+
+    /**
+     * Get a level by its name. Like <code>Level.toLevel(String)</code> unknown
+     * names resolve to DEBUG.
+     *
+     * @param _name name of the level
+     * @return level
+     */
+    public Object toLevel(final String _name)
+    {
+        final Object ret = _name == null ? null : this.levels.get(_name.trim().toUpperCase(Locale.ENGLISH));
+        return ret == null ? this.levels.get("DEBUG") : ret;
+    }
+
+    /**
+     * @return the levels by name in ascending order
+     */
+    public Map<String, Object> getLevels()
+    {
+        return this.levels;
+    }
+
+    /**
+     * @param _level level
+     * @return integer value of the level
+     * @throws EFapsException on error
+     */
+    public int toInteger(final Object _level)
+        throws EFapsException
+    {
+        try {
+            return (int) this.toInteger.invokeExact(_level);
+        } catch (final Throwable e) {
+            throw new EFapsException(LogbackAccessor.class, "toInteger", e);
+        }
+    }
+
+    /**
+     * Resolves a handle.
+     */
+    @FunctionalInterface
+    private interface Resolver
+    {
+
+        /**
+         * @return the handle
+         * @throws ReflectiveOperationException on error
+         */
+        MethodHandle resolve()
+            throws ReflectiveOperationException;
+    }
+}
@@ -0,0 +1,1099 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.esjp.logback.rest.AppenderInstrumentation;
+import org.efaps.esjp.logback.rest.ClusterState;
+import org.efaps.esjp.logback.rest.LevelOverrides;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reloads the configuration of the live LoggerContext without resetting it.
+ * The uploaded configuration is parsed by Joran into a separate
+ * LoggerContext first, with every appender replaced by a
+ * <code>NOPAppender</code>, and rejected if that produced errors. Then only
+ * the differences are applied to the live context:
+ * <ul>
+ * <li>levels and additivity of the loggers,</li>
+ * <li>appenders added to or removed from a logger,</li>
+ * <li>appenders whose definition changed since the last reload are
+ * replaced.</li>
+ * </ul>
+ * The new and the changed appenders are created by Joran in the live
+ * context from a configuration that contains only these appenders, the
+ * elements they may depend on, e.g. properties, and the {@link #STAGING}
+ * logger referencing them, as Joran only creates referenced appenders. So
+ * they belong to the live context from the start, and appenders that are
+ * kept are not created again, e.g. a file is not opened a second time. If
+ * Joran reports an error the created appenders are stopped and the live
+ * context is not changed. Turbo filters and the settings of the context
+ * itself are not applied and reported as a warning. A level changed at
+ * runtime, temporarily or recorded in the {@link ClusterState}, is kept if
+ * the new configuration does not set the level of the logger.
+ * New appenders are attached before the old ones are detached and stopped.
+ * The appenders of the module ({@link EventAppender}) are not part of the
+ * configuration and stay attached; the ones defined by context properties
+ * are applied by {@link MappedAppenders}. The {@link AppenderInstrumentation}
+ * is synchronized with the new appenders.
+ * Logback keeps the appenders of a logger in a copy on write list, so
+ * logging threads never wait for a reload. A detached appender is stopped
+ * after a {@link #GRACE} period, as a thread may still append to it from
+ * the list it read before.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("d66b238e-b3d8-4ca3-b224-f9e750a89031")
+@EFapsApplication("eFapsApp-Logback")
+public final class LogbackReloader
+{
+
+    /**
+     * Key of the object in the live context holding the definitions of the
+     * appenders of the last reload.
+     */
+    public static final String DEFINITIONS = LogbackReloader.class.getName() + ".Definitions";
+
+    /**
+     * Name of the logger the appenders created in the live context are
+     * attached to until they are attached to their loggers. Its level is
+     * OFF and it has no appender outside of a reload.
+     */
+    public static final String STAGING = LogbackReloader.class.getName() + ".Staging";
+
+    /**
+     * Name of the JoranConfigurator class.
+     */
+    private static final String JORANCONFIG = "ch.qos.logback.classic.joran.JoranConfigurator";
+
+    /**
+     * Name of the Context interface.
+     */
+    private static final String CONTEXT = "ch.qos.logback.core.Context";
+
+    /**
+     * Name of the LifeCycle interface.
+     */
+    private static final String LIFECYCLE = "ch.qos.logback.core.spi.LifeCycle";
+
+    /**
+     * Name of the ContextBase class.
+     */
+    private static final String CONTEXTBASE = "ch.qos.logback.core.ContextBase";
+
+    /**
+     * Name of the StatusManager interface.
+     */
+    private static final String STATUSMANAGER = "ch.qos.logback.core.status.StatusManager";
+
+    /**
+     * Name of the Status interface.
+     */
+    private static final String STATUS = "ch.qos.logback.core.status.Status";
+
+    /**
+     * Name of the StatusListener interface.
+     */
+    private static final String STATUSLISTENER = "ch.qos.logback.core.status.StatusListener";
+
+    /**
+     * Name of the interface of the appenders delegating to other appenders.
+     */
+    private static final String ATTACHABLE = "ch.qos.logback.core.spi.AppenderAttachable";
+
+    /**
+     * Name of the class of the appenders writing to a file.
+     */
+    private static final String FILEAPPENDER = "ch.qos.logback.core.FileAppender";
+
+    /**
+     * Name of the class of the appenders rolling their file.
+     */
+    private static final String ROLLINGAPPENDER = "ch.qos.logback.core.rolling.RollingFileAppender";
+
+    /**
+     * Name of the class registering the configuration the context was
+     * started with.
+     */
+    private static final String WATCHLIST = "ch.qos.logback.core.joran.util.ConfigurationWatchListUtil";
+
+    /**
+     * Key of the object in which Joran registers the last configuration
+     * as fallback for a failed scan.
+     */
+    private static final String SAFECONFIG = "SAFE_JORAN_CONFIGURATION";
+
+    /**
+     * Name of the appender replacing the appenders that are not used.
+     */
+    private static final String NOPAPPENDER = "ch.qos.logback.core.helpers.NOPAppender";
+
+    /**
+     * Elements of the configuration the reload does not apply.
+     */
+    private static final Set<String> IGNORED = Set.of("turboFilter", "contextName", "contextListener",
+                    "statusListener", "shutdownHook", "jmxConfigurator", "sequenceNumberGenerator", "receiver");
+
+    /**
+     * Attributes of the configuration element the reload does not apply.
+     */
+    private static final Set<String> IGNOREDATTR = Set.of("scan", "scanPeriod", "debug", "packagingData");
+
+    /**
+     * Elements of the configuration the appenders created in the live
+     * context may depend on.
+     */
+    private static final Set<String> SHARED = Set.of("property", "variable", "define", "timestamp", "import",
+                    "conversionRule");
+
+    /**
+     * Level of a Status marking an error.
+     */
+    private static final int ERROR = 2;
+
+    /**
+     * Milliseconds to wait before a detached appender is stopped.
+     */
+    private static final long GRACE = 100;
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogbackReloader.class);
+
+    /**
+     * Serializes concurrent reloads.
+     */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    /**
+     * Singleton.
+     */
+    private LogbackReloader()
+    {
+    }
+
+    /**
+     * Reload the live context with the given configuration.
+     *
+     * @param _config Joran configuration
+     * @throws EFapsException if the configuration is invalid or could not be
+     *             applied
+     */
+    public static void reload(final byte[] _config)
+        throws EFapsException
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final Object live = accessor.getContext();
+        final ClassLoader loader = live.getClass().getClassLoader();
+        final Document document = parse(_config);
+        final Map<String, String> definitions = getDefinitions(document);
+        final List<String> ignored = getIgnored(document);
+        final Map<String, Object> created = new HashMap<>();
+        final List<Object> stopped = new ArrayList<>();
+        boolean attaching = false;
+        Object temp = null;
+        MappedAppenders.Changes mapped = null;
+        LOCK.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            final Map<String, String> stored = (Map<String, String>) invoke(loader, CONTEXT, "getObject",
+                            new Class<?>[] { String.class }, live, DEFINITIONS);
+            final Map<String, String> previous = stored == null ? getStartup(loader, live) : stored;
+            final Set<String> names = getCreated(document, getKept(accessor, previous, definitions));
+            final byte[] staging = stage(document, names,
+                            invoke(loader, LogbackAccessor.LOGGERCONTEXT, "isPackagingDataEnabled", new Class<?>[0],
+                                            live));
+            temp = live.getClass().getConstructor().newInstance();
+            invoke(loader, CONTEXT, "setName", new Class<?>[] { String.class }, temp,
+                            invoke(loader, CONTEXT, "getName", new Class<?>[0], live));
+            configure(loader, temp, substitute(document));
+            final List<String> errors = getErrors(loader, temp);
+            if (!errors.isEmpty()) {
+                throw new EFapsException(LogbackReloader.class, "invalid", String.join("\n", errors));
+            }
+            @SuppressWarnings("unchecked")
+            final Map<String, String> properties = (Map<String, String>) invoke(loader, CONTEXT,
+                            "getCopyOfPropertyMap", new Class<?>[0], temp);
+            mapped = MappedAppenders.prepare(accessor, properties);
+            if (!names.isEmpty()) {
+                stopped.addAll(getFileAppenders(accessor, loader, names));
+                for (final Object appender : stopped) {
+                    invoke(loader, LIFECYCLE, "stop", new Class<?>[0], appender);
+                }
+                create(accessor, loader, live, staging, created);
+            }
+            final Stats stats = new Stats();
+            attaching = true;
+            applyAppenders(accessor, loader, temp, previous, definitions, created, stats);
+            applyLevels(accessor, loader, temp, stats);
+            MappedAppenders.apply(accessor, mapped);
+            EventAppender.syncTop(accessor);
+            invoke(loader, CONTEXT, "putObject", new Class<?>[] { String.class, Object.class }, live,
+                            DEFINITIONS, definitions);
+            AppenderInstrumentation.sync();
+            if (!ignored.isEmpty()) {
+                LOG.warn("Not applied by the reload: {}", ignored);
+            }
+            LOG.info("Reloaded configuration: {}", stats);
+        } catch (final EFapsException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new EFapsException(LogbackReloader.class, "reload", e);
+        } finally {
+            try {
+                release(accessor, loader, temp, created.values(), !attaching);
+                if (!attaching) {
+                    restart(loader, stopped);
+                }
+                if (mapped != null) {
+                    MappedAppenders.discard(mapped);
+                }
+            } catch (final Exception e) {
+                LOG.warn("Could not release the separate context", e);
+            } finally {
+                LOCK.unlock();
+            }
+        }
+    }
+
+    /**
+     * Create the new and the changed appenders in the live context. Joran
+     * reports its problems to the status manager of the context, so a
+     * listener collects the errors reported while it configures. The
+     * fallback configuration Joran registers in the context is restored, as
+     * it must stay the complete configuration. Joran aborts on the first
+     * appender it can not create, without attaching the appenders it created
+     * and started before, so on error these are found by the origin of their
+     * status and stopped, which also releases their files.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loader class loader of Logback
+     * @param _live the live context
+     * @param _config configuration containing the appenders to create
+     * @param _created collects the created appenders by name
+     * @throws Exception on error or if Joran reported an error
+     */
+    private static void create(final LogbackAccessor _accessor,
+                               final ClassLoader _loader,
+                               final Object _live,
+                               final byte[] _config,
+                               final Map<String, Object> _created)
+        throws Exception
+    {
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        final Set<Object> origins = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        final Class<?> appenderClass = Class.forName(LogbackAccessor.APPENDER, false, _loader);
+        final Class<?> listenerClass = Class.forName(STATUSLISTENER, false, _loader);
+        final Object listener = Proxy.newProxyInstance(_loader, new Class<?>[] { listenerClass },
+                        (proxy, method, args) -> {
+                            Object ret = null;
+                            switch (method.getName()) {
+                                case "addStatusEvent":
+                                    final Object origin = invoke(_loader, STATUS, "getOrigin", new Class<?>[0],
+                                                    args[0]);
+                                    if (appenderClass.isInstance(origin)) {
+                                        origins.add(origin);
+                                    }
+                                    if ((Integer) invoke(_loader, STATUS, "getLevel", new Class<?>[0],
+                                                    args[0]) >= ERROR) {
+                                        errors.add(String.valueOf(invoke(_loader, STATUS, "getMessage",
+                                                        new Class<?>[0], args[0])));
+                                    }
+                                    break;
+                                case "isResetResistant":
+                                    ret = false;
+                                    break;
+                                case "equals":
+                                    ret = proxy == args[0];
+                                    break;
+                                case "hashCode":
+                                    ret = System.identityHashCode(proxy);
+                                    break;
+                                default:
+                                    ret = LogbackReloader.class.getSimpleName() + "StatusListener";
+                                    break;
+                            }
+                            return ret;
+                        });
+        final Object statusManager = invoke(_loader, CONTEXT, "getStatusManager", new Class<?>[0], _live);
+        final Object safe = invoke(_loader, CONTEXT, "getObject", new Class<?>[] { String.class }, _live,
+                        SAFECONFIG);
+        invoke(_loader, STATUSMANAGER, "add", new Class<?>[] { listenerClass }, statusManager, listener);
+        try {
+            configure(_loader, _live, _config);
+        } finally {
+            invoke(_loader, STATUSMANAGER, "remove", new Class<?>[] { listenerClass }, statusManager, listener);
+            if (safe == null) {
+                invoke(_loader, CONTEXTBASE, "removeObject", new Class<?>[] { String.class }, _live, SAFECONFIG);
+            } else {
+                invoke(_loader, CONTEXT, "putObject", new Class<?>[] { String.class, Object.class }, _live,
+                                SAFECONFIG, safe);
+            }
+            final Iterator<?> iter = _accessor.iteratorForAppenders(_accessor.getLogger(STAGING));
+            while (iter.hasNext()) {
+                final Object appender = iter.next();
+                _created.put(_accessor.getAppenderName(appender), appender);
+            }
+        }
+        if (!errors.isEmpty()) {
+            synchronized (origins) {
+                for (final Object appender : origins) {
+                    invoke(_loader, LIFECYCLE, "stop", new Class<?>[0], appender);
+                }
+            }
+            throw new EFapsException(LogbackReloader.class, "invalid", String.join("\n", errors));
+        }
+    }
+
+    /**
+     * Stop the separate context and detach the created appenders from the
+     * {@link #STAGING} logger. Stopping the separate context stops all
+     * objects created by Joran for it, its turbo filters and its tasks.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loader class loader of Logback
+     * @param _temp the separate context, null if not created
+     * @param _created appenders created in the live context
+     * @param _stop stop the created appenders, as the reload failed before
+     *            they were attached
+     * @throws Exception on error
+     */
+    private static void release(final LogbackAccessor _accessor,
+                                final ClassLoader _loader,
+                                final Object _temp,
+                                final Collection<Object> _created,
+                                final boolean _stop)
+        throws Exception
+    {
+        if (!_created.isEmpty()) {
+            final Object staging = _accessor.getLogger(STAGING);
+            for (final Object appender : _created) {
+                _accessor.detachAppenderInstance(staging, appender);
+                if (_stop) {
+                    _accessor.stop(appender);
+                }
+            }
+        }
+        if (_temp != null) {
+            invoke(_loader, LIFECYCLE, "stop", new Class<?>[0], _temp);
+        }
+    }
+
+    /**
+     * Get the file appenders of the live context that are replaced. A file
+     * appender registers its file in the context and refuses to start if
+     * another appender did so for the same file, even under the same name,
+     * so the old instance must be stopped before the new one is created.
+     * Stopping it removes the registration.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loader class loader of Logback
+     * @param _names names of the appenders to create
+     * @return the started file appenders of the live context, also the
+     *         delegates of an AsyncAppender, with a name to create
+     * @throws Exception on error
+     */
+    private static List<Object> getFileAppenders(final LogbackAccessor _accessor,
+                                                 final ClassLoader _loader,
+                                                 final Set<String> _names)
+        throws Exception
+    {
+        final Class<?> fileClass = Class.forName(FILEAPPENDER, false, _loader);
+        final Class<?> attachableClass = Class.forName(ATTACHABLE, false, _loader);
+        final List<Object> ret = new ArrayList<>();
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> pending = new ArrayDeque<>();
+        for (final List<Object> appenders : getAttached(_accessor, _accessor.getLoggerList()).values()) {
+            pending.addAll(appenders);
+        }
+        while (!pending.isEmpty()) {
+            final Object appender = AppenderProxy.unwrap(pending.poll());
+            if (visited.add(appender)) {
+                if (fileClass.isInstance(appender) && _names.contains(_accessor.getAppenderName(appender))
+                                && (Boolean) invoke(_loader, LIFECYCLE, "isStarted", new Class<?>[0], appender)) {
+                    ret.add(appender);
+                }
+                if (attachableClass.isInstance(appender)) {
+                    final Iterator<?> iter = (Iterator<?>) invoke(_loader, ATTACHABLE, "iteratorForAppenders",
+                                    new Class<?>[0], appender);
+                    iter.forEachRemaining(pending::add);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Start the file appenders again that were stopped for a reload that
+     * failed. A RollingFileAppender stops its policies, so they are started
+     * first.
+     *
+     * @param _loader class loader of Logback
+     * @param _stopped the stopped file appenders
+     */
+    private static void restart(final ClassLoader _loader,
+                                final List<Object> _stopped)
+    {
+        for (final Object appender : _stopped) {
+            try {
+                if (Class.forName(ROLLINGAPPENDER, false, _loader).isInstance(appender)) {
+                    for (final String getter : new String[] { "getTriggeringPolicy", "getRollingPolicy" }) {
+                        final Object policy = invoke(_loader, ROLLINGAPPENDER, getter, new Class<?>[0], appender);
+                        if (policy != null && !(Boolean) invoke(_loader, LIFECYCLE, "isStarted", new Class<?>[0],
+                                        policy)) {
+                            invoke(_loader, LIFECYCLE, "start", new Class<?>[0], policy);
+                        }
+                    }
+                }
+                invoke(_loader, LIFECYCLE, "start", new Class<?>[0], appender);
+            } catch (final Exception e) {
+                LOG.error("Catched", e);
+            }
+        }
+    }
+
+    /**
+     * Get the definitions of the configuration the live context was started
+     * with, used for the first reload. An appender changed in the file since
+     * then, or in a context configured without a file, is replaced.
+     *
+     * @param _loader class loader of Logback
+     * @param _live the live context
+     * @return definition by name of the appender, empty if the
+     *         configuration is not known
+     */
+    private static Map<String, String> getStartup(final ClassLoader _loader,
+                                                  final Object _live)
+    {
+        Map<String, String> ret = Collections.emptyMap();
+        try {
+            final URL url = (URL) invoke(_loader, WATCHLIST, "getMainWatchURL",
+                            new Class<?>[] { Class.forName(CONTEXT, false, _loader) }, null, _live);
+            if (url != null) {
+                try (InputStream in = url.openStream()) {
+                    ret = getDefinitions(parse(in.readAllBytes()));
+                }
+            }
+        } catch (final Exception e) {
+            LOG.warn("Could not read the startup configuration", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Attach the appenders referenced by the loggers of the separate context
+     * to the loggers of the live context and remove the ones no longer
+     * configured.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loader class loader of Logback
+     * @param _temp the separate context
+     * @param _previous definitions of the last reload
+     * @param _current definitions of this reload
+     * @param _created appenders created in the live context by name
+     * @param _stats statistic to update
+     * @throws Exception on error
+     */
+    private static void applyAppenders(final LogbackAccessor _accessor,
+                                       final ClassLoader _loader,
+                                       final Object _temp,
+                                       final Map<String, String> _previous,
+                                       final Map<String, String> _current,
+                                       final Map<String, Object> _created,
+                                       final Stats _stats)
+        throws Exception
+    {
+        final Map<String, List<Object>> liveAttached = getAttached(_accessor, _accessor.getLoggerList());
+        final Map<String, List<Object>> tempAttached = getAttached(_accessor, _accessor.getLoggerList(_temp));
+        final Map<String, Object> liveByName = new HashMap<>();
+        for (final List<Object> appenders : liveAttached.values()) {
+            for (final Object appender : appenders) {
+                liveByName.put(_accessor.getAppenderName(appender), appender);
+            }
+        }
+        // resolve the instance to use for every appender of the new configuration
+        final Map<Object, Object> resolved = new IdentityHashMap<>();
+        for (final List<Object> appenders : tempAttached.values()) {
+            for (final Object appender : appenders) {
+                final String name = _accessor.getAppenderName(appender);
+                final Object existing = liveByName.get(name);
+                if (!resolved.containsKey(appender)) {
+                    if (existing != null && isUnchanged(name, _previous, _current)) {
+                        resolved.put(appender, existing);
+                    } else if (_created.containsKey(name)) {
+                        final Object instance = _created.get(name);
+                        final AppenderProxy handler = existing == null ? null
+                                        : AppenderProxy.getHandler(existing);
+                        resolved.put(appender, handler == null ? instance
+                                        : AppenderProxy.wrap(instance, handler.getStats()));
+                        if (existing == null) {
+                            _stats.added++;
+                        } else {
+                            _stats.replaced++;
+                        }
+                    }
+                }
+            }
+        }
+        final Set<String> loggerNames = new HashSet<>(liveAttached.keySet());
+        loggerNames.addAll(tempAttached.keySet());
+        final Set<Object> detached = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<Object> stillAttached = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final String loggerName : loggerNames) {
+            final Object logger = _accessor.getLogger(loggerName);
+            final List<Object> current = liveAttached.getOrDefault(loggerName, Collections.emptyList());
+            final Set<Object> target = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final Object appender : tempAttached.getOrDefault(loggerName, Collections.emptyList())) {
+                if (resolved.containsKey(appender)) {
+                    target.add(resolved.get(appender));
+                }
+            }
+            // first attach, then detach, so the logger is never without appender
+            for (final Object appender : target) {
+                if (!containsInstance(current, appender)) {
+                    _accessor.addAppender(logger, appender);
+                }
+            }
+            for (final Object appender : current) {
+                if (target.contains(appender)) {
+                    stillAttached.add(appender);
+                } else {
+                    _accessor.detachAppenderInstance(logger, appender);
+                    detached.add(appender);
+                }
+            }
+        }
+        detached.removeIf(appender -> stillAttached.contains(appender) || resolved.containsValue(appender));
+        if (!detached.isEmpty()) {
+            Thread.sleep(GRACE);
+        }
+        for (final Object appender : detached) {
+            _accessor.stop(appender);
+            if (!_current.containsKey(_accessor.getAppenderName(appender))) {
+                _stats.removed++;
+            }
+        }
+    }
+
+    /**
+     * @param _name name of the appender
+     * @param _previous definitions of the last reload
+     * @param _current definitions of this reload
+     * @return true if the definition of the appender did not change
+     */
+    private static boolean isUnchanged(final String _name,
+                                       final Map<String, String> _previous,
+                                       final Map<String, String> _current)
+    {
+        return _current.get(_name) != null && _current.get(_name).equals(_previous.get(_name));
+    }
+
+    /**
+     * Apply the levels and the additivity of the separate context to the
+     * live context. A level set by the new configuration replaces a
+     * temporary level of the {@link LevelOverrides}, so the override is
+     * discarded and not reverted later. Loggers of the live context with an
+     * explicit level that is not set by the new configuration inherit their
+     * level again, unless the level was changed at runtime, i.e. it is
+     * overridden temporarily or recorded in the {@link ClusterState}.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loader class loader of Logback
+     * @param _temp the separate context
+     * @param _stats statistic to update
+     * @throws Exception on error
+     */
+    private static void applyLevels(final LogbackAccessor _accessor,
+                                    final ClassLoader _loader,
+                                    final Object _temp,
+                                    final Stats _stats)
+        throws Exception
+    {
+        final Map<String, Object> configured = new HashMap<>();
+        for (final Object tempLogger : _accessor.getLoggerList(_temp)) {
+            final String name = _accessor.getName(tempLogger);
+            final Object logger = _accessor.getLogger(name);
+            final Object level = _accessor.getLevel(tempLogger);
+            if (level != null) {
+                configured.put(name, level);
+                if (!level.equals(_accessor.getLevel(logger))) {
+                    _accessor.setLevel(logger, level);
+                    _stats.levels++;
+                }
+                LevelOverrides.discard(name);
+            }
+            final Object additive = invoke(_loader, LogbackAccessor.LOGGER, "isAdditive", new Class<?>[0],
+                            tempLogger);
+            if (!Objects.equals(additive, invoke(_loader, LogbackAccessor.LOGGER, "isAdditive", new Class<?>[0],
+                            logger))) {
+                invoke(_loader, LogbackAccessor.LOGGER, "setAdditive", new Class<?>[] { boolean.class }, logger,
+                                additive);
+            }
+        }
+        for (final Object logger : _accessor.getLoggerList()) {
+            final String name = _accessor.getName(logger);
+            if (!LoggerTree.ROOT.equals(name) && !configured.containsKey(name)
+                            && _accessor.getLevel(logger) != null && !LevelOverrides.isOverridden(name)
+                            && !ClusterState.hasLevel(name)) {
+                _accessor.setLevel(logger, null);
+                _stats.levels++;
+            }
+        }
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _loggers loggers
+     * @return the appenders by name of the logger without the appenders of
+     *         the module, only loggers with appenders are included and the
+     *         {@link #STAGING} logger is not
+     * @throws EFapsException on error
+     */
+    private static Map<String, List<Object>> getAttached(final LogbackAccessor _accessor,
+                                                         final List<?> _loggers)
+        throws EFapsException
+    {
+        final Map<String, List<Object>> ret = new LinkedHashMap<>();
+        for (final Object logger : _loggers) {
+            final Iterator<?> iter = _accessor.iteratorForAppenders(logger);
+            final List<Object> appenders = new ArrayList<>();
+            while (iter.hasNext()) {
+                final Object appender = iter.next();
+                if (!EventAppender.isEventAppender(appender)) {
+                    appenders.add(appender);
+                }
+            }
+            if (!appenders.isEmpty() && !STAGING.equals(_accessor.getName(logger))) {
+                ret.put(_accessor.getName(logger), appenders);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _list list to search
+     * @param _object object to search for
+     * @return true if the list contains the instance
+     */
+    private static boolean containsInstance(final List<Object> _list,
+                                            final Object _object)
+    {
+        boolean ret = false;
+        for (final Object obj : _list) {
+            if (obj == _object) {
+                ret = true;
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Configure the context using Joran.
+     *
+     * @param _loader class loader of Logback
+     * @param _context context to configure
+     * @param _config configuration
+     * @throws Exception on error
+     */
+    private static void configure(final ClassLoader _loader,
+                                  final Object _context,
+                                  final byte[] _config)
+        throws Exception
+    {
+        final Class<?> configurator = Class.forName(JORANCONFIG, false, _loader);
+        final Object configInstance = configurator.getConstructor().newInstance();
+        configurator.getMethod("setContext", Class.forName(CONTEXT, false, _loader))
+                        .invoke(configInstance, _context);
+        try {
+            configurator.getMethod("doConfigure", InputStream.class)
+                            .invoke(configInstance, new ByteArrayInputStream(_config));
+        } catch (final InvocationTargetException e) {
+            // the errors are also registered in the status manager
+            LOG.debug("Configuration failed", e);
+        }
+    }
+
+    /**
+     * @param _loader class loader of Logback
+     * @param _context context to check
+     * @return the error messages of the status manager of the context
+     * @throws Exception on error
+     */
+    private static List<String> getErrors(final ClassLoader _loader,
+                                          final Object _context)
+        throws Exception
+    {
+        final List<String> ret = new ArrayList<>();
+        final Object statusManager = invoke(_loader, CONTEXT, "getStatusManager", new Class<?>[0], _context);
+        final List<?> statusList = (List<?>) invoke(_loader, STATUSMANAGER, "getCopyOfStatusList", new Class<?>[0],
+                        statusManager);
+        for (final Object status : statusList) {
+            if ((Integer) invoke(_loader, STATUS, "getLevel", new Class<?>[0], status) >= ERROR) {
+                ret.add(String.valueOf(invoke(_loader, STATUS, "getMessage", new Class<?>[0], status)));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _config configuration
+     * @return the parsed configuration
+     * @throws EFapsException if the configuration can not be parsed
+     */
+    private static Document parse(final byte[] _config)
+        throws EFapsException
+    {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(_config));
+        } catch (final Exception e) {
+            throw new EFapsException(LogbackReloader.class, "parse", e);
+        }
+    }
+
+    /**
+     * @param _document configuration
+     * @return the elements and attributes of the configuration the reload
+     *         does not apply
+     */
+    private static List<String> getIgnored(final Document _document)
+    {
+        final List<String> ret = new ArrayList<>();
+        final Element root = _document.getDocumentElement();
+        for (final String attribute : IGNOREDATTR) {
+            if (root.hasAttribute(attribute)) {
+                ret.add("@" + attribute);
+            }
+        }
+        for (final Element element : getChildren(root)) {
+            if (IGNORED.contains(element.getTagName())) {
+                ret.add(element.getTagName());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _previous definitions of the last reload
+     * @param _current definitions of this reload
+     * @return names of the appenders attached in the live context that are
+     *         kept as their definition did not change
+     * @throws EFapsException on error
+     */
+    private static Set<String> getKept(final LogbackAccessor _accessor,
+                                       final Map<String, String> _previous,
+                                       final Map<String, String> _current)
+        throws EFapsException
+    {
+        final Set<String> ret = new HashSet<>();
+        for (final List<Object> appenders : getAttached(_accessor, _accessor.getLoggerList()).values()) {
+            for (final Object appender : appenders) {
+                final String name = _accessor.getAppenderName(appender);
+                if (isUnchanged(name, _previous, _current)) {
+                    ret.add(name);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _document configuration
+     * @param _kept names of the appenders that are kept
+     * @return names of the appenders to create: the ones referenced by a
+     *         logger that are not kept, and the appenders they reference,
+     *         e.g. the delegates of an AsyncAppender
+     */
+    private static Set<String> getCreated(final Document _document,
+                                          final Set<String> _kept)
+    {
+        final Element root = _document.getDocumentElement();
+        final Map<String, Element> appenders = new LinkedHashMap<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        for (final Element element : getChildren(root)) {
+            if ("appender".equals(element.getTagName())) {
+                appenders.put(element.getAttribute("name"), element);
+            } else if ("logger".equals(element.getTagName()) || "root".equals(element.getTagName())) {
+                for (final Element ref : getChildren(element)) {
+                    if ("appender-ref".equals(ref.getTagName()) && !_kept.contains(ref.getAttribute("ref"))) {
+                        pending.add(ref.getAttribute("ref"));
+                    }
+                }
+            }
+        }
+        final Set<String> ret = new LinkedHashSet<>();
+        while (!pending.isEmpty()) {
+            final String name = pending.poll();
+            if (appenders.containsKey(name) && ret.add(name)) {
+                final NodeList refs = appenders.get(name).getElementsByTagName("appender-ref");
+                for (int i = 0; i < refs.getLength(); i++) {
+                    pending.add(((Element) refs.item(i)).getAttribute("ref"));
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Build the configuration creating appenders in the live context: the
+     * shared elements, e.g. the properties, the appenders and the
+     * {@link #STAGING} logger referencing them.
+     *
+     * @param _document configuration
+     * @param _names names of the appenders to create
+     * @param _packagingData current setting of the live context, as Joran
+     *            sets it in any case
+     * @return the configuration to pass to Joran
+     * @throws EFapsException on error
+     */
+    private static byte[] stage(final Document _document,
+                                final Set<String> _names,
+                                final Object _packagingData)
+        throws EFapsException
+    {
+        try {
+            final Document staging = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            final Element root = staging.createElement("configuration");
+            root.setAttribute("packagingData", String.valueOf(_packagingData));
+            staging.appendChild(root);
+            for (final Element element : getChildren(_document.getDocumentElement())) {
+                if (SHARED.contains(element.getTagName()) || "appender".equals(element.getTagName())
+                                && _names.contains(element.getAttribute("name"))) {
+                    root.appendChild(staging.importNode(element, true));
+                }
+            }
+            final Element logger = staging.createElement("logger");
+            logger.setAttribute("name", STAGING);
+            logger.setAttribute("level", "OFF");
+            logger.setAttribute("additivity", "false");
+            for (final String name : _names) {
+                final Element ref = staging.createElement("appender-ref");
+                ref.setAttribute("ref", name);
+                logger.appendChild(ref);
+            }
+            root.appendChild(logger);
+            return serialize(staging);
+        } catch (final ParserConfigurationException e) {
+            throw new EFapsException(LogbackReloader.class, "stage", e);
+        }
+    }
+
+    /**
+     * Replace every appender by a NOPAppender, so that Joran does not start
+     * any appender in the separate context.
+     *
+     * @param _document configuration, is changed
+     * @return the configuration to pass to Joran
+     * @throws EFapsException on error
+     */
+    private static byte[] substitute(final Document _document)
+        throws EFapsException
+    {
+        final Element root = _document.getDocumentElement();
+        for (final Element element : getChildren(root)) {
+            if ("appender".equals(element.getTagName())) {
+                final Element nop = _document.createElement("appender");
+                nop.setAttribute("name", element.getAttribute("name"));
+                nop.setAttribute("class", NOPAPPENDER);
+                root.replaceChild(nop, element);
+            }
+        }
+        return serialize(_document);
+    }
+
+    /**
+     * @param _document document to serialize
+     * @return the document as bytes
+     * @throws EFapsException on error
+     */
+    private static byte[] serialize(final Document _document)
+        throws EFapsException
+    {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(_document),
+                            new StreamResult(out));
+            return out.toByteArray();
+        } catch (final TransformerException e) {
+            throw new EFapsException(LogbackReloader.class, "serialize", e);
+        }
+    }
+
+    /**
+     * @param _element parent element
+     * @return the child elements
+     */
+    private static List<Element> getChildren(final Element _element)
+    {
+        final List<Element> ret = new ArrayList<>();
+        final NodeList nodes = _element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof final Element child) {
+                ret.add(child);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get the definitions of the appenders from the configuration. The
+     * definition of an appender includes the definitions of the appenders it
+     * references, so that e.g. an AsyncAppender is replaced if its delegate
+     * changed.
+     *
+     * @param _document configuration
+     * @return definition by name of the appender
+     * @throws EFapsException if the configuration can not be parsed
+     */
+    private static Map<String, String> getDefinitions(final Document _document)
+        throws EFapsException
+    {
+        final Map<String, String> raw = new HashMap<>();
+        final Map<String, List<String>> refs = new HashMap<>();
+        try {
+            final NodeList nodes = _document.getElementsByTagName("appender");
+            final var transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            for (int i = 0; i < nodes.getLength(); i++) {
+                final Element element = (Element) nodes.item(i);
+                final StringWriter writer = new StringWriter();
+                transformer.transform(new DOMSource(element), new StreamResult(writer));
+                final String name = element.getAttribute("name");
+                raw.put(name, writer.toString());
+                final List<String> names = new ArrayList<>();
+                final NodeList refNodes = element.getElementsByTagName("appender-ref");
+                for (int j = 0; j < refNodes.getLength(); j++) {
+                    names.add(((Element) refNodes.item(j)).getAttribute("ref"));
+                }
+                refs.put(name, names);
+            }
+        } catch (final TransformerException e) {
+            throw new EFapsException(LogbackReloader.class, "parse", e);
+        }
+        final Map<String, String> ret = new HashMap<>();
+        for (final String name : raw.keySet()) {
+            final StringBuilder definition = new StringBuilder();
+            appendDefinition(definition, name, raw, refs, new HashSet<>());
+            ret.put(name, definition.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * @param _bldr StringBuilder to append to
+     * @param _name name of the appender
+     * @param _raw definitions of the appenders
+     * @param _refs referenced appenders
+     * @param _visited names already appended
+     */
+    private static void appendDefinition(final StringBuilder _bldr,
+                                         final String _name,
+                                         final Map<String, String> _raw,
+                                         final Map<String, List<String>> _refs,
+                                         final Set<String> _visited)
+    {
+        if (_visited.add(_name)) {
+            _bldr.append(_raw.get(_name));
+            for (final String ref : _refs.getOrDefault(_name, Collections.emptyList())) {
+                appendDefinition(_bldr, ref, _raw, _refs, _visited);
+            }
+        }
+    }
+
+    /**
+     * Invoke a method declared by a Logback class or interface.
+     *
+     * @param _loader class loader of Logback
+     * @param _className name of the declaring class or interface
+     * @param _method name of the method
+     * @param _types parameter types
+     * @param _target object to invoke the method on
+     * @param _args arguments
+     * @return result of the invocation
+     * @throws Exception on error
+     */
+    private static Object invoke(final ClassLoader _loader,
+                                 final String _className,
+                                 final String _method,
+                                 final Class<?>[] _types,
+                                 final Object _target,
+                                 final Object... _args)
+        throws Exception
+    {
+        final Method method = Class.forName(_className, false, _loader).getMethod(_method, _types);
+        return method.invoke(_target, _args);
+    }
+
+    /**
+     * Statistic of a reload.
+     */
+    private static final class Stats
+    {
+
+        private int levels;
+        private int added;
+        private int replaced;
+        private int removed;
+
+        @Override
+        public String toString()
+        {
+            return "levels=" + levels + ", added=" + added + ", replaced=" + replaced + ", removed=" + removed;
+        }
+    }
+}
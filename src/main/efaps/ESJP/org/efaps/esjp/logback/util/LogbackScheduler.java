@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the time based tasks of the application, like the expiry of
+ * temporary rules, on the scheduled executor of the LoggerContext. The
+ * application starts no thread of its own that would outlive a recompile
+ * of the ESJPs: the executor belongs to Logback and is shut down together
+ * with the context. The tasks must be short.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("bfde2bb1-698f-4002-b303-a04cb9b77e9b")
+@EFapsApplication("eFapsApp-Logback")
+public final class LogbackScheduler
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogbackScheduler.class);
+
+    /**
+     * Singleton.
+     */
+    private LogbackScheduler()
+    {
+    }
+
+    /**
+     * @param _task task to run
+     * @param _delay delay
+     * @param _unit unit of the delay
+     * @return future of the task
+     */
+    public static ScheduledFuture<?> schedule(final Runnable _task,
+                                              final long _delay,
+                                              final TimeUnit _unit)
+    {
+        return executor().schedule(() -> run(_task), _delay, _unit);
+    }
+
+    /**
+     * @param _task task to run
+     * @param _period period
+     * @param _unit unit of the period
+     * @return future of the task
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(final Runnable _task,
+                                                         final long _period,
+                                                         final TimeUnit _unit)
+    {
+        return executor().scheduleAtFixedRate(() -> run(_task), _period, _period, _unit);
+    }
+
+    /**
+     * @return the scheduled executor of the LoggerContext
+     */
+    private static ScheduledExecutorService executor()
+    {
+        try {
+            return LogbackAccessor.get().getScheduledExecutorService();
+        } catch (final EFapsException e) {
+            throw new IllegalStateException("No scheduled executor in the LoggerContext", e);
+        }
+    }
+
+    /**
+     * Run a task, an exception must not cancel periodic tasks.
+     *
+     * @param _task task to run
+     */
+    private static void run(final Runnable _task)
+    {
+        try {
+            _task.run();
+        } catch (final RuntimeException e) {
+            LOG.error("Catched", e);
+        }
+    }
+}
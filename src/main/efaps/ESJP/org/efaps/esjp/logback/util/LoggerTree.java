@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+
+/**
+ * Navigates the hierarchy of the loggers in the list returned by the
+ * LoggerContext. The list is sorted by name with the root logger first, and
+ * Logback creates a logger for every level of a name separated by dots or
+ * dollar signs, so the descendants of a logger are the two contiguous ranges
+ * of names starting with its name plus a dollar sign or a dot.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("ebe4ca15-4f4b-4419-9f89-9a200330d976")
+@EFapsApplication("eFapsApp-Logback")
+public final class LoggerTree
+{
+
+    /** Name of the root logger. */
+    public static final String ROOT = "ROOT";
+
+    /**
+     * Singleton.
+     */
+    private LoggerTree()
+    {
+    }
+
+    /**
+     * Get the name of the parent like the LoggerNameUtil of Logback, which
+     * separates the names by dots and dollar signs, so the parent of
+     * <code>org.efaps.Foo$Bar</code> is <code>org.efaps.Foo</code>.
+     *
+     * @param _name name of the logger
+     * @return name of the parent, null for the root logger
+     */
+    public static String getParent(final String _name)
+    {
+        final String ret;
+        final int idx = Math.max(_name.lastIndexOf('.'), _name.lastIndexOf('$'));
+        if (idx > 0) {
+            ret = _name.substring(0, idx);
+        } else {
+            ret = ROOT.equals(_name) ? null : ROOT;
+        }
+        return ret;
+    }
+
+    /**
+     * Compare like the LoggerComparator of Logback: root first, then by name.
+     *
+     * @param _name1 first name
+     * @param _name2 second name
+     * @return comparison result
+     */
+    public static int compare(final String _name1,
+                              final String _name2)
+    {
+        final int ret;
+        if (_name1.equals(_name2)) {
+            ret = 0;
+        } else if (ROOT.equals(_name1)) {
+            ret = -1;
+        } else if (ROOT.equals(_name2)) {
+            ret = 1;
+        } else {
+            ret = _name1.compareTo(_name2);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _loggers sorted list of loggers
+     * @param _key key to search
+     * @return index of the first logger whose name is not lower than the key
+     * @throws EFapsException on error
+     */
+    public static int lowerBound(final LogbackAccessor _accessor,
+                                 final List<?> _loggers,
+                                 final String _key)
+        throws EFapsException
+    {
+        int low = 0;
+        int high = _loggers.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(_accessor.getName(_loggers.get(mid)), _key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _loggers sorted list of loggers
+     * @param _key key to search
+     * @return index of the first logger whose name is greater than the key
+     * @throws EFapsException on error
+     */
+    public static int upperBound(final LogbackAccessor _accessor,
+                                 final List<?> _loggers,
+                                 final String _key)
+        throws EFapsException
+    {
+        return lowerBound(_accessor, _loggers, _key + '\u0000');
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _loggers sorted list of loggers
+     * @param _name name of the logger
+     * @return number of descendants of the logger
+     * @throws EFapsException on error
+     */
+    public static int countDescendants(final LogbackAccessor _accessor,
+                                       final List<?> _loggers,
+                                       final String _name)
+        throws EFapsException
+    {
+        final int ret;
+        if (ROOT.equals(_name)) {
+            ret = Math.max(0, _loggers.size() - 1);
+        } else {
+            ret = lowerBound(_accessor, _loggers, _name + '%') - lowerBound(_accessor, _loggers, _name + '$')
+                            + lowerBound(_accessor, _loggers, _name + '/') - lowerBound(_accessor, _loggers, _name + '.');
+        }
+        return ret;
+    }
+
+    /**
+     * Get a page of the direct children of a logger. The subtree of each
+     * child is skipped by a binary search, so the cost depends on the number
+     * of children and not on the number of descendants.
+     *
+     * @param _accessor accessor to Logback
+     * @param _loggers sorted list of loggers
+     * @param _node name of the parent logger
+     * @param _cursor name of the last child of the previous page, may be null
+     * @param _limit maximum number of children, 0 for all
+     * @return the page
+     * @throws EFapsException on error
+     */
+    public static Page children(final LogbackAccessor _accessor,
+                                final List<?> _loggers,
+                                final String _node,
+                                final String _cursor,
+                                final int _limit)
+        throws EFapsException
+    {
+        final boolean root = _node == null || ROOT.equals(_node);
+        // the children separated by a dollar sign sort before those separated by a dot
+        final String[] prefixes = root ? new String[] { "" } : new String[] { _node + "$", _node + "." };
+        int index = _cursor == null ? 0 : upperBound(_accessor, _loggers, _cursor);
+        final Page ret = new Page();
+        for (final String prefix : prefixes) {
+            index = Math.max(index, lowerBound(_accessor, _loggers, prefix));
+            while (index < _loggers.size() && ret.next == null) {
+                final Object logger = _loggers.get(index);
+                final String name = _accessor.getName(logger);
+                if (!name.startsWith(prefix)) {
+                    break;
+                }
+                if (ROOT.equals(name)) {
+                    index++;
+                } else if (_limit > 0 && ret.loggers.size() == _limit) {
+                    ret.next = _accessor.getName(ret.loggers.get(ret.loggers.size() - 1));
+                } else {
+                    final int separator = separator(name, prefix.length());
+                    if (separator < 0) {
+                        ret.loggers.add(logger);
+                        index++;
+                    } else {
+                        // skip the rest of the subtree of the child separated by this separator
+                        index = lowerBound(_accessor, _loggers,
+                                        name.substring(0, separator) + (char) (name.charAt(separator) + 1));
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param _name name of a logger
+     * @param _from index to start the search at
+     * @return index of the first dot or dollar sign, -1 if there is none
+     */
+    private static int separator(final String _name,
+                                 final int _from)
+    {
+        final int dot = _name.indexOf('.', _from);
+        final int dollar = _name.indexOf('$', _from);
+        return dot < 0 || dollar >= 0 && dollar < dot ? dollar : dot;
+    }
+
+    /**
+     * A page of loggers.
+     */
+    public static final class Page
+    {
+
+        /** The loggers. */
+        private final List<Object> loggers = new ArrayList<>();
+
+        /** Cursor for the next page, null if there is none. */
+        private String next;
+
+        /**
+         * @return the loggers
+         */
+        public List<Object> getLoggers()
+        {
+            return loggers;
+        }
+
+        /**
+         * @return cursor for the next page, null if there is none
+         */
+        public String getNext()
+        {
+            return next;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appenders writing to a {@link MappedLog}. Joran cannot instantiate classes
+ * of the module, so these appenders are defined by context properties of the
+ * configuration, e.g. for an appender named MAPPED:
+ *
+ * <pre>
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.file" value="${LOG_DIR}/efaps"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.loggers" value="ROOT"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.pattern" value="%d %-5level %logger - %msg%n"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.segmentSize" value="64MB"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.syncInterval" value="1000"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.syncSize" value="1MB"/&gt;
+ * &lt;property scope="context" name="efaps.mapped.MAPPED.format" value="binary"/&gt;
+ * </pre>
+ *
+ * Only <code>file</code> is required. The format <code>text</code>, the
+ * default, uses the pattern; <code>binary</code> uses the
+ * {@link BinaryEventEncoder} and ignores the pattern. The appenders are applied by
+ * {@link LogbackReloader} with each reload; an appender whose properties
+ * changed is replaced. The new appenders are built by {@link #prepare} before
+ * the live context is changed, so a failure rejects the reload, and attached
+ * by {@link #apply} with the other changes.
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("572edd8f-714c-4814-9757-c23ecdbab341")
+@EFapsApplication("eFapsApp-Logback")
+public final class MappedAppenders
+{
+
+    /** Prefix of the context properties. */
+    public static final String PREFIX = "efaps.mapped.";
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedAppenders.class);
+
+    /** Milliseconds to wait before the log of a detached appender is closed. */
+    private static final long GRACE = 100;
+
+    /** The active appenders by name, guarded by the class. */
+    private static final Map<String, Active> ACTIVE = new HashMap<>();
+
+    /**
+     * Singleton.
+     */
+    private MappedAppenders()
+    {
+    }
+
+    /**
+     * Build the appenders defined by the properties that are not active with
+     * the same properties. Nothing is attached yet.
+     *
+     * @param _accessor accessor to Logback
+     * @param _properties context properties of the configuration
+     * @return the changes to apply or discard
+     * @throws EFapsException if an appender can not be built
+     */
+    public static synchronized Changes prepare(final LogbackAccessor _accessor,
+                                               final Map<String, String> _properties)
+        throws EFapsException
+    {
+        final Map<String, Map<String, String>> configs = new TreeMap<>();
+        for (final var entry : _properties.entrySet()) {
+            final String key = entry.getKey();
+            final int idx = key.lastIndexOf('.');
+            if (key.startsWith(PREFIX) && idx > PREFIX.length()) {
+                configs.computeIfAbsent(key.substring(PREFIX.length(), idx), name -> new TreeMap<>())
+                                .put(key.substring(idx + 1), entry.getValue());
+            }
+        }
+        final Changes ret = new Changes();
+        for (final var entry : ACTIVE.entrySet()) {
+            if (!entry.getValue().config.equals(configs.get(entry.getKey()))) {
+                ret.removed.add(entry.getKey());
+            }
+        }
+        try {
+            for (final var entry : configs.entrySet()) {
+                if (!ACTIVE.containsKey(entry.getKey()) || ret.removed.contains(entry.getKey())) {
+                    final Active active = create(_accessor, entry.getKey(), entry.getValue());
+                    if (active != null) {
+                        ret.created.put(entry.getKey(), active);
+                    }
+                }
+            }
+        } catch (final EFapsException e) {
+            discard(ret);
+            throw e;
+        }
+        return ret;
+    }
+
+    /**
+     * Detach the removed and replaced appenders and attach the built ones.
+     *
+     * @param _accessor accessor to Logback
+     * @param _changes changes built by {@link #prepare}
+     * @throws EFapsException on error
+     */
+    public static synchronized void apply(final LogbackAccessor _accessor,
+                                          final Changes _changes)
+        throws EFapsException
+    {
+        _changes.applied = true;
+        final List<Active> removed = new ArrayList<>();
+        for (final String name : _changes.removed) {
+            final Active active = ACTIVE.remove(name);
+            for (final Object logger : active.loggers) {
+                _accessor.detachAppender(logger, name);
+            }
+            removed.add(active);
+        }
+        for (final var entry : _changes.created.entrySet()) {
+            final Active active = entry.getValue();
+            for (final String loggerName : active.config.getOrDefault("loggers", "ROOT").split(",")) {
+                if (!loggerName.isBlank()) {
+                    final Object logger = _accessor.getLogger(loggerName.trim());
+                    _accessor.addAppender(logger, active.appender);
+                    active.loggers.add(logger);
+                }
+            }
+            ACTIVE.put(entry.getKey(), active);
+        }
+        if (!removed.isEmpty()) {
+            // give the threads that passed the appender time to finish
+            try {
+                Thread.sleep(GRACE);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (final Active active : removed) {
+            close(active);
+        }
+    }
+
+    /**
+     * Close the logs of the appenders built for changes that are not
+     * applied, as the reload failed.
+     *
+     * @param _changes changes built by {@link #prepare}
+     */
+    public static synchronized void discard(final Changes _changes)
+    {
+        if (!_changes.applied) {
+            _changes.applied = true;
+            for (final Active active : _changes.created.values()) {
+                try {
+                    close(active);
+                } catch (final EFapsException e) {
+                    LOG.error("Catched", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param _accessor accessor to Logback
+     * @param _name name of the appender
+     * @param _config properties of the appender
+     * @return the appender, null if it is ignored
+     * @throws EFapsException on error
+     */
+    private static Active create(final LogbackAccessor _accessor,
+                                 final String _name,
+                                 final Map<String, String> _config)
+        throws EFapsException
+    {
+        Active ret = null;
+        final String file = _config.get("file");
+        if (file == null || file.isBlank()) {
+            LOG.warn("Mapped appender '{}' has no file and is ignored", _name);
+        } else {
+            final boolean binary = "binary".equalsIgnoreCase(_config.get("format"));
+            final MethodHandle doLayout = binary ? null
+                            : _accessor.newLayout(_config.getOrDefault("pattern", LogbackAccessor.DEFAULTPATTERN));
+            final MappedLog log;
+            try {
+                log = new MappedLog(Paths.get(file), (int) Math.min(Integer.MAX_VALUE,
+                                toBytes(_config.getOrDefault("segmentSize", "64MB"))),
+                                Long.parseLong(_config.getOrDefault("syncInterval", "1000")),
+                                toBytes(_config.getOrDefault("syncSize", "1MB")));
+            } catch (final IOException | IllegalArgumentException e) {
+                throw new EFapsException(MappedAppenders.class, "create", e);
+            }
+            final EventAppender.Handler write;
+            if (binary) {
+                final BinaryEventEncoder encoder = new BinaryEventEncoder();
+                write = event -> encoder.write(log, _accessor, event);
+            } else {
+                write = event -> log.write(((String) doLayout.invokeExact(event)).getBytes(StandardCharsets.UTF_8));
+            }
+            final Object appender = EventAppender.create(_accessor, _name, new EventAppender.Handler()
+            {
+
+                @Override
+                public void append(final Object _event)
+                    throws Throwable
+                {
+                    write.append(_event);
+                }
+
+                @Override
+                public void stop()
+                    throws Throwable
+                {
+                    log.close();
+                }
+            });
+            ret = new Active(_config, appender, log);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _active appender whose log is closed
+     * @throws EFapsException on error
+     */
+    private static void close(final Active _active)
+        throws EFapsException
+    {
+        try {
+            _active.log.close();
+        } catch (final IOException e) {
+            throw new EFapsException(MappedAppenders.class, "close", e);
+        }
+    }
+
+    /**
+     * @param _value size like 512KB, 64MB or 1GB
+     * @return size in bytes
+     */
+    private static long toBytes(final String _value)
+    {
+        final String value = _value.trim().toUpperCase(Locale.ENGLISH);
+        long factor = 1;
+        String number = value;
+        if (value.endsWith("KB")) {
+            factor = 1024;
+        } else if (value.endsWith("MB")) {
+            factor = 1024 * 1024;
+        } else if (value.endsWith("GB")) {
+            factor = 1024 * 1024 * 1024;
+        }
+        if (factor > 1) {
+            number = value.substring(0, value.length() - 2).trim();
+        }
+        return Long.parseLong(number) * factor;
+    }
+
+    /**
+     * Changes of the appenders by a configuration.
+     */
+    public static final class Changes
+    {
+
+        /** Names of the active appenders to remove or replace. */
+        private final List<String> removed = new ArrayList<>();
+
+        /** The built appenders by name. */
+        private final Map<String, Active> created = new TreeMap<>();
+
+        /** Applied or discarded, guarded by the outer class. */
+        private boolean applied;
+
+        private Changes()
+        {
+        }
+    }
+
+    /**
+     * An active appender.
+     */
+    private static final class Active
+    {
+
+        /** Properties the appender was created with. */
+        private final Map<String, String> config;
+
+        /** The appender. */
+        private final Object appender;
+
+        /** Loggers the appender is attached to. */
+        private final List<Object> loggers = new ArrayList<>();
+
+        /** The log. */
+        private final MappedLog log;
+
+        private Active(final Map<String, String> _config,
+                       final Object _appender,
+                       final MappedLog _log)
+        {
+            this.config = _config;
+            this.appender = _appender;
+            this.log = _log;
+        }
+    }
+}
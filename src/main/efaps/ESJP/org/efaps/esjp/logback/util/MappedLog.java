@@ -0,0 +1,474 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.esjp.logback.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsUUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log file written through memory mapped segments. A writer reserves its
+ * range in the current segment with one atomic add and copies its bytes,
+ * so writers neither lock nor wait for the disk. A background thread forces
+ * the written bytes to the disk in groups, after the configured interval or
+ * earlier if the configured number of bytes is pending.
+ * <p>
+ * A full segment is replaced by the next one, which the background thread
+ * has already created. The full segment is forced, truncated to the bytes
+ * written and closed by the background thread once all writers finished
+ * copying. Segments are named <code>&lt;file&gt;.&lt;index&gt;.log</code>,
+ * the index continues after the highest existing one.
+ * </p>
+ * <p>
+ * If the next segment can not be created, e.g. as the disk is full, the
+ * full segment stays the current one and the writes are dropped and
+ * counted. The background thread retries to create the segment at every
+ * interval and rolls over as soon as it succeeds.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+@EFapsUUID("5556ea30-cd9b-4c57-b157-36596ba58a3f")
+@EFapsApplication("eFapsApp-Logback")
+public final class MappedLog
+    implements Closeable
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedLog.class);
+
+    /** Directory of the segments. */
+    private final Path directory;
+
+    /** Name of the segments without index and suffix. */
+    private final String name;
+
+    /** Size of a segment in bytes. */
+    private final int segmentSize;
+
+    /** Interval of the forced writes in nanoseconds. */
+    private final long syncInterval;
+
+    /** Bytes that trigger a forced write before the interval elapsed. */
+    private final long syncBytes;
+
+    /** Bytes written since the last forced write. */
+    private final AtomicLong unsynced = new AtomicLong();
+
+    /** Writes dropped as no segment could be created. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Serializes the creation of segments and the roll over. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Full segments not yet closed. */
+    private final Queue<Segment> retired = new ConcurrentLinkedQueue<>();
+
+    /** The thread forcing the writes and preparing the segments. */
+    private final Thread syncer;
+
+    /** Current segment, null if closed. */
+    private volatile Segment current;
+
+    /** Next segment, created in advance. Guarded by the lock. */
+    private Segment spare;
+
+    /** Index of the last segment. Guarded by the lock. */
+    private int index;
+
+    /** Set on close. */
+    private volatile boolean closed;
+
+    /**
+     * @param _file path of the segments without index and suffix
+     * @param _segmentSize size of a segment in bytes
+     * @param _syncInterval interval of the forced writes in milliseconds
+     * @param _syncBytes bytes that trigger a forced write
+     * @throws IOException on error
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public MappedLog(final Path _file,
+                     final int _segmentSize,
+                     final long _syncInterval,
+                     final long _syncBytes)
+        throws IOException
+    {
+        if (_segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive: " + _segmentSize);
+        }
+        this.directory = _file.toAbsolutePath().getParent();
+        this.name = _file.getFileName().toString();
+        this.segmentSize = _segmentSize;
+        this.syncInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, _syncInterval));
+        this.syncBytes = Math.max(1, _syncBytes);
+        Files.createDirectories(this.directory);
+        try (Stream<Path> files = Files.list(this.directory)) {
+            this.index = files.map(path -> path.getFileName().toString())
+                            .filter(file -> file.startsWith(this.name + ".") && file.endsWith(".log"))
+                            .map(file -> file.substring(this.name.length() + 1, file.length() - 4))
+                            .filter(idx -> !idx.isEmpty() && idx.chars().allMatch(Character::isDigit))
+                            .mapToInt(Integer::parseInt)
+                            .max().orElse(0);
+        }
+        this.current = open();
+        this.syncer = new Thread(this::run, "eFaps-MappedLog-" + this.name);
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * @return number of writes dropped as no segment could be created
+     */
+    public long getDropped()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * @return index of the current segment, -1 if closed
+     */
+    public int getGeneration()
+    {
+        final Segment segment = this.current;
+        return segment == null ? -1 : segment.index;
+    }
+
+    /**
+     * Write bytes. Bytes larger than a segment are truncated.
+     *
+     * @param _bytes bytes to write
+     */
+    public void write(final byte[] _bytes)
+    {
+        write(_bytes, _bytes.length, -1);
+    }
+
+    /**
+     * Write bytes only into the segment of the given generation. Used by
+     * encodings that refer to earlier records of the same segment.
+     *
+     * @param _bytes bytes to write
+     * @param _length number of bytes to write
+     * @param _generation index of the segment, -1 for any segment
+     * @return false if the current segment is another one, true if the bytes
+     *         were written or dropped because the log is closed
+     */
+    public boolean write(final byte[] _bytes,
+                         final int _length,
+                         final int _generation)
+    {
+        final int length = Math.min(_length, this.segmentSize);
+        boolean ret = false;
+        boolean done = false;
+        while (!done) {
+            final Segment segment = this.current;
+            if (segment == null) {
+                ret = true;
+                done = true;
+            } else if (_generation >= 0 && segment.index != _generation) {
+                done = true;
+            } else {
+                final long offset = segment.reserved.getAndAdd(length);
+                if (offset + length <= this.segmentSize) {
+                    segment.buffer.put((int) offset, _bytes, 0, length);
+                    segment.completed.addAndGet(length);
+                    if (this.unsynced.addAndGet(length) >= this.syncBytes) {
+                        LockSupport.unpark(this.syncer);
+                    }
+                    ret = true;
+                    done = true;
+                } else if (offset <= this.segmentSize ? !roll(segment, offset) : segment.exhausted) {
+                    this.dropped.incrementAndGet();
+                    ret = true;
+                    done = true;
+                } else {
+                    while (this.current == segment && !segment.exhausted) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Replace a full segment by the next one. Every writer that does not
+     * fit and starts inside the segment calls this; the smallest offset is
+     * the number of bytes used, the first call replaces the segment.
+     *
+     * @param _segment the full segment
+     * @param _used offset of the writer that did not fit
+     * @return false if no next segment could be created
+     */
+    private boolean roll(final Segment _segment,
+                         final long _used)
+    {
+        boolean ret = true;
+        this.lock.lock();
+        try {
+            _segment.used = Math.min(_segment.used, _used);
+            if (this.current == _segment && !_segment.exhausted) {
+                Segment next = this.spare;
+                this.spare = null;
+                if (next == null) {
+                    next = open();
+                }
+                replace(_segment, next);
+            }
+            ret = !_segment.exhausted;
+        } catch (final IOException e) {
+            LOG.error("Could not create a segment, events are dropped until it succeeds", e);
+            _segment.exhausted = true;
+            ret = false;
+        } finally {
+            this.lock.unlock();
+        }
+        return ret;
+    }
+
+    /**
+     * Must be called holding the lock.
+     *
+     * @param _segment the full segment
+     * @param _next the segment replacing it
+     */
+    private void replace(final Segment _segment,
+                         final Segment _next)
+    {
+        this.current = _next;
+        this.retired.add(_segment);
+        LockSupport.unpark(this.syncer);
+    }
+
+    /**
+     * Loop of the background thread.
+     */
+    private void run()
+    {
+        while (!this.closed) {
+            LockSupport.parkNanos(this, this.syncInterval);
+            try {
+                sync();
+                prepare();
+            } catch (final IOException | RuntimeException e) {
+                LOG.error("Catched", e);
+            }
+        }
+    }
+
+    /**
+     * Force the written bytes to the disk and close the full segments whose
+     * writers finished.
+     *
+     * @throws IOException on error
+     */
+    private void sync()
+        throws IOException
+    {
+        for (final Segment segment : this.retired) {
+            if (segment.completed.get() >= segment.used) {
+                segment.close();
+                this.retired.remove(segment);
+            }
+        }
+        final Segment segment = this.current;
+        if (segment != null && this.unsynced.getAndSet(0) > 0) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Create the next segment in advance. If the current segment is full as
+     * the creation failed before, roll over to the new one.
+     *
+     * @throws IOException on error
+     */
+    private void prepare()
+        throws IOException
+    {
+        this.lock.lock();
+        try {
+            final Segment segment = this.current;
+            if (this.spare == null && !this.closed) {
+                try {
+                    this.spare = open();
+                } catch (final IOException e) {
+                    if (segment == null || !segment.exhausted) {
+                        throw e;
+                    }
+                    LOG.debug("Still no segment", e);
+                }
+            }
+            if (segment != null && segment.exhausted && this.spare != null) {
+                LOG.warn("Created segment {}, {} writes were dropped", this.spare.index, this.dropped.get());
+                replace(segment, this.spare);
+                this.spare = null;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Create a new segment. Must be called holding the lock.
+     *
+     * @return the segment
+     * @throws IOException on error
+     */
+    private Segment open()
+        throws IOException
+    {
+        final int next = this.index + 1;
+        final Path path = this.directory.resolve(String.format("%s.%05d.log", this.name, next));
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        final MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+        } catch (final IOException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        this.index = next;
+        return new Segment(next, path, channel, buffer);
+    }
+
+    /**
+     * Close the log. The bytes written so far are forced to the disk.
+     *
+     * @throws IOException on error
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        final Segment segment;
+        final Segment unused;
+        this.lock.lock();
+        try {
+            this.closed = true;
+            segment = this.current;
+            this.current = null;
+            unused = this.spare;
+            this.spare = null;
+        } finally {
+            this.lock.unlock();
+        }
+        LockSupport.unpark(this.syncer);
+        try {
+            this.syncer.join(TimeUnit.NANOSECONDS.toMillis(this.syncInterval) + 1000);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) {
+            // seal the segment, a writer reserving after this does not fit
+            // and finds the log closed, so no writer starts behind the end
+            final long sealed = segment.reserved.getAndAdd(this.segmentSize + 1L);
+            segment.used = Math.min(segment.used, Math.min(sealed, this.segmentSize));
+            this.retired.add(segment);
+        }
+        // give the writers that already reserved their range time to finish
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        for (final Segment retiredSegment : this.retired) {
+            while (retiredSegment.completed.get() < retiredSegment.used && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            retiredSegment.close();
+        }
+        this.retired.clear();
+        if (unused != null) {
+            unused.channel.close();
+            Files.deleteIfExists(unused.path);
+        }
+    }
+
+    /**
+     * One memory mapped file.
+     */
+    private static final class Segment
+    {
+
+        /** Index of the segment. */
+        private final int index;
+
+        /** Path of the file. */
+        private final Path path;
+
+        /** Channel of the file. */
+        private final FileChannel channel;
+
+        /** The mapped file. */
+        private final MappedByteBuffer buffer;
+
+        /** Bytes reserved by writers, may exceed the size. */
+        private final AtomicLong reserved = new AtomicLong();
+
+        /** Bytes copied by writers. */
+        private final AtomicLong completed = new AtomicLong();
+
+        /** Bytes used when the segment was retired. */
+        private volatile long used = Long.MAX_VALUE;
+
+        /** Full, but no next segment could be created. */
+        private volatile boolean exhausted;
+
+        private Segment(final int _index,
+                        final Path _path,
+                        final FileChannel _channel,
+                        final MappedByteBuffer _buffer)
+        {
+            this.index = _index;
+            this.path = _path;
+            this.channel = _channel;
+            this.buffer = _buffer;
+        }
+
+        /**
+         * Force the bytes to the disk, cut the unused rest and close. The
+         * rest is only cut if every writer finished, as a writer copying
+         * into a cut range would fail; the decoder ignores the zeros.
+         *
+         * @throws IOException on error
+         */
+        private void close()
+            throws IOException
+        {
+            this.buffer.force();
+            if (this.completed.get() >= this.used) {
+                this.channel.truncate(this.used);
+            } else {
+                LOG.warn("Segment {} closed with writers not finished, its rest is kept", this.path);
+            }
+            this.channel.close();
+        }
+    }
+}
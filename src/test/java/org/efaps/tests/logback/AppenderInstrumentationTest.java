@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.efaps.esjp.logback.rest.AppenderInstrumentation;
+import org.efaps.esjp.logback.rest.dto.AppenderStatsDto;
+import org.efaps.esjp.logback.util.AppenderProxy;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+
+/**
+ * Tests for the wrapping of appenders by {@link AppenderInstrumentation}.
+ *
+ * @author The eFaps Team
+ */
+public class AppenderInstrumentationTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.instrumentation";
+
+    @Test
+    public void asyncDelegateKeepsReceivingEvents()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        logger.setAdditive(false);
+        final CountingAppender counting = new CountingAppender();
+        counting.setContext(logger.getLoggerContext());
+        counting.setName(PREFIX + ".counting");
+        counting.start();
+        final AsyncAppender async = new AsyncAppender();
+        async.setContext(logger.getLoggerContext());
+        async.setName(PREFIX + ".async");
+        async.setMaxFlushTime(10_000);
+        async.addAppender(counting);
+        async.start();
+        logger.addAppender(async);
+        try {
+            AppenderInstrumentation.setEnabled(true);
+            final Appender<ILoggingEvent> delegate = async.iteratorForAppenders().next();
+            Assert.assertNotNull(AppenderProxy.getHandler(delegate), "the delegate is wrapped");
+            Assert.assertEquals(countDelegates(async), 1);
+            logger.info("instrumented");
+
+            AppenderInstrumentation.setEnabled(false);
+            Assert.assertSame(async.iteratorForAppenders().next(), counting, "the delegate is restored");
+            logger.info("released");
+        } finally {
+            AppenderInstrumentation.setEnabled(false);
+        }
+        final Appender<ILoggingEvent> attached = logger.getAppender(PREFIX + ".async");
+        logger.detachAppender(attached);
+        attached.stop();
+        Assert.assertEquals(counting.count.get(), 2);
+    }
+
+    @Test
+    public void recordsStatistic()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".stats");
+        logger.setAdditive(false);
+        final CountingAppender counting = new CountingAppender();
+        counting.setContext(logger.getLoggerContext());
+        counting.setName(PREFIX + ".stats.counting");
+        counting.start();
+        logger.addAppender(counting);
+        try {
+            AppenderInstrumentation.setEnabled(true);
+            for (int i = 0; i < 10; i++) {
+                logger.info("event {}", i);
+            }
+            final AppenderStatsDto stats = AppenderInstrumentation.getStats().stream()
+                            .filter(dto -> dto.getName().equals(PREFIX + ".stats.counting"))
+                            .findFirst().orElseThrow();
+            Assert.assertEquals(stats.getEvents(), 10);
+        } finally {
+            AppenderInstrumentation.setEnabled(false);
+        }
+        Assert.assertSame(logger.getAppender(PREFIX + ".stats.counting"), counting, "the appender is restored");
+        logger.detachAppender(counting);
+        Assert.assertEquals(counting.count.get(), 10);
+    }
+
+    private static int countDelegates(final AsyncAppender async)
+    {
+        int ret = 0;
+        for (final var iter = async.iteratorForAppenders(); iter.hasNext(); iter.next()) {
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Appender counting the events.
+     */
+    private static class CountingAppender
+        extends AppenderBase<ILoggingEvent>
+    {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        protected void append(final ILoggingEvent _event)
+        {
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.efaps.esjp.logback.rest.Appenders;
+import org.efaps.esjp.logback.rest.dto.AppenderDto;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.filter.ThresholdFilter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+/**
+ * Tests for the tuning of async appenders by {@link Appenders}.
+ *
+ * @author The eFaps Team
+ */
+public class AppendersTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.appenders";
+
+    private static final int EVENTS = 300;
+
+    @Test
+    public void resizeKeepsQueuedEvents()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        logger.setAdditive(false);
+        final SlowAppender slow = new SlowAppender();
+        slow.setContext(logger.getLoggerContext());
+        slow.setName(PREFIX + ".slow");
+        slow.start();
+        final AsyncAppender async = new AsyncAppender();
+        async.setContext(logger.getLoggerContext());
+        async.setName(PREFIX + ".async");
+        async.setQueueSize(1024);
+        async.setDiscardingThreshold(0);
+        async.setMaxFlushTime(10_000);
+        async.addAppender(slow);
+        async.start();
+        logger.addAppender(async);
+        for (int i = 0; i < EVENTS; i++) {
+            logger.info("event {}", i);
+        }
+        Assert.assertTrue(async.getNumberOfElementsInQueue() > 0, "events are queued");
+
+        Assert.assertTrue(Appenders.update(AppenderDto.builder().withName(PREFIX + ".async").withQueueSize(256)
+                        .build()));
+
+        final AsyncAppender replaced = (AsyncAppender) logger.getAppender(PREFIX + ".async");
+        Assert.assertNotSame(replaced, async);
+        Assert.assertEquals(replaced.getQueueSize(), 256);
+        Assert.assertFalse(async.isStarted());
+        Assert.assertTrue(slow.isStarted(), "the delegate is reused");
+        logger.info("after");
+        logger.detachAppender(replaced);
+        replaced.stop();
+        Assert.assertEquals(slow.count.get(), EVENTS + 1);
+    }
+
+    @Test
+    public void resizeKeepsFilters()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".filtered");
+        logger.setAdditive(false);
+        final SlowAppender slow = new SlowAppender();
+        slow.setContext(logger.getLoggerContext());
+        slow.setName(PREFIX + ".filtered.slow");
+        slow.start();
+        final ThresholdFilter filter = new ThresholdFilter();
+        filter.setLevel("WARN");
+        filter.start();
+        final AsyncAppender async = new AsyncAppender();
+        async.setContext(logger.getLoggerContext());
+        async.setName(PREFIX + ".filtered.async");
+        async.setMaxFlushTime(10_000);
+        async.addFilter(filter);
+        async.addAppender(slow);
+        async.start();
+        logger.addAppender(async);
+
+        Assert.assertTrue(Appenders.update(AppenderDto.builder().withName(PREFIX + ".filtered.async")
+                        .withQueueSize(64).build()));
+
+        final AsyncAppender replaced = (AsyncAppender) logger.getAppender(PREFIX + ".filtered.async");
+        Assert.assertNotSame(replaced, async);
+        Assert.assertEquals(replaced.getCopyOfAttachedFiltersList(), List.of(filter));
+        logger.info("filtered");
+        logger.warn("passed");
+        logger.detachAppender(replaced);
+        replaced.stop();
+        Assert.assertEquals(slow.count.get(), 1);
+    }
+
+    /**
+     * Appender taking a millisecond per event.
+     */
+    private static class SlowAppender
+        extends AppenderBase<ILoggingEvent>
+    {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        protected void append(final ILoggingEvent _event)
+        {
+            try {
+                Thread.sleep(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.efaps.esjp.logback.util.BinaryEventDecoder;
+import org.efaps.esjp.logback.util.BinaryEventEncoder;
+import org.efaps.esjp.logback.util.MappedLog;
+import org.slf4j.helpers.MessageFormatter;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that events written by the {@link BinaryEventEncoder} are decoded by
+ * the {@link BinaryEventDecoder} as SLF4J formats them.
+ *
+ * @author The eFaps Team
+ */
+public class BinaryEventRoundTripTest
+{
+
+    private static final int SEGMENT = 64 * 1024;
+
+    @DataProvider(name = "messages")
+    public Object[][] messages()
+    {
+        return new Object[][] {
+            { "plain", new Object[0] },
+            { "a {} b {}", new Object[] { 1, "two" } },
+            { "more {} than {} args {}", new Object[] { "x" } },
+            { "more args {}", new Object[] { "x", "y" } },
+            { "escaped \\{} and {}", new Object[] { "x" } },
+            { "escaped backslash \\\\{} and {}", new Object[] { "x", "y" } },
+            { "{}{}", new Object[] { "a", "b" } },
+            { "array {}", new Object[] { new int[] { 1, 2 } } },
+            { "null {}", new Object[] { null } },
+            { "unicode {} ä€", new Object[] { "ü" } },
+        };
+    }
+
+    @Test(dataProvider = "messages")
+    public void roundTrip(final String _template,
+                          final Object[] _arguments)
+        throws Exception
+    {
+        final byte[] segment = encode(_template, _arguments, Collections.emptyMap());
+        final StringBuilder text = new StringBuilder();
+        Assert.assertEquals(BinaryEventDecoder.decode(new ByteArrayInputStream(segment), text), 2);
+        final String expected = MessageFormatter.arrayFormat(_template, _arguments).getMessage();
+        final String[] lines = text.toString().split("\n");
+        Assert.assertEquals(lines.length, 2);
+        for (final String line : lines) {
+            Assert.assertTrue(line.endsWith(" [main] INFO  org.efaps.tests.binary - " + expected), line);
+        }
+    }
+
+    @Test
+    public void mdcAndThrowable()
+        throws Exception
+    {
+        final byte[] segment = encode("with {}", new Object[] { "mdc" }, Map.of("user", "admin"));
+        final StringBuilder text = new StringBuilder();
+        BinaryEventDecoder.decode(new ByteArrayInputStream(segment), text);
+        Assert.assertTrue(text.toString().contains(" org.efaps.tests.binary {user=admin} - with mdc\n"),
+                        text.toString());
+        Assert.assertTrue(text.toString().contains("java.lang.IllegalStateException: failed"), text.toString());
+    }
+
+    @Test
+    public void holeIsReported()
+        throws Exception
+    {
+        final byte[] first = encode("first {}", new Object[] { 1 }, Collections.emptyMap());
+        final byte[] second = encode("second {}", new Object[] { 2 }, Collections.emptyMap());
+        final ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        segment.write(first);
+        segment.write(new byte[37]);
+        segment.write(second);
+        segment.write(new byte[100]);
+        final StringBuilder text = new StringBuilder();
+        Assert.assertEquals(BinaryEventDecoder.decode(new ByteArrayInputStream(segment.toByteArray()), text), 4);
+        Assert.assertTrue(text.toString().contains("### hole of 37 bytes at offset " + first.length + "\n"),
+                        text.toString());
+        Assert.assertTrue(text.toString().contains(" - second 2\n"), text.toString());
+        Assert.assertFalse(text.toString().contains("hole of 100"), "the unused rest is not a hole");
+    }
+
+    @Test
+    public void unreadableRecordIsSkipped()
+        throws Exception
+    {
+        final byte[] first = encode("first {}", new Object[] { 1 }, Collections.emptyMap());
+        final byte[] second = encode("second {}", new Object[] { 2 }, Collections.emptyMap());
+        final ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        segment.write(first);
+        segment.write(new byte[] { 3, 'X', 1, 2 });
+        segment.write(second);
+        final StringBuilder text = new StringBuilder();
+        Assert.assertEquals(BinaryEventDecoder.decode(new ByteArrayInputStream(segment.toByteArray()), text), 4);
+        Assert.assertTrue(text.toString().contains("### unreadable record of 3 bytes at offset " + first.length),
+                        text.toString());
+    }
+
+    @Test
+    public void concurrentWritersAcrossRollOver()
+        throws Exception
+    {
+        final int threads = 4;
+        final int events = 5_000;
+        final Path dir = Files.createTempDirectory("binary");
+        final BinaryEventEncoder encoder = new BinaryEventEncoder();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (MappedLog log = new MappedLog(dir.resolve("test"), 4 * 1024, 10, Long.MAX_VALUE)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final String thread = "writer-" + i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < events; j++) {
+                        encoder.write(log, System.currentTimeMillis(), "INFO", "org.efaps.tests.binary." + thread,
+                                        thread, thread + " event {}", new Object[] { j }, Collections.emptyMap(),
+                                        null);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            Assert.assertEquals(log.getDropped(), 0);
+        } finally {
+            executor.shutdown();
+        }
+        long decoded = 0;
+        final List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.sorted().toList();
+        }
+        Assert.assertTrue(segments.size() > 10, "rolled over");
+        for (final Path segment : segments) {
+            final StringBuilder text = new StringBuilder();
+            decoded += BinaryEventDecoder.decode(new ByteArrayInputStream(Files.readAllBytes(segment)), text);
+            for (final String line : text.toString().split("\n")) {
+                Assert.assertTrue(line.matches(
+                                ".* \\[(writer-\\d)\\] INFO  org\\.efaps\\.tests\\.binary\\.\\1 - \\1 event \\d+"),
+                                line);
+            }
+        }
+        Assert.assertEquals(decoded, threads * events);
+    }
+
+    /**
+     * Encode the same event twice, the second time with references to the
+     * definitions of the first.
+     *
+     * @param _template message template
+     * @param _arguments arguments of the message
+     * @param _mdc MDC, a throwable is added if not empty
+     * @return the segment
+     * @throws Exception on error
+     */
+    private byte[] encode(final String _template,
+                          final Object[] _arguments,
+                          final Map<String, String> _mdc)
+        throws Exception
+    {
+        final Path dir = Files.createTempDirectory("binary");
+        final BinaryEventEncoder encoder = new BinaryEventEncoder();
+        final String throwable = _mdc.isEmpty() ? null : "java.lang.IllegalStateException: failed\n";
+        try (MappedLog log = new MappedLog(dir.resolve("test"), SEGMENT, 10, Long.MAX_VALUE)) {
+            for (int i = 0; i < 2; i++) {
+                encoder.write(log, System.currentTimeMillis(), "INFO", "org.efaps.tests.binary", "main", _template,
+                                _arguments, _mdc, throwable);
+            }
+        }
+        return Files.readAllBytes(dir.resolve("test.00001.log"));
+    }
+}
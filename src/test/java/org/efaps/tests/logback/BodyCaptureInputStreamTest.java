@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.esjp.logback.jersey.BodyCaptureInputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the tee and the buffer pool of {@link BodyCaptureInputStream}.
+ *
+ * @author The eFaps Team
+ */
+public class BodyCaptureInputStreamTest
+{
+
+    private static final byte[] BODY = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void passesAllBytesAndRecordsTheFirst()
+        throws IOException
+    {
+        final List<String> captured = new ArrayList<>();
+        final ByteArrayOutputStream read = new ByteArrayOutputStream();
+        try (BodyCaptureInputStream stream = new BodyCaptureInputStream(new ByteArrayInputStream(BODY), 12,
+                        capture -> captured.add(capture.toString(StandardCharsets.UTF_8)))) {
+            // mix single byte and array reads
+            read.write(stream.read());
+            final byte[] chunk = new byte[7];
+            int count;
+            while ((count = stream.read(chunk, 1, 6)) > 0) {
+                read.write(chunk, 1, count);
+            }
+            Assert.assertEquals(stream.read(), -1);
+            Assert.assertEquals(stream.getLength(), 12);
+            Assert.assertTrue(stream.isTruncated());
+            Assert.assertEquals(stream.copy(), "0123456789ab".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(read.toByteArray(), BODY);
+        Assert.assertEquals(captured, List.of("0123456789ab [additional data truncated]"));
+    }
+
+    @Test
+    public void recordsShortBodyCompletely()
+        throws IOException
+    {
+        final List<String> captured = new ArrayList<>();
+        try (BodyCaptureInputStream stream = new BodyCaptureInputStream(new ByteArrayInputStream(BODY), 64,
+                        capture -> captured.add(capture.toString(StandardCharsets.UTF_8)))) {
+            Assert.assertEquals(stream.readAllBytes(), BODY);
+            Assert.assertFalse(stream.isTruncated());
+        }
+        Assert.assertEquals(captured, List.of("0123456789abcdefghij"));
+    }
+
+    @Test
+    public void marksSkippedBodyAsTruncated()
+        throws IOException
+    {
+        try (BodyCaptureInputStream stream = new BodyCaptureInputStream(new ByteArrayInputStream(BODY), 64,
+                        capture -> { })) {
+            Assert.assertEquals(stream.read(new byte[4]), 4);
+            Assert.assertEquals(stream.skip(4), 4);
+            Assert.assertTrue(stream.isTruncated());
+            Assert.assertEquals(stream.copy(), "0123".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void returnsBufferOnCloseOnce()
+        throws IOException
+    {
+        final List<Integer> calls = new ArrayList<>();
+        final BodyCaptureInputStream stream = new BodyCaptureInputStream(new ByteArrayInputStream(BODY), 8,
+                        capture -> calls.add(capture.getLength()));
+        Assert.assertEquals(stream.read(new byte[4]), 4);
+        // the buffer is taken on the first read
+        final int pooled = BodyCaptureInputStream.getPooled();
+        stream.close();
+        Assert.assertEquals(BodyCaptureInputStream.getPooled(), pooled + 1);
+        stream.close();
+        Assert.assertEquals(BodyCaptureInputStream.getPooled(), pooled + 1);
+        Assert.assertEquals(calls, List.of(4));
+    }
+
+    @Test
+    public void takesNoBufferWithoutRead()
+        throws IOException
+    {
+        final int pooled = BodyCaptureInputStream.getPooled();
+        final List<String> captured = new ArrayList<>();
+        new BodyCaptureInputStream(new ByteArrayInputStream(BODY), 8,
+                        capture -> captured.add(capture.toString(StandardCharsets.UTF_8))).close();
+        Assert.assertEquals(BodyCaptureInputStream.getPooled(), pooled);
+        Assert.assertEquals(captured, List.of(""));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.efaps.esjp.logback.jersey.BoundedOutputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the {@link BoundedOutputStream}.
+ *
+ * @author The eFaps Team
+ */
+public class BoundedOutputStreamTest
+{
+
+    @Test
+    public void belowLimit()
+        throws Exception
+    {
+        final BoundedOutputStream out = new BoundedOutputStream(1000);
+        final byte[] bytes = new byte[600];
+        Arrays.fill(bytes, (byte) 'x');
+        out.write(bytes);
+        out.write('y');
+        Assert.assertFalse(out.isTruncated());
+        Assert.assertEquals(out.toByteArray().length, 601);
+        Assert.assertEquals(out.toByteArray()[600], 'y');
+    }
+
+    @Test
+    public void exactLimit()
+        throws Exception
+    {
+        final BoundedOutputStream out = new BoundedOutputStream(10);
+        out.write("0123456789".getBytes(StandardCharsets.UTF_8));
+        out.write(new byte[0]);
+        Assert.assertFalse(out.isTruncated());
+        Assert.assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), "0123456789");
+    }
+
+    @Test
+    public void beyondLimitKeepsPrefix()
+    {
+        final BoundedOutputStream out = new BoundedOutputStream(10);
+        Assert.assertThrows(BoundedOutputStream.LimitReachedException.class,
+                        () -> out.write("0123456789abc".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertTrue(out.isTruncated());
+        Assert.assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), "0123456789");
+        Assert.assertThrows(BoundedOutputStream.LimitReachedException.class, () -> out.write('d'));
+        Assert.assertEquals(out.toByteArray().length, 10);
+    }
+
+    @Test
+    public void exceptionHasNoStackTrace()
+    {
+        Assert.assertEquals(new BoundedOutputStream.LimitReachedException().getStackTrace().length, 0);
+    }
+
+    @Test
+    public void serializerStopsAtLimit()
+        throws Exception
+    {
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            values.add("value " + i);
+        }
+        final ObjectMapper mapper = new ObjectMapper();
+        final byte[] full = mapper.writeValueAsBytes(values);
+        final BoundedOutputStream out = new BoundedOutputStream(1000);
+        IOException thrown = null;
+        try {
+            mapper.writeValue(out, values);
+        } catch (final IOException e) {
+            thrown = e;
+        }
+        Assert.assertNotNull(thrown);
+        Assert.assertTrue(out.isTruncated());
+        Assert.assertEquals(out.toByteArray(), Arrays.copyOf(full, 1000));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import org.efaps.esjp.logback.util.BurstLimiter;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Tests for the generic cell rate algorithm of the {@link BurstLimiter}.
+ *
+ * @author The eFaps Team
+ */
+public class BurstLimiterTest
+{
+
+    private static final String NAME = "org.efaps.tests.burst";
+
+    @AfterMethod
+    public void removeLimits()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 0, 0);
+    }
+
+    @Test
+    public void burstThenRate()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 1, 3);
+        Assert.assertEquals(appended(NAME, "burst", 20), 3, "the burst passes");
+        Thread.sleep(1_500);
+        Assert.assertEquals(appended(NAME, "burst", 20), 1, "one event per second follows");
+    }
+
+    @Test
+    public void groupsHaveOwnBuckets()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 1, 2);
+        Assert.assertEquals(appended(NAME + ".child", "first {}", 5), 2, "limit applies to descendants");
+        Assert.assertEquals(appended(NAME + ".child", "second {}", 5), 2);
+        Assert.assertEquals(appended("org.efaps.tests.unlimited", "first {}", 5), 5);
+    }
+
+    @Test
+    public void nestedClassesInheritTheLimit()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME + ".Outer", 1, 2);
+        Assert.assertEquals(appended(NAME + ".Outer$Inner", "nested", 5), 2);
+        BurstLimiter.setLimit(NAME + ".Outer", 0, 0);
+    }
+
+    @Test
+    public void disabledCallsTakeNoToken()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 1, 2);
+        final Logger logger = (Logger) LoggerFactory.getLogger(NAME + ".disabled");
+        logger.setLevel(Level.INFO);
+        for (int i = 0; i < 5; i++) {
+            logger.debug("disabled");
+            Assert.assertTrue(logger.isInfoEnabled());
+        }
+        Assert.assertEquals(appended(logger.getName(), "disabled", 5), 2);
+    }
+
+    @Test
+    public void removedLimitAcceptsAll()
+        throws Exception
+    {
+        BurstLimiter.setLimit(NAME, 1, 1);
+        Assert.assertEquals(appended(NAME, "removed", 5), 1);
+        BurstLimiter.setLimit(NAME, 0, 0);
+        Assert.assertFalse(BurstLimiter.isActive());
+        Assert.assertEquals(appended(NAME, "removed", 5), 5);
+    }
+
+    private int appended(final String _logger,
+                         final String _message,
+                         final int _count)
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(_logger);
+        final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.setContext(logger.getLoggerContext());
+        appender.start();
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+        try {
+            for (int i = 0; i < _count; i++) {
+                logger.info(_message, i);
+            }
+        } finally {
+            logger.detachAppender(appender);
+        }
+        return appender.list.size();
+    }
+}
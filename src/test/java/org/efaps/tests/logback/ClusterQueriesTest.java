@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.efaps.esjp.logback.rest.ClusterQueries;
+import org.efaps.esjp.logback.rest.dto.ClusterLoggerDto;
+import org.efaps.esjp.logback.rest.dto.ClusterLoggersDto;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.NodeLoggersDto;
+import org.efaps.esjp.logback.util.LoggerTree;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the merge of the answers of the nodes by {@link ClusterQueries}.
+ *
+ * @author The eFaps Team
+ */
+public class ClusterQueriesTest
+{
+
+    @Test
+    public void mergeInLoggerOrder()
+        throws Exception
+    {
+        final String requestId = ClusterQueries.register("node1", Set.of("node1", "node2"));
+        ClusterQueries.reply(reply(requestId, "node1", "Beta", LoggerTree.ROOT, "Alpha", "Beta"));
+        ClusterQueries.reply(reply(requestId, "node2", null, LoggerTree.ROOT, "Alpha", "Gamma"));
+        final ClusterLoggersDto merged = ClusterQueries.await(requestId, 1000, 0);
+        Assert.assertTrue(merged.isComplete());
+        Assert.assertEquals(merged.getLoggers().stream().map(ClusterLoggerDto::getName)
+                        .collect(Collectors.toList()), List.of(LoggerTree.ROOT, "Alpha", "Beta"));
+        Assert.assertEquals(merged.getNext(), "Beta");
+    }
+
+    @Test
+    public void missingNodeIsReported()
+        throws Exception
+    {
+        final String requestId = ClusterQueries.register("node1", Set.of("node1", "node2"));
+        ClusterQueries.reply(reply(requestId, "node1", null, LoggerTree.ROOT));
+        final ClusterLoggersDto merged = ClusterQueries.await(requestId, 10, 0);
+        Assert.assertFalse(merged.isComplete());
+        Assert.assertEquals(merged.getLoggers().size(), 1);
+    }
+
+    private NodeLoggersDto reply(final String _requestId,
+                                 final String _origin,
+                                 final String _next,
+                                 final String... _names)
+    {
+        final List<LoggerDto> loggers = new ArrayList<>();
+        for (final String name : _names) {
+            loggers.add(LoggerDto.builder().withName(name).withLevel("INFO").withEffectiveLevel("INFO").build());
+        }
+        return NodeLoggersDto.builder().withRequestId(_requestId).withOrigin(_origin).withNext(_next)
+                        .withLoggers(loggers).build();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.List;
+
+import org.efaps.esjp.logback.rest.ClusterState;
+import org.efaps.esjp.logback.rest.ConfigurationController;
+import org.efaps.esjp.logback.rest.dto.LoggerDto;
+import org.efaps.esjp.logback.rest.dto.StateEntryDto;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Tests that applied logger updates are recorded in the {@link ClusterState}.
+ *
+ * @author The eFaps Team
+ */
+public class ClusterStateTest
+{
+
+    private static final String NAME = "org.efaps.tests.state";
+
+    @Test
+    public void appliedLevelIsRecorded()
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(NAME);
+        final List<LoggerDto> applied = new ConfigurationController().applyLoggers(List.of(LoggerDto.builder()
+                        .withName(NAME)
+                        .withLevel("WARN")
+                        .build()));
+        Assert.assertEquals(applied.size(), 1);
+        Assert.assertEquals(logger.getLevel(), Level.WARN);
+        Assert.assertEquals(getLevel(), "WARN");
+
+        new ConfigurationController().applyLoggers(List.of(LoggerDto.builder()
+                        .withName(NAME)
+                        .withLevel("")
+                        .build()));
+        Assert.assertNull(logger.getLevel());
+        Assert.assertEquals(getLevel(), "");
+    }
+
+    @Test
+    public void expiresAtWithoutTtlIsIgnored()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(NAME + ".expires");
+        final List<LoggerDto> applied = new ConfigurationController().applyLoggers(List.of(LoggerDto.builder()
+                        .withName(logger.getName())
+                        .withLevel("ERROR")
+                        .withExpiresAt(System.currentTimeMillis() - 1000)
+                        .build()));
+        Assert.assertEquals(applied.size(), 1);
+        Assert.assertNull(applied.get(0).getExpiresAt());
+        Assert.assertEquals(logger.getLevel(), Level.ERROR);
+        Assert.assertEquals(new ObjectMapper().writeValueAsString(applied.get(0)),
+                        "{\"name\":\"" + logger.getName() + "\",\"level\":\"ERROR\"}");
+    }
+
+    @Test
+    public void unknownLoggerIsNotRecorded()
+    {
+        final List<LoggerDto> applied = new ConfigurationController().applyLoggers(List.of(LoggerDto.builder()
+                        .withName(NAME + ".missing")
+                        .withLevel("WARN")
+                        .build()));
+        Assert.assertTrue(applied.isEmpty());
+        Assert.assertTrue(ClusterState.getSnapshot(null, null).getEntries().stream()
+                        .noneMatch(entry -> entry.getLogger() != null
+                                        && (NAME + ".missing").equals(entry.getLogger().getName())));
+    }
+
+    private String getLevel()
+    {
+        return ClusterState.getSnapshot(null, null).getEntries().stream()
+                        .filter(entry -> entry.getLogger() != null && NAME.equals(entry.getLogger().getName()))
+                        .map(StateEntryDto::getLogger)
+                        .map(LoggerDto::getLevel)
+                        .findFirst()
+                        .orElse(null);
+    }
+}
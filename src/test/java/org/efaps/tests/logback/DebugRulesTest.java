@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import org.efaps.esjp.logback.rest.DebugRules;
+import org.efaps.esjp.logback.rest.dto.DebugRuleDto;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Tests for the decisions and the expiry of {@link DebugRules}.
+ *
+ * @author The eFaps Team
+ */
+public class DebugRulesTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.debugrules";
+
+    @AfterMethod
+    public void clearMdc()
+    {
+        MDC.clear();
+    }
+
+    @Test
+    public void acceptsMatchingValueAndIsNeutralOtherwise()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".decision");
+        logger.setLevel(Level.INFO);
+        final String key = PREFIX + ".user";
+        DebugRules.apply(rule(key, "bob", "DEBUG", System.currentTimeMillis() + 60_000));
+        try {
+            MDC.put(key, "bob");
+            Assert.assertTrue(logger.isDebugEnabled());
+            // below the level of the rule the level of the logger decides
+            Assert.assertFalse(logger.isTraceEnabled());
+            MDC.put(key, "alice");
+            Assert.assertFalse(logger.isDebugEnabled());
+            Assert.assertTrue(logger.isInfoEnabled());
+            MDC.remove(key);
+            Assert.assertFalse(logger.isDebugEnabled());
+            Assert.assertTrue(logger.isInfoEnabled());
+        } finally {
+            DebugRules.apply(rule(key, "bob", "DEBUG", 0));
+        }
+        MDC.put(key, "bob");
+        Assert.assertFalse(logger.isDebugEnabled());
+        Assert.assertFalse(hasFilter(key));
+    }
+
+    @Test
+    public void replacesFilterOnChange()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".change");
+        logger.setLevel(Level.INFO);
+        final String key = PREFIX + ".request";
+        final long expiresAt = System.currentTimeMillis() + 60_000;
+        DebugRules.apply(rule(key, "r1", "DEBUG", expiresAt));
+        DebugRules.apply(rule(key, "r2", "TRACE", expiresAt));
+        try {
+            Assert.assertEquals(countFilters(key), 1);
+            MDC.put(key, "r1");
+            Assert.assertTrue(logger.isDebugEnabled());
+            Assert.assertFalse(logger.isTraceEnabled());
+            MDC.put(key, "r2");
+            Assert.assertTrue(logger.isTraceEnabled());
+        } finally {
+            DebugRules.apply(rule(key, "r1", "DEBUG", 0));
+            DebugRules.apply(rule(key, "r2", "TRACE", 0));
+        }
+        Assert.assertEquals(countFilters(key), 0);
+    }
+
+    @Test
+    public void removesExpiredRule()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".expiry");
+        logger.setLevel(Level.INFO);
+        final String key = PREFIX + ".session";
+        DebugRules.apply(rule(key, "s1", "DEBUG", System.currentTimeMillis() + 100));
+        MDC.put(key, "s1");
+        Assert.assertTrue(logger.isDebugEnabled());
+        final long end = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < end
+                        && DebugRules.getRules().stream().anyMatch(rule -> rule.getKey().equals(key))) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(DebugRules.getRules().stream().noneMatch(rule -> rule.getKey().equals(key)));
+        Assert.assertFalse(logger.isDebugEnabled());
+        Assert.assertFalse(hasFilter(key));
+    }
+
+    private DebugRuleDto rule(final String _key,
+                              final String _value,
+                              final String _level,
+                              final long _expiresAt)
+    {
+        return DebugRuleDto.builder().withKey(_key).withValue(_value).withLevel(_level)
+                        .withExpiresAt(_expiresAt).build();
+    }
+
+    private boolean hasFilter(final String _key)
+    {
+        return countFilters(_key) > 0;
+    }
+
+    private long countFilters(final String _key)
+    {
+        final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        return context.getTurboFilterList().stream()
+                        .filter(filter -> (DebugRules.class.getName() + "." + _key).equals(filter.getName()))
+                        .count();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.efaps.esjp.logback.util.EventAppender;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.util.EFapsException;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+
+/**
+ * Tests for {@link EventAppender}.
+ *
+ * @author The eFaps Team
+ */
+public class EventAppenderTest
+{
+
+    @Test
+    public void failingHandlerDoesNotReachTheApplication()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger("org.efaps.tests.eventappender");
+        final AtomicInteger calls = new AtomicInteger();
+        @SuppressWarnings("unchecked")
+        final Appender<ILoggingEvent> appender = (Appender<ILoggingEvent>) EventAppender.create(LogbackAccessor.get(),
+                        "FAILING", event -> {
+                            if (calls.incrementAndGet() % 2 == 0) {
+                                throw new EFapsException(EventAppenderTest.class, "append");
+                            }
+                            throw new IllegalStateException("append");
+                        });
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        try {
+            logger.info("first");
+            logger.info("second");
+            logger.info("third");
+        } finally {
+            logger.detachAppender(appender);
+        }
+        Assert.assertEquals(calls.get(), 3);
+    }
+}
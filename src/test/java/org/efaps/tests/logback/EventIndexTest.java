@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.efaps.esjp.logback.rest.EventIndex;
+import org.efaps.esjp.logback.rest.EventQuery;
+import org.efaps.esjp.logback.util.EventRing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the queries of {@link EventIndex} against a filter over all
+ * events.
+ *
+ * @author The eFaps Team
+ */
+public class EventIndexTest
+{
+
+    private static final int[] LEVELS = { 10_000, 20_000, 30_000, 40_000 };
+
+    private static final String[] LOGGERS = { "a.b", "a.c", "x" };
+
+    @Test
+    public void queries()
+    {
+        final EventRing ring = new EventRing(1024 * 1024);
+        final EventIndex index = new EventIndex(1000);
+        final List<Event> events = fill(ring, index, 300);
+        assertSearch(ring, index, events, EventQuery.builder().withLimit(1000).build(), Integer.MIN_VALUE);
+        assertSearch(ring, index, events, EventQuery.builder().withLogger("a").withLimit(1000).build(), 30_000);
+        assertSearch(ring, index, events, EventQuery.builder().withMdc(List.of("user=u1")).withLogger("a.c")
+                        .withLimit(5).build(), Integer.MIN_VALUE);
+        assertSearch(ring, index, events, EventQuery.builder().withFrom(1100L).withTo(1200L).withText("7")
+                        .withLimit(1000).build(), 20_000);
+        Assert.assertTrue(index.search(ring, EventQuery.builder().withMdc(List.of("user=none")).build(),
+                        Integer.MIN_VALUE).isEmpty());
+        Assert.assertEquals(index.getDropped(), 0);
+    }
+
+    @Test
+    public void evictOldest()
+    {
+        final EventRing ring = new EventRing(1024 * 1024);
+        final EventIndex index = new EventIndex(50);
+        final List<Event> events = fill(ring, index, 120);
+        index.drain();
+        Assert.assertEquals(index.getSize(), 50);
+        assertSearch(ring, index, events.subList(70, 120), EventQuery.builder().withLimit(1000).build(),
+                        Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void compactOverwritten()
+    {
+        // the smallest ring holds 64 KB, about 2500 of the events
+        final EventRing ring = new EventRing(64 * 1024);
+        final EventIndex index = new EventIndex(10_000);
+        final List<Event> events = fill(ring, index, 5000);
+        index.compact(ring.getStart());
+        final int size = index.getSize();
+        Assert.assertTrue(size < 5000);
+        assertSearch(ring, index, events.subList(5000 - size, 5000), EventQuery.builder().withLimit(10_000)
+                        .build(), Integer.MIN_VALUE);
+    }
+
+    private List<Event> fill(final EventRing _ring,
+                             final EventIndex _index,
+                             final int _count)
+    {
+        final List<Event> ret = new ArrayList<>();
+        for (int i = 0; i < _count; i++) {
+            final Event event = new Event(1000 + i, LEVELS[i % LEVELS.length], LOGGERS[i % LOGGERS.length],
+                            "message " + i, "u" + i % 5);
+            final long position = _ring.append(event.timestamp, event.level, event.logger, event.text);
+            _index.add(position, event.timestamp, event.level, event.logger, Map.of("user", event.user));
+            ret.add(event);
+        }
+        return ret;
+    }
+
+    private void assertSearch(final EventRing _ring,
+                              final EventIndex _index,
+                              final List<Event> _events,
+                              final EventQuery _query,
+                              final int _minLevel)
+    {
+        final List<String> expected = _events.stream()
+                        .filter(event -> event.level >= _minLevel)
+                        .filter(event -> _query.getLogger() == null || event.logger.startsWith(_query.getLogger()))
+                        .filter(event -> _query.getMdc().isEmpty()
+                                        || _query.getMdc().get("user").equals(event.user))
+                        .filter(event -> event.timestamp >= _query.getFrom() && event.timestamp <= _query.getTo())
+                        .filter(event -> _query.getText() == null || event.text.contains(_query.getText()))
+                        .map(event -> event.text)
+                        .collect(Collectors.toList());
+        final List<String> result = _index.search(_ring, _query, _minLevel).stream()
+                        .map(EventRing.Entry::getText)
+                        .collect(Collectors.toList());
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(result, expected.subList(Math.max(0, expected.size() - _query.getLimit()),
+                        expected.size()));
+    }
+
+    private static final class Event
+    {
+
+        private final long timestamp;
+        private final int level;
+        private final String logger;
+        private final String text;
+        private final String user;
+
+        private Event(final long _timestamp,
+                      final int _level,
+                      final String _logger,
+                      final String _text,
+                      final String _user)
+        {
+            timestamp = _timestamp;
+            level = _level;
+            logger = _logger;
+            text = _text;
+            user = _user;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.nio.charset.StandardCharsets;
+
+import org.efaps.esjp.logback.rest.EventRates;
+import org.efaps.esjp.logback.rest.dto.EventRateDto;
+import org.efaps.esjp.logback.util.EventFilter;
+import org.efaps.esjp.logback.util.LogbackReloader;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Tests for {@link EventRates}.
+ *
+ * @author The eFaps Team
+ */
+public class EventRatesTest
+{
+
+    private static final String NAME = "org.efaps.tests.rates";
+
+    private static final int EVENTS = 10;
+
+    @Test
+    public void countsEachCallOnce()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(NAME);
+        EventRates.setEnabled(true);
+        try {
+            LogbackReloader.reload(config(false));
+            for (int i = 0; i < EVENTS; i++) {
+                logger.info("event {}", i);
+                logger.debug("disabled {}", i);
+            }
+            Assert.assertEquals(getCount("INFO"), EVENTS);
+            Assert.assertEquals(getCount("DEBUG"), 0, "calls below the level are not counted");
+
+            LogbackReloader.reload(config(true));
+            for (int i = 0; i < EVENTS; i++) {
+                logger.info("event {}", i);
+            }
+            Assert.assertEquals(getCount("INFO"), 2 * EVENTS, "counted once whatever appenders are reached");
+        } finally {
+            EventRates.setEnabled(false);
+        }
+        Assert.assertTrue(logger.getLoggerContext().getTurboFilterList().stream()
+                        .noneMatch(filter -> EventFilter.NAME.equals(filter.getName())), "the filter is removed");
+    }
+
+    private long getCount(final String _level)
+    {
+        return EventRates.getTop(0, 1).stream()
+                        .filter(rate -> NAME.equals(rate.getName()) && _level.equals(rate.getLevel()))
+                        .mapToLong(EventRateDto::getCount)
+                        .sum();
+    }
+
+    /**
+     * @param _additive additivity of the logger
+     * @return configuration
+     */
+    private byte[] config(final boolean _additive)
+    {
+        return ("<configuration>"
+                        + "<appender name=\"RATES\" class=\"ch.qos.logback.core.read.ListAppender\"/>"
+                        + "<logger name=\"" + NAME + "\" level=\"INFO\" additivity=\"" + _additive + "\">"
+                        + "<appender-ref ref=\"RATES\"/></logger>"
+                        + "<root level=\"INFO\"/>"
+                        + "</configuration>").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.efaps.esjp.logback.util.EventRing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the wrap around of {@link EventRing}.
+ *
+ * @author The eFaps Team
+ */
+public class EventRingTest
+{
+
+    /** The smallest ring. */
+    private static final int CAPACITY = 64 * 1024;
+
+    @Test
+    public void wrapAround()
+    {
+        final EventRing ring = new EventRing(CAPACITY);
+        final List<String> texts = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // varying lengths and multi byte characters, so records span the end of the buffer
+            final String text = "event " + i + " äöü €" + "x".repeat(i % 37);
+            positions.add(ring.append(i, i % 4 * 10_000, i % 2 == 0 ? "even" : "odd", text));
+            texts.add(text);
+        }
+        Assert.assertTrue(ring.getEnd() > 2 * CAPACITY);
+        Assert.assertTrue(ring.getEnd() - ring.getStart() <= CAPACITY);
+
+        final List<EventRing.Entry> all = new ArrayList<>();
+        final long next = ring.read(0, Integer.MIN_VALUE, null, Integer.MAX_VALUE, all::add);
+        Assert.assertEquals(next, ring.getEnd());
+        final int first = texts.size() - all.size();
+        Assert.assertEquals(all.stream().map(EventRing.Entry::getText).collect(Collectors.toList()),
+                        texts.subList(first, texts.size()));
+        for (int i = 0; i < all.size(); i++) {
+            Assert.assertEquals(all.get(i).getTimestamp(), first + i);
+            Assert.assertEquals(all.get(i).getLogger(), (first + i) % 2 == 0 ? "even" : "odd");
+        }
+        Assert.assertNull(ring.get(positions.get(first - 1)));
+        Assert.assertEquals(ring.get(positions.get(first)).getText(), texts.get(first));
+
+        // a cursor that was overwritten continues with the oldest event
+        final List<EventRing.Entry> fromCursor = new ArrayList<>();
+        ring.read(positions.get(0), Integer.MIN_VALUE, null, 1, fromCursor::add);
+        Assert.assertEquals(fromCursor.get(0).getText(), texts.get(first));
+    }
+
+    @Test
+    public void readLast()
+    {
+        // holds about 10000 events, more than the recent positions kept
+        final EventRing ring = new EventRing(4 * CAPACITY);
+        final List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 12_000; i++) {
+            final String text = "e" + i;
+            ring.append(i, i % 100 == 0 ? 40_000 : 20_000, "a.b", text);
+            texts.add(text);
+        }
+        final List<EventRing.Entry> last = new ArrayList<>();
+        ring.readLast(Integer.MIN_VALUE, null, 10, last::add);
+        Assert.assertEquals(last.stream().map(EventRing.Entry::getText).collect(Collectors.toList()),
+                        texts.subList(11_990, 12_000));
+
+        // matches older than the recent positions are read from the start
+        final List<EventRing.Entry> errors = new ArrayList<>();
+        ring.readLast(40_000, "a", 1000, errors::add);
+        final List<String> expected = new ArrayList<>();
+        ring.read(0, 40_000, "a", Integer.MAX_VALUE, entry -> expected.add(entry.getText()));
+        Assert.assertTrue(expected.size() > 4096 / 100 + 1);
+        Assert.assertEquals(errors.stream().map(EventRing.Entry::getText).collect(Collectors.toList()), expected);
+
+        final List<EventRing.Entry> lastErrors = new ArrayList<>();
+        ring.readLast(40_000, "a", 3, lastErrors::add);
+        Assert.assertEquals(lastErrors.stream().map(EventRing.Entry::getText).collect(Collectors.toList()),
+                        List.of("e11700", "e11800", "e11900"));
+    }
+}
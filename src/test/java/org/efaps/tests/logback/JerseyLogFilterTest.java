@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.jersey.JerseyLogFilter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the head and tail sampling of {@link JerseyLogFilter}.
+ *
+ * @author The eFaps Team
+ */
+public class JerseyLogFilterTest
+{
+
+    @Test
+    public void limitsSamplesPerSecond()
+    {
+        final Filter filter = new Filter();
+        filter.setSamplesPerSecond(3);
+        filter.nanos = TimeUnit.SECONDS.toNanos(42) + 1;
+        int sampled = 0;
+        for (int i = 0; i < 10; i++) {
+            if (filter.sampleHead()) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(sampled, 3);
+        // still the same second
+        filter.nanos = TimeUnit.SECONDS.toNanos(43) - 1;
+        Assert.assertFalse(filter.sampleHead());
+        // the next second opens a new window
+        filter.nanos = TimeUnit.SECONDS.toNanos(43);
+        sampled = 0;
+        for (int i = 0; i < 10; i++) {
+            if (filter.sampleHead()) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(sampled, 3);
+    }
+
+    @Test
+    public void samplesSlowOrFailedExchanges()
+    {
+        final Filter filter = new Filter();
+        filter.setSamplingMode(JerseyLogFilter.SamplingMode.TAIL);
+        filter.setSlowThreshold(200);
+        Assert.assertFalse(filter.sampleTail(199, 200));
+        Assert.assertTrue(filter.sampleTail(200, 200));
+        Assert.assertTrue(filter.sampleTail(0, 400));
+        Assert.assertTrue(filter.sampleTail(0, 503));
+        Assert.assertFalse(filter.sampleTail(0, 399));
+    }
+
+    /**
+     * Gives access to the sampling of the filter and fixes its time source.
+     */
+    private static final class Filter
+        extends JerseyLogFilter
+    {
+
+        /** Value returned by the time source. */
+        private long nanos;
+
+        @Override
+        protected long nanoTime()
+        {
+            return this.nanos;
+        }
+
+        @Override
+        protected boolean sampleHead()
+        {
+            return super.sampleHead();
+        }
+
+        @Override
+        protected boolean sampleTail(final long _durationMillis,
+                                     final int _status)
+        {
+            return super.sampleTail(_durationMillis, _status);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.efaps.esjp.logback.jersey.JerseyLogPipeline;
+import org.efaps.esjp.logback.jersey.JerseyLogPipeline.OverflowPolicy;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the overflow policies and the worker of
+ * {@link JerseyLogPipeline}.
+ *
+ * @author The eFaps Team
+ */
+public class JerseyLogPipelineTest
+{
+
+    @Test
+    public void dropsAndCountsOnFullQueue()
+        throws Exception
+    {
+        final JerseyLogPipeline pipeline = new JerseyLogPipeline(2, OverflowPolicy.DROP);
+        final Sink sink = new Sink();
+        try {
+            pipeline.submit(null, () -> "first", sink);
+            Assert.assertTrue(sink.started.await(10, TimeUnit.SECONDS));
+            // the worker waits in the sink, so two fit into the queue
+            for (int i = 0; i < 4; i++) {
+                final String message = "queued" + i;
+                pipeline.submit(null, () -> message, sink);
+            }
+            Assert.assertEquals(pipeline.getSubmitted(), 5);
+            Assert.assertEquals(pipeline.getDropped(), 2);
+            Assert.assertEquals(pipeline.getQueued(), 2);
+            sink.release.countDown();
+            sink.await(3);
+            Assert.assertEquals(sink.messages, List.of("first", "queued0", "queued1"));
+        } finally {
+            sink.release.countDown();
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void blocksOnFullQueue()
+        throws Exception
+    {
+        final JerseyLogPipeline pipeline = new JerseyLogPipeline(1, OverflowPolicy.BLOCK);
+        final Sink sink = new Sink();
+        try {
+            pipeline.submit(null, () -> "first", sink);
+            Assert.assertTrue(sink.started.await(10, TimeUnit.SECONDS));
+            pipeline.submit(null, () -> "second", sink);
+            final Thread caller = new Thread(() -> pipeline.submit(null, () -> "third", sink));
+            caller.start();
+            caller.join(200);
+            Assert.assertTrue(caller.isAlive());
+            sink.release.countDown();
+            caller.join(10_000);
+            Assert.assertFalse(caller.isAlive());
+            sink.await(3);
+            Assert.assertEquals(sink.messages, List.of("first", "second", "third"));
+            Assert.assertEquals(pipeline.getSubmitted(), 3);
+            Assert.assertEquals(pipeline.getDropped(), 0);
+        } finally {
+            sink.release.countDown();
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void endsIdleWorker()
+        throws Exception
+    {
+        final JerseyLogPipeline pipeline = new JerseyLogPipeline(4, OverflowPolicy.DROP, 50, TimeUnit.MILLISECONDS);
+        final Sink sink = new Sink();
+        sink.release.countDown();
+        try {
+            pipeline.submit(null, () -> "first", sink);
+            sink.await(1);
+            final long end = System.currentTimeMillis() + 10_000;
+            while (pipeline.isRunning() && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Assert.assertFalse(pipeline.isRunning());
+            pipeline.submit(null, () -> "second", sink);
+            sink.await(2);
+            Assert.assertEquals(sink.messages, List.of("first", "second"));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    /**
+     * Records the messages, the first one waits until it is released.
+     */
+    private static final class Sink
+        implements Consumer<String>
+    {
+
+        /** Counted down when the first message arrives. */
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        /** Counted down to let the worker continue. */
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        /** The logged messages. */
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void accept(final String _message)
+        {
+            this.started.countDown();
+            try {
+                this.release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.messages.add(_message);
+        }
+
+        /**
+         * @param _count number of messages to wait for
+         * @throws InterruptedException on interrupt
+         */
+        private void await(final int _count)
+            throws InterruptedException
+        {
+            final long end = System.currentTimeMillis() + 10_000;
+            while (this.messages.size() < _count && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+        }
+    }
+}
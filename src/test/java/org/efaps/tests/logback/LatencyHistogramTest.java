@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.util.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the buckets and percentiles of the {@link LatencyHistogram}.
+ *
+ * @author The eFaps Team
+ */
+public class LatencyHistogramTest
+{
+
+    /** Relative error of a bucket. */
+    private static final double ERROR = 1d / 16;
+
+    @Test
+    public void relativeError()
+    {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final long value = random.nextLong(1L << 40);
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1L << 41);
+            // the lower of two values is reported as the upper bound of its bucket
+            final long reported = histogram.getValueAtPercentile(50);
+            Assert.assertTrue(reported >= value && reported <= value + value * ERROR, value + " -> " + reported);
+        }
+    }
+
+    @Test
+    public void smallValuesAreExact()
+    {
+        // below 2 * 16 every bucket holds one value
+        for (long value = 0; value < 32; value++) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1_000_000);
+            Assert.assertEquals(histogram.getValueAtPercentile(50), value);
+        }
+    }
+
+    @Test
+    public void percentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(histogram.getCount(), 100_000);
+        Assert.assertEquals(histogram.getMax(), 100_000);
+        Assert.assertEquals(histogram.getMean(), 50_000);
+        for (final double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+            final double expected = percentile * 1000;
+            final long reported = histogram.getValueAtPercentile(percentile);
+            Assert.assertTrue(reported >= expected && reported <= expected * (1 + ERROR),
+                            percentile + " -> " + reported);
+        }
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 100_000);
+    }
+
+    @Test
+    public void limits()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+        histogram.record(-5);
+        Assert.assertEquals(histogram.getMax(), 0);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), Long.MAX_VALUE);
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMax(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 0);
+    }
+
+    @Test
+    public void concurrentRecording()
+        throws Exception
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 1; j <= 50_000; j++) {
+                        histogram.record(j);
+                    }
+                });
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(histogram.getCount(), 200_000);
+        Assert.assertEquals(histogram.getMax(), 50_000);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 50_000);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import org.efaps.esjp.logback.rest.LevelOverrides;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Tests for the revert of temporary levels by {@link LevelOverrides}.
+ *
+ * @author The eFaps Team
+ */
+public class LevelOverridesTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.overrides";
+
+    private static final long TTL = 100;
+
+    @Test
+    public void revertsToPreviousLevel()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".reverted");
+        logger.setLevel(Level.DEBUG);
+        LevelOverrides.register(logger.getName(), "INFO", "DEBUG", System.currentTimeMillis() + TTL);
+        awaitExpiry(logger.getName());
+        Assert.assertEquals(logger.getLevel(), Level.INFO);
+    }
+
+    @Test
+    public void keepsLevelChangedInTheMeantime()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".changed");
+        logger.setLevel(Level.DEBUG);
+        LevelOverrides.register(logger.getName(), "INFO", "DEBUG", System.currentTimeMillis() + TTL);
+        logger.setLevel(Level.WARN);
+        awaitExpiry(logger.getName());
+        Assert.assertEquals(logger.getLevel(), Level.WARN);
+    }
+
+    private void awaitExpiry(final String _name)
+        throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < end && LevelOverrides.getOverrides().stream()
+                        .anyMatch(override -> override.getName().equals(_name))) {
+            Thread.sleep(10);
+        }
+    }
+}
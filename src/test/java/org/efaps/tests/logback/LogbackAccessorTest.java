@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.Locale;
+
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link LogbackAccessor} against the Logback on the class
+ * path.
+ *
+ * @author The eFaps Team
+ */
+public class LogbackAccessorTest
+{
+
+    @Test
+    public void levelNamesIgnoreCaseAndLocale()
+        throws Exception
+    {
+        final Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            final LogbackAccessor accessor = LogbackAccessor.get();
+            Assert.assertEquals(String.valueOf(accessor.toLevel(" info ")), "INFO");
+            Assert.assertEquals(String.valueOf(accessor.toLevel("warn")), "WARN");
+            Assert.assertEquals(String.valueOf(accessor.toLevel("unknown")), "DEBUG");
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void changesLevel()
+        throws Exception
+    {
+        final LogbackAccessor accessor = LogbackAccessor.get();
+        final Object logger = accessor.getLogger("org.efaps.tests.logback.accessor");
+        accessor.setLevel(logger, accessor.toLevel("ERROR"));
+        Assert.assertEquals(String.valueOf(accessor.getLevel(logger)), "ERROR");
+        accessor.setLevel(logger, null);
+        Assert.assertNull(accessor.getLevel(logger));
+        Assert.assertEquals(accessor.exists("org.efaps.tests.logback.accessor"), logger);
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.esjp.logback.rest.LevelOverrides;
+import org.efaps.esjp.logback.util.LogbackReloader;
+import org.efaps.util.EFapsException;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.joran.util.ConfigurationWatchListUtil;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Tests for {@link LogbackReloader} on the live LoggerContext.
+ *
+ * @author The eFaps Team
+ */
+public class LogbackReloaderTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.reload";
+
+    private static final int THREADS = 4;
+
+    private static final int EVENTS = 20_000;
+
+    @Test
+    public void noEventLostWhileReloading()
+        throws Exception
+    {
+        LogbackReloader.reload(config(0));
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        final Set<ListAppender<ILoggingEvent>> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        instances.add(getList(logger));
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final Future<?>[] futures = new Future<?>[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < EVENTS; j++) {
+                        logger.info("event {}", j);
+                    }
+                });
+            }
+            int version = 0;
+            while (!futures[THREADS - 1].isDone() || !futures[0].isDone()) {
+                LogbackReloader.reload(config(++version));
+                instances.add(getList(logger));
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            Assert.assertTrue(version > 0);
+        } finally {
+            executor.shutdown();
+        }
+        int received = 0;
+        for (final ListAppender<ILoggingEvent> instance : instances) {
+            received += instance.list.size();
+        }
+        Assert.assertEquals(received, THREADS * EVENTS);
+    }
+
+    @Test
+    public void replacedAppenderBelongsToLiveContext()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        LogbackReloader.reload(config(100));
+        final ListAppender<ILoggingEvent> first = getList(logger);
+        LogbackReloader.reload(config(100));
+        Assert.assertSame(getList(logger), first, "unchanged appender is kept");
+        LogbackReloader.reload(config(101));
+        final ListAppender<ILoggingEvent> second = getList(logger);
+        Assert.assertNotSame(second, first);
+        Assert.assertFalse(first.isStarted());
+        Assert.assertTrue(second.isStarted());
+        Assert.assertSame(second.getContext(), logger.getLoggerContext());
+    }
+
+    @Test(expectedExceptions = EFapsException.class)
+    public void invalidConfigurationIsRejected()
+        throws Exception
+    {
+        LogbackReloader.reload(("<configuration><appender name=\"X\" class=\"org.efaps.tests.Missing\"/>"
+                        + "<root level=\"INFO\"><appender-ref ref=\"X\"/></root></configuration>")
+                                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rejectedConfigurationKeepsLiveContext()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        LogbackReloader.reload(config(200));
+        final ListAppender<ILoggingEvent> list = getList(logger);
+        try {
+            LogbackReloader.reload(("<configuration><appender name=\"X\" class=\"org.efaps.tests.Missing\"/>"
+                            + "<logger name=\"" + PREFIX + "\" level=\"INFO\" additivity=\"false\">"
+                            + "<appender-ref ref=\"X\"/></logger></configuration>").getBytes(StandardCharsets.UTF_8));
+            Assert.fail("invalid appender is rejected");
+        } catch (final EFapsException e) {
+            Assert.assertSame(getList(logger), list);
+            Assert.assertTrue(list.isStarted());
+            Assert.assertFalse(staging().iteratorForAppenders().hasNext());
+        }
+    }
+
+    @Test
+    public void createdAppenderUsesProperties()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".properties");
+        LogbackReloader.reload(("<configuration><property name=\"PATTERN\" value=\"%msg%n\"/>"
+                        + "<appender name=\"OUT\" class=\"ch.qos.logback.core.OutputStreamAppender\">"
+                        + "<outputStream class=\"java.io.ByteArrayOutputStream\"/>"
+                        + "<encoder><pattern>${PATTERN}</pattern></encoder></appender>"
+                        + "<logger name=\"" + logger.getName() + "\" level=\"INFO\" additivity=\"false\">"
+                        + "<appender-ref ref=\"OUT\"/></logger>"
+                        + "<root level=\"INFO\"/></configuration>").getBytes(StandardCharsets.UTF_8));
+        @SuppressWarnings("unchecked")
+        final OutputStreamAppender<ILoggingEvent> appender = (OutputStreamAppender<ILoggingEvent>) logger
+                        .getAppender("OUT");
+        Assert.assertSame(appender.getContext(), logger.getLoggerContext());
+        Assert.assertEquals(((PatternLayoutEncoder) appender.getEncoder()).getPattern(), "%msg%n");
+        Assert.assertFalse(staging().iteratorForAppenders().hasNext());
+        LogbackReloader.reload(config(300));
+        Assert.assertFalse(appender.isStarted());
+    }
+
+    @Test
+    public void runtimeLevelSurvivesReload()
+        throws Exception
+    {
+        final Logger overridden = (Logger) LoggerFactory.getLogger(PREFIX + ".overridden");
+        final Logger explicit = (Logger) LoggerFactory.getLogger(PREFIX + ".explicit");
+        overridden.setLevel(Level.DEBUG);
+        LevelOverrides.register(overridden.getName(), null, "DEBUG", System.currentTimeMillis() + 60_000);
+        explicit.setLevel(Level.DEBUG);
+        try {
+            LogbackReloader.reload(config(400));
+            Assert.assertEquals(overridden.getLevel(), Level.DEBUG);
+            Assert.assertNull(explicit.getLevel());
+        } finally {
+            LevelOverrides.discard(overridden.getName());
+        }
+    }
+
+    @Test
+    public void fileAppenderOnFirstReload()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".file");
+        final LoggerContext context = logger.getLoggerContext();
+        final Path dir = Files.createTempDirectory("reload");
+        final String file = dir.resolve("file.log").toString();
+        final byte[] startup = fileConfig(logger.getName(), "ch.qos.logback.core.FileAppender", file, "");
+        final Path startupFile = dir.resolve("logback.xml");
+        Files.write(startupFile, startup);
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        final FileAppender<ILoggingEvent> initial = new FileAppender<>();
+        initial.setContext(context);
+        initial.setName("FILE");
+        initial.setFile(file);
+        initial.setEncoder(encoder);
+        initial.start();
+        logger.addAppender(initial);
+        logger.setAdditive(false);
+        context.removeObject(LogbackReloader.DEFINITIONS);
+        ConfigurationWatchListUtil.setMainWatchURL(context, startupFile.toUri().toURL());
+        try {
+            LogbackReloader.reload(startup);
+            Assert.assertSame(logger.getAppender("FILE"), initial, "appender of the startup configuration is kept");
+            logger.info("first");
+            LogbackReloader.reload(fileConfig(logger.getName(), "ch.qos.logback.core.FileAppender", file,
+                            "<immediateFlush>true</immediateFlush>"));
+            final FileAppender<?> replaced = (FileAppender<?>) logger.getAppender("FILE");
+            Assert.assertNotSame(replaced, initial);
+            Assert.assertTrue(replaced.isStarted());
+            Assert.assertFalse(initial.isStarted());
+            logger.info("second");
+            Assert.assertEquals(Files.readAllLines(Path.of(file)), List.of("first", "second"));
+        } finally {
+            context.removeObject(CoreConstants.CONFIGURATION_WATCH_LIST);
+            LogbackReloader.reload(config(500));
+        }
+    }
+
+    @Test
+    public void changedRollingFileAppender()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX + ".rolling");
+        final Path dir = Files.createTempDirectory("reload");
+        final String file = dir.resolve("rolling.log").toString();
+        final String policy = "<rollingPolicy class=\"ch.qos.logback.core.rolling.TimeBasedRollingPolicy\">"
+                        + "<fileNamePattern>" + dir.resolve("rolling.%d.log") + "</fileNamePattern></rollingPolicy>";
+        try {
+            logger.getLoggerContext().removeObject(LogbackReloader.DEFINITIONS);
+            LogbackReloader.reload(fileConfig(logger.getName(), "ch.qos.logback.core.rolling.RollingFileAppender",
+                            file, policy));
+            final FileAppender<?> first = (FileAppender<?>) logger.getAppender("FILE");
+            Assert.assertTrue(first.isStarted());
+            logger.info("first");
+            LogbackReloader.reload(fileConfig(logger.getName(), "ch.qos.logback.core.rolling.RollingFileAppender",
+                            file, policy + "<append>true</append>"));
+            final FileAppender<?> second = (FileAppender<?>) logger.getAppender("FILE");
+            Assert.assertNotSame(second, first);
+            Assert.assertTrue(second.isStarted());
+            Assert.assertFalse(first.isStarted());
+            logger.info("second");
+            try {
+                LogbackReloader.reload(("<configuration><appender name=\"X\" class=\"org.efaps.tests.Missing\"/>"
+                                + "<appender name=\"FILE\" class=\"ch.qos.logback.core.rolling.RollingFileAppender\">"
+                                + "<file>" + file + "</file>" + policy + "<encoder><pattern>%msg%n</pattern></encoder>"
+                                + "</appender><logger name=\"" + logger.getName()
+                                + "\" level=\"INFO\" additivity=\"false\"><appender-ref ref=\"FILE\"/>"
+                                + "<appender-ref ref=\"X\"/></logger></configuration>")
+                                                .getBytes(StandardCharsets.UTF_8));
+                Assert.fail("invalid appender is rejected");
+            } catch (final EFapsException e) {
+                Assert.assertSame(logger.getAppender("FILE"), second);
+                Assert.assertTrue(second.isStarted(), "stopped appender is started again");
+            }
+            logger.info("third");
+            Assert.assertEquals(Files.readAllLines(Path.of(file)), List.of("first", "second", "third"));
+        } finally {
+            LogbackReloader.reload(config(600));
+        }
+    }
+
+    @Test
+    public void invalidMappedAppenderKeepsLiveContext()
+        throws Exception
+    {
+        final Logger logger = (Logger) LoggerFactory.getLogger(PREFIX);
+        LogbackReloader.reload(config(700));
+        final ListAppender<ILoggingEvent> list = getList(logger);
+        final String config = new String(config(701), StandardCharsets.UTF_8).replace("<configuration>",
+                        "<configuration><property scope=\"context\" name=\"efaps.mapped.MAPPED.file\" value=\""
+                                        + Files.createTempDirectory("reload").resolve("mapped") + "\"/>"
+                                        + "<property scope=\"context\" name=\"efaps.mapped.MAPPED.segmentSize\""
+                                        + " value=\"large\"/>");
+        try {
+            LogbackReloader.reload(config.getBytes(StandardCharsets.UTF_8));
+            Assert.fail("invalid mapped appender is rejected");
+        } catch (final EFapsException e) {
+            Assert.assertSame(getList(logger), list, "live context is not changed");
+            Assert.assertTrue(list.isStarted());
+            Assert.assertNull(((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).getAppender("MAPPED"));
+        }
+    }
+
+    private Logger staging()
+    {
+        return (Logger) LoggerFactory.getLogger(LogbackReloader.STAGING);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListAppender<ILoggingEvent> getList(final Logger _logger)
+    {
+        return (ListAppender<ILoggingEvent>) _logger.getAppender("LIST");
+    }
+
+    /**
+     * @param _logger name of the logger
+     * @param _class class of the file appender
+     * @param _file file to write to
+     * @param _extra further elements of the appender
+     * @return configuration
+     */
+    private byte[] fileConfig(final String _logger,
+                              final String _class,
+                              final String _file,
+                              final String _extra)
+    {
+        return ("<configuration>"
+                        + "<appender name=\"FILE\" class=\"" + _class + "\">"
+                        + "<file>" + _file + "</file>" + _extra
+                        + "<encoder><pattern>%msg%n</pattern></encoder></appender>"
+                        + "<logger name=\"" + _logger + "\" level=\"INFO\" additivity=\"false\">"
+                        + "<appender-ref ref=\"FILE\"/></logger>"
+                        + "<root level=\"INFO\"/>"
+                        + "</configuration>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param _version changes the definition of the appender, so that it is
+     *            replaced
+     * @return configuration
+     */
+    private byte[] config(final int _version)
+    {
+        return ("<configuration>"
+                        + "<appender name=\"LIST\" class=\"ch.qos.logback.core.read.ListAppender\">"
+                        + "<!-- " + _version + " --></appender>"
+                        + "<logger name=\"" + PREFIX + "\" level=\"INFO\" additivity=\"false\">"
+                        + "<appender-ref ref=\"LIST\"/></logger>"
+                        + "<root level=\"INFO\"/>"
+                        + "</configuration>").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.efaps.esjp.logback.rest.LoggerHierarchy;
+import org.efaps.esjp.logback.rest.dto.LoggerNodeDto;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the incremental index kept by {@link LoggerHierarchy}.
+ *
+ * @author The eFaps Team
+ */
+public class LoggerHierarchyTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.hierarchy";
+
+    private LogbackAccessor accessor;
+
+    @BeforeClass
+    public void createLoggers()
+        throws Exception
+    {
+        accessor = LogbackAccessor.get();
+        for (final String name : new String[] { "a.x", "a.y", "b" }) {
+            accessor.getLogger(PREFIX + "." + name);
+        }
+    }
+
+    @Test
+    public void children()
+        throws Exception
+    {
+        final List<LoggerNodeDto> children = LoggerHierarchy.getChildren(PREFIX, null, 0);
+        Assert.assertEquals(names(children), List.of(PREFIX + ".a", PREFIX + ".b"));
+        Assert.assertEquals(children.get(0).getDescendants(), 2);
+        Assert.assertEquals(names(LoggerHierarchy.getChildren(PREFIX, PREFIX + ".a", 1)), List.of(PREFIX + ".b"));
+        Assert.assertNull(LoggerHierarchy.getChildren(PREFIX + ".missing", null, 0));
+    }
+
+    @Test
+    public void newLoggersAreInserted()
+        throws Exception
+    {
+        LoggerHierarchy.getChildren(PREFIX, null, 0);
+        accessor.getLogger(PREFIX + ".c.d");
+        final List<LoggerNodeDto> children = LoggerHierarchy.getChildren(PREFIX, null, 0);
+        Assert.assertEquals(names(children), List.of(PREFIX + ".a", PREFIX + ".b", PREFIX + ".c"));
+        Assert.assertEquals(children.get(2).getDescendants(), 1);
+    }
+
+    @Test
+    public void nestedClassesAreChildren()
+        throws Exception
+    {
+        accessor.getLogger(PREFIX + ".b$Inner$Deep");
+        final List<LoggerNodeDto> children = LoggerHierarchy.getChildren(PREFIX + ".b", null, 0);
+        Assert.assertEquals(names(children), List.of(PREFIX + ".b$Inner"));
+        Assert.assertEquals(children.get(0).getDescendants(), 1);
+    }
+
+    @Test
+    public void explicitLevelsArePropagated()
+        throws Exception
+    {
+        LoggerHierarchy.getChildren(PREFIX, null, 0);
+        final Object logger = accessor.getLogger(PREFIX + ".a.y");
+        accessor.setLevel(logger, accessor.toLevel("DEBUG"));
+        try {
+            Assert.assertTrue(LoggerHierarchy.getChildren(PREFIX, null, 0).get(0).isExplicitBelow());
+        } finally {
+            accessor.setLevel(logger, null);
+        }
+        Assert.assertFalse(LoggerHierarchy.getChildren(PREFIX, null, 0).get(0).isExplicitBelow());
+    }
+
+    private List<String> names(final List<LoggerNodeDto> _nodes)
+    {
+        return _nodes.stream().map(LoggerNodeDto::getName).collect(Collectors.toList());
+    }
+}
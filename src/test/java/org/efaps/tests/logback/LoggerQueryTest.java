@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.esjp.logback.rest.LoggerQuery;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the filter and the cursor of the {@link LoggerQuery}.
+ *
+ * @author The eFaps Team
+ */
+public class LoggerQueryTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.query";
+
+    private LogbackAccessor accessor;
+
+    @BeforeClass
+    public void createLoggers()
+        throws Exception
+    {
+        accessor = LogbackAccessor.get();
+        for (final String name : new String[] { "a.Alpha", "a.Beta", "b.Alpha", "b.c.Gamma" }) {
+            accessor.getLogger(PREFIX + "." + name);
+        }
+        accessor.setLevel(accessor.getLogger(PREFIX + ".b"), accessor.toLevel("WARN"));
+    }
+
+    @Test
+    public void prefix()
+        throws Exception
+    {
+        Assert.assertEquals(names(LoggerQuery.builder().withName(PREFIX + ".a").build()),
+                        List.of(PREFIX + ".a", PREFIX + ".a.Alpha", PREFIX + ".a.Beta"));
+    }
+
+    @Test
+    public void glob()
+        throws Exception
+    {
+        Assert.assertEquals(names(LoggerQuery.builder().withName(PREFIX + ".*.Alph?").build()),
+                        List.of(PREFIX + ".a.Alpha", PREFIX + ".b.Alpha"));
+        Assert.assertEquals(names(LoggerQuery.builder().withName("org.efaps.tests.query.(a)*").build()),
+                        List.of());
+    }
+
+    @Test
+    public void explicitAndLevels()
+        throws Exception
+    {
+        Assert.assertEquals(names(LoggerQuery.builder().withName(PREFIX).withExplicitOnly(true).build()),
+                        List.of(PREFIX + ".b"));
+        Assert.assertEquals(names(LoggerQuery.builder().withName(PREFIX).withLevels(List.of(" warn ")).build()),
+                        List.of(PREFIX + ".b", PREFIX + ".b.Alpha", PREFIX + ".b.c", PREFIX + ".b.c.Gamma"));
+    }
+
+    @Test
+    public void cursor()
+        throws Exception
+    {
+        Assert.assertEquals(names(LoggerQuery.builder().withName(PREFIX).withCursor(PREFIX + ".a.Beta").build()),
+                        List.of(PREFIX + ".b", PREFIX + ".b.Alpha", PREFIX + ".b.c", PREFIX + ".b.c.Gamma"));
+    }
+
+    private List<String> names(final LoggerQuery query)
+        throws Exception
+    {
+        final List<String> ret = new ArrayList<>();
+        final List<?> loggers = accessor.getLoggerList();
+        for (int i = query.start(accessor, loggers); i < loggers.size(); i++) {
+            if (query.matches(accessor, loggers.get(i))) {
+                ret.add(accessor.getName(loggers.get(i)));
+            }
+        }
+        return ret;
+    }
+}
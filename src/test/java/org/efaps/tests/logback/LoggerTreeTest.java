@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.esjp.logback.Configuration;
+import org.efaps.esjp.logback.util.LogbackAccessor;
+import org.efaps.esjp.logback.util.LoggerTree;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the navigation of the logger hierarchy by {@link LoggerTree} and
+ * the rows rendered from it.
+ *
+ * @author The eFaps Team
+ */
+public class LoggerTreeTest
+{
+
+    private static final String PREFIX = "org.efaps.tests.tree";
+
+    private LogbackAccessor accessor;
+
+    @BeforeClass
+    public void createLoggers()
+        throws Exception
+    {
+        accessor = LogbackAccessor.get();
+        for (final String name : new String[] { "a.x.y.z", "a.x.w", "b", "b-c", "c.d", "c$Inner$Deep",
+                        "c-e", "Upper", "q\"<i>" }) {
+            accessor.getLogger(PREFIX + "." + name);
+        }
+    }
+
+    @Test
+    public void compareRootFirst()
+    {
+        Assert.assertTrue(LoggerTree.compare(LoggerTree.ROOT, "A") < 0);
+        Assert.assertTrue(LoggerTree.compare("A", LoggerTree.ROOT) > 0);
+        Assert.assertTrue(LoggerTree.compare("A", "B") < 0);
+        Assert.assertEquals(LoggerTree.compare("A", "A"), 0);
+    }
+
+    @Test
+    public void countDescendants()
+        throws Exception
+    {
+        final List<?> loggers = accessor.getLoggerList();
+        Assert.assertEquals(LoggerTree.countDescendants(accessor, loggers, PREFIX + ".a"), 4);
+        Assert.assertEquals(LoggerTree.countDescendants(accessor, loggers, PREFIX + ".b"), 0);
+        Assert.assertEquals(LoggerTree.countDescendants(accessor, loggers, PREFIX + ".c"), 3,
+                        "nested classes are descendants");
+        Assert.assertEquals(LoggerTree.countDescendants(accessor, loggers, LoggerTree.ROOT), loggers.size() - 1);
+    }
+
+    @Test
+    public void childrenSkipSubtrees()
+        throws Exception
+    {
+        final List<?> loggers = accessor.getLoggerList();
+        Assert.assertEquals(names(LoggerTree.children(accessor, loggers, PREFIX, null, 0)),
+                        List.of(PREFIX + ".Upper", PREFIX + ".a", PREFIX + ".b", PREFIX + ".b-c", PREFIX + ".c",
+                                        PREFIX + ".c-e", PREFIX + ".q\"<i>"));
+        Assert.assertEquals(names(LoggerTree.children(accessor, loggers, PREFIX + ".a.x", null, 0)),
+                        List.of(PREFIX + ".a.x.w", PREFIX + ".a.x.y"));
+        Assert.assertEquals(names(LoggerTree.children(accessor, loggers, PREFIX + ".c", null, 0)),
+                        List.of(PREFIX + ".c$Inner", PREFIX + ".c.d"));
+    }
+
+    @Test
+    public void childrenPaged()
+        throws Exception
+    {
+        final List<?> loggers = accessor.getLoggerList();
+        final List<String> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            final LoggerTree.Page page = LoggerTree.children(accessor, loggers, PREFIX, cursor, 4);
+            all.addAll(names(page));
+            cursor = page.getNext();
+        } while (cursor != null);
+        Assert.assertEquals(all, names(LoggerTree.children(accessor, loggers, PREFIX, null, 0)));
+    }
+
+    @Test
+    public void nestedChildrenPaged()
+        throws Exception
+    {
+        final List<?> loggers = accessor.getLoggerList();
+        final LoggerTree.Page page = LoggerTree.children(accessor, loggers, PREFIX + ".c", null, 1);
+        Assert.assertEquals(names(page), List.of(PREFIX + ".c$Inner"));
+        Assert.assertEquals(names(LoggerTree.children(accessor, loggers, PREFIX + ".c", page.getNext(), 1)),
+                        List.of(PREFIX + ".c.d"));
+    }
+
+    @Test
+    public void rowsEscapeNames()
+        throws Exception
+    {
+        final String html = new Configuration().getRows(PREFIX, null).toString();
+        Assert.assertTrue(html.contains("data-node=\"" + PREFIX + ".q&quot;&lt;i&gt;\""), html);
+        Assert.assertFalse(html.contains("<i>"), html);
+        Assert.assertTrue(html.contains("data-key=\"logbackLevel:" + PREFIX + ".a\""), html);
+    }
+
+    private List<String> names(final LoggerTree.Page page)
+        throws Exception
+    {
+        final List<String> ret = new ArrayList<>();
+        for (final Object logger : page.getLoggers()) {
+            ret.add(accessor.getName(logger));
+        }
+        return ret;
+    }
+}
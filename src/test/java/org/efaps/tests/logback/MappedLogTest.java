@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.tests.logback;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.efaps.esjp.logback.util.MappedLog;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the segments of {@link MappedLog}.
+ *
+ * @author The eFaps Team
+ */
+public class MappedLogTest
+{
+
+    /** Size of a record, four fit into a segment. */
+    private static final int RECORD = 16;
+
+    private static final int SEGMENT = 4 * RECORD;
+
+    @Test
+    public void rollOver()
+        throws Exception
+    {
+        final Path dir = Files.createTempDirectory("mappedlog");
+        final StringBuilder expected = new StringBuilder();
+        try (MappedLog log = new MappedLog(dir.resolve("test"), SEGMENT, 10, Long.MAX_VALUE)) {
+            for (int i = 0; i < 10; i++) {
+                final String record = String.format("record %08d\n", i);
+                log.write(record.getBytes(StandardCharsets.UTF_8));
+                expected.append(record);
+            }
+            Assert.assertEquals(log.getGeneration(), 3);
+        }
+        Assert.assertEquals(Files.size(dir.resolve("test.00001.log")), SEGMENT);
+        Assert.assertEquals(Files.size(dir.resolve("test.00003.log")), 2 * RECORD);
+        Assert.assertEquals(read(dir, 3), expected.toString());
+    }
+
+    @Test
+    public void continueAfterFailedRoll()
+        throws Exception
+    {
+        final Path dir = Files.createTempDirectory("mappedlog");
+        try (MappedLog log = new MappedLog(dir.resolve("test"), SEGMENT, 100, Long.MAX_VALUE)) {
+            final Path blocker = Files.createFile(dir.resolve("test.00002.log"));
+            final byte[] record = "record 00000000\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < 6; i++) {
+                log.write(record);
+            }
+            Assert.assertEquals(log.getGeneration(), 1);
+            Assert.assertEquals(log.getDropped(), 2);
+            Files.delete(blocker);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (log.getGeneration() == 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(log.getGeneration(), 2);
+            log.write(record);
+        }
+        Assert.assertEquals(Files.size(dir.resolve("test.00001.log")), SEGMENT);
+        Assert.assertEquals(Files.size(dir.resolve("test.00002.log")), RECORD);
+    }
+
+    @Test
+    public void closeWhileWriting()
+        throws Exception
+    {
+        final Path dir = Files.createTempDirectory("mappedlog");
+        final int threads = 4;
+        final AtomicLong written = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final MappedLog log = new MappedLog(dir.resolve("test"), 64 * SEGMENT, 10, Long.MAX_VALUE);
+            final Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    final byte[] record = "record 00000000\n".getBytes(StandardCharsets.UTF_8);
+                    while (log.getGeneration() >= 0) {
+                        log.write(record);
+                        written.incrementAndGet();
+                    }
+                });
+            }
+            while (written.get() < 10_000) {
+                Thread.onSpinWait();
+            }
+            log.close();
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            Assert.assertEquals(log.getGeneration(), -1);
+            log.write(new byte[RECORD]);
+        } finally {
+            executor.shutdown();
+        }
+        try (var files = Files.list(dir)) {
+            for (final Path file : files.toList()) {
+                final String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                Assert.assertEquals(content.length() % RECORD, 0, file.toString());
+                Assert.assertEquals(content.replace("record 00000000\n", ""), "", file.toString());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidSegmentSize()
+        throws Exception
+    {
+        new MappedLog(Files.createTempDirectory("mappedlog").resolve("test"), 0, 10, 10).close();
+    }
+
+    private String read(final Path _dir,
+                        final int _segments)
+        throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 1; i <= _segments; i++) {
+            out.write(Files.readAllBytes(_dir.resolve(String.format("test.%05d.log", i))));
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}